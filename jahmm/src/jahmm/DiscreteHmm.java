@@ -0,0 +1,474 @@
+package jahmm;
+
+import jahmm.calculators.DiscreteForwardBackwardCalculator;
+import jahmm.calculators.DiscreteViterbiCalculator;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.ObservationIntegerSequence;
+import jahmm.observables.Opdf;
+import jahmm.observables.OpdfInteger;
+import jahmm.observables.SymbolDictionary;
+import java.io.Serializable;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+import jutils.Tagable;
+
+/**
+ * A Hidden Markov Model with discrete emissions over the symbols
+ * <code>0</code> to <code>nbSymbols() - 1</code>, stored as matrices instead
+ * of opdf objects. It is the model of the discrete engine:
+ * {@link DiscreteForwardBackwardCalculator}, {@link DiscreteViterbiCalculator}
+ * and {@link jahmm.learn.DiscreteBaumWelchLearner}, which operate on
+ * {@link ObservationIntegerSequence}s and look the emission probabilities up
+ * by index.
+ * <p>
+ * The transition matrix is stored row by row in a flat array. The emission
+ * matrix <i>B</i> (<code>nbStates() &times; nbSymbols()</code>) is stored
+ * symbol by symbol, such that the emission probabilities of one symbol in
+ * all the states are contiguous. The logarithms of both matrices (and of the
+ * initial probabilities) are computed when first requested after a
+ * modification.
+ * <p>
+ * A model with {@link OpdfInteger} opdfs can be converted from and to a
+ * {@link RegularHmmBase}. A model of an alphabet of arbitrary symbols keeps
+ * the {@link SymbolDictionary} that encodes them: the symbols of the
+ * sequences are encoded once with {@link #encode}, after which the model is
+ * trained and scored on the codes.
+ *
+ * @author kommusoft
+ */
+public class DiscreteHmm implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(DiscreteHmm.class.getName());
+
+    /**
+     * Converts a Hidden Markov Model whose opdfs are {@link OpdfInteger}s.
+     *
+     * @param hmm The model to convert.
+     * @return A discrete model with the same parameters.
+     */
+    public static DiscreteHmm of(RegularHmm<ObservationInteger, ?> hmm) {
+        int s = hmm.nbStates();
+        int k = 0x00;
+        for (int i = 0; i < s; i++) {
+            Opdf<ObservationInteger> opdf = hmm.getOpdf(i);
+            if (!(opdf instanceof OpdfInteger)) {
+                throw new IllegalArgumentException("Only integer opdfs can be converted");
+            }
+            k = Math.max(k, ((OpdfInteger) opdf).nbEntries());
+        }
+        DiscreteHmm result = new DiscreteHmm(s, k);
+        for (int i = 0; i < s; i++) {
+            result.pi[i] = hmm.getPi(i);
+            for (int j = 0; j < s; j++) {
+                result.a[i * s + j] = hmm.getAij(i, j);
+            }
+            OpdfInteger opdf = (OpdfInteger) hmm.getOpdf(i);
+            for (int o = 0; o < k; o++) {
+                result.b[o * s + i] = o < opdf.nbEntries() ? opdf.probability(new ObservationInteger(o)) : 0.0d;
+            }
+        }
+        return result;
+    }
+
+    private final int nbStates;
+    private final int nbSymbols;
+    private final double[] pi;
+    private final double[] a;
+    private final double[] b;
+    private final SymbolDictionary<?> dictionary;
+    private transient volatile Logarithms logarithms;
+
+    /**
+     * Creates a new model. Each state has the same <i>pi</i> value, the
+     * transition probabilities are all equal and every state emits every
+     * symbol with the same probability.
+     *
+     * @param nbStates The (strictly positive) number of states.
+     * @param nbSymbols The (strictly positive) number of symbols.
+     */
+    public DiscreteHmm(int nbStates, int nbSymbols) {
+        this(nbStates, nbSymbols, null);
+    }
+
+    /**
+     * Creates a new model on the codes of a dictionary. Each state has the
+     * same <i>pi</i> value, the transition probabilities are all equal and
+     * every state emits every code (including the out-of-vocabulary code
+     * {@link SymbolDictionary#OOV}) with the same probability.
+     *
+     * @param nbStates The (strictly positive) number of states.
+     * @param dictionary The dictionary of the symbols; the model has a symbol
+     * per code of the dictionary.
+     */
+    public DiscreteHmm(int nbStates, SymbolDictionary<?> dictionary) {
+        this(nbStates, dictionary.size(), dictionary);
+    }
+
+    private DiscreteHmm(int nbStates, int nbSymbols, SymbolDictionary<?> dictionary) {
+        if (nbStates <= 0x00 || nbSymbols <= 0x00) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
+        this.nbStates = nbStates;
+        this.nbSymbols = nbSymbols;
+        this.pi = new double[nbStates];
+        this.a = new double[nbStates * nbStates];
+        this.b = new double[nbSymbols * nbStates];
+        this.dictionary = dictionary;
+        Arrays.fill(this.pi, 1.0d / nbStates);
+        Arrays.fill(this.a, 1.0d / nbStates);
+        Arrays.fill(this.b, 1.0d / nbSymbols);
+    }
+
+    /**
+     * Creates a new model with the given parameters.
+     *
+     * @param pi The initial probabilities of the states.
+     * @param a The transition matrix: <code>a[i][j]</code> is the probability
+     * to go from state <code>i</code> to state <code>j</code>.
+     * @param b The emission matrix: <code>b[i][k]</code> is the probability of
+     * symbol <code>k</code> in state <code>i</code>.
+     */
+    public DiscreteHmm(double[] pi, double[][] a, double[][] b) {
+        this(pi.length, b.length == 0x00 ? 0x00 : b[0x00].length);
+        if (a.length != this.nbStates || b.length != this.nbStates) {
+            throw new IllegalArgumentException("Wrong dimensions");
+        }
+        int s = this.nbStates;
+        System.arraycopy(pi, 0x00, this.pi, 0x00, s);
+        for (int i = 0; i < s; i++) {
+            if (a[i].length != s || b[i].length != this.nbSymbols) {
+                throw new IllegalArgumentException("Wrong dimensions");
+            }
+            System.arraycopy(a[i], 0x00, this.a, i * s, s);
+            for (int k = 0; k < this.nbSymbols; k++) {
+                this.b[k * s + i] = b[i][k];
+            }
+        }
+    }
+
+    private DiscreteHmm(DiscreteHmm hmm) {
+        this.nbStates = hmm.nbStates;
+        this.nbSymbols = hmm.nbSymbols;
+        this.pi = hmm.pi.clone();
+        this.a = hmm.a.clone();
+        this.b = hmm.b.clone();
+        this.dictionary = hmm.dictionary;
+    }
+
+    /**
+     * Returns the number of states of this model.
+     *
+     * @return The number of states of this model.
+     */
+    public int nbStates() {
+        return this.nbStates;
+    }
+
+    /**
+     * Returns the number of symbols of this model.
+     *
+     * @return The number of symbols of this model.
+     */
+    public int nbSymbols() {
+        return this.nbSymbols;
+    }
+
+    /**
+     * Returns the probability that a state is initial.
+     *
+     * @param i A state number such that <code>0 &le; i &lt; nbStates()</code>.
+     * @return The probability that state <code>i</code> is initial.
+     */
+    public double getPi(int i) {
+        return this.pi[i];
+    }
+
+    /**
+     * Sets the probability that a state is initial.
+     *
+     * @param i A state number such that <code>0 &le; i &lt; nbStates()</code>.
+     * @param value The probability that state <code>i</code> is initial.
+     */
+    public void setPi(int i, double value) {
+        this.pi[i] = value;
+        this.logarithms = null;
+    }
+
+    /**
+     * Returns the probability of a transition.
+     *
+     * @param i The source state.
+     * @param j The target state.
+     * @return The probability to go from state <code>i</code> to state
+     * <code>j</code>.
+     */
+    public double getAij(int i, int j) {
+        return this.a[i * this.nbStates + j];
+    }
+
+    /**
+     * Sets the probability of a transition.
+     *
+     * @param i The source state.
+     * @param j The target state.
+     * @param value The probability to go from state <code>i</code> to state
+     * <code>j</code>.
+     */
+    public void setAij(int i, int j, double value) {
+        this.a[i * this.nbStates + j] = value;
+        this.logarithms = null;
+    }
+
+    /**
+     * Returns the probability that a state emits a symbol.
+     *
+     * @param i A state.
+     * @param k A symbol.
+     * @return The probability of symbol <code>k</code> in state
+     * <code>i</code>.
+     */
+    public double getBik(int i, int k) {
+        return this.b[k * this.nbStates + i];
+    }
+
+    /**
+     * Sets the probability that a state emits a symbol.
+     *
+     * @param i A state.
+     * @param k A symbol.
+     * @param value The probability of symbol <code>k</code> in state
+     * <code>i</code>.
+     */
+    public void setBik(int i, int k, double value) {
+        this.b[k * this.nbStates + i] = value;
+        this.logarithms = null;
+    }
+
+    /**
+     * Returns the dictionary of the symbols of this model.
+     *
+     * @return The dictionary that encodes the symbols of this model, or
+     * <code>null</code> if the model was built on integer symbols.
+     */
+    public SymbolDictionary<?> dictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * Encodes a sequence of observations with the dictionary of this model.
+     * The symbols that are not in the dictionary, or that were added to it
+     * after this model was built, are encoded as
+     * {@link SymbolDictionary#OOV}.
+     *
+     * @param observations A sequence of observations tagged with symbols.
+     * @return The codes of the observations.
+     */
+    public ObservationIntegerSequence encode(Collection<? extends Tagable<?>> observations) {
+        if (this.dictionary == null) {
+            throw new IllegalStateException("This model has no dictionary");
+        }
+        return this.dictionary.encode(observations, this.nbSymbols);
+    }
+
+    /**
+     * Returns the initial probabilities. The array is not copied and must not
+     * be modified.
+     *
+     * @return The initial probability of every state.
+     */
+    public double[] piArray() {
+        return this.pi;
+    }
+
+    /**
+     * Returns the transition matrix, stored row by row: the probability to go
+     * from state <code>i</code> to state <code>j</code> is at index
+     * <code>i * nbStates() + j</code>. The array is not copied and must not be
+     * modified.
+     *
+     * @return The transition matrix.
+     */
+    public double[] transitionArray() {
+        return this.a;
+    }
+
+    /**
+     * Returns the emission matrix, stored symbol by symbol: the probability of
+     * symbol <code>k</code> in state <code>i</code> is at index
+     * <code>k * nbStates() + i</code>. The array is not copied and must not be
+     * modified.
+     *
+     * @return The emission matrix.
+     */
+    public double[] emissionArray() {
+        return this.b;
+    }
+
+    /**
+     * Returns the logarithms of the initial probabilities, laid out as
+     * {@link #piArray()}. The array must not be modified.
+     *
+     * @return The logarithms of the initial probabilities.
+     */
+    public double[] logPiArray() {
+        return this.logarithms().pi;
+    }
+
+    /**
+     * Returns the logarithms of the transition matrix, laid out as
+     * {@link #transitionArray()}. The array must not be modified.
+     *
+     * @return The logarithms of the transition matrix.
+     */
+    public double[] logTransitionArray() {
+        return this.logarithms().a;
+    }
+
+    /**
+     * Returns the logarithms of the emission matrix, laid out as
+     * {@link #emissionArray()}. The array must not be modified.
+     *
+     * @return The logarithms of the emission matrix.
+     */
+    public double[] logEmissionArray() {
+        return this.logarithms().b;
+    }
+
+    private Logarithms logarithms() {
+        Logarithms l = this.logarithms;
+        if (l == null) {
+            l = new Logarithms(this.pi, this.a, this.b);
+            this.logarithms = l;
+        }
+        return l;
+    }
+
+    /**
+     * Checks that a sequence only holds symbols of this model.
+     *
+     * @param sequence A sequence of symbols.
+     */
+    public void check(ObservationIntegerSequence sequence) {
+        for (int t = 0; t < sequence.size(); t++) {
+            int o = sequence.value(t);
+            if (o < 0x00 || o >= this.nbSymbols) {
+                throw new IllegalArgumentException("Wrong observation value");
+            }
+        }
+    }
+
+    /**
+     * Returns the probability of a sequence.
+     *
+     * @param sequence A sequence of symbols.
+     * @return The probability of the sequence.
+     */
+    public double probability(ObservationIntegerSequence sequence) {
+        return Math.exp(this.lnProbability(sequence));
+    }
+
+    /**
+     * Returns the natural logarithm of the probability of a sequence.
+     *
+     * @param sequence A sequence of symbols.
+     * @return The logarithm of the probability of the sequence.
+     */
+    public double lnProbability(ObservationIntegerSequence sequence) {
+        return DiscreteForwardBackwardCalculator.Instance.lnProbability(this, sequence);
+    }
+
+    /**
+     * Returns the most likely state sequence of a sequence of symbols.
+     *
+     * @param sequence A sequence of symbols.
+     * @return The most likely state sequence.
+     */
+    public int[] mostLikelyStateSequence(ObservationIntegerSequence sequence) {
+        return new DiscreteViterbiCalculator(this, sequence).stateSequence();
+    }
+
+    /**
+     * Converts this model into a Hidden Markov Model with an
+     * {@link OpdfInteger} per state.
+     *
+     * @return A model with the same parameters.
+     */
+    public RegularHmmBase<ObservationInteger> toRegularHmm() {
+        int s = this.nbStates;
+        double[][] matrix = new double[s][s];
+        List<OpdfInteger> opdfs = new ArrayList<>(s);
+        double[] probabilities = new double[this.nbSymbols];
+        for (int i = 0; i < s; i++) {
+            System.arraycopy(this.a, i * s, matrix[i], 0x00, s);
+            for (int k = 0; k < this.nbSymbols; k++) {
+                probabilities[k] = this.b[k * s + i];
+            }
+            opdfs.add(new OpdfInteger(probabilities));
+        }
+        return new RegularHmmBase<>(this.pi, matrix, opdfs);
+    }
+
+    @Override
+    public DiscreteHmm clone() {
+        return new DiscreteHmm(this);
+    }
+
+    @Override
+    public String toString() {
+        return this.toString(NumberFormat.getInstance());
+    }
+
+    /**
+     * Gives a description of this model.
+     *
+     * @param nf A number formatter used to print numbers (e.g. Pi values).
+     * @return A textual description of this model.
+     */
+    public String toString(NumberFormat nf) {
+        StringBuilder sb = new StringBuilder();
+        int s = this.nbStates;
+        for (int i = 0; i < s; i++) {
+            sb.append(String.format("State %d\n  Pi: %s\n  Aij:", i, nf.format(this.pi[i])));
+            for (int j = 0; j < s; j++) {
+                sb.append(' ').append(nf.format(this.a[i * s + j]));
+            }
+            sb.append("\n  Bik:");
+            for (int k = 0; k < this.nbSymbols; k++) {
+                sb.append(' ').append(nf.format(this.b[k * s + i]));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The logarithms of the parameters of a model.
+     */
+    private static final class Logarithms {
+
+        final double[] pi;
+        final double[] a;
+        final double[] b;
+
+        Logarithms(double[] pi, double[] a, double[] b) {
+            this.pi = log(pi);
+            this.a = log(a);
+            this.b = log(b);
+        }
+
+        private static double[] log(double[] values) {
+            double[] result = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = Math.log(values[i]);
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -12,9 +12,9 @@ import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
 import jahmm.observables.Opdf;
 import jahmm.observables.OpdfFactory;
+import jahmm.observables.OpdfFactoryUtils;
 import jahmm.toolbox.InputMarkovGeneratorBase;
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -23,7 +23,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import jutils.ArrayUtils;
 import jutils.Tagable;
 import jutils.collections.CollectionUtils;
 import jutlis.lists.ListArray;
@@ -39,6 +38,14 @@ import jutlis.lists.ListArray;
  * @param <TObs> The type of observations of the InputHmm.
  * @note The A matrix has the following structure: A_{i,j,k} means the
  * probability of moving from state i to j given input k.
+ * <p>
+ * The input dimension of the A and B matrices has a capacity that can exceed
+ * the number of symbols, such that {@link #splitInput} appends new symbols in
+ * amortized constant time. {@link #mergeInput} merges the symbols in place
+ * and fills the freed slots with the last symbols, such that the indices of
+ * the other inputs can change. The transition matrix that is collapsed over
+ * the inputs is cached and only recomputed after {@link #setAixj},
+ * {@link #splitInput} or {@link #mergeInput} modified the model.
  */
 public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, double[][][], Object[][], InputObservationTuple<TIn, TObs>, InputHmmBase<TObs, TIn>> implements InputHmm<TObs, TIn, InputHmmBase<TObs, TIn>> {
 
@@ -134,9 +141,10 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
 
     protected static <TObs extends Observation> Object[][] generateB(int nbStates, int nbSymbols, OpdfFactory<? extends Opdf<TObs>> opdfFactory) {
         Object[][] b = new Object[nbStates][nbSymbols];
+        Iterator<Opdf<TObs>> opdfs = OpdfFactoryUtils.generate(opdfFactory, nbStates * nbSymbols).iterator();
         for (int i = 0x00; i < nbStates; i++) {
             for (int j = 0x00; j < nbSymbols; j++) {
-                b[i][j] = opdfFactory.generate();
+                b[i][j] = opdfs.next();
             }
         }
         return b;
@@ -169,6 +177,10 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
     }
 
     private final HashMap<TIn, Integer> indexRegister = new HashMap<>();
+    private Object[] registeredInputs;
+    private int nbSymbols;
+    private long version;
+    private transient volatile Collapsed collapsed;
 
     /**
      * Creates a new IHMM. Each state has the same <i>pi</i> value and the
@@ -181,8 +193,8 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
      */
     public InputHmmBase(int nbStates, OpdfFactory<? extends Opdf<TObs>> opdfFactory, Iterable<TIn> possibleInput) {
         super(generatePi(nbStates), generateA(CollectionUtils.size(possibleInput), nbStates), generateB(nbStates, CollectionUtils.size(possibleInput), opdfFactory));
-        generateInputIndices(possibleInput);
         this.checkConstraints();
+        generateInputIndices(possibleInput);
     }
 
     @SuppressWarnings("unchecked")
@@ -192,8 +204,8 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
 
     public InputHmmBase(double[] pi, double[][][] a, Iterable<? extends Iterable<? extends Opdf<TObs>>> opdfs, Iterable<TIn> possibleInput) throws CloneNotSupportedException {
         super(pi.clone(), cloneA(a), generateB(a.length, CollectionUtils.size(possibleInput), opdfs));
-        this.generateInputIndices(possibleInput);
         this.checkConstraints();
+        this.generateInputIndices(possibleInput);
     }
 
     /**
@@ -214,13 +226,19 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
         super(pi.clone(), cloneA(a), cloneB(opdfs));
         this.checkConstraints();
         CollectionUtils.putAll(this.indexRegister, possibleInput);
+        this.registeredInputs = new Object[this.nbSymbols];
+        for (Map.Entry<TIn, Integer> entry : possibleInput.entrySet()) {
+            this.registeredInputs[entry.getValue()] = entry.getKey();
+        }
     }
 
     private void generateInputIndices(Iterable<TIn> possibleInput) {
         this.indexRegister.clear();
+        this.registeredInputs = new Object[this.nbSymbols];
         int i = 0x00;
         for (TIn inp : possibleInput) {
             this.indexRegister.put(inp, i);
+            this.registeredInputs[i] = inp;
             i++;
         }
     }
@@ -229,6 +247,106 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
         if (a.length == 0 || pi.length != a.length || b.length != a.length || b[0x00].length != a[0x00].length) {
             throw new IllegalArgumentException("Wrong dimensions");
         }
+        this.nbSymbols = a[0x00].length;
+    }
+
+    /**
+     * Marks the transition tensor as modified, such that the cached collapsed
+     * transition matrix is recomputed when needed.
+     */
+    private void modified() {
+        this.version++;
+    }
+
+    /**
+     * Returns the collapsed transition matrix, recomputing it if the
+     * transition tensor was modified since it was computed last. The matrix is
+     * recomputed in a new array and published together with its version, such
+     * that concurrent readers never see a matrix that is being recomputed.
+     */
+    private double[][] cachedCollapsedA() {
+        Collapsed cached = this.collapsed;
+        long current = this.version;
+        if (cached == null || cached.version != current) {
+            int N = this.nbStates();
+            int M = this.nbSymbols;
+            double[][] colA = new double[N][N];
+            for (int i = 0x00; i < N; i++) {
+                double[] row = colA[i];
+                double[][] ai = this.a[i];
+                for (int j = 0x00; j < M; j++) {
+                    double[] aij = ai[j];
+                    for (int k = 0x00; k < N; k++) {
+                        row[k] += aij[k];
+                    }
+                }
+            }
+            cached = new Collapsed(colA, current);
+            this.collapsed = cached;
+        }
+        return cached.a;
+    }
+
+    /**
+     * Makes sure the input dimension of the A and B matrices can hold the given
+     * number of symbols. The capacity grows geometrically.
+     */
+    private void ensureCapacity(int capacity) {
+        int current = this.registeredInputs.length;
+        if (current < capacity) {
+            int newCapacity = Math.max(capacity, current + (current >> 0x01) + 0x01);
+            for (int i = 0x00; i < a.length; i++) {
+                this.a[i] = Arrays.copyOf(this.a[i], newCapacity);
+                this.b[i] = Arrays.copyOf(this.b[i], newCapacity);
+            }
+            this.registeredInputs = Arrays.copyOf(this.registeredInputs, newCapacity);
+        }
+    }
+
+    /**
+     * Appends a new symbol whose transitions and observation distributions are
+     * copies of those of the given symbol.
+     */
+    @SuppressWarnings("unchecked")
+    private int appendSymbol(TIn input, int source) {
+        int k = this.nbSymbols;
+        this.ensureCapacity(k + 0x01);
+        for (int i = 0x00; i < a.length; i++) {
+            this.a[i][k] = this.a[i][source].clone();
+            try {
+                this.b[i][k] = ((Opdf<TObs>) this.b[i][source]).clone();
+            } catch (CloneNotSupportedException e) {
+                throw new InternalError();
+            }
+        }
+        this.registeredInputs[k] = input;
+        this.indexRegister.put(input, k);
+        this.nbSymbols++;
+        return k;
+    }
+
+    /**
+     * Removes the symbol at the given slot by moving the last symbol into it.
+     * The input of the slot must already be removed from the register.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeSymbol(int k) {
+        int last = this.nbSymbols - 0x01;
+        for (int i = 0x00; i < a.length; i++) {
+            this.a[i][k] = this.a[i][last];
+            this.b[i][k] = this.b[i][last];
+            this.a[i][last] = null;
+            this.b[i][last] = null;
+        }
+        if (k != last) {
+            TIn moved = (TIn) this.registeredInputs[last];
+            this.registeredInputs[k] = moved;
+            if (moved != null) {
+                this.indexRegister.put(moved, k);
+            }
+        }
+        this.registeredInputs[last] = null;
+        this.nbSymbols = last;
     }
 
     public Map<TIn, Integer> getIndexRegister() {
@@ -252,7 +370,7 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
      */
     @Override
     public int nbSymbols() {
-        return a[0x00].length;
+        return this.nbSymbols;
     }
 
     /**
@@ -264,7 +382,14 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
      */
     @Override
     public InputHmmBase<TObs, TIn> clone() throws CloneNotSupportedException {
-        return new InputHmmBase<>(this.pi, this.a, this.b, this.indexRegister);
+        int n = this.nbStates();
+        double[][][] ta = new double[n][][];
+        Object[][] tb = new Object[n][];
+        for (int i = 0x00; i < n; i++) {
+            ta[i] = Arrays.copyOf(this.a[i], this.nbSymbols);
+            tb[i] = Arrays.copyOf(this.b[i], this.nbSymbols);
+        }
+        return new InputHmmBase<>(this.pi, ta, tb, this.indexRegister);
     }
 
     /**
@@ -280,13 +405,7 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
      */
     @Override
     public double getAij(int i, int j) {
-        double total = 0.0d;
-        double[][] row = this.a[i];
-        int n = row.length;
-        for (int k = 0x00; k < n; k++) {
-            total += row[k][j];
-        }
-        return total;
+        return this.cachedCollapsedA()[i][j];
     }
 
     /**
@@ -346,7 +465,7 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
     public void fold(int n) {
         int m = pi.length;
         double[] pia = new double[m], pib = this.pi, tmp;
-        double[][] colA = this.collapsedA();
+        double[][] colA = this.cachedCollapsedA();
         double val;
         for (int t = 0x00; t < n; t++) {
             tmp = pia;
@@ -384,42 +503,27 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
     @Override
     public void splitInput(final TIn originalIn, final TIn... newIns) {
         if (originalIn != null && newIns != null && newIns.length > 0x00) {
-            if (newIns.length > 0x00) {
-                Integer originalIndex = this.indexRegister.remove(originalIn);
-                CollectionUtils.incrementValueByIndex(this.indexRegister, new ListArray<>(originalIndex), -0x01);
-                if (originalIndex != null) {
-                    final int origix = originalIndex;
-                    final int offset = this.indexRegister.size();
-                    int idxPtr = offset;
-                    for (TIn newIn : newIns) {
-                        if (!this.indexRegister.containsKey(newIn)) {
-                            this.indexRegister.put(newIn, idxPtr);
-                            idxPtr++;
-                        }
-                    }
-                    for (int i = 0x00; i < a.length; i++) {
-                        double[][] ai = this.a[i];
-                        double[] source = ai[origix];
-                        int nSource = source.length;
-                        double[][] newa = new double[idxPtr][];
-                        for (int j = 0x00; j < origix; j++) {
-                            newa[j] = ai[j];
-                        }
-                        for (int j = origix; j < offset; j++) {
-                            newa[j] = ai[j + 0x01];
-                        }
-                        newa[offset] = source;
-                        for (int j = offset + 0x01; j < idxPtr; j++) {
-                            newa[j] = Arrays.copyOf(source, nSource);
-                        }
-                        this.a[i] = newa;
+            Integer originalIndex = this.indexRegister.remove(originalIn);
+            if (originalIndex == null) {
+                throw new UnsupportedOperationException("Cannot split a currently unknown input.");
+            }
+            final int origix = originalIndex;
+            boolean reused = false;
+            for (TIn newIn : newIns) {
+                if (!this.indexRegister.containsKey(newIn)) {
+                    if (reused) {
+                        this.appendSymbol(newIn, origix);
+                    } else {
+                        this.indexRegister.put(newIn, origix);
+                        this.registeredInputs[origix] = newIn;
+                        reused = true;
                     }
-                } else {
-                    throw new UnsupportedOperationException("Cannot split a currently unknown input.");
                 }
-            } else {
-                CollectionUtils.replaceKey(indexRegister, originalIn, newIns[0x00]);
             }
+            if (!reused) {
+                this.removeSymbol(origix);
+            }
+            this.modified();
         } else {
             throw new IllegalArgumentException("Cannot split to zero branches.");
         }
@@ -428,23 +532,27 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
     @Override
     public void mergeInput(final TIn newIn, final TIn... originalIns) {
         if (newIn != null && originalIns != null && originalIns.length > 0x00) {
-            if (originalIns.length > 0x01) {
-                final ListArray<TIn> originalList = new ListArray<>(originalIns);
-                final ArrayList<Integer> ids = new ArrayList<>(originalIns.length);
-                CollectionUtils.removeAll(this.indexRegister, originalList, ids);
-                Collections.sort(ids);
-                final double scale = 1.0d / ids.size();
-                final int first = ids.get(0x00);
-                final List<Integer> subl = ids.subList(0x01, ids.size());
-                CollectionUtils.incrementValueByIndex(this.indexRegister, subl, -0x01);
-                this.indexRegister.put(newIn, first);
-                final int nState = this.indexRegister.size();
+            int[] ids = new int[originalIns.length];
+            int n = 0x00;
+            for (TIn originalIn : originalIns) {
+                Integer index = this.indexRegister.remove(originalIn);
+                if (index != null) {
+                    ids[n++] = index;
+                }
+            }
+            if (n <= 0x00) {
+                throw new UnsupportedOperationException("Cannot merge currently unknown inputs.");
+            }
+            Arrays.sort(ids, 0x00, n);
+            final int first = ids[0x00];
+            if (n > 0x01) {
                 //TODO weight by Pi?
+                final double scale = 1.0d / n;
                 for (int i = 0x00; i < a.length; i++) {
                     double[][] ai = a[i];
                     double[] aif = ai[first];
-                    for (int snd : subl) {
-                        double[] ais = ai[snd];
+                    for (int l = 0x01; l < n; l++) {
+                        double[] ais = ai[ids[l]];
                         for (int j = 0x00; j < ais.length; j++) {
                             aif[j] += ais[j];
                         }
@@ -452,13 +560,17 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
                     for (int j = 0x00; j < aif.length; j++) {
                         aif[j] *= scale;
                     }
-                    double[][] newa = new double[nState][];
-                    ArrayUtils.copySkipArray(newa, ai, subl);
-                    a[i] = newa;
                 }
-            } else {
-                CollectionUtils.replaceKey(this.indexRegister, originalIns[0x00], newIn);
             }
+            for (int l = n - 0x01; l > 0x00; l--) {
+                this.removeSymbol(ids[l]);
+            }
+            Integer previous = this.indexRegister.put(newIn, first);
+            this.registeredInputs[first] = newIn;
+            if (previous != null && previous != first) {
+                this.removeSymbol(previous);
+            }
+            this.modified();
         } else {
             throw new IllegalArgumentException("Cannot merge zero branches.");
         }
@@ -497,6 +609,7 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
     @Override
     public void setAixj(int i, int x, int j, double aixj) {
         this.a[i][x][j] = aixj;
+        this.modified();
     }
 
     @Override
@@ -522,17 +635,10 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
      */
     @Override
     public double[][] collapsedA() {
-        int N = this.nbStates();
-        int M = this.nbSymbols();
-        double[][] colA = new double[N][N];
-        for (int i = 0x00; i < N; i++) {
-            for (int k = 0x00; k < N; k++) {
-                double val = 0.0d;
-                for (int j = 0x00; j < M; j++) {
-                    val += this.a[i][j][k];
-                }
-                colA[i][k] = val;
-            }
+        double[][] cached = this.cachedCollapsedA();
+        double[][] colA = new double[cached.length][];
+        for (int i = 0x00; i < cached.length; i++) {
+            colA[i] = cached[i].clone();
         }
         return colA;
     }
@@ -629,4 +735,20 @@ public class InputHmmBase<TObs extends Observation, TIn> extends HmmBase<TObs, d
         return new InputMarkovGeneratorBase<>(this);
     }
 
+    /**
+     * A collapsed transition matrix and the version of the transition tensor
+     * it was computed from. The matrix is never modified once published.
+     */
+    private static final class Collapsed {
+
+        private final double[][] a;
+        private final long version;
+
+        Collapsed(double[][] a, long version) {
+            this.a = a;
+            this.version = version;
+        }
+
+    }
+
 }
@@ -11,10 +11,13 @@ import jahmm.calculators.RegularViterbiCalculatorBase;
 import jahmm.observables.Observation;
 import jahmm.observables.Opdf;
 import jahmm.observables.OpdfFactory;
+import jahmm.observables.OpdfFactoryUtils;
+import jahmm.observables.TiedOpdf;
 import jahmm.toolbox.MarkovGenerator;
 import jahmm.toolbox.RegularMarkovGeneratorBase;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
@@ -78,10 +81,7 @@ public class RegularHmmBase<TObs extends Observation> extends HmmBase<TObs, doub
      * associated to each state.
      */
     public RegularHmmBase(int nbStates, OpdfFactory<? extends Opdf<TObs>> opdfFactory) {
-        super(generatePi(nbStates), generateA(nbStates), new ArrayList<Opdf<TObs>>(nbStates));
-        for (int i = 0; i < nbStates; i++) {
-            b.add(opdfFactory.generate());
-        }
+        super(generatePi(nbStates), generateA(nbStates), OpdfFactoryUtils.generate(opdfFactory, nbStates));
         this.checkConstraints();
     }
 
@@ -255,7 +255,31 @@ public class RegularHmmBase<TObs extends Observation> extends HmmBase<TObs, doub
     }
 
     /**
-     * Creates a duplicate object of the HMM.
+     * Creates a copy of a model that shares no observation distribution, nor
+     * any parameter tied between distributions, with the original. The
+     * distributions of the copy that were tied together in the original are
+     * tied together (and to no distribution of the original) in the copy.
+     *
+     * @param <TObs> The type of the observations.
+     * @param <THmm> The type of the model.
+     * @param hmm The model to copy.
+     * @return An independent copy of the model.
+     * @throws CloneNotSupportedException If the model or one of its
+     * distributions cannot be copied.
+     */
+    public static <TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> THmm deepClone(THmm hmm) throws CloneNotSupportedException {
+        THmm nhmm = hmm.clone();
+        IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+        for (int i = 0; i < nhmm.nbStates(); i++) {
+            Opdf<TObs> opdf = hmm.getOpdf(i);
+            nhmm.setOpdf(i, opdf instanceof TiedOpdf ? ((TiedOpdf<TObs>) opdf).cloneTied(copies) : opdf.clone());
+        }
+        return nhmm;
+    }
+
+    /**
+     * Creates a duplicate object of the HMM. The duplicate shares the
+     * observation distributions of this model (see {@link #deepClone}).
      *
      * @return An IHHM that contains the same date as this object.
      * @throws CloneNotSupportedException An exception such that classes lower
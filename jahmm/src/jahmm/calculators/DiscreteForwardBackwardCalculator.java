@@ -0,0 +1,205 @@
+package jahmm.calculators;
+
+import jahmm.DiscreteHmm;
+import jahmm.observables.ObservationIntegerSequence;
+import java.util.logging.Logger;
+
+/**
+ * The forward-backward algorithm on a {@link DiscreteHmm}. The emission
+ * probabilities of an observation are read as a contiguous slice of the
+ * emission matrix of the model, and the alpha and beta values are stored in
+ * flat arrays: the value of state <code>i</code> at time <code>t</code> is at
+ * index <code>t * nbStates + i</code>.
+ * <p>
+ * The values are scaled: the alpha values of every time step sum to one, and
+ * the scaling factor <code>c[t]</code> is the sum of the alpha values of time
+ * step <code>t</code> before normalization, such that the probability of the
+ * sequence is the product of the scaling factors. The beta values are divided
+ * by the scaling factors of the next time steps, such that the product of the
+ * alpha and beta values of a state at a time step is the probability to be in
+ * that state given the whole sequence.
+ *
+ * @author kommusoft
+ */
+public final class DiscreteForwardBackwardCalculator {
+
+    /**
+     * The (stateless) instance of the calculator.
+     */
+    public static final DiscreteForwardBackwardCalculator Instance = new DiscreteForwardBackwardCalculator();
+    private static final Logger LOG = Logger.getLogger(DiscreteForwardBackwardCalculator.class.getName());
+
+    private DiscreteForwardBackwardCalculator() {
+    }
+
+    /**
+     * Computes the scaled alpha values of a sequence.
+     *
+     * @param hmm A discrete model.
+     * @param sequence A non-empty sequence of symbols.
+     * @param ct An array of length <code>sequence.size()</code> in which the
+     * scaling factors are stored.
+     * @return The scaled alpha values.
+     */
+    public double[] computeAlpha(DiscreteHmm hmm, ObservationIntegerSequence sequence, double[] ct) {
+        int s = hmm.nbStates();
+        int n = sequence.size();
+        if (n <= 0x00) {
+            throw new IllegalArgumentException("Invalid empty sequence");
+        }
+        double[] alpha = new double[n * s];
+        double[] pi = hmm.piArray();
+        double[] a = hmm.transitionArray();
+        double[] b = hmm.emissionArray();
+        int ob = sequence.value(0x00) * s;
+        for (int i = 0; i < s; i++) {
+            alpha[i] = pi[i] * b[ob + i];
+        }
+        ct[0x00] = scale(alpha, 0x00, s);
+        for (int t = 1, prev = 0x00, cur = s; t < n; t++, prev = cur, cur += s) {
+            for (int i = 0; i < s; i++) {
+                double ai = alpha[prev + i];
+                for (int j = 0, p = i * s; j < s; j++, p++) {
+                    alpha[cur + j] += ai * a[p];
+                }
+            }
+            ob = sequence.value(t) * s;
+            for (int j = 0; j < s; j++) {
+                alpha[cur + j] *= b[ob + j];
+            }
+            ct[t] = scale(alpha, cur, s);
+        }
+        return alpha;
+    }
+
+    /**
+     * Computes the scaled beta values of a sequence.
+     *
+     * @param hmm A discrete model.
+     * @param sequence A non-empty sequence of symbols.
+     * @param ct The scaling factors computed together with the alpha values.
+     * @return The scaled beta values.
+     */
+    public double[] computeBeta(DiscreteHmm hmm, ObservationIntegerSequence sequence, double[] ct) {
+        int s = hmm.nbStates();
+        int n = sequence.size();
+        if (n <= 0x00) {
+            throw new IllegalArgumentException("Invalid empty sequence");
+        }
+        double[] beta = new double[n * s];
+        double[] weighted = new double[s];
+        for (int i = (n - 1) * s; i < n * s; i++) {
+            beta[i] = 1.0d;
+        }
+        for (int t = n - 2; t >= 0x00; t--) {
+            backward(hmm, sequence.value(t + 1), ct[t + 1], beta, (t + 1) * s, beta, t * s, weighted);
+        }
+        return beta;
+    }
+
+    /**
+     * Computes the natural logarithm of the probability of a sequence. Only
+     * two rows of alpha values are kept.
+     *
+     * @param hmm A discrete model.
+     * @param sequence A sequence of symbols.
+     * @return The logarithm of the probability of the sequence.
+     */
+    public double lnProbability(DiscreteHmm hmm, ObservationIntegerSequence sequence) {
+        int s = hmm.nbStates();
+        int n = sequence.size();
+        if (n <= 0x00) {
+            return 0.0d;
+        }
+        double[] pi = hmm.piArray();
+        double[] a = hmm.transitionArray();
+        double[] b = hmm.emissionArray();
+        double[] prev = new double[s];
+        double[] cur = new double[s];
+        int ob = sequence.value(0x00) * s;
+        for (int i = 0; i < s; i++) {
+            prev[i] = pi[i] * b[ob + i];
+        }
+        double result = Math.log(scale(prev, 0x00, s));
+        for (int t = 1; t < n; t++) {
+            for (int j = 0; j < s; j++) {
+                cur[j] = 0.0d;
+            }
+            for (int i = 0; i < s; i++) {
+                double ai = prev[i];
+                for (int j = 0, p = i * s; j < s; j++, p++) {
+                    cur[j] += ai * a[p];
+                }
+            }
+            ob = sequence.value(t) * s;
+            for (int j = 0; j < s; j++) {
+                cur[j] *= b[ob + j];
+            }
+            result += Math.log(scale(cur, 0x00, s));
+            double[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the probability of a sequence.
+     *
+     * @param hmm A discrete model.
+     * @param sequence A sequence of symbols.
+     * @return The probability of the sequence.
+     */
+    public double probability(DiscreteHmm hmm, ObservationIntegerSequence sequence) {
+        return Math.exp(this.lnProbability(hmm, sequence));
+    }
+
+    /**
+     * Computes one step of the backward pass: the scaled beta values of time
+     * step <code>t</code> from those of time step <code>t+1</code>.
+     *
+     * @param hmm A discrete model.
+     * @param o The symbol at time step <code>t+1</code>.
+     * @param c The scaling factor of time step <code>t+1</code>.
+     * @param next The array holding the beta values of time step
+     * <code>t+1</code>.
+     * @param nextOffset The offset of those values.
+     * @param out The array in which the beta values of time step
+     * <code>t</code> are stored.
+     * @param outOffset The offset of those values.
+     * @param weighted Scratch space of length <code>hmm.nbStates()</code>; on
+     * return, it holds the emission probabilities of <code>o</code> multiplied
+     * by the beta values of time step <code>t+1</code> and divided by
+     * <code>c</code>.
+     */
+    public static void backward(DiscreteHmm hmm, int o, double c, double[] next, int nextOffset, double[] out, int outOffset, double[] weighted) {
+        int s = hmm.nbStates();
+        double[] a = hmm.transitionArray();
+        double[] b = hmm.emissionArray();
+        int ob = o * s;
+        for (int j = 0; j < s; j++) {
+            weighted[j] = b[ob + j] * next[nextOffset + j] / c;
+        }
+        for (int i = 0; i < s; i++) {
+            double sum = 0.0d;
+            for (int j = 0, p = i * s; j < s; j++, p++) {
+                sum += a[p] * weighted[j];
+            }
+            out[outOffset + i] = sum;
+        }
+    }
+
+    private static double scale(double[] values, int offset, int length) {
+        double sum = 0.0d;
+        for (int i = offset; i < offset + length; i++) {
+            sum += values[i];
+        }
+        if (sum > 0.0d) {
+            for (int i = offset; i < offset + length; i++) {
+                values[i] /= sum;
+            }
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,103 @@
+package jahmm.calculators;
+
+import jahmm.DiscreteHmm;
+import jahmm.observables.ObservationIntegerSequence;
+import java.util.logging.Logger;
+
+/**
+ * Computes the most likely state sequence of a sequence of symbols given a
+ * {@link DiscreteHmm}. The computation is done with the logarithms of the
+ * parameters of the model; the back pointers are stored in a single
+ * <code>int</code> array of <code>sequence.size() * nbStates</code> elements
+ * and only two rows of scores are kept.
+ *
+ * @author kommusoft
+ */
+public final class DiscreteViterbiCalculator {
+
+    private static final Logger LOG = Logger.getLogger(DiscreteViterbiCalculator.class.getName());
+
+    private final int[] stateSequence;
+    private final double lnProbability;
+
+    /**
+     * Computes the most likely state sequence of a sequence of symbols.
+     *
+     * @param hmm A discrete model.
+     * @param sequence A non-empty sequence of symbols.
+     */
+    public DiscreteViterbiCalculator(DiscreteHmm hmm, ObservationIntegerSequence sequence) {
+        int s = hmm.nbStates();
+        int n = sequence.size();
+        if (n <= 0x00) {
+            throw new IllegalArgumentException("Invalid empty sequence");
+        }
+        double[] logPi = hmm.logPiArray();
+        double[] logA = hmm.logTransitionArray();
+        double[] logB = hmm.logEmissionArray();
+        int[] psi = new int[n * s];
+        double[] prev = new double[s];
+        double[] cur = new double[s];
+        int ob = sequence.value(0x00) * s;
+        for (int i = 0; i < s; i++) {
+            prev[i] = logPi[i] + logB[ob + i];
+        }
+        for (int t = 1, q = s; t < n; t++, q += s) {
+            for (int j = 0; j < s; j++) {
+                cur[j] = Double.NEGATIVE_INFINITY;
+            }
+            for (int i = 0; i < s; i++) {
+                double di = prev[i];
+                for (int j = 0, p = i * s; j < s; j++, p++) {
+                    double d = di + logA[p];
+                    if (d > cur[j]) {
+                        cur[j] = d;
+                        psi[q + j] = i;
+                    }
+                }
+            }
+            ob = sequence.value(t) * s;
+            for (int j = 0; j < s; j++) {
+                cur[j] += logB[ob + j];
+            }
+            double[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        int best = 0x00;
+        for (int i = 1; i < s; i++) {
+            if (prev[i] > prev[best]) {
+                best = i;
+            }
+        }
+        this.lnProbability = prev[best];
+        this.stateSequence = new int[n];
+        this.stateSequence[n - 1] = best;
+        for (int t = n - 1; t > 0x00; t--) {
+            this.stateSequence[t - 1] = psi[t * s + this.stateSequence[t]];
+        }
+    }
+
+    /**
+     * Returns the neperian logarithm of the probability of the given
+     * observation sequence on the most likely state sequence of the given HMM.
+     *
+     * @return <code>ln(P[O,S|H])</code> where <code>O</code> is the given
+     * observation sequence, <code>H</code> the given HMM and <code>S</code>
+     * the most likely state sequence of <code>O</code> given <code>H</code>.
+     */
+    public double lnProbability() {
+        return this.lnProbability;
+    }
+
+    /**
+     * Returns a (copy of the) array containing the states of the most likely
+     * state sequence.
+     *
+     * @return The most likely state sequence.
+     */
+    public int[] stateSequence() {
+        return this.stateSequence.clone();
+    }
+
+}
@@ -1,17 +1,26 @@
 package jahmm.calculators;
 
 import jahmm.InputHmm;
+import jahmm.observables.InputObservationSequence;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.logging.Logger;
+import jutlis.tuples.Tuple3;
+import jutlis.tuples.Tuple3Base;
 
 /**
  * An alpha-beta calculator that calculates the alpha and beta values for a
  * given InputHiddenMarkovModel. This calculator is based on the work of Falko
  * Bause.
+ * <p>
+ * The input of every interaction is resolved to its index once and the
+ * probability of every observation is computed once per state, after which the
+ * recursions only read the transition tensor by index. Sequences encoded by an
+ * {@link jahmm.observables.InputObservationSequenceEncoder} skip the lookups
+ * altogether.
  *
  * @author kommusoft
  * @param <TObs>
@@ -27,30 +36,36 @@ public class InputForwardBackwardCalculatorBase<TObs extends Observation, TInt,
     }
 
     @Override
-    public double[][] computeAlpha(THmm hmm, Collection<? extends InputObservationTuple<TInt, TObs>> oseq) {//TODO: mod?
-        int T = oseq.size();
+    public double[][] computeAlpha(THmm hmm, Collection<? extends InputObservationTuple<TInt, TObs>> oseq) {
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        return this.computeAlpha(hmm, inputs, InputObservationSequence.emissions(hmm, oseq, inputs));
+    }
+
+    /**
+     * Computes the alpha array of an encoded sequence.
+     *
+     * @param hmm The model.
+     * @param inputs The input index of every interaction.
+     * @param emissions The probability of every observation given every state
+     * (see {@link InputObservationSequence#emissions}).
+     * @return The alpha array of the sequence.
+     */
+    public double[][] computeAlpha(THmm hmm, int[] inputs, double[][] emissions) {
+        int T = inputs.length;
         int s = hmm.nbStates();
         double[][] alpha = new double[T][s];
-        T--;
-
-        Iterator<? extends InputObservationTuple<TInt, TObs>> seqIterator = oseq.iterator();
-        InputObservationTuple<TInt, TObs> observation;
-        if (seqIterator.hasNext()) {
-            observation = seqIterator.next();
-
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                alpha[0][i] = hmm.getPi(i) * hmm.getOpdf(i, observation.getInput()).probability(observation.getObservation());
+        if (T > 0x00) {
+            for (int i = 0; i < s; i++) {
+                alpha[0][i] = hmm.getPi(i) * emissions[0][i];
             }
-
-            for (int t = 0; t < T; t++) {
-                observation = seqIterator.next();
-
+            for (int t = 1; t < T; t++) {
+                int x = inputs[t];
                 for (int j = 0; j < s; j++) {
                     double sum = 0.;
                     for (int i = 0; i < s; i++) {
-                        sum += alpha[t][i] * hmm.getAixj(i, observation.getItem1(), j);
+                        sum += alpha[t - 0x01][i] * hmm.getAixj(i, x, j);
                     }
-                    alpha[t + 0x01][j] = sum * hmm.getOpdf(j, observation.getInput()).probability(observation.getObservation());
+                    alpha[t][j] = sum * emissions[t][j];
                 }
             }
         }
@@ -59,30 +74,54 @@ public class InputForwardBackwardCalculatorBase<TObs extends Observation, TInt,
 
     @Override
     public double[][] computeBeta(THmm hmm, List<? extends InputObservationTuple<TInt, TObs>> oseq) {
-        int t = oseq.size();
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        return this.computeBeta(hmm, inputs, InputObservationSequence.emissions(hmm, oseq, inputs));
+    }
+
+    /**
+     * Computes the beta array of an encoded sequence.
+     *
+     * @param hmm The model.
+     * @param inputs The input index of every interaction.
+     * @param emissions The probability of every observation given every state
+     * (see {@link InputObservationSequence#emissions}).
+     * @return The beta array of the sequence.
+     */
+    public double[][] computeBeta(THmm hmm, int[] inputs, double[][] emissions) {
+        int t = inputs.length;
         int s = hmm.nbStates();
         double[][] beta = new double[t][s];
         t--;
-        InputObservationTuple<TInt, TObs> observation;
-
         for (int i = 0; i < s; i++) {
             beta[t][i] = 1.0d;
         }
-
-        for (; t > 0;) {
+        double[] weighted = new double[s];
+        for (; t > 0; t--) {
+            int x = inputs[t];
+            for (int j = 0; j < s; j++) {
+                weighted[j] = beta[t][j] * emissions[t][j];
+            }
             for (int i = 0; i < s; i++) {
-                observation = oseq.get(t);
                 double sum = 0.0d;
                 for (int j = 0; j < s; j++) {
-                    sum += beta[t][j] * hmm.getAixj(i, observation.getItem1(), j) * hmm.getOpdf(j, observation.getInput()).probability(observation.getObservation());
+                    sum += hmm.getAixj(i, x, j) * weighted[j];
                 }
                 beta[t - 0x01][i] = sum;
             }
-            t--;
         }
         return beta;
     }
 
+    @Override
+    public Tuple3<double[][], double[][], Double> computeAll(THmm hmm, List<? extends InputObservationTuple<TInt, TObs>> oseq) {
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        double[][] emissions = InputObservationSequence.emissions(hmm, oseq, inputs);
+        double[][] alpha = this.computeAlpha(hmm, inputs, emissions);
+        double[][] beta = this.computeBeta(hmm, inputs, emissions);
+        double probability = computeProbability(oseq, hmm, EnumSet.of(ComputationType.ALPHA), alpha, beta);
+        return new Tuple3Base<>(alpha, beta, probability);
+    }
+
     @Override
     protected double computeProbability(List<? extends InputObservationTuple<TInt, TObs>> oseq, THmm hmm, Collection<ComputationType> flags, double[][] alpha, double[][] beta) {
         double probability = 0.;
@@ -1,10 +1,10 @@
 package jahmm.calculators;
 
 import jahmm.InputHmm;
+import jahmm.observables.InputObservationSequence;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 import jutils.probability.ProbabilityUtils;
@@ -54,10 +54,12 @@ public final class InputForwardBackwardScaledCalculatorBase<TObs extends Observa
         double[] ctFactors = new double[t];
         double[][] alpha = null, beta = null;
 
-        alpha = computeAlpha(hmm, oseq, ctFactors);
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        double[][] emissions = InputObservationSequence.emissions(hmm, oseq, inputs);
+        alpha = computeAlpha(hmm, inputs, emissions, ctFactors);
 
         if (flags.contains(ComputationType.BETA)) {
-            beta = computeBeta(hmm, oseq, ctFactors);
+            beta = computeBeta(hmm, inputs, emissions, ctFactors);
         }
 
         return computeProbability(ctFactors);
@@ -73,29 +75,37 @@ public final class InputForwardBackwardScaledCalculatorBase<TObs extends Observa
      * @return
      */
     public double[][] computeAlpha(THmm hmm, Collection<? extends InputObservationTuple<TInt, TObs>> oseq, double... ctFactors) {
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        return computeAlpha(hmm, inputs, InputObservationSequence.emissions(hmm, oseq, inputs), ctFactors);
+    }
+
+    /**
+     * Computes the scaled alpha array of an encoded sequence.
+     *
+     * @param hmm The model.
+     * @param inputs The input index of every interaction.
+     * @param emissions The probability of every observation given every state
+     * (see {@link InputObservationSequence#emissions}).
+     * @param ctFactors The array in which the scaling factors are stored.
+     * @return The scaled alpha array of the sequence.
+     */
+    public double[][] computeAlpha(THmm hmm, int[] inputs, double[][] emissions, double[] ctFactors) {
         int T = ctFactors.length;
         int s = hmm.nbStates();
-        Iterator<? extends InputObservationTuple<TInt, TObs>> seqIterator = oseq.iterator();
         double[][] alpha = new double[T][s];
-        if (seqIterator.hasNext()) {
-
-            InputObservationTuple<TInt, TObs> observation = seqIterator.next();
-
+        if (T > 0x00) {
             for (int i = 0x00; i < s; i++) {
-                alpha[0x00][i] = hmm.getPi(i) * hmm.getOpdf(i, observation.getInput()).probability(observation.getObservation());
+                alpha[0x00][i] = hmm.getPi(i) * emissions[0x00][i];
             }
-
             ctFactors[0x00] = ProbabilityUtils.scale(alpha[0x00]);
-
             for (int t = 1; t < T; t++) {
-                observation = seqIterator.next();
-
+                int x = inputs[t];
                 for (int i = 0; i < s; i++) {
                     double sum = 0.0d;
                     for (int j = 0; j < s; j++) {
-                        sum += alpha[t - 1][j] * hmm.getAixj(j, observation.getItem1(), i);
+                        sum += alpha[t - 1][j] * hmm.getAixj(j, x, i);
                     }
-                    alpha[t][i] = sum * hmm.getOpdf(i, observation.getInput()).probability(observation.getObservation());
+                    alpha[t][i] = sum * emissions[t][i];
                 }
                 ctFactors[t] = ProbabilityUtils.scale(alpha[t]);
             }
@@ -106,22 +116,39 @@ public final class InputForwardBackwardScaledCalculatorBase<TObs extends Observa
     /* Computes the content of the scaled beta array.  The scaling factors are
      those computed for alpha. */
     public double[][] computeBeta(THmm hmm, List<? extends InputObservationTuple<TInt, TObs>> oseq, double... ctFactors) {
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        return computeBeta(hmm, inputs, InputObservationSequence.emissions(hmm, oseq, inputs), ctFactors);
+    }
+
+    /**
+     * Computes the scaled beta array of an encoded sequence.
+     *
+     * @param hmm The model.
+     * @param inputs The input index of every interaction.
+     * @param emissions The probability of every observation given every state
+     * (see {@link InputObservationSequence#emissions}).
+     * @param ctFactors The scaling factors computed for the alpha array.
+     * @return The scaled beta array of the sequence.
+     */
+    public double[][] computeBeta(THmm hmm, int[] inputs, double[][] emissions, double[] ctFactors) {
         int T = ctFactors.length;
         int s = hmm.nbStates();
         double[][] beta = new double[T][s];
         for (int i = 0; i < s; i++) {
             beta[T - 1][i] = 1.0d / ctFactors[T - 1];
         }
-
+        double[] weighted = new double[s];
         for (int t = T - 2; t >= 0; t--) {
-            InputObservationTuple<TInt, TObs> observation = oseq.get(t + 1);
+            int x = inputs[t + 1];
+            for (int j = 0; j < s; j++) {
+                weighted[j] = beta[t + 1][j] * emissions[t + 1][j];
+            }
             for (int i = 0; i < s; i++) {
                 double sum = 0.;
                 for (int j = 0; j < s; j++) {
-                    sum += beta[t + 1][j] * hmm.getAixj(i, observation.getItem1(), j) * hmm.getOpdf(j, observation.getInput()).probability(observation.getObservation());
+                    sum += hmm.getAixj(i, x, j) * weighted[j];
                 }
-                beta[t][i] = sum;
-                beta[t][i] /= ctFactors[t];
+                beta[t][i] = sum / ctFactors[t];
             }
         }
         return beta;
@@ -134,8 +161,10 @@ public final class InputForwardBackwardScaledCalculatorBase<TObs extends Observa
         }
         int t = oseq.size();
         double[] ctFactors = new double[t];
-        double[][] alpha = computeAlpha(hmm, oseq, ctFactors);
-        double[][] beta = computeBeta(hmm, oseq, ctFactors);
+        int[] inputs = InputObservationSequence.inputIndices(hmm, oseq);
+        double[][] emissions = InputObservationSequence.emissions(hmm, oseq, inputs);
+        double[][] alpha = computeAlpha(hmm, inputs, emissions, ctFactors);
+        double[][] beta = computeBeta(hmm, inputs, emissions, ctFactors);
         double probability = computeProbability(ctFactors);
         return new Tuple3Base<>(alpha, beta, probability);
     }
@@ -0,0 +1,414 @@
+package jahmm.calculators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * This class divides a set of points in clusters using the k-means algorithm.
+ * The points are stored in a single primitive array, such that computing a
+ * distance does not allocate any object.
+ * <p>
+ * The initial centroids are drawn with the k-means++ seeding of Arthur and
+ * Vassilvitskii (<i>k-means++: The Advantages of Careful Seeding</i>). The
+ * iterations use the triangle inequality bounds of Hamerly (<i>Making k-means
+ * Even Faster</i>): every point keeps an upper bound on the distance to its
+ * centroid and a lower bound on the distance to any other centroid, which
+ * allows to skip most of the distance computations once the centroids move
+ * little. The result is the same as the one of the plain Lloyd algorithm
+ * started from the same centroids. The points are assigned in parallel.
+ *
+ * @author kommusoft
+ */
+public class KMeansArrayCalculator {
+
+    private static final Logger LOG = Logger.getLogger(KMeansArrayCalculator.class.getName());
+
+    /**
+     * Computes the squared Euclidean distance between two points stored in
+     * arrays.
+     *
+     * @param a The array holding the first point.
+     * @param aOffset The index of the first coordinate of the first point.
+     * @param b The array holding the second point.
+     * @param bOffset The index of the first coordinate of the second point.
+     * @param dimension The number of coordinates of the points.
+     * @return The squared distance between the two points.
+     */
+    public static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+        double sum = 0.0d;
+        for (int i = 0; i < dimension; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private final double[] points;
+    private final int dimension;
+    private final int nbPoints;
+    private final int k;
+    private final double[] centroids;
+    private final int[] sizes;
+    private final int[] assignments;
+    private final double[] upper;
+    private final double[] lower;
+    private final double[] separation;
+    private final double[] moves;
+    private int nbIterations;
+
+    /**
+     * Divides a set of points in a given number of clusters, using as many
+     * threads as there are available processors.
+     *
+     * @param k The (strictly positive) number of clusters.
+     * @param points The coordinates of the points: the coordinates of point
+     * <code>i</code> are stored at the indices
+     * <code>i*dimension</code> to <code>(i+1)*dimension-1</code>. The array is
+     * not modified.
+     * @param dimension The (strictly positive) number of coordinates of every
+     * point.
+     * @param random The random generator used to seed the centroids.
+     */
+    public KMeansArrayCalculator(int k, double[] points, int dimension, Random random) {
+        this(k, points, dimension, random, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Divides a set of points in a given number of clusters.
+     *
+     * @param k The (strictly positive) number of clusters.
+     * @param points The coordinates of the points: the coordinates of point
+     * <code>i</code> are stored at the indices
+     * <code>i*dimension</code> to <code>(i+1)*dimension-1</code>. The array is
+     * not modified.
+     * @param dimension The (strictly positive) number of coordinates of every
+     * point.
+     * @param random The random generator used to seed the centroids.
+     * @param nbThreads The (strictly positive) number of threads used to
+     * assign the points. With a single thread, the points are assigned by the
+     * calling thread.
+     */
+    public KMeansArrayCalculator(int k, double[] points, int dimension, Random random, int nbThreads) {
+        if (k <= 0x00) {
+            throw new IllegalArgumentException("Illegal number of clusters");
+        }
+        if (dimension <= 0x00 || points.length % dimension != 0x00) {
+            throw new IllegalArgumentException("Wrong dimensions");
+        }
+        if (nbThreads <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.points = points;
+        this.dimension = dimension;
+        this.nbPoints = points.length / dimension;
+        this.k = k;
+        this.centroids = new double[k * dimension];
+        this.sizes = new int[k];
+        this.assignments = new int[this.nbPoints];
+        this.upper = new double[this.nbPoints];
+        this.lower = new double[this.nbPoints];
+        this.separation = new double[k];
+        this.moves = new double[k];
+        if (this.nbPoints > 0x00) {
+            this.seed(random);
+            this.run(Math.min(nbThreads, this.nbPoints));
+        }
+    }
+
+    /* k-means++: every next centroid is drawn with a probability proportional
+     to its squared distance to the nearest centroid already drawn. */
+    private void seed(Random random) {
+        double[] nearest = new double[this.nbPoints];
+        int first = random.nextInt(this.nbPoints);
+        System.arraycopy(this.points, first * this.dimension, this.centroids, 0x00, this.dimension);
+        double total = 0.0d;
+        for (int i = 0; i < this.nbPoints; i++) {
+            nearest[i] = squaredDistance(this.points, i * this.dimension, this.centroids, 0x00, this.dimension);
+            total += nearest[i];
+        }
+        for (int c = 1; c < this.k; c++) {
+            int chosen;
+            if (total > 0.0d) {
+                double target = random.nextDouble() * total;
+                chosen = this.nbPoints - 0x01;
+                for (int i = 0; i < this.nbPoints; i++) {
+                    target -= nearest[i];
+                    if (target < 0.0d) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            } else { // fewer distinct points than clusters
+                chosen = random.nextInt(this.nbPoints);
+            }
+            int offset = c * this.dimension;
+            System.arraycopy(this.points, chosen * this.dimension, this.centroids, offset, this.dimension);
+            total = 0.0d;
+            for (int i = 0; i < this.nbPoints; i++) {
+                double d = squaredDistance(this.points, i * this.dimension, this.centroids, offset, this.dimension);
+                if (d < nearest[i]) {
+                    nearest[i] = d;
+                }
+                total += nearest[i];
+            }
+        }
+    }
+
+    private void run(int nbThreads) {
+        ExecutorService executor = nbThreads > 0x01 ? Executors.newFixedThreadPool(nbThreads) : null;
+        try {
+            // the first pass computes all the distances: no bound is valid yet
+            Arrays.fill(this.upper, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.lower, 0.0d);
+            this.updateSeparation();
+            int changed;
+            this.assign(executor, nbThreads);
+            do {
+                this.nbIterations++;
+                this.updateCentroids(executor, nbThreads);
+                this.updateSeparation();
+                changed = this.assign(executor, nbThreads);
+            } while (changed > 0x00);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void updateSeparation() {
+        for (int c = 0; c < this.k; c++) {
+            double min = Double.POSITIVE_INFINITY;
+            for (int o = 0; o < this.k; o++) {
+                if (o != c) {
+                    double d = squaredDistance(this.centroids, c * this.dimension, this.centroids, o * this.dimension, this.dimension);
+                    if (d < min) {
+                        min = d;
+                    }
+                }
+            }
+            this.separation[c] = 0.5d * Math.sqrt(min);
+        }
+    }
+
+    private int assign(ExecutorService executor, int nbThreads) {
+        if (executor == null) {
+            return this.assign(0x00, this.nbPoints);
+        }
+        List<Future<Integer>> futures = new ArrayList<>(nbThreads);
+        for (int c = 0; c < nbThreads; c++) {
+            final int from = (int) ((long) this.nbPoints * c / nbThreads);
+            final int to = (int) ((long) this.nbPoints * (c + 1) / nbThreads);
+            futures.add(executor.submit(new Callable<Integer>() {
+
+                @Override
+                public Integer call() {
+                    return assign(from, to);
+                }
+
+            }));
+        }
+        int changed = 0x00;
+        for (Future<Integer> future : futures) {
+            changed += get(future);
+        }
+        return changed;
+    }
+
+    /* Hamerly's assignment step on the points from (inclusive) to to
+     (exclusive); returns the number of points that changed cluster. */
+    private int assign(int from, int to) {
+        int changed = 0x00;
+        for (int i = from; i < to; i++) {
+            int a = this.assignments[i];
+            double bound = Math.max(this.separation[a], this.lower[i]);
+            if (this.upper[i] <= bound) {
+                continue;
+            }
+            int offset = i * this.dimension;
+            this.upper[i] = Math.sqrt(squaredDistance(this.points, offset, this.centroids, a * this.dimension, this.dimension));
+            if (this.upper[i] <= bound) {
+                continue;
+            }
+            double best = Double.POSITIVE_INFINITY;
+            double second = Double.POSITIVE_INFINITY;
+            int nearest = a;
+            for (int c = 0; c < this.k; c++) {
+                double d = squaredDistance(this.points, offset, this.centroids, c * this.dimension, this.dimension);
+                if (d < best) {
+                    second = best;
+                    best = d;
+                    nearest = c;
+                } else if (d < second) {
+                    second = d;
+                }
+            }
+            this.upper[i] = Math.sqrt(best);
+            this.lower[i] = Math.sqrt(second);
+            if (nearest != a) {
+                this.assignments[i] = nearest;
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void updateCentroids(ExecutorService executor, int nbThreads) {
+        double[] sums = new double[this.k * this.dimension];
+        Arrays.fill(this.sizes, 0x00);
+        if (executor == null) {
+            this.sum(0x00, this.nbPoints, sums, this.sizes);
+        } else {
+            List<Future<Object[]>> futures = new ArrayList<>(nbThreads);
+            for (int c = 0; c < nbThreads; c++) {
+                final int from = (int) ((long) this.nbPoints * c / nbThreads);
+                final int to = (int) ((long) this.nbPoints * (c + 1) / nbThreads);
+                futures.add(executor.submit(new Callable<Object[]>() {
+
+                    @Override
+                    public Object[] call() {
+                        double[] partialSums = new double[k * dimension];
+                        int[] partialSizes = new int[k];
+                        sum(from, to, partialSums, partialSizes);
+                        return new Object[]{partialSums, partialSizes};
+                    }
+
+                }));
+            }
+            for (Future<Object[]> future : futures) {
+                Object[] partial = get(future);
+                double[] partialSums = (double[]) partial[0x00];
+                int[] partialSizes = (int[]) partial[0x01];
+                for (int j = 0; j < sums.length; j++) {
+                    sums[j] += partialSums[j];
+                }
+                for (int c = 0; c < this.k; c++) {
+                    this.sizes[c] += partialSizes[c];
+                }
+            }
+        }
+        int farthest = 0x00;
+        int secondFarthest = -0x01;
+        for (int c = 0; c < this.k; c++) {
+            int offset = c * this.dimension;
+            double move = 0.0d;
+            if (this.sizes[c] > 0x00) { // an empty cluster keeps its centroid
+                for (int j = 0; j < this.dimension; j++) {
+                    sums[offset + j] /= this.sizes[c];
+                }
+                move = Math.sqrt(squaredDistance(sums, offset, this.centroids, offset, this.dimension));
+                System.arraycopy(sums, offset, this.centroids, offset, this.dimension);
+            }
+            this.moves[c] = move;
+            if (c > 0x00) {
+                if (move > this.moves[farthest]) {
+                    secondFarthest = farthest;
+                    farthest = c;
+                } else if (secondFarthest < 0x00 || move > this.moves[secondFarthest]) {
+                    secondFarthest = c;
+                }
+            }
+        }
+        for (int i = 0; i < this.nbPoints; i++) {
+            int a = this.assignments[i];
+            this.upper[i] += this.moves[a];
+            if (a == farthest) {
+                this.lower[i] -= secondFarthest < 0x00 ? 0.0d : this.moves[secondFarthest];
+            } else {
+                this.lower[i] -= this.moves[farthest];
+            }
+        }
+    }
+
+    private void sum(int from, int to, double[] sums, int[] counts) {
+        for (int i = from; i < to; i++) {
+            int a = this.assignments[i];
+            int offset = a * this.dimension;
+            int pointOffset = i * this.dimension;
+            for (int j = 0; j < this.dimension; j++) {
+                sums[offset + j] += this.points[pointOffset + j];
+            }
+            counts[a]++;
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of clusters.
+     *
+     * @return The number of clusters.
+     */
+    public int nbClusters() {
+        return this.k;
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return The number of points.
+     */
+    public int nbPoints() {
+        return this.nbPoints;
+    }
+
+    /**
+     * Returns the number of iterations performed until convergence.
+     *
+     * @return The number of iterations performed.
+     */
+    public int nbIterations() {
+        return this.nbIterations;
+    }
+
+    /**
+     * Returns the cluster of a point.
+     *
+     * @param point The index of the point.
+     * @return The index of the cluster of the point.
+     */
+    public int cluster(int point) {
+        return this.assignments[point];
+    }
+
+    /**
+     * Returns the number of points in a cluster.
+     *
+     * @param cluster The index of the cluster.
+     * @return The number of points in the cluster.
+     */
+    public int clusterSize(int cluster) {
+        return this.sizes[cluster];
+    }
+
+    /**
+     * Returns the centroid of a cluster.
+     *
+     * @param cluster The index of the cluster.
+     * @return A (copy of) the coordinates of the centroid of the cluster.
+     */
+    public double[] centroid(int cluster) {
+        return Arrays.copyOfRange(this.centroids, cluster * this.dimension, (cluster + 1) * this.dimension);
+    }
+
+}
@@ -8,7 +8,9 @@ import jahmm.observables.Centroid;
 import jahmm.observables.CentroidFactory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * This class can be used to divide a set of elements in clusters using the
@@ -25,8 +27,28 @@ import java.util.List;
  */
 public class KMeansCalculator<K extends CentroidFactory<? super K>> {
 
+    private static <K> List<K> shuffle(List<? extends K> elements, Random random) {
+        List<K> shuffled = new ArrayList<K>(elements);
+        Collections.shuffle(shuffled, random);
+        return shuffled;
+    }
+
     private final ArrayList<Cluster<K>> clusters;
 
+    /**
+     * This class divides a set of elements in a given number of clusters. The
+     * initial clusters are seeded with elements drawn from a random generator
+     * instead of the first elements of the list.
+     *
+     * @param k The number of clusters to get.
+     * @param elements The elements to divide in clusters.
+     * @param random The random generator used to seed the clusters.
+     * @throws java.lang.CloneNotSupportedException
+     */
+    public KMeansCalculator(int k, List<? extends K> elements, Random random) throws CloneNotSupportedException {
+        this(k, KMeansCalculator.<K>shuffle(elements, random));
+    }
+
     /**
      * This class divides a set of elements in a given number of clusters.
      *
@@ -132,6 +154,17 @@ public class KMeansCalculator<K extends CentroidFactory<? super K>> {
         return clusters.get(index).elements();
     }
 
+    /**
+     * Returns the centroid of one of the clusters.
+     *
+     * @param index The cluster index of the cluster your are interested in.
+     * @return The centroid of the requested cluster, or <code>null</code> if
+     * the cluster is empty.
+     */
+    public Centroid<? super K> centroid(int index) {
+        return clusters.get(index).centroid();
+    }
+
     /**
      * Returns the number of clusters.
      *
@@ -5,11 +5,16 @@
 package jahmm.calculators;
 
 import jahmm.RegularHmm;
+import jahmm.observables.EmissionBank;
 import jahmm.observables.Observation;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.logging.Logger;
+import jutlis.tuples.Tuple3;
+import jutlis.tuples.Tuple3Base;
 
 /**
  * This class can be used to compute the probability of a given observations
@@ -17,8 +22,11 @@ import java.util.logging.Logger;
  * holds various information such as the <i>alpha</i> (and possibly
  * <i>beta</i>) array, as described in <i>Rabiner</i> and <i>Juang</i>.
  * <p>
- * Computing the <i>beta</i> array requires a O(1) access time to the
- * observation sequence to get a theoretically optimal performance.
+ * The probability of every observation given every state is computed once,
+ * in bulk per state (see {@link #emissions}), after which the recursions only
+ * read the transition matrix. Computing the <i>beta</i> array requires a O(1)
+ * access time to the observation sequence to get a theoretically optimal
+ * performance.
  *
  * @param <TObs>
  */
@@ -53,10 +61,53 @@ public class RegularForwardBackwardCalculatorBase<TObs extends Observation, THmm
         return probability;
     }
 
+    /**
+     * Computes the probability of every observation of a sequence given every
+     * state: <code>emissions[t][i]</code> is the probability of the observation
+     * at time <code>t</code> given state <code>i</code>. If the opdfs of the
+     * model can be packed in an {@link EmissionBank}, every observation is
+     * evaluated against all the states at once; otherwise the observations are
+     * handed to the opdf of every state in bulk. A sequence without a O(1)
+     * access time is copied first.
+     *
+     * @param <TObs> The type of observations.
+     * @param hmm The model.
+     * @param sequence The sequence of observations.
+     * @return The emission probabilities of the sequence.
+     */
+    public static <TObs extends Observation> double[][] emissions(RegularHmm<TObs, ?> hmm, Collection<? extends TObs> sequence) {
+        int s = hmm.nbStates();
+        EmissionBank<TObs> bank = EmissionBank.of(hmm);
+        List<? extends TObs> oseq = asList(sequence);
+        int T = oseq.size();
+        if (bank != null) {
+            double[][] emissions = new double[T][s];
+            for (int t = 0; t < T; t++) {
+                bank.probabilities(oseq, t, emissions[t]);
+            }
+            return emissions;
+        }
+        double[][] emissions = new double[T][s];
+        double[] column = new double[T];
+        for (int i = 0; i < s; i++) {
+            hmm.getOpdf(i).probabilities(oseq, 0x00, T, column);
+            for (int t = 0; t < T; t++) {
+                emissions[t][i] = column[t];
+            }
+        }
+        return emissions;
+    }
+
+    private static <TObs> List<? extends TObs> asList(Collection<? extends TObs> oseq) {
+        if (oseq instanceof List && oseq instanceof RandomAccess) {
+            return (List<? extends TObs>) oseq;
+        }
+        return new ArrayList<>(oseq);
+    }
+
     /**
      * Computes the content of the alpha array
      *
-     * @param <TObs>
      * @param hmm
      * @param oseq
      * @return alpha[t][i] = P(O(1), O(2),..., O(t+1), i(t+1) = i+1 | hmm), that
@@ -65,29 +116,32 @@ public class RegularForwardBackwardCalculatorBase<TObs extends Observation, THmm
      */
     @Override
     public double[][] computeAlpha(THmm hmm, Collection<? extends TObs> oseq) {
-        int T = oseq.size();
+        return this.computeAlpha(hmm, emissions(hmm, oseq));
+    }
+
+    /**
+     * Computes the alpha array of a sequence from its emission probabilities.
+     *
+     * @param hmm The model.
+     * @param emissions The probability of every observation given every state
+     * (see {@link #emissions}).
+     * @return The alpha array of the sequence.
+     */
+    public double[][] computeAlpha(THmm hmm, double[][] emissions) {
+        int T = emissions.length;
         int s = hmm.nbStates();
         double[][] alpha = new double[T][s];
-        T--;
-
-        Iterator<? extends TObs> seqIterator = oseq.iterator();
-        TObs observation;
-        if (seqIterator.hasNext()) {
-            observation = seqIterator.next();
-
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                alpha[0][i] = hmm.getPi(i) * hmm.getOpdf(i).probability(observation);
+        if (T > 0x00) {
+            for (int i = 0; i < s; i++) {
+                alpha[0][i] = hmm.getPi(i) * emissions[0][i];
             }
-
-            for (int t = 0; t < T; t++) {
-                observation = seqIterator.next();
-
+            for (int t = 1; t < T; t++) {
                 for (int j = 0; j < s; j++) {
                     double sum = 0.;
                     for (int i = 0; i < s; i++) {
-                        sum += alpha[t][i] * hmm.getAij(i, j);
+                        sum += alpha[t - 0x01][i] * hmm.getAij(i, j);
                     }
-                    alpha[t + 0x01][j] = sum * hmm.getOpdf(j).probability(observation);
+                    alpha[t][j] = sum * emissions[t][j];
                 }
             }
         }
@@ -98,27 +152,64 @@ public class RegularForwardBackwardCalculatorBase<TObs extends Observation, THmm
      to the elements of oseq to get a theoretically optimal algorithm. */
     @Override
     public double[][] computeBeta(THmm hmm, List<? extends TObs> oseq) {
-        int t = oseq.size();
+        return this.computeBeta(hmm, emissions(hmm, oseq));
+    }
+
+    /**
+     * Computes the beta array of a sequence from its emission probabilities.
+     *
+     * @param hmm The model.
+     * @param emissions The probability of every observation given every state
+     * (see {@link #emissions}).
+     * @return The beta array of the sequence.
+     */
+    public double[][] computeBeta(THmm hmm, double[][] emissions) {
+        int t = emissions.length;
         int s = hmm.nbStates();
         double[][] beta = new double[t][s];
         t--;
-        TObs observation;
-
         for (int i = 0; i < s; i++) {
             beta[t][i] = 1.0d;
         }
-
-        for (; t > 0;) {
+        double[] weighted = new double[s];
+        for (; t > 0; t--) {
+            for (int j = 0; j < s; j++) {
+                weighted[j] = beta[t][j] * emissions[t][j];
+            }
             for (int i = 0; i < s; i++) {
-                observation = oseq.get(t);
                 double sum = 0.0d;
                 for (int j = 0; j < s; j++) {
-                    sum += beta[t][j] * hmm.getAij(i, j) * hmm.getOpdf(j).probability(observation);
+                    sum += hmm.getAij(i, j) * weighted[j];
                 }
                 beta[t - 0x01][i] = sum;
             }
-            t--;
         }
         return beta;
     }
+
+    @Override
+    public double computeProbability(THmm hmm, Collection<ComputationType> flags, List<? extends TObs> oseq) {
+        if (oseq.isEmpty()) {
+            throw new IllegalArgumentException("Invalid empty sequence");
+        }
+        double[][] emissions = emissions(hmm, oseq);
+        double[][] alpha = null;
+        double[][] beta = null;
+        if (flags.contains(ComputationType.ALPHA)) {
+            alpha = this.computeAlpha(hmm, emissions);
+        }
+        if (flags.contains(ComputationType.BETA)) {
+            beta = this.computeBeta(hmm, emissions);
+        }
+        return computeProbability(oseq, hmm, flags, alpha, beta);
+    }
+
+    @Override
+    public Tuple3<double[][], double[][], Double> computeAll(THmm hmm, List<? extends TObs> oseq) {
+        double[][] emissions = emissions(hmm, oseq);
+        double[][] alpha = this.computeAlpha(hmm, emissions);
+        double[][] beta = this.computeBeta(hmm, emissions);
+        double probability = computeProbability(oseq, hmm, EnumSet.of(ComputationType.ALPHA), alpha, beta);
+        return new Tuple3Base<>(alpha, beta, probability);
+    }
 }
@@ -7,7 +7,6 @@ package jahmm.calculators;
 import jahmm.RegularHmm;
 import jahmm.observables.Observation;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 import jutils.probability.ProbabilityUtils;
@@ -67,17 +66,12 @@ public final class RegularForwardBackwardScaledCalculatorBase<TObs extends Obser
             throw new IllegalArgumentException();
         }
 
-        int t = oseq.size();
-
-        double[] ctFactors = new double[t];
-        double[][] alpha = null, beta = null;
-
-        alpha = computeAlpha(hmm, oseq, ctFactors);
-
+        double[][] emissions = emissions(hmm, oseq);
+        double[] ctFactors = new double[emissions.length];
+        computeAlpha(hmm, emissions, ctFactors);
         if (flags.contains(ComputationType.BETA)) {
-            beta = computeBeta(hmm, oseq, ctFactors);
+            computeBeta(hmm, emissions, ctFactors);
         }
-
         return computeProbability(ctFactors);
     }
 
@@ -90,29 +84,35 @@ public final class RegularForwardBackwardScaledCalculatorBase<TObs extends Obser
      * @return
      */
     public double[][] computeAlpha(THmm hmm, Collection<? extends TObs> oseq, double... ctFactors) {
+        return computeAlpha(hmm, emissions(hmm, oseq), ctFactors);
+    }
+
+    /**
+     * Computes the scaled alpha array of a sequence from its emission
+     * probabilities.
+     *
+     * @param hmm The model.
+     * @param emissions The probability of every observation given every state
+     * (see {@link #emissions}).
+     * @param ctFactors The array in which the scaling factors are stored.
+     * @return The scaled alpha array of the sequence.
+     */
+    public double[][] computeAlpha(THmm hmm, double[][] emissions, double... ctFactors) {
         int T = ctFactors.length;
         int s = hmm.nbStates();
-        Iterator<? extends TObs> seqIterator = oseq.iterator();
         double[][] alpha = new double[T][s];
-        if (seqIterator.hasNext()) {
-
-            TObs observation = seqIterator.next();
-
+        if (T > 0x00) {
             for (int i = 0x00; i < s; i++) {
-                alpha[0x00][i] = hmm.getPi(i) * hmm.getOpdf(i).probability(observation);
+                alpha[0x00][i] = hmm.getPi(i) * emissions[0x00][i];
             }
-
             ctFactors[0x00] = ProbabilityUtils.scale(alpha[0x00]);
-
             for (int t = 1; t < T; t++) {
-                observation = seqIterator.next();
-
                 for (int i = 0; i < s; i++) {
                     double sum = 0.0d;
                     for (int j = 0; j < s; j++) {
                         sum += alpha[t - 1][j] * hmm.getAij(j, i);
                     }
-                    alpha[t][i] = sum * hmm.getOpdf(i).probability(observation);
+                    alpha[t][i] = sum * emissions[t][i];
                 }
                 ctFactors[t] = ProbabilityUtils.scale(alpha[t]);
             }
@@ -123,22 +123,37 @@ public final class RegularForwardBackwardScaledCalculatorBase<TObs extends Obser
     /* Computes the content of the scaled beta array.  The scaling factors are
      those computed for alpha. */
     public double[][] computeBeta(THmm hmm, List<? extends TObs> oseq, double... ctFactors) {
+        return computeBeta(hmm, emissions(hmm, oseq), ctFactors);
+    }
+
+    /**
+     * Computes the scaled beta array of a sequence from its emission
+     * probabilities.
+     *
+     * @param hmm The model.
+     * @param emissions The probability of every observation given every state
+     * (see {@link #emissions}).
+     * @param ctFactors The scaling factors computed together with alpha.
+     * @return The scaled beta array of the sequence.
+     */
+    public double[][] computeBeta(THmm hmm, double[][] emissions, double... ctFactors) {
         int T = ctFactors.length;
         int s = hmm.nbStates();
         double[][] beta = new double[T][s];
         for (int i = 0; i < s; i++) {
             beta[T - 1][i] = 1.0d / ctFactors[T - 1];
         }
-
+        double[] weighted = new double[s];
         for (int t = T - 2; t >= 0; t--) {
-            TObs observation = oseq.get(t + 1);
+            for (int j = 0; j < s; j++) {
+                weighted[j] = beta[t + 1][j] * emissions[t + 1][j];
+            }
             for (int i = 0; i < s; i++) {
                 double sum = 0.;
                 for (int j = 0; j < s; j++) {
-                    sum += beta[t + 1][j] * hmm.getAij(i, j) * hmm.getOpdf(j).probability(observation);
+                    sum += hmm.getAij(i, j) * weighted[j];
                 }
-                beta[t][i] = sum;
-                beta[t][i] /= ctFactors[t];
+                beta[t][i] = sum / ctFactors[t];
             }
         }
         return beta;
@@ -149,10 +164,10 @@ public final class RegularForwardBackwardScaledCalculatorBase<TObs extends Obser
         if (oseq.isEmpty()) {
             throw new IllegalArgumentException();
         }
-        int t = oseq.size();
-        double[] ctFactors = new double[t];
-        double[][] alpha = computeAlpha(hmm, oseq, ctFactors);
-        double[][] beta = computeBeta(hmm, oseq, ctFactors);
+        double[][] emissions = emissions(hmm, oseq);
+        double[] ctFactors = new double[emissions.length];
+        double[][] alpha = computeAlpha(hmm, emissions, ctFactors);
+        double[][] beta = computeBeta(hmm, emissions, ctFactors);
         double probability = computeProbability(ctFactors);
         return new Tuple3Base<>(alpha, beta, probability);
     }
@@ -4,10 +4,12 @@
  */
 package jahmm.calculators;
 
-import jahmm.RegularHmmBase;
+import jahmm.RegularHmm;
+import jahmm.observables.EmissionBank;
 import jahmm.observables.Observation;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * This class can be used to compute the most probable state sequence matching a
@@ -32,28 +34,26 @@ public final class RegularViterbiCalculatorBase {
      * @param hmm A Hidden Markov Model;
      * @param oseq An observations sequence.
      */
-    public <O extends Observation> RegularViterbiCalculatorBase(List<? extends O> oseq, RegularHmmBase<O> hmm) {
+    public <O extends Observation> RegularViterbiCalculatorBase(List<? extends O> oseq, RegularHmm<O, ?> hmm) {
         if (oseq.isEmpty()) {
             throw new IllegalArgumentException("Invalid empty sequence");
         }
         delta = new double[oseq.size()][hmm.nbStates()];
         psy = new int[oseq.size()][hmm.nbStates()];
         stateSequence = new int[oseq.size()];
+        EmissionBank<O> bank = EmissionBank.of(hmm);
+        double[] logEmissions = new double[hmm.nbStates()];
+        List<? extends O> list = oseq instanceof RandomAccess ? oseq : new ArrayList<>(oseq);
+        emit(hmm, bank, list, 0x00, logEmissions);
         for (int i = 0; i < hmm.nbStates(); i++) {
-            delta[0][i] = -Math.log(hmm.getPi(i)) - Math.log(hmm.getOpdf(i).probability(oseq.get(0)));
+            delta[0][i] = -Math.log(hmm.getPi(i)) - logEmissions[i];
             psy[0][i] = 0;
         }
-        Iterator<? extends O> oseqIterator = oseq.iterator();
-        if (oseqIterator.hasNext()) {
-            oseqIterator.next();
-        }
-        int t = 1;
-        while (oseqIterator.hasNext()) {
-            O observation = oseqIterator.next();
+        for (int t = 1; t < list.size(); t++) {
+            emit(hmm, bank, list, t, logEmissions);
             for (int i = 0; i < hmm.nbStates(); i++) {
-                computeStep(hmm, observation, t, i);
+                computeStep(hmm, logEmissions[i], t, i);
             }
-            t++;
         }
         lnProbability = Double.MAX_VALUE;
         for (int i = 0; i < hmm.nbStates(); i++) {
@@ -71,11 +71,25 @@ public final class RegularViterbiCalculatorBase {
         }
     }
 
+    /*
+     * Computes the logarithm of the probability of the observation at time t
+     * given every state, through the emission bank if the model has one.
+     */
+    private static <O extends Observation> void emit(RegularHmm<O, ?> hmm, EmissionBank<O> bank, List<? extends O> oseq, int t, double[] out) {
+        if (bank != null) {
+            bank.logProbabilities(oseq, t, out);
+        } else {
+            O o = oseq.get(t);
+            for (int i = 0; i < out.length; i++) {
+                out[i] = hmm.getOpdf(i).logProbability(o);
+            }
+        }
+    }
+
     /*
      * Computes delta and psy[t][j] (t > 0) 
      */
-    private <O extends Observation> void
-            computeStep(RegularHmmBase<O> hmm, O o, int t, int j) {
+    private void computeStep(RegularHmm<?, ?> hmm, double logEmission, int t, int j) {
         double minDelta = Double.MAX_VALUE;
         int min_psy = 0;
 
@@ -88,7 +102,7 @@ public final class RegularViterbiCalculatorBase {
             }
         }
 
-        delta[t][j] = minDelta - Math.log(hmm.getOpdf(j).probability(o));
+        delta[t][j] = minDelta - logEmission;
         psy[t][j] = min_psy;
     }
 
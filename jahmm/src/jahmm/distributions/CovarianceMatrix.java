@@ -0,0 +1,473 @@
+package jahmm.distributions;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * The covariance matrix of a multivariate Gaussian distribution, together with
+ * its cached factorization.
+ * <p>
+ * A covariance matrix is either full or diagonal. A diagonal matrix only stores
+ * the variances, and factoring it or evaluating a density with it is linear in
+ * the dimension.
+ * <p>
+ * Several {@link MultiGaussianDistribution} objects can share the same
+ * covariance matrix (a <i>tied</i> covariance). In that case the factorization
+ * is computed once for all of them. A shared matrix can be estimated by
+ * pooling: every distribution adds its weighted scatter with
+ * {@link #pool(double[][], double)}; the pooled estimate replaces the matrix
+ * the next time the matrix is read.
+ *
+ * @author kommusoft
+ */
+public class CovarianceMatrix implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(CovarianceMatrix.class.getName());
+
+    private final int dimension;
+    private final double[][] matrix;
+    private final double[] variances;
+    private transient volatile Factorization factorization;
+    private transient double[][] pooled;
+    private transient double pooledWeight;
+
+    /**
+     * Creates a new full covariance matrix.
+     *
+     * @param matrix The covariance matrix. This array is copied.
+     * <code>matrix[r][c]</code> is the element at row <code>r</code> and column
+     * <code>c</code>.
+     */
+    public CovarianceMatrix(double[][] matrix) {
+        if (!SimpleMatrix.isSquare(matrix)) {
+            throw new IllegalArgumentException("Covariance must be a square matrix");
+        }
+        this.dimension = SimpleMatrix.nbRows(matrix);
+        this.matrix = SimpleMatrix.matrix(matrix);
+        this.variances = null;
+    }
+
+    /**
+     * Creates a new diagonal covariance matrix.
+     *
+     * @param variances The elements of the diagonal. This array is copied.
+     */
+    public CovarianceMatrix(double[] variances) {
+        if (variances.length == 0x00) {
+            throw new IllegalArgumentException("Invalid empty array");
+        }
+        this.dimension = variances.length;
+        this.matrix = null;
+        this.variances = SimpleMatrix.vector(variances);
+    }
+
+    /**
+     * Creates a new identity covariance matrix.
+     *
+     * @param dimension The dimension of the matrix.
+     * @param diagonal Whether the matrix is restricted to be diagonal.
+     */
+    public CovarianceMatrix(int dimension, boolean diagonal) {
+        if (dimension <= 0x00) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
+        this.dimension = dimension;
+        if (diagonal) {
+            this.matrix = null;
+            this.variances = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                this.variances[i] = 1.0d;
+            }
+        } else {
+            this.matrix = SimpleMatrix.matrixIdentity(dimension);
+            this.variances = null;
+        }
+    }
+
+    /**
+     * Returns the dimension of this matrix.
+     *
+     * @return The number of rows (and columns) of this matrix.
+     */
+    public int dimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Returns whether this matrix is restricted to be diagonal.
+     *
+     * @return True if only the diagonal of this matrix is stored.
+     */
+    public boolean isDiagonal() {
+        return this.matrix == null;
+    }
+
+    /**
+     * Returns an element of this matrix.
+     *
+     * @param i The row of the element.
+     * @param j The column of the element.
+     * @return The element at row <code>i</code> and column <code>j</code>.
+     */
+    public synchronized double get(int i, int j) {
+        this.flush();
+        if (this.matrix == null) {
+            return i == j ? this.variances[i] : 0.0d;
+        }
+        return this.matrix[i][j];
+    }
+
+    /**
+     * Returns (a copy of) this matrix.
+     *
+     * @return A <code>dimension</code> by <code>dimension</code> array.
+     */
+    public synchronized double[][] matrix() {
+        this.flush();
+        if (this.matrix == null) {
+            double[][] result = SimpleMatrix.matrix(this.dimension);
+            for (int i = 0; i < this.dimension; i++) {
+                result[i][i] = this.variances[i];
+            }
+            return result;
+        }
+        return SimpleMatrix.matrix(this.matrix);
+    }
+
+    /**
+     * Returns (a copy of) the diagonal of this matrix.
+     *
+     * @return The variances of the coordinates.
+     */
+    public synchronized double[] variances() {
+        this.flush();
+        if (this.matrix == null) {
+            return this.variances.clone();
+        }
+        double[] result = new double[this.dimension];
+        for (int i = 0; i < this.dimension; i++) {
+            result[i] = this.matrix[i][i];
+        }
+        return result;
+    }
+
+    /**
+     * Sets an element of this matrix.
+     *
+     * @param i The row of the element.
+     * @param j The column of the element.
+     * @param value The new value of the element.
+     * @throws IllegalArgumentException If this matrix is diagonal and a non
+     * zero value is set outside the diagonal.
+     */
+    public synchronized void set(int i, int j, double value) {
+        this.flush();
+        if (this.matrix != null) {
+            this.matrix[i][j] = value;
+        } else if (i == j) {
+            this.variances[i] = value;
+        } else if (value != 0.0d) {
+            throw new IllegalArgumentException("Covariance must be diagonal");
+        }
+        this.factorization = null;
+    }
+
+    /**
+     * Sets all the elements of this matrix.
+     *
+     * @param matrix The new matrix. This array is copied.
+     * @throws IllegalArgumentException If this matrix is diagonal and a non
+     * zero value is given outside the diagonal.
+     */
+    public synchronized void set(double[][] matrix) {
+        if (matrix.length != this.dimension) {
+            throw new IllegalArgumentException("Matrix has a wrong dimension");
+        }
+        this.flush();
+        if (this.matrix != null) {
+            for (int i = 0x00; i < matrix.length; i++) {
+                System.arraycopy(matrix[i], 0, this.matrix[i], 0, matrix[i].length);
+            }
+        } else {
+            for (int i = 0x00; i < matrix.length; i++) {
+                for (int j = 0x00; j < matrix[i].length; j++) {
+                    if (i != j && matrix[i][j] != 0.0d) {
+                        throw new IllegalArgumentException("Covariance must be diagonal");
+                    }
+                }
+            }
+            for (int i = 0x00; i < matrix.length; i++) {
+                this.variances[i] = matrix[i][i];
+            }
+        }
+        this.factorization = null;
+    }
+
+    /**
+     * Sets the diagonal of this matrix. The elements outside the diagonal of a
+     * full matrix are set to zero.
+     *
+     * @param variances The new variances. This array is copied.
+     */
+    public synchronized void setVariances(double... variances) {
+        if (variances.length != this.dimension) {
+            throw new IllegalArgumentException("Vector has a wrong dimension");
+        }
+        this.flush();
+        if (this.matrix != null) {
+            for (int i = 0x00; i < this.dimension; i++) {
+                Arrays.fill(this.matrix[i], 0.0d);
+                this.matrix[i][i] = variances[i];
+            }
+        } else {
+            System.arraycopy(variances, 0, this.variances, 0, this.dimension);
+        }
+        this.factorization = null;
+    }
+
+    /**
+     * Adds a weighted scatter matrix to the pooled estimate of this matrix.
+     * The contributions are summed until this matrix is read again, at which
+     * point the matrix is replaced by the sum of the scatter matrices divided
+     * by the sum of the weights. Only the diagonal of the scatter matrix is
+     * read if this matrix is diagonal.
+     *
+     * @param comoment The sum of the weighted outer products of the deviations
+     * of the observations from their mean.
+     * @param weight The sum of the weights of the observations.
+     */
+    public synchronized void pool(double[][] comoment, double weight) {
+        if (comoment.length != this.dimension) {
+            throw new IllegalArgumentException("Matrix has a wrong dimension");
+        }
+        if (weight <= 0.0d) {
+            return;
+        }
+        if (this.pooled == null) {
+            this.pooled = SimpleMatrix.matrix(this.dimension);
+        }
+        for (int r = 0x00; r < this.dimension; r++) {
+            if (this.matrix == null) {
+                this.pooled[r][r] += comoment[r][r];
+            } else {
+                double[] source = comoment[r], target = this.pooled[r];
+                for (int c = 0x00; c < this.dimension; c++) {
+                    target[c] += source[c];
+                }
+            }
+        }
+        this.pooledWeight += weight;
+        this.factorization = null;
+    }
+
+    /**
+     * Computes the weighted log-likelihood of observations under a Gaussian
+     * with this covariance matrix, centered on the weighted mean of the
+     * observations. Only the sufficient statistics of the observations are
+     * needed: if S denotes the scatter matrix and W the sum of the weights, the
+     * log-likelihood equals <code>-(W log|2 pi C| + tr(C^-1 S)) / 2</code>.
+     * Only the diagonal of the scatter matrix is read if this matrix is
+     * diagonal.
+     *
+     * @param comoment The sum of the weighted outer products of the deviations
+     * of the observations from their mean.
+     * @param weight The sum of the weights of the observations.
+     * @return The weighted log-likelihood of the observations.
+     */
+    public double logLikelihood(double[][] comoment, double weight) {
+        if (comoment.length != this.dimension) {
+            throw new IllegalArgumentException("Matrix has a wrong dimension");
+        }
+        Factorization f = this.factorization();
+        double trace = 0.0d;
+        if (f.isDiagonal()) {
+            for (int r = 0x00; r < this.dimension; r++) {
+                trace += comoment[r][r] * f.inverseDeviations[r] * f.inverseDeviations[r];
+            }
+        } else {
+            for (int i = 0x00; i < this.dimension; i++) {
+                double[] li = f.lInverse[i];
+                for (int r = 0x00; r <= i; r++) {
+                    double[] row = comoment[r];
+                    double sum = 0.0d;
+                    for (int c = 0x00; c <= i; c++) {
+                        sum += row[c] * li[c];
+                    }
+                    trace += li[r] * sum;
+                }
+            }
+        }
+        return weight * f.logNormalizer - 0.5d * trace;
+    }
+
+    /**
+     * Creates an independent copy of this matrix.
+     *
+     * @return A new matrix with the same elements and structure.
+     */
+    public synchronized CovarianceMatrix copy() {
+        this.flush();
+        if (this.matrix == null) {
+            return new CovarianceMatrix(this.variances);
+        }
+        return new CovarianceMatrix(this.matrix);
+    }
+
+    /**
+     * Returns the cached factorization of this matrix, computing it if the
+     * matrix has been modified since the last call.
+     */
+    Factorization factorization() {
+        Factorization f = this.factorization;
+        if (f == null) {
+            f = this.refactor();
+        }
+        return f;
+    }
+
+    private synchronized Factorization refactor() {
+        this.flush();
+        Factorization f = this.factorization;
+        if (f == null) {
+            f = this.matrix == null ? new Factorization(this.variances) : new Factorization(this.matrix);
+            this.factorization = f;
+        }
+        return f;
+    }
+
+    private void flush() {
+        if (this.pooled != null) {
+            double[][] p = this.pooled;
+            double w = this.pooledWeight;
+            this.pooled = null;
+            this.pooledWeight = 0.0d;
+            for (int r = 0x00; r < this.dimension; r++) {
+                if (this.matrix == null) {
+                    this.variances[r] = p[r][r] / w;
+                } else {
+                    for (int c = 0x00; c < this.dimension; c++) {
+                        this.matrix[r][c] = p[r][c] / w;
+                    }
+                }
+            }
+            this.factorization = null;
+        }
+    }
+
+    /**
+     * The decomposition of a covariance matrix. A full matrix is stored as its
+     * Cholesky factor and the inverse of that factor; a diagonal matrix as the
+     * standard deviations and their inverses.
+     */
+    static class Factorization {
+
+        final double[][] l;
+        final double[][] lInverse;
+        final double[] deviations;
+        final double[] inverseDeviations;
+        final double logDet;
+        final double logNormalizer;
+
+        Factorization(double[][] covariance) {
+            this.l = SimpleMatrix.decomposeCholesky(covariance);
+            this.lInverse = SimpleMatrix.lowerTriangularInverse(this.l);
+            this.deviations = null;
+            this.inverseDeviations = null;
+            double halfLogDet = 0.0d;
+            for (int i = 0; i < this.l.length; i++) {
+                halfLogDet += Math.log(this.l[i][i]);
+            }
+            this.logDet = 2.0d * halfLogDet;
+            this.logNormalizer = -0.5d * this.l.length * Math.log(2.0d * Math.PI) - halfLogDet;
+        }
+
+        Factorization(double[] variances) {
+            this.l = null;
+            this.lInverse = null;
+            int d = variances.length;
+            this.deviations = new double[d];
+            this.inverseDeviations = new double[d];
+            double halfLogDet = 0.0d;
+            for (int i = 0; i < d; i++) {
+                if (variances[i] <= 0.0d) {
+                    throw new IllegalArgumentException("Matrix is not positive defined");
+                }
+                this.deviations[i] = Math.sqrt(variances[i]);
+                this.inverseDeviations[i] = 1.0d / this.deviations[i];
+                halfLogDet += Math.log(this.deviations[i]);
+            }
+            this.logDet = 2.0d * halfLogDet;
+            this.logNormalizer = -0.5d * d * Math.log(2.0d * Math.PI) - halfLogDet;
+        }
+
+        boolean isDiagonal() {
+            return this.l == null;
+        }
+
+        /**
+         * Maps a vector of independent standard normal numbers on a vector
+         * drawn from a Gaussian with the given mean and the factored
+         * covariance. The given vector is overwritten and returned.
+         */
+        double[] transform(double[] z, double[] mu) {
+            int d = mu.length;
+            if (this.l == null) {
+                for (int i = 0; i < d; i++) {
+                    z[i] = z[i] * this.deviations[i] + mu[i];
+                }
+                return z;
+            }
+            for (int i = d - 1; i >= 0; i--) {
+                double[] li = this.l[i];
+                double x = mu[i];
+                for (int k = 0; k <= i; k++) {
+                    x += li[k] * z[k];
+                }
+                z[i] = x;
+            }
+            return z;
+        }
+
+        /**
+         * Computes the logarithm of the density of a vector under a Gaussian
+         * with the given mean and the factored covariance. The squared
+         * Mahalanobis distance is the squared norm of the deviation multiplied
+         * with the inverse Cholesky factor, computed without intermediate
+         * arrays.
+         */
+        double logDensity(double[] v, double[] mu) {
+            return this.logDensity(v, 0x00, mu);
+        }
+
+        /**
+         * Computes the logarithm of the density of the vector stored in an
+         * array from a given offset on.
+         */
+        double logDensity(double[] v, int offset, double[] mu) {
+            int d = mu.length;
+            double q = 0.0d;
+            if (this.l == null) {
+                double[] is = this.inverseDeviations;
+                for (int i = 0; i < d; i++) {
+                    double z = (v[offset + i] - mu[i]) * is[i];
+                    q += z * z;
+                }
+            } else {
+                double[][] li = this.lInverse;
+                for (int i = 0; i < d; i++) {
+                    double[] lii = li[i];
+                    double z = 0.0d;
+                    for (int k = 0; k <= i; k++) {
+                        z += lii[k] * (v[offset + k] - mu[k]);
+                    }
+                    q += z * z;
+                }
+            }
+            return this.logNormalizer - 0.5d * q;
+        }
+
+    }
+
+}
@@ -5,6 +5,7 @@
 package jahmm.distributions;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  * This interface must be implemented by all the package's classes implementing
@@ -22,6 +23,15 @@ public interface DiscreteDistribution
      */
     public int generate();
 
+    /**
+     * Generates a pseudo-random number using a given random generator: the
+     * same generator, seeded the same way, yields the same numbers.
+     *
+     * @param random The random generator the number is drawn from.
+     * @return A pseudo-random number.
+     */
+    public int generate(Random random);
+
     /**
      * Returns the probability of a given number.
      *
@@ -29,4 +39,12 @@ public interface DiscreteDistribution
      * @return
      */
     public double probability(int n);
+
+    /**
+     * Returns the logarithm of the probability of a given number.
+     *
+     * @param n An integer.
+     * @return The logarithm of the probability of <code>n</code>.
+     */
+    public double logProbability(int n);
 }
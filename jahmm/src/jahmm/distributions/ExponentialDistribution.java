@@ -4,6 +4,8 @@
  */
 package jahmm.distributions;
 
+import java.util.Random;
+
 /**
  * This class implements an generator of exponentially distributed reals.
  */
@@ -39,7 +41,12 @@ public class ExponentialDistribution implements RandomDistribution {
 
     @Override
     public double generate() {
-        return -Math.log(Math.random()) / rate;
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public double generate(Random random) {
+        return -Math.log(1.0d - random.nextDouble()) / rate;
     }
 
     @Override
@@ -47,6 +54,11 @@ public class ExponentialDistribution implements RandomDistribution {
         return rate * Math.exp(-n * rate);
     }
 
+    @Override
+    public double logProbability(double n) {
+        return Math.log(rate) - n * rate;
+    }
+
     @Override
     public ExponentialDistribution clone() throws CloneNotSupportedException {
         return new ExponentialDistribution(this.rate);
@@ -11,8 +11,6 @@ import java.util.Random;
  */
 public class GaussianDistribution implements RandomDistribution {
 
-    private final static Random randomGenerator = new Random();
-
     private static final long serialVersionUID = 9_127_329_839_769_283_975L;
 
     private double mean;
@@ -57,7 +55,12 @@ public class GaussianDistribution implements RandomDistribution {
 
     @Override
     public double generate() {
-        return randomGenerator.nextGaussian() * Math.sqrt(this.variance) + mean;
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public double generate(Random random) {
+        return random.nextGaussian() * Math.sqrt(this.variance) + mean;
     }
 
     @Override
@@ -67,6 +70,12 @@ public class GaussianDistribution implements RandomDistribution {
                 * Math.exp(expArg);
     }
 
+    @Override
+    public double logProbability(double n) {
+        double delta = n - mean;
+        return -.5 * (Math.log(2. * Math.PI * variance) + delta * delta / variance);
+    }
+
     @Override
     public GaussianDistribution clone() throws CloneNotSupportedException {
         return new GaussianDistribution(this.mean, this.variance);
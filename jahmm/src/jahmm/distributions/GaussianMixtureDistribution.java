@@ -15,8 +15,6 @@ import java.util.Random;
 public class GaussianMixtureDistribution
         implements RandomDistribution {
 
-    static private final Random random = new Random();
-
     private static final long serialVersionUID = 2_634_624_658_500_627_331L;
 
     private final GaussianDistribution[] distributions;
@@ -121,6 +119,11 @@ public class GaussianMixtureDistribution
 
     @Override
     public double generate() {
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public double generate(Random random) {
         double r = random.nextDouble();
         double sum = 0.;
 
@@ -128,7 +131,7 @@ public class GaussianMixtureDistribution
             sum += proportions[i];
 
             if (r <= sum) {
-                return distributions[i].generate();
+                return distributions[i].generate(random);
             }
         }
 
@@ -146,6 +149,37 @@ public class GaussianMixtureDistribution
         return sum;
     }
 
+    /**
+     * Returns the logarithm of the probability density of a given number. The
+     * components are combined with the log-sum-exp trick, so the result stays
+     * finite where every component density underflows.
+     *
+     * @param n A number.
+     * @return The logarithm of the probability density of <code>n</code>.
+     */
+    @Override
+    public double logProbability(double n) {
+        double[] terms = new double[distributions.length];
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < distributions.length; i++) {
+            terms[i] = Math.log(proportions[i]) + distributions[i].logProbability(n);
+            if (terms[i] > max) {
+                max = terms[i];
+            }
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+
+        double sum = 0.;
+        for (int i = 0; i < terms.length; i++) {
+            sum += Math.exp(terms[i] - max);
+        }
+
+        return max + Math.log(sum);
+    }
+
     @Override
     public GaussianMixtureDistribution clone() throws CloneNotSupportedException {
         GaussianDistribution[] gdo = this.distributions;
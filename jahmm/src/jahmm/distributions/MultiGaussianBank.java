@@ -0,0 +1,156 @@
+package jahmm.distributions;
+
+import java.util.logging.Logger;
+
+/**
+ * A bank of multi-variate Gaussian distributions of the same dimension, packed
+ * such that the density of one vector is evaluated against every distribution
+ * in a single pass over contiguous arrays.
+ * <p>
+ * Distribution <code>j</code> is stored as its mean, the inverse of the
+ * Cholesky factor of its covariance matrix (packed row by row as a lower
+ * triangle, or as the inverse standard deviations if every matrix is diagonal)
+ * and its logarithmic normalizer, such that the evaluation runs through the
+ * three arrays sequentially and does not allocate memory.
+ * <p>
+ * A bank is a snapshot: modifying the distributions it was built from does
+ * not modify the bank.
+ *
+ * @author kommusoft
+ */
+public final class MultiGaussianBank {
+
+    private static final Logger LOG = Logger.getLogger(MultiGaussianBank.class.getName());
+
+    private final int size;
+    private final int dimension;
+    private final boolean diagonal;
+    private final double[] factors;
+    private final double[] means;
+    private final double[] logNormalizers;
+
+    /**
+     * Packs a set of multi-variate Gaussian distributions.
+     *
+     * @param means The mean vectors of the distributions.
+     * @param covariances The covariance matrices of the distributions.
+     */
+    public MultiGaussianBank(double[][] means, CovarianceMatrix... covariances) {
+        if (means.length == 0 || means.length != covariances.length) {
+            throw new IllegalArgumentException();
+        }
+        int s = means.length;
+        int d = means[0].length;
+        CovarianceMatrix.Factorization[] fs = new CovarianceMatrix.Factorization[s];
+        boolean diag = true;
+        for (int j = 0; j < s; j++) {
+            if (means[j].length != d || covariances[j].dimension() != d) {
+                throw new IllegalArgumentException("mean and covariance dimensions don't match");
+            }
+            fs[j] = covariances[j].factorization();
+            diag &= fs[j].isDiagonal();
+        }
+        int width = diag ? d : d * (d + 0x01) / 0x02;
+        this.size = s;
+        this.dimension = d;
+        this.diagonal = diag;
+        this.factors = new double[s * width];
+        this.means = new double[s * d];
+        this.logNormalizers = new double[s];
+        for (int j = 0; j < s; j++) {
+            CovarianceMatrix.Factorization f = fs[j];
+            System.arraycopy(means[j], 0x00, this.means, j * d, d);
+            int p = j * width;
+            for (int i = 0; i < d; i++) {
+                if (diag) {
+                    this.factors[p++] = f.inverseDeviations[i];
+                } else {
+                    for (int k = 0; k <= i; k++, p++) {
+                        double lik;
+                        if (f.isDiagonal()) {
+                            lik = i == k ? f.inverseDeviations[i] : 0.0d;
+                        } else {
+                            lik = f.lInverse[i][k];
+                        }
+                        this.factors[p] = lik;
+                    }
+                }
+            }
+            this.logNormalizers[j] = f.logNormalizer;
+        }
+    }
+
+    /**
+     * Returns the number of distributions in this bank.
+     *
+     * @return The number of distributions in this bank.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the dimension of the vectors handled by this bank.
+     *
+     * @return The dimension of the vectors handled by this bank.
+     */
+    public int dimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Computes the logarithm of the density of a vector under every
+     * distribution of this bank.
+     *
+     * @param v A vector.
+     * @param out An array of length {@link #size()} in which the logarithm of
+     * the density under distribution <code>j</code> is stored at index
+     * <code>j</code>.
+     */
+    public void logDensities(double[] v, double[] out) {
+        if (v.length != this.dimension) {
+            throw new IllegalArgumentException("Argument array size is not compatible with this bank");
+        }
+        this.logDensities(v, 0x00, out);
+    }
+
+    /**
+     * Computes the logarithm of the density of the vector stored in an array
+     * from a given offset on under every distribution of this bank.
+     *
+     * @param v An array holding the components of the vector at indices
+     * <code>offset</code> to <code>offset + dimension() - 1</code>.
+     * @param offset The index of the first component of the vector.
+     * @param out An array of length {@link #size()} in which the logarithm of
+     * the density under distribution <code>j</code> is stored at index
+     * <code>j</code>.
+     */
+    public void logDensities(double[] v, int offset, double[] out) {
+        int d = this.dimension;
+        if (offset < 0x00 || offset + d > v.length) {
+            throw new IllegalArgumentException("Argument array size is not compatible with this bank");
+        }
+        double[] fs = this.factors;
+        double[] ms = this.means;
+        int p = 0x00;
+        for (int j = 0, o = 0x00; j < this.size; j++, o += d) {
+            double q = 0.0d;
+            if (this.diagonal) {
+                for (int i = 0; i < d; i++, p++) {
+                    double z = fs[p] * (v[offset + i] - ms[o + i]);
+                    q += z * z;
+                }
+            } else {
+                for (int i = 0; i < d; i++) {
+                    double z = 0.0d;
+                    for (int k = 0; k <= i; k++, p++) {
+                        z += fs[p] * (v[offset + k] - ms[o + k]);
+                    }
+                    q += z * z;
+                }
+            }
+            out[j] = this.logNormalizers[j] - 0.5d * q;
+        }
+    }
+
+}
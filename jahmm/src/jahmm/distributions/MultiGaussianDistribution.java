@@ -8,19 +8,24 @@ import java.util.Random;
 
 /**
  * This class implements a multi-variate Gaussian distribution.
+ * <p>
+ * The Cholesky decomposition of the covariance matrix, the inverse of that
+ * decomposition and the logarithm of the normalization constant are computed
+ * once and cached until the covariance matrix is modified. Evaluating the
+ * density does not allocate memory and can be done by several threads
+ * concurrently.
+ * <p>
+ * The covariance matrix can be diagonal, in which case evaluating the density
+ * is linear in the dimension, and can be shared with other distributions (see
+ * {@link CovarianceMatrix}).
  */
 public class MultiGaussianDistribution implements MultiRandomDistribution {
 
-    private final static Random randomGenerator = new Random();
-
     private static final long serialVersionUID = 2_438_571_303_843_585_271L;
 
     private final int dimension;
     private final double[] mean;
-    private final double[][] covariance;
-    private double[][] covarianceL = null; // covariance' Cholesky decomposition
-    private double[][] covarianceInv = null;
-    private double covarianceDet;
+    private final CovarianceMatrix covariance;
 
     /**
      * Creates a new pseudo-random, multivariate gaussian distribution.
@@ -32,15 +37,25 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
      * <code>r</code> and column <code>c</code>.
      */
     public MultiGaussianDistribution(double[] mean, double[][] covariance) {
-        if (!SimpleMatrix.isSquare(covariance)) {
-            throw new IllegalArgumentException("Covariance must be a square matrix");
-        }
-        dimension = SimpleMatrix.nbRows(covariance);
+        this(mean, new CovarianceMatrix(covariance));
+    }
+
+    /**
+     * Creates a new pseudo-random, multivariate gaussian distribution with a
+     * given covariance matrix object. The covariance matrix is not copied: it
+     * is shared with the other distributions built with the same object.
+     *
+     * @param mean The mean vector of the generated numbers. This array is
+     * copied.
+     * @param covariance The covariance matrix of the generated numbers.
+     */
+    public MultiGaussianDistribution(double[] mean, CovarianceMatrix covariance) {
+        dimension = covariance.dimension();
         if (mean.length != dimension) {
             throw new IllegalArgumentException("mean and covariance dimensions don't match");
         }
         this.mean = SimpleMatrix.vector(mean);
-        this.covariance = SimpleMatrix.matrix(covariance);
+        this.covariance = covariance;
     }
 
     /**
@@ -55,7 +70,7 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
         }
         this.dimension = dimension;
         this.mean = SimpleMatrix.vector(dimension);
-        this.covariance = SimpleMatrix.matrixIdentity(dimension);
+        this.covariance = new CovarianceMatrix(dimension, false);
     }
 
     @Override
@@ -78,24 +93,17 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
      * @return This distribution's covariance matrix.
      */
     public double[][] covariance() {
-        return SimpleMatrix.matrix(this.covariance);
+        return this.covariance.matrix();
     }
 
-    private double[][] covarianceL() {
-        if (this.covarianceL == null) {
-            this.covarianceL = SimpleMatrix.decomposeCholesky(this.covariance);
-            this.covarianceDet = SimpleMatrix.determinantCholesky(this.covarianceL);
-        }
-
-        return covarianceL;
-    }
-
-    private double[][] covarianceInv() {
-        if (this.covarianceInv == null) {
-            this.covarianceInv = SimpleMatrix.inverseCholesky(covarianceL());
-        }
-
-        return this.covarianceInv;
+    /**
+     * Returns the covariance matrix object of this distribution. Modifying it
+     * modifies this distribution and all the distributions sharing it.
+     *
+     * @return The (possibly shared) covariance matrix of this distribution.
+     */
+    public CovarianceMatrix covarianceMatrix() {
+        return this.covariance;
     }
 
     /**
@@ -104,8 +112,7 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
      * @return The covariance matrix determinant.
      */
     public double covarianceDet() {
-        this.covarianceL();
-        return this.covarianceDet;
+        return Math.exp(this.covariance.factorization().logDet);
     }
 
     /**
@@ -117,22 +124,81 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
      */
     @Override
     public double[] generate() {
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public double[] generate(Random random) {
         double[] d = SimpleMatrix.vector(this.dimension);
         for (int i = 0; i < this.dimension; i++) {
-            d[i] = this.randomGenerator.nextGaussian();
+            d[i] = random.nextGaussian();
         }
 
-        return SimpleMatrix.plus(SimpleMatrix.times(this.covarianceL(), d), this.mean);
+        return this.covariance.factorization().transform(d, this.mean);
     }
 
     @Override
     public double probability(double[] v) {
+        return Math.exp(this.logProbability(v));
+    }
+
+    /**
+     * Returns the logarithm of the probability density of a given vector. The
+     * squared Mahalanobis distance is computed as the squared norm of the
+     * vector multiplied with the (cached) inverse Cholesky factor, without
+     * intermediate arrays.
+     *
+     * @param v A vector.
+     * @return The logarithm of the probability density of <code>v</code>.
+     */
+    @Override
+    public double logProbability(double[] v) {
         if (v.length != this.dimension) {
             throw new IllegalArgumentException("Argument array size is not compatible with this distribution");
         }
-        double[][] vmm = SimpleMatrix.matrix(SimpleMatrix.minus(v, mean));
-        double expArg = -0.5d * SimpleMatrix.times(SimpleMatrix.transpose(vmm), SimpleMatrix.times(this.covarianceInv(), vmm))[0][0];
-        return Math.exp(expArg) / (Math.pow(2.0d * Math.PI, 0.5d * dimension) * Math.pow(covarianceDet(), 0.5d));
+        return this.covariance.factorization().logDensity(v, this.mean);
+    }
+
+    /**
+     * Computes the logarithm of the probability density of a range of
+     * vectors. The factorization of the covariance matrix is fetched once for
+     * the whole range.
+     *
+     * @param vectors An array of vectors.
+     * @param from The index of the first vector of the range (inclusive).
+     * @param to The index of the last vector of the range (exclusive).
+     * @param out The array in which the logarithm of the density of vector
+     * <code>vectors[from + k]</code> is stored at index <code>k</code>.
+     */
+    public void logProbabilities(double[][] vectors, int from, int to, double[] out) {
+        CovarianceMatrix.Factorization f = this.covariance.factorization();
+        for (int t = from, k = 0; t < to; t++, k++) {
+            if (vectors[t].length != this.dimension) {
+                throw new IllegalArgumentException("Argument array size is not compatible with this distribution");
+            }
+            out[k] = f.logDensity(vectors[t], this.mean);
+        }
+    }
+
+    /**
+     * Computes the logarithm of the probability density of a range of vectors
+     * stored one after the other in a single array: component <code>i</code>
+     * of vector <code>t</code> is at index <code>t * dimension() + i</code>.
+     *
+     * @param vectors The components of the vectors.
+     * @param from The index of the first vector of the range (inclusive).
+     * @param to The index of the last vector of the range (exclusive).
+     * @param out The array in which the logarithm of the density of vector
+     * <code>from + k</code> is stored at index <code>k</code>.
+     */
+    public void logProbabilities(double[] vectors, int from, int to, double[] out) {
+        if ((long) to * this.dimension > vectors.length) {
+            throw new IllegalArgumentException("Argument array size is not compatible with this distribution");
+        }
+        CovarianceMatrix.Factorization f = this.covariance.factorization();
+        for (int t = from, k = 0; t < to; t++, k++) {
+            out[k] = f.logDensity(vectors, t * this.dimension, this.mean);
+        }
     }
 
     public void setMean(double[] mean) {
@@ -144,7 +210,7 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
     }
 
     public void setCovariance(int i, int j, double covariance) {
-        this.covariance[i][j] = covariance;
+        this.covariance.set(i, j, covariance);
     }
 
     public double mean(int i) {
@@ -152,17 +218,23 @@ public class MultiGaussianDistribution implements MultiRandomDistribution {
     }
 
     public double covariance(int i, int j) {
-        return this.covariance[i][j];
+        return this.covariance.get(i, j);
     }
 
     public void setCovariance(double[][] covariance) {
-        for (int i = 0x00; i < covariance.length; i++) {
-            System.arraycopy(covariance[i], 0, this.covariance[i], 0, covariance[i].length);
-        }
+        this.covariance.set(covariance);
     }
 
+    /**
+     * Creates a copy of this distribution. The copy does not share the
+     * covariance matrix of this distribution.
+     *
+     * @return A copy of this distribution.
+     * @throws CloneNotSupportedException
+     */
     @Override
     public MultiGaussianDistribution clone() throws CloneNotSupportedException {
-        return new MultiGaussianDistribution(this.mean, this.covariance);
+        return new MultiGaussianDistribution(this.mean, this.covariance.copy());
     }
+
 }
@@ -0,0 +1,272 @@
+package jahmm.distributions;
+
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * This class implements a mixture of multi-variate Gaussian distributions.
+ * <p>
+ * The parameters are stored as parallel arrays: one array of mixing
+ * proportions (and their logarithms), one array of mean vectors and one array
+ * of covariance matrices. Each covariance matrix caches its Cholesky
+ * decomposition, so evaluating the density of a vector does not allocate
+ * memory.
+ *
+ * @author kommusoft
+ */
+public class MultiGaussianMixtureDistribution implements MultiRandomDistribution {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(MultiGaussianMixtureDistribution.class.getName());
+
+    private final int dimension;
+    private final double[] proportions;
+    private final double[] logProportions;
+    private final double[][] means;
+    private final CovarianceMatrix[] covariances;
+
+    /**
+     * Creates a new pseudo-random, multi-variate Gaussian mixture
+     * distribution. The means of the distributions are evenly distributed on
+     * the diagonal between the origin and the unit vector, each covariance
+     * matrix is the identity and the proportions are equal.
+     *
+     * @param nbGaussians The number of distributions composing the mixture.
+     * @param dimension The dimension of the vectors.
+     * @param diagonal Whether the covariance matrices are restricted to be
+     * diagonal.
+     */
+    public MultiGaussianMixtureDistribution(int nbGaussians, int dimension, boolean diagonal) {
+        if (nbGaussians <= 0 || dimension <= 0) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
+        this.dimension = dimension;
+        this.proportions = new double[nbGaussians];
+        this.logProportions = new double[nbGaussians];
+        this.means = new double[nbGaussians][dimension];
+        this.covariances = new CovarianceMatrix[nbGaussians];
+        for (int k = 0; k < nbGaussians; k++) {
+            this.proportions[k] = 1.0d / nbGaussians;
+            this.logProportions[k] = -Math.log(nbGaussians);
+            double m = (1.0d + 2.0d * k) / (2.0d * nbGaussians);
+            for (int i = 0; i < dimension; i++) {
+                this.means[k][i] = m;
+            }
+            this.covariances[k] = new CovarianceMatrix(dimension, diagonal);
+        }
+    }
+
+    /**
+     * Creates a new pseudo-random, multi-variate Gaussian mixture
+     * distribution. The mean vectors, covariance matrices and proportions of
+     * each distribution are given as arguments.
+     *
+     * @param means The mean vectors of the Gaussian distributions. The arrays
+     * are copied.
+     * @param covariances The covariance matrices of the Gaussian
+     * distributions. The matrices are copied.
+     * @param proportions The mixing proportions. This array does not have to be
+     * normalized, but each element must be positive and the sum of its elements
+     * must be strictly positive.
+     */
+    public MultiGaussianMixtureDistribution(double[][] means, CovarianceMatrix[] covariances, double... proportions) {
+        if (means.length == 0 || means.length != covariances.length
+                || means.length != proportions.length) {
+            throw new IllegalArgumentException();
+        }
+        this.dimension = means[0].length;
+        this.means = new double[means.length][];
+        this.covariances = new CovarianceMatrix[means.length];
+        for (int k = 0; k < means.length; k++) {
+            if (means[k].length != this.dimension || covariances[k].dimension() != this.dimension) {
+                throw new IllegalArgumentException("mean and covariance dimensions don't match");
+            }
+            this.means[k] = SimpleMatrix.vector(means[k]);
+            this.covariances[k] = covariances[k].copy();
+        }
+        this.proportions = new double[proportions.length];
+        this.logProportions = new double[proportions.length];
+        this.setProportions(proportions);
+    }
+
+    @Override
+    public int dimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Returns the number of Gaussians composing this mixture.
+     *
+     * @return The number of Gaussians composing this mixture.
+     */
+    public int nbGaussians() {
+        return this.proportions.length;
+    }
+
+    /**
+     * Returns the proportions of the distributions in this mixture. The sum of
+     * the proportions equals 1.
+     *
+     * @return A copy of the distributions' proportions array.
+     */
+    public double[] proportions() {
+        return this.proportions.clone();
+    }
+
+    /**
+     * Returns the mean vector of a distribution of this mixture.
+     *
+     * @param k The index of the distribution.
+     * @return A copy of the mean vector of the distribution.
+     */
+    public double[] mean(int k) {
+        return this.means[k].clone();
+    }
+
+    /**
+     * Returns the covariance matrix of a distribution of this mixture.
+     * Modifying the returned object modifies this mixture.
+     *
+     * @param k The index of the distribution.
+     * @return The covariance matrix of the distribution.
+     */
+    public CovarianceMatrix covarianceMatrix(int k) {
+        return this.covariances[k];
+    }
+
+    /**
+     * Sets the mixing proportions of this mixture.
+     *
+     * @param proportions The mixing proportions. This array does not have to be
+     * normalized, but each element must be positive and the sum of its elements
+     * must be strictly positive.
+     */
+    public void setProportions(double... proportions) {
+        if (proportions.length != this.proportions.length) {
+            throw new IllegalArgumentException();
+        }
+        double sum = 0.0d;
+        for (int k = 0; k < proportions.length; k++) {
+            if (proportions[k] < 0.0d) {
+                throw new IllegalArgumentException();
+            }
+            sum += proportions[k];
+        }
+        if (sum <= 0.0d) {
+            throw new IllegalArgumentException();
+        }
+        for (int k = 0; k < proportions.length; k++) {
+            this.proportions[k] = proportions[k] / sum;
+            this.logProportions[k] = Math.log(this.proportions[k]);
+        }
+    }
+
+    /**
+     * Sets the mean vector of a distribution of this mixture.
+     *
+     * @param k The index of the distribution.
+     * @param mean The new mean vector. This array is copied.
+     */
+    public void setMean(int k, double[] mean) {
+        if (mean.length != this.dimension) {
+            throw new IllegalArgumentException("Vector has a wrong dimension");
+        }
+        System.arraycopy(mean, 0, this.means[k], 0, this.dimension);
+    }
+
+    @Override
+    public double[] generate() {
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public double[] generate(Random random) {
+        double r = random.nextDouble();
+        int k = 0;
+        for (double sum = this.proportions[0]; r > sum && k < this.proportions.length - 1;) {
+            sum += this.proportions[++k];
+        }
+        double[] z = new double[this.dimension];
+        for (int i = 0; i < this.dimension; i++) {
+            z[i] = random.nextGaussian();
+        }
+        return this.covariances[k].factorization().transform(z, this.means[k]);
+    }
+
+    @Override
+    public double probability(double[] v) {
+        return Math.exp(this.logProbability(v));
+    }
+
+    /**
+     * Returns the logarithm of the probability density of a given vector. The
+     * components are combined with the log-sum-exp trick.
+     *
+     * @param v A vector.
+     * @return The logarithm of the probability density of <code>v</code>.
+     */
+    @Override
+    public double logProbability(double[] v) {
+        return this.logComponents(v, new double[this.proportions.length]);
+    }
+
+    /**
+     * Computes the weighted logarithmic densities of a vector for every
+     * distribution of this mixture, and the logarithm of the density of the
+     * mixture. The responsibility of distribution <code>k</code> for the
+     * vector is <code>exp(out[k] - result)</code>.
+     *
+     * @param v A vector.
+     * @param out An array of length {@link #nbGaussians()}, in which the
+     * logarithm of the proportion times the density of every distribution is
+     * stored.
+     * @return The logarithm of the probability density of <code>v</code>.
+     */
+    public double logComponents(double[] v, double[] out) {
+        if (v.length != this.dimension) {
+            throw new IllegalArgumentException("Argument array size is not compatible with this distribution");
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < this.proportions.length; k++) {
+            double l = this.logProportions[k];
+            if (l != Double.NEGATIVE_INFINITY) {
+                l += this.covariances[k].factorization().logDensity(v, this.means[k]);
+            }
+            out[k] = l;
+            if (l > max) {
+                max = l;
+            }
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        double sum = 0.0d;
+        for (int k = 0; k < out.length; k++) {
+            sum += Math.exp(out[k] - max);
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Computes the logarithm of the probability density of a range of
+     * vectors, reusing one buffer for the component terms.
+     *
+     * @param vectors An array of vectors.
+     * @param from The index of the first vector of the range (inclusive).
+     * @param to The index of the last vector of the range (exclusive).
+     * @param out The array in which the logarithm of the density of vector
+     * <code>vectors[from + k]</code> is stored at index <code>k</code>.
+     */
+    public void logProbabilities(double[][] vectors, int from, int to, double[] out) {
+        double[] terms = new double[this.proportions.length];
+        for (int t = from, k = 0; t < to; t++, k++) {
+            out[k] = this.logComponents(vectors[t], terms);
+        }
+    }
+
+    @Override
+    public MultiGaussianMixtureDistribution clone() throws CloneNotSupportedException {
+        return new MultiGaussianMixtureDistribution(this.means, this.covariances, this.proportions);
+    }
+
+}
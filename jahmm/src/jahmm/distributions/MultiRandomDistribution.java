@@ -5,6 +5,7 @@
 package jahmm.distributions;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  * This interface must be implemented by all the package's classes implementing
@@ -29,6 +30,15 @@ public interface MultiRandomDistribution
      */
     public double[] generate();
 
+    /**
+     * Generates a pseudo-random vector using a given random generator: the
+     * same generator, seeded the same way, yields the same vectors.
+     *
+     * @param random The random generator the vector is drawn from.
+     * @return A pseudo-random vector.
+     */
+    public double[] generate(Random random);
+
     /**
      * Returns the probability (density) of a given vector.
      *
@@ -37,5 +47,15 @@ public interface MultiRandomDistribution
      */
     public double probability(double[] v);
 
+    /**
+     * Returns the logarithm of the probability (density) of a given vector.
+     * This value is computed without underflowing for vectors far away from
+     * the mass of the distribution.
+     *
+     * @param v A vector.
+     * @return The logarithm of the probability of the vector <code>v</code>.
+     */
+    public double logProbability(double[] v);
+
     public abstract MultiRandomDistribution clone() throws CloneNotSupportedException;
 }
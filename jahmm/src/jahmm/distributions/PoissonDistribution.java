@@ -4,6 +4,8 @@
  */
 package jahmm.distributions;
 
+import java.util.Random;
+
 /**
  * This class implements a generator of Poisson distributed numbers.
  */
@@ -58,12 +60,17 @@ public class PoissonDistribution
 
     @Override
     public int generate() {
+        return this.generate(SplitMixRandom.current());
+    }
+
+    @Override
+    public int generate(Random random) {
         int count = 0;
         double product = 1.;
         final double elambda = Math.exp(-mean);
 
         while (product > elambda) {
-            product *= Math.random();
+            product *= random.nextDouble();
             count++;
         }
 
@@ -72,7 +79,17 @@ public class PoissonDistribution
 
     @Override
     public double probability(int n) {
-        return Math.exp(n * Math.log(mean) - logFactorial(n) - mean);
+        return Math.exp(logProbability(n));
+    }
+
+    @Override
+    public double logProbability(int n) {
+        if (n < 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (n == 0) {
+            return -mean;
+        }
+        return n * Math.log(mean) - logFactorial(n) - mean;
     }
 
     // Based on Stirling approximation
@@ -5,6 +5,7 @@
 package jahmm.distributions;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  * This interface must be implemented by all the package's classes implementing
@@ -21,6 +22,15 @@ public interface RandomDistribution extends Serializable {
      */
     public double generate();
 
+    /**
+     * Generates a pseudo-random number using a given random generator: the
+     * same generator, seeded the same way, yields the same numbers.
+     *
+     * @param random The random generator the number is drawn from.
+     * @return A pseudo-random number.
+     */
+    public double generate(Random random);
+
     /**
      * Returns the probability (density) of a given number.
      *
@@ -29,5 +39,15 @@ public interface RandomDistribution extends Serializable {
      */
     public double probability(double n);
 
+    /**
+     * Returns the logarithm of the probability (density) of a given number.
+     * This value is computed without underflowing for numbers far away from
+     * the mass of the distribution.
+     *
+     * @param n A number.
+     * @return The logarithm of the probability (density) of <code>n</code>.
+     */
+    public double logProbability(double n);
+
     public abstract RandomDistribution clone() throws CloneNotSupportedException;
 }
@@ -0,0 +1,177 @@
+package jahmm.distributions;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A seedable and splittable pseudo-random generator (the SplitMix64 algorithm
+ * of Steele, Lea and Flood, <i>Fast Splittable Pseudorandom Number
+ * Generators</i>, OOPSLA 2014).
+ * <p>
+ * Unlike {@link Random}, a generator of this class holds its state in plain
+ * fields: it is not meant to be shared between threads. Instead, every thread
+ * gets its own generator with {@link #split()}, which derives a new,
+ * statistically independent generator. Generating in parallel from the
+ * splits of a seeded generator is reproducible, provided the splits are
+ * handed out in a fixed order.
+ * <p>
+ * The generators that are not given a random generator explicitly draw from
+ * {@link #current()}, the generator of the calling thread.
+ *
+ * @author kommusoft
+ */
+public class SplitMixRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(SplitMixRandom.class.getName());
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final AtomicLong SEEDER = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+    private static final ThreadLocal<SplitMixRandom> CURRENT = new ThreadLocal<SplitMixRandom>() {
+
+        @Override
+        protected SplitMixRandom initialValue() {
+            long seed = SEEDER.getAndAdd(GOLDEN_GAMMA << 0x01);
+            return new SplitMixRandom(mix64(seed), mixGamma(seed + GOLDEN_GAMMA));
+        }
+
+    };
+
+    /**
+     * Returns the generator of the calling thread. The generator is seeded
+     * differently for every thread and every run: use a seeded generator for
+     * reproducible results.
+     *
+     * @return The generator of the calling thread.
+     */
+    public static SplitMixRandom current() {
+        return CURRENT.get();
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /* Gammas must be odd and must not have too few bit transitions, see the
+     paper. */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 0x01L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    private long seed;
+    private long gamma;
+    private double nextGaussian;
+    private boolean haveNextGaussian;
+
+    /**
+     * Creates a generator that is split from the generator of the calling
+     * thread.
+     */
+    public SplitMixRandom() {
+        this(current());
+    }
+
+    /**
+     * Creates a generator from a seed: generators created with the same seed
+     * generate the same numbers.
+     *
+     * @param seed The seed of the generator.
+     */
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitMixRandom(SplitMixRandom parent) {
+        this(parent.nextLong(), mixGamma(parent.nextSeed()));
+    }
+
+    private SplitMixRandom(long seed, long gamma) {
+        super(seed);
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    private long nextSeed() {
+        return this.seed += this.gamma;
+    }
+
+    /**
+     * Creates a new generator that shares no state with this generator. The
+     * state of this generator is advanced, such that successive splits are
+     * independent as well.
+     *
+     * @return A new generator.
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(this);
+    }
+
+    /**
+     * Resets this generator to the state of a generator created with the
+     * given seed.
+     *
+     * @param seed The seed of the generator.
+     */
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+        this.haveNextGaussian = false;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (this.nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(this.nextSeed());
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(this.nextSeed());
+    }
+
+    @Override
+    public double nextDouble() {
+        return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return this.nextInt() < 0x00;
+    }
+
+    /* The polar method, as in Random, without the lock. */
+    @Override
+    public double nextGaussian() {
+        if (this.haveNextGaussian) {
+            this.haveNextGaussian = false;
+            return this.nextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2.0d * this.nextDouble() - 1.0d;
+            v2 = 2.0d * this.nextDouble() - 1.0d;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1.0d || s == 0.0d);
+        double multiplier = Math.sqrt(-2.0d * Math.log(s) / s);
+        this.nextGaussian = v2 * multiplier;
+        this.haveNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+}
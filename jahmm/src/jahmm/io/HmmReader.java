@@ -77,9 +77,10 @@ public class HmmReader {
         double[] pi = new double[nbStates];
         double[][] a = new double[nbStates][nbStates];
         List<Opdf<O>> opdfs = new ArrayList<>(nbStates);
+        OpdfReader<? extends Opdf<O>> modelReader = opdfReader.modelReader();
 
         for (int i = 0; i < nbStates; i++) {
-            readState(st, nbStates, i, pi, a, opdfs, opdfReader);
+            readState(st, nbStates, i, pi, a, opdfs, modelReader);
         }
 
         return new RegularHmmBase<>(pi, a, opdfs);
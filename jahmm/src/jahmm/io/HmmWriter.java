@@ -30,9 +30,10 @@ public class HmmWriter {
             write(Writer writer, OpdfWriter<? extends Opdf<O>> opdfWriter, RegularHmmBase<O> hmm)
             throws IOException {
         writer.write("Hmm v1.0\n\nNbStates " + hmm.nbStates() + "\n\n");
+        OpdfWriter<? extends Opdf<O>> modelWriter = opdfWriter.modelWriter();
 
         for (int i = 0; i < hmm.nbStates(); i++) {
-            writeState(writer, opdfWriter, hmm, i);
+            writeState(writer, modelWriter, hmm, i);
         }
     }
 
@@ -61,7 +61,21 @@ public class ObservationIntegerReader
     @Override
     public ObservationInteger read(StreamTokenizer st)
             throws IOException, FileFormatException {
-        ObservationInteger oi;
+        return new ObservationInteger(readValue(st));
+    }
+
+    /**
+     * Reads the value of an integer observation, as {@link #read read} does,
+     * without creating an observation object.
+     *
+     * @param st A stream tokenizer.
+     * @return The value read.
+     * @throws java.io.IOException
+     * @throws jahmm.io.FileFormatException
+     */
+    public int readValue(StreamTokenizer st)
+            throws IOException, FileFormatException {
+        int value;
 
         st.ordinaryChar('.');
 
@@ -70,7 +84,7 @@ public class ObservationIntegerReader
                 throw new FileFormatException(st.lineno(),
                         "Integer higher than maximum value " + (nbElements - 1));
             }
-            oi = new ObservationInteger((int) st.nval);
+            value = (int) st.nval;
         } else {
             throw new FileFormatException(st.lineno(), "Integer expected");
         }
@@ -81,6 +95,6 @@ public class ObservationIntegerReader
 
         ObservationSequencesReader.initSyntaxTable(st);
 
-        return oi;
+        return value;
     }
 }
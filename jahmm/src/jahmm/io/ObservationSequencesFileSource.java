@@ -0,0 +1,161 @@
+package jahmm.io;
+
+import jahmm.observables.Observation;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A re-iterable source of observation sequences stored in one or more files.
+ * <p>
+ * Every call to {@link #iterator()} opens the files again and reads the
+ * sequences one at a time, such that only a single sequence is kept in memory.
+ * This allows learners to perform several passes over data sets that do not
+ * fit in memory. The files follow the format described in
+ * {@link ObservationSequencesReader ObservationSequencesReader}.
+ * <p>
+ * Since {@link Iterator} cannot throw checked exceptions, an
+ * {@link IOException} or {@link FileFormatException} raised while reading is
+ * wrapped in a {@link RuntimeException}.
+ *
+ * @author kommusoft
+ * @param <O> The type of observations in the sequences.
+ */
+public class ObservationSequencesFileSource<O extends Observation> implements Iterable<List<O>> {
+
+    private final ObservationReader<O> observationReader;
+    private final List<File> files;
+
+    /**
+     * Creates a new source of observation sequences. Every directory is
+     * replaced by the regular files it contains (not recursively), in
+     * lexicographic order.
+     *
+     * @param observationReader The reader used to parse the observations.
+     * @param files The files or directories holding the sequences.
+     * @throws IllegalArgumentException If a given file does not exist.
+     */
+    public ObservationSequencesFileSource(ObservationReader<O> observationReader, File... files) {
+        this.observationReader = observationReader;
+        this.files = listFiles(files);
+    }
+
+    /**
+     * Lists the given files, replacing every directory by the regular files it
+     * contains (not recursively), in lexicographic order.
+     *
+     * @param files The files or directories.
+     * @return The list of regular files.
+     * @throws IllegalArgumentException If a given file does not exist.
+     */
+    public static List<File> listFiles(File... files) {
+        List<File> result = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isFile()) {
+                        result.add(child);
+                    }
+                }
+            } else if (file.isFile()) {
+                result.add(file);
+            } else {
+                throw new IllegalArgumentException("File not found: " + file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the files the sequences are read from.
+     *
+     * @return The files the sequences are read from.
+     */
+    public List<File> getFiles() {
+        return this.files;
+    }
+
+    /**
+     * Opens a reader on the given file.
+     *
+     * @param file The file to open.
+     * @return A reader on the given file.
+     * @throws IOException If the file cannot be opened.
+     */
+    protected Reader openReader(File file) throws IOException {
+        return new BufferedReader(new FileReader(file));
+    }
+
+    @Override
+    public Iterator<List<O>> iterator() {
+        return new SequenceIterator();
+    }
+
+    private class SequenceIterator implements Iterator<List<O>> {
+
+        private int fileIndex;
+        private Reader reader;
+        private StreamTokenizer tokenizer;
+        private List<O> next;
+
+        SequenceIterator() {
+            this.advance();
+        }
+
+        private void advance() {
+            try {
+                this.next = null;
+                while (this.next == null) {
+                    if (this.tokenizer == null) {
+                        if (this.fileIndex >= files.size()) {
+                            return;
+                        }
+                        this.reader = openReader(files.get(this.fileIndex++));
+                        this.tokenizer = new StreamTokenizer(this.reader);
+                        ObservationSequencesReader.initSyntaxTable(this.tokenizer);
+                    }
+                    this.next = ObservationSequencesReader.readSequence(observationReader, this.tokenizer);
+                    if (this.next == null) {
+                        this.reader.close();
+                        this.reader = null;
+                        this.tokenizer = null;
+                    }
+                }
+            } catch (IOException | FileFormatException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public List<O> next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            List<O> result = this.next;
+            this.advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
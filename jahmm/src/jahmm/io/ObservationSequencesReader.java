@@ -5,10 +5,12 @@
 package jahmm.io;
 
 import jahmm.observables.Observation;
+import jahmm.observables.ObservationIntegerSequence;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StreamTokenizer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -70,6 +72,40 @@ public class ObservationSequencesReader {
         return sequences;
     }
 
+    /**
+     * Reads a file of integer observation sequences. The values are stored in
+     * arrays of <code>int</code>s: no observation object is created.
+     *
+     * @param or An integer observation reader.
+     * @param reader Holds the character stream reader the sequences are read
+     * from.
+     * @return The sequences read.
+     * @throws java.io.IOException
+     * @throws jahmm.io.FileFormatException
+     */
+    static public List<ObservationIntegerSequence>
+            readIntegerSequences(ObservationIntegerReader or, Reader reader)
+            throws IOException, FileFormatException {
+        List<ObservationIntegerSequence> sequences = new ArrayList<>();
+        StreamTokenizer st = new StreamTokenizer(reader);
+
+        initSyntaxTable(st);
+
+        for (st.nextToken(); st.ttype != StreamTokenizer.TT_EOF;
+                st.nextToken()) {
+            st.pushBack();
+            ObservationIntegerSequence sequence = readIntegerSequence(or, st);
+
+            if (sequence == null) {
+                break;
+            }
+
+            sequences.add(sequence);
+        }
+
+        return sequences;
+    }
+
     /* Initialize the syntax table of a stream tokenizer */
     static void initSyntaxTable(StreamTokenizer st) {
         st.resetSyntax();
@@ -139,6 +175,48 @@ public class ObservationSequencesReader {
         return sequence;
     }
 
+    /*
+     * Reads an integer observation sequence out of a {@link
+     * java.io.StreamTokenizer StreamTokenizer}, as readSequence does, into a
+     * growing array of values.
+     */
+    static ObservationIntegerSequence
+            readIntegerSequence(ObservationIntegerReader oir, StreamTokenizer st)
+            throws IOException, FileFormatException {
+        for (st.nextToken(); st.ttype == StreamTokenizer.TT_EOL;
+                st.nextToken());
+        if (st.ttype == StreamTokenizer.TT_EOF) {
+            return null;
+        }
+
+        int[] values = new int[0x10];
+        int size = 0x00;
+
+        do {
+            st.pushBack();
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 0x01);
+            }
+            values[size++] = oir.readValue(st);
+
+            if (st.nextToken() == '\\') { /* New lines can be escaped by '\' */
+
+                if (st.nextToken() != StreamTokenizer.TT_EOL) {
+                    throw new FileFormatException("'\' token is not followed "
+                            + "by a new line");
+                }
+                st.nextToken();
+            }
+        } while (st.ttype != StreamTokenizer.TT_EOL
+                && st.ttype != StreamTokenizer.TT_EOF);
+
+        if (st.ttype == StreamTokenizer.TT_EOF) {
+            throw new FileFormatException("Unexpected token: EOF");
+        }
+
+        return new ObservationIntegerSequence(values, size);
+    }
+
     private ObservationSequencesReader() {
     }
 }
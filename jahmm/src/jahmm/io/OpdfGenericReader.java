@@ -4,6 +4,7 @@
  */
 package jahmm.io;
 
+import jahmm.observables.CovarianceStructure;
 import jahmm.observables.Opdf;
 import java.io.IOException;
 import java.io.StreamTokenizer;
@@ -15,6 +16,35 @@ import java.io.StreamTokenizer;
 public class OpdfGenericReader
         extends OpdfReader<Opdf<?>> {
 
+    private final OpdfReader<?>[] readers;
+
+    /**
+     * Creates a reader of all the distributions this package can read.
+     */
+    public OpdfGenericReader() {
+        this(new OpdfIntegerReader(),
+                new OpdfSparseIntegerReader(),
+                new OpdfGaussianReader(),
+                new OpdfGaussianMixtureReader(),
+                new OpdfMultiGaussianReader(),
+                new OpdfMultiGaussianReader(CovarianceStructure.DIAGONAL),
+                new OpdfMultiGaussianReader(CovarianceStructure.SPHERICAL),
+                new OpdfMultiGaussianReader(CovarianceStructure.TIED));
+    }
+
+    private OpdfGenericReader(OpdfReader<?>... readers) {
+        this.readers = readers;
+    }
+
+    @Override
+    OpdfReader<Opdf<?>> modelReader() {
+        OpdfReader<?>[] model = new OpdfReader<?>[readers.length];
+        for (int i = 0x00; i < readers.length; i++) {
+            model[i] = readers[i].modelReader();
+        }
+        return new OpdfGenericReader(model);
+    }
+
     @Override
     String keyword() {
         throw new AssertionError("Cannot call method");
@@ -27,11 +57,7 @@ public class OpdfGenericReader
             throw new FileFormatException("Keyword expected");
         }
 
-        for (OpdfReader r : new OpdfReader[]{
-            new OpdfIntegerReader(),
-            new OpdfGaussianReader(),
-            new OpdfGaussianMixtureReader(),
-            new OpdfMultiGaussianReader()}) {
+        for (OpdfReader<?> r : readers) {
             if (r.keyword().equals(st.sval)) {
                 st.pushBack();
                 return r.read(st);
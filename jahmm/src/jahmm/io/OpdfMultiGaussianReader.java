@@ -4,9 +4,14 @@
  */
 package jahmm.io;
 
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.observables.CovarianceStructure;
 import jahmm.observables.OpdfMultiGaussian;
 import java.io.IOException;
 import java.io.StreamTokenizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class implements a {@link OpdfMultiGaussian} reader. The syntax of the
@@ -29,31 +34,123 @@ import java.io.StreamTokenizer;
  * returns a distribution equivalent to<br>
  * <code>new OpdfMultiGaussian(new double[] { 5., 5. },
  *       new double[][] { { 1.2, .3 }, { .3, 4. } })</code>.
+ * <p>
+ * Distributions with a restricted {@link CovarianceStructure} are read by a
+ * reader built for that structure:
+ * <ul>
+ * <li><tt>DiagonalMultiGaussianOPDF [ [ 5. 5. ] [ 1.2 4. ] ]</tt> gives the
+ * mean and the diagonal of the covariance matrix;</li>
+ * <li><tt>SphericalMultiGaussianOPDF [ [ 5. 5. ] [ 1.2 ] ]</tt> gives the mean
+ * and the variance shared by all the coordinates;</li>
+ * <li><tt>TiedMultiGaussianOPDF [ 0 [ 5. 5. ] [ [ 1.2 .3 ] [ .3 4. ] ] ]</tt>
+ * starts with the number of the tie group of the distribution, followed by
+ * the syntax of the full description. The distributions of a model (read by
+ * {@link HmmReader}) with the same group number are tied to the same matrix,
+ * and their covariance matrices must be equal. A distribution read on its own
+ * is tied to no other distribution.</li>
+ * </ul>
  */
 public class OpdfMultiGaussianReader
         extends OpdfReader<OpdfMultiGaussian> {
 
+    private final CovarianceStructure structure;
+    private final Map<Integer, CovarianceMatrix> groups;
+
+    /**
+     * Creates a reader of distributions with a full covariance matrix.
+     */
+    public OpdfMultiGaussianReader() {
+        this(CovarianceStructure.FULL);
+    }
+
+    /**
+     * Creates a reader of distributions with a given covariance structure.
+     *
+     * @param structure The structure of the covariance matrices read.
+     */
+    public OpdfMultiGaussianReader(CovarianceStructure structure) {
+        this(structure, null);
+    }
+
+    private OpdfMultiGaussianReader(CovarianceStructure structure, Map<Integer, CovarianceMatrix> groups) {
+        this.structure = structure;
+        this.groups = groups;
+    }
+
     @Override
     String keyword() {
-        return "MultiGaussianOPDF";
+        switch (structure) {
+            case DIAGONAL:
+                return "DiagonalMultiGaussianOPDF";
+            case SPHERICAL:
+                return "SphericalMultiGaussianOPDF";
+            case TIED:
+                return "TiedMultiGaussianOPDF";
+            default:
+                return "MultiGaussianOPDF";
+        }
+    }
+
+    @Override
+    OpdfReader<OpdfMultiGaussian> modelReader() {
+        if (structure == CovarianceStructure.TIED) {
+            return new OpdfMultiGaussianReader(structure, new HashMap<Integer, CovarianceMatrix>());
+        }
+        return this;
     }
 
     @Override
     public OpdfMultiGaussian read(StreamTokenizer st)
             throws IOException, FileFormatException {
         HmmReader.readWords(st, keyword(), "[");
+        int group = 0x00;
+        if (structure == CovarianceStructure.TIED) {
+            double number = HmmReader.readNumber(st);
+            group = (int) number;
+            if (group != number || group < 0x00) {
+                throw new FileFormatException(st.lineno(), "Tie group must be a positive integer");
+            }
+        }
 
         double[] means = OpdfReader.read(st, -1);
-        double[][] covariance = new double[means.length][];
+        OpdfMultiGaussian opdf;
+
+        if (structure.isDiagonal()) {
+            boolean spherical = structure == CovarianceStructure.SPHERICAL;
+            double[] variances = OpdfReader.read(st, spherical ? 1 : means.length);
+            if (spherical) {
+                double variance = variances[0];
+                variances = new double[means.length];
+                Arrays.fill(variances, variance);
+            }
+            opdf = new OpdfMultiGaussian(means, variances, spherical);
+        } else {
+            double[][] covariance = new double[means.length][];
 
-        HmmReader.readWords(st, "[");
-        for (int l = 0; l < covariance.length; l++) {
-            covariance[l] = OpdfReader.read(st, means.length);
+            HmmReader.readWords(st, "[");
+            for (int l = 0; l < covariance.length; l++) {
+                covariance[l] = OpdfReader.read(st, means.length);
+            }
+            HmmReader.readWords(st, "]");
+
+            if (structure == CovarianceStructure.TIED) {
+                CovarianceMatrix tied = groups == null ? null : groups.get(group);
+                if (tied == null) {
+                    tied = new CovarianceMatrix(covariance);
+                    if (groups != null) {
+                        groups.put(group, tied);
+                    }
+                } else if (!Arrays.deepEquals(tied.matrix(), covariance)) {
+                    throw new FileFormatException(st.lineno(), "Tied covariance matrices differ");
+                }
+                opdf = new OpdfMultiGaussian(means, tied);
+            } else {
+                opdf = new OpdfMultiGaussian(means, covariance);
+            }
         }
-        HmmReader.readWords(st, "]");
 
         HmmReader.readWords(st, "]");
 
-        return new OpdfMultiGaussian(means, covariance);
+        return opdf;
     }
 }
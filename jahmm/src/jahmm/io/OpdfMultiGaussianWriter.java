@@ -4,21 +4,71 @@
  */
 package jahmm.io;
 
+import jahmm.distributions.CovarianceMatrix;
 import jahmm.observables.OpdfMultiGaussian;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * This class implements a {@link OpdfMultiGaussian} writer. It is compatible
- * with the {@link OpdfMultiGaussianReader} class.
+ * with the {@link OpdfMultiGaussianReader} class built for the covariance
+ * structure of the distributions written.
  */
 public class OpdfMultiGaussianWriter
         extends OpdfWriter<OpdfMultiGaussian> {
 
+    private final Map<CovarianceMatrix, Integer> groups;
+
+    /**
+     * Creates a writer of multivariate Gaussian distributions. A tied
+     * distribution written on its own is written in tie group <tt>0</tt>.
+     */
+    public OpdfMultiGaussianWriter() {
+        this(null);
+    }
+
+    private OpdfMultiGaussianWriter(Map<CovarianceMatrix, Integer> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Returns a writer that numbers the tie groups of the distributions of one
+     * model, in the order their covariance matrices are first written.
+     *
+     * @return A writer for the distributions of one model.
+     */
+    @Override
+    OpdfWriter<OpdfMultiGaussian> modelWriter() {
+        return new OpdfMultiGaussianWriter(new IdentityHashMap<CovarianceMatrix, Integer>());
+    }
+
     @Override
     public void write(Writer writer, OpdfMultiGaussian opdf)
             throws IOException {
-        writer.write("MultiGaussianOPDF [ ");
+        switch (opdf.structure()) {
+            case DIAGONAL:
+                writer.write("DiagonalMultiGaussianOPDF [ ");
+                write(writer, opdf.mean());
+                writer.write(" ");
+                write(writer, opdf.covarianceMatrix().variances());
+                writer.write(" ]");
+                return;
+            case SPHERICAL:
+                writer.write("SphericalMultiGaussianOPDF [ ");
+                write(writer, opdf.mean());
+                writer.write(" ");
+                write(writer, opdf.covarianceMatrix().get(0, 0));
+                writer.write(" ]");
+                return;
+            case TIED:
+                writer.write("TiedMultiGaussianOPDF [ " + this.group(opdf.covarianceMatrix()) + " ");
+                break;
+            default:
+                writer.write("MultiGaussianOPDF [ ");
+                break;
+        }
         write(writer, opdf.mean());
         writer.write(" [");
         for (double[] line : opdf.covariance()) {
@@ -27,4 +77,16 @@ public class OpdfMultiGaussianWriter
         }
         writer.write(" ] ]");
     }
+
+    private int group(CovarianceMatrix covariance) {
+        if (this.groups == null) {
+            return 0x00;
+        }
+        Integer group = this.groups.get(covariance);
+        if (group == null) {
+            group = this.groups.size();
+            this.groups.put(covariance, group);
+        }
+        return group;
+    }
 }
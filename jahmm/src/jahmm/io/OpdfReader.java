@@ -63,6 +63,18 @@ public abstract class OpdfReader<O extends Opdf<?>> {
      */
     abstract String keyword();
 
+    /**
+     * Returns the reader of the distributions of one model. Readers that keep
+     * state between the distributions of a model, such as the tie groups of
+     * tied distributions, return a new reader, such that this state never
+     * leaks from one model to another.
+     *
+     * @return A reader for the distributions of one model.
+     */
+    OpdfReader<O> modelReader() {
+        return this;
+    }
+
     /**
      * Reads an {@link be.ac.ulg.montefiore.run.jahmm.Opdf Opdf} out of a
      * {@link java.io.StreamTokenizer}.
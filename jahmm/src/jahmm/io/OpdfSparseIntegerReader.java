@@ -0,0 +1,75 @@
+package jahmm.io;
+
+import jahmm.observables.OpdfSparseInteger;
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Reads a {@link OpdfSparseInteger} distribution. The format is
+ * <pre>SparseIntegerOPDF [ nbEntries smoothing [ keys ] [ probabilities ] defaultProbability ]</pre>
+ * where the (possibly empty) lists of keys and probabilities have the same
+ * length.
+ *
+ * @author kommusoft
+ */
+public class OpdfSparseIntegerReader
+        extends OpdfReader<OpdfSparseInteger> {
+
+    private static final Logger LOG = Logger.getLogger(OpdfSparseIntegerReader.class.getName());
+
+    @Override
+    String keyword() {
+        return "SparseIntegerOPDF";
+    }
+
+    @Override
+    public OpdfSparseInteger read(StreamTokenizer st)
+            throws IOException, FileFormatException {
+        HmmReader.readWords(st, keyword(), "[");
+
+        int nbEntries = (int) HmmReader.readNumber(st);
+        double smoothing = HmmReader.readNumber(st);
+        double[] keys = readList(st);
+        double[] probabilities = readList(st);
+        double defaultProbability = HmmReader.readNumber(st);
+
+        HmmReader.readWords(st, "]");
+
+        if (keys.length != probabilities.length) {
+            throw new FileFormatException(st.lineno(),
+                    "Keys and probabilities have different lengths");
+        }
+        int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = (int) keys[i];
+        }
+
+        try {
+            return new OpdfSparseInteger(nbEntries, smoothing, values,
+                    probabilities, defaultProbability);
+        } catch (IllegalArgumentException e) {
+            throw new FileFormatException(st.lineno(), "Invalid distribution");
+        }
+    }
+
+    /*
+     * Reads a (possibly empty) sequence of numbers between brackets.
+     */
+    private static double[] readList(StreamTokenizer st)
+            throws IOException, FileFormatException {
+        HmmReader.readWords(st, "[");
+        double[] values = new double[0x10];
+        int size = 0x00;
+        while (st.nextToken() == StreamTokenizer.TT_NUMBER) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 0x01);
+            }
+            values[size++] = st.nval;
+        }
+        st.pushBack();
+        HmmReader.readWords(st, "]");
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,46 @@
+package jahmm.io;
+
+import jahmm.observables.OpdfSparseInteger;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.logging.Logger;
+
+/**
+ * Writes a {@link OpdfSparseInteger} distribution in the format read by
+ * {@link OpdfSparseIntegerReader}. Only the keys of the distribution are
+ * written, such that the size of the description does not depend on the
+ * number of values.
+ *
+ * @author kommusoft
+ */
+public class OpdfSparseIntegerWriter
+        extends OpdfWriter<OpdfSparseInteger> {
+
+    private static final Logger LOG = Logger.getLogger(OpdfSparseIntegerWriter.class.getName());
+
+    @Override
+    public void write(Writer writer, OpdfSparseInteger opdf)
+            throws IOException {
+        StringBuilder sb = new StringBuilder("SparseIntegerOPDF [ ");
+        sb.append(opdf.nbEntries()).append(' ').append(plain(opdf.smoothing())).append(" [");
+        for (int key : opdf.keys()) {
+            sb.append(' ').append(key);
+        }
+        sb.append(" ] [");
+        for (double probability : opdf.probabilities()) {
+            sb.append(' ').append(plain(probability));
+        }
+        sb.append(" ] ").append(plain(opdf.defaultProbability())).append(" ]\n");
+        writer.write(sb.toString());
+    }
+
+    /*
+     * Formats a number without exponent, since the tokenizer of the readers
+     * does not parse exponents; the shortest representation of the number is
+     * kept, such that it is read back exactly.
+     */
+    private static String plain(double value) {
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+}
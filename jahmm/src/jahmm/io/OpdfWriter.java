@@ -29,6 +29,17 @@ public abstract class OpdfWriter<O extends Opdf<?>> {
     public abstract void write(Writer writer, O opdf)
             throws IOException;
 
+    /**
+     * Returns the writer of the distributions of one model. Writers that keep
+     * state between the distributions of a model, such as the tie groups of
+     * tied distributions, return a new writer.
+     *
+     * @return A writer for the distributions of one model.
+     */
+    OpdfWriter<O> modelWriter() {
+        return this;
+    }
+
     /**
      * Writes a sequence of numbers. This method is compatible with
      * {@link OpdfReader#read(StreamTokenizer, int)}.
@@ -238,6 +238,50 @@ public class DecisionTreeUtils {
         return -calculateInformationGainPartition(sources, function);
     }
 
+    /**
+     * Calculates the raw entropy of the given (non-negative) weights: minus the
+     * sum of every weight multiplied with its natural logarithm.
+     *
+     * @param weights The given weights.
+     * @return The raw entropy of the given weights.
+     */
+    public static double calculateRawEntropy(double... weights) {
+        double rawEntropy = 0.0d;
+        for (double w : weights) {
+            if (w > 0.0d) {
+                rawEntropy -= w * Math.log(w);
+            }
+        }
+        return rawEntropy;
+    }
+
+    /**
+     * Calculates the information gain (in nats) of partitioning weighted
+     * frequencies, multiplied with the total weight. All the partitions must
+     * have the same length: <code>partitions[p][j]</code> is the weight of
+     * target <code>j</code> in partition <code>p</code>. Twice the result is
+     * the G-statistic of the likelihood-ratio test that the partitions share
+     * the same distribution.
+     *
+     * @param partitions The weights of the targets in every partition.
+     * @return The raw information gain of the partitioning.
+     */
+    public static double calculateRawInformationGain(double[]... partitions) {
+        int n = partitions[0x00].length;
+        double[] pooled = new double[n];
+        double gain = 0.0d, total = 0.0d;
+        for (double[] partition : partitions) {
+            double subtotal = 0.0d;
+            for (int j = 0x00; j < n; j++) {
+                pooled[j] += partition[j];
+                subtotal += partition[j];
+            }
+            gain -= calculateRawEntropy(partition) - calculateRawEntropy(subtotal);
+            total += subtotal;
+        }
+        return gain + calculateRawEntropy(pooled) - calculateRawEntropy(total);
+    }
+
     private DecisionTreeUtils() {// $COVERAGE-IGNORE$
     }// $COVERAGE-IGNORE$
 
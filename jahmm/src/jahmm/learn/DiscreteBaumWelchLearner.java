@@ -0,0 +1,207 @@
+package jahmm.learn;
+
+import jahmm.DiscreteHmm;
+import jahmm.calculators.DiscreteForwardBackwardCalculator;
+import jahmm.observables.ObservationIntegerSequence;
+import jahmm.observables.SymbolDictionary;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The Baum-Welch algorithm on a {@link DiscreteHmm}. The scaled alpha values of
+ * a sequence are computed first; the backward pass then keeps only two rows of
+ * beta values and adds the expected number of transitions and emissions of
+ * every time step directly to the counts of the model: the xi and gamma values
+ * are never stored. The emission counts are laid out as the emission matrix of
+ * the model, such that the counts of a time step are updated by index.
+ * <p>
+ * The reestimated parameters are those of
+ * {@link RegularBaumWelchScaledLearnerBase} on the equivalent model with
+ * {@link jahmm.observables.OpdfInteger} opdfs; the parameters of a state that
+ * is never visited are left unchanged. The only exception is a model on a
+ * {@link SymbolDictionary}: every state reserves a probability (see
+ * {@link #getOovProbability}) for {@link SymbolDictionary#OOV}, such that a
+ * sequence holding a symbol that did not occur in the training sequences
+ * keeps a strictly positive probability.
+ *
+ * @author kommusoft
+ */
+public class DiscreteBaumWelchLearner {
+
+    private static final Logger LOG = Logger.getLogger(DiscreteBaumWelchLearner.class.getName());
+
+    /**
+     * Number of iterations performed by the {@link #learn} method.
+     */
+    protected int nbIterations = 9;
+
+    /**
+     * Probability reserved for {@link SymbolDictionary#OOV} in every state of a
+     * model on a dictionary.
+     */
+    protected double oovProbability = 1.E-4;
+
+    /**
+     * Initializes a Baum-Welch instance.
+     */
+    public DiscreteBaumWelchLearner() {
+    }
+
+    /**
+     * Returns the number of iterations performed by the {@link #learn} method.
+     *
+     * @return The number of iterations performed.
+     */
+    public int getNbIterations() {
+        return nbIterations;
+    }
+
+    /**
+     * Sets the number of iterations performed by the {@link #learn} method.
+     *
+     * @param nb The (positive) number of iterations to perform.
+     */
+    public void setNbIterations(int nb) {
+        if (nb < 0) {
+            throw new IllegalArgumentException("Positive number expected");
+        }
+        nbIterations = nb;
+    }
+
+    /**
+     * Returns the probability reserved for {@link SymbolDictionary#OOV} in every
+     * state of a model on a dictionary. The other symbols share the rest in
+     * proportion to their expected counts; the expected count of
+     * {@link SymbolDictionary#OOV} itself is added to the reserved probability.
+     *
+     * @return The reserved probability.
+     */
+    public double getOovProbability() {
+        return oovProbability;
+    }
+
+    /**
+     * Sets the probability reserved for {@link SymbolDictionary#OOV} in every
+     * state of a model on a dictionary.
+     *
+     * @param oovProbability The reserved probability, in the range
+     * <code>[0,1)</code>.
+     */
+    public void setOovProbability(double oovProbability) {
+        if (oovProbability < 0.0d || oovProbability >= 1.0d) {
+            throw new IllegalArgumentException("Probability in [0,1) expected");
+        }
+        this.oovProbability = oovProbability;
+    }
+
+    /**
+     * Does a given number of iterations of the Baum-Welch algorithm.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param nbIterations The number of iterations in the learning process.
+     * @param sequences The sequences on which the learning is based. Each
+     * sequence must have a length higher or equal to 2.
+     * @return The learnt model.
+     */
+    public DiscreteHmm learn(DiscreteHmm initialHmm, int nbIterations, List<? extends ObservationIntegerSequence> sequences) {
+        DiscreteHmm hmm = initialHmm;
+        for (int i = 0; i < nbIterations; i++) {
+            hmm = iterate(hmm, sequences);
+        }
+        return hmm;
+    }
+
+    /**
+     * Does a fixed number of iterations (see {@link #getNbIterations}) of the
+     * Baum-Welch algorithm.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param sequences The sequences on which the learning is based. Each
+     * sequence must have a length higher or equal to 2.
+     * @return The learnt model.
+     */
+    public DiscreteHmm learn(DiscreteHmm initialHmm, List<? extends ObservationIntegerSequence> sequences) {
+        return this.learn(initialHmm, this.getNbIterations(), sequences);
+    }
+
+    /**
+     * Performs one iteration of the Baum-Welch algorithm.
+     *
+     * @param hmm A previously estimated model.
+     * @param sequences The sequences on which the learning is based. Each
+     * sequence must have a length higher or equal to 2.
+     * @return A new, updated model.
+     */
+    public DiscreteHmm iterate(DiscreteHmm hmm, List<? extends ObservationIntegerSequence> sequences) {
+        int s = hmm.nbStates();
+        int k = hmm.nbSymbols();
+        double[] a = hmm.transitionArray();
+        double[] piNum = new double[s];
+        double[] aNum = new double[s * s];
+        double[] aDen = new double[s];
+        double[] bNum = new double[k * s];
+        double[] bDen = new double[s];
+        double[] beta = new double[s];
+        double[] previous = new double[s];
+        double[] weighted = new double[s];
+        for (ObservationIntegerSequence sequence : sequences) {
+            int n = sequence.size();
+            if (n <= 1) {
+                throw new IllegalArgumentException("Observation sequence too short");
+            }
+            hmm.check(sequence);
+            double[] ct = new double[n];
+            double[] alpha = DiscreteForwardBackwardCalculator.Instance.computeAlpha(hmm, sequence, ct);
+            int q = (n - 1) * s;
+            int ob = sequence.value(n - 1) * s;
+            for (int i = 0; i < s; i++) {
+                beta[i] = 1.0d;
+                bNum[ob + i] += alpha[q + i];
+                bDen[i] += alpha[q + i];
+            }
+            for (int t = n - 2; t >= 0x00; t--) {
+                q -= s;
+                double[] swap = previous;
+                previous = beta;
+                beta = swap;
+                DiscreteForwardBackwardCalculator.backward(hmm, sequence.value(t + 1), ct[t + 1], previous, 0x00, beta, 0x00, weighted);
+                ob = sequence.value(t) * s;
+                for (int i = 0; i < s; i++) {
+                    double ai = alpha[q + i];
+                    double gamma = ai * beta[i];
+                    for (int j = 0, p = i * s; j < s; j++, p++) {
+                        aNum[p] += ai * a[p] * weighted[j];
+                    }
+                    aDen[i] += gamma;
+                    bNum[ob + i] += gamma;
+                    bDen[i] += gamma;
+                }
+            }
+            for (int i = 0; i < s; i++) {
+                piNum[i] += alpha[i] * beta[i];
+            }
+        }
+        DiscreteHmm nhmm = hmm.clone();
+        double nbSequences = sequences.size();
+        double oov = hmm.dictionary() != null ? this.oovProbability : 0.0d;
+        for (int i = 0; i < s; i++) {
+            nhmm.setPi(i, piNum[i] / nbSequences);
+            if (aDen[i] > 0.0d) {
+                for (int j = 0; j < s; j++) {
+                    nhmm.setAij(i, j, aNum[i * s + j] / aDen[i]);
+                }
+            }
+            if (bDen[i] > 0.0d) {
+                double scale = (1.0d - oov) / bDen[i];
+                for (int o = 0; o < k; o++) {
+                    nhmm.setBik(i, o, bNum[o * s + i] * scale);
+                }
+                if (oov > 0.0d) {
+                    nhmm.setBik(i, SymbolDictionary.OOV, nhmm.getBik(i, SymbolDictionary.OOV) + oov);
+                }
+            }
+        }
+        return nhmm;
+    }
+
+}
@@ -0,0 +1,573 @@
+package jahmm.learn;
+
+import jahmm.InputHmm;
+import jahmm.jadetree.DecisionTreeUtils;
+import jahmm.observables.InputObservationSequence;
+import jahmm.observables.InputObservationTuple;
+import jahmm.observables.Observation;
+import jahmm.observables.OpdfAccumulator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+import jutlis.tuples.Tuple3;
+
+/**
+ * Compacts the input alphabet of an input Hidden Markov Model: inputs whose
+ * transitions and observation distributions are statistically
+ * indistinguishable share a single symbol of the model, such that the
+ * transition tensor (and the cost of inference and training) only grows with
+ * the number of behaviourally distinct inputs.
+ * <p>
+ * Every registered input of the model initially is a symbol of its own. The
+ * compactor keeps the partition of the original inputs in groups; a group is
+ * represented in the model by one of its inputs (the <i>symbol</i> of the
+ * group), the other inputs are translated to that symbol (see
+ * {@link #translate}). Groups are merged with
+ * {@link InputHmm#mergeInput mergeInput} and split with
+ * {@link InputHmm#splitInput splitInput}.
+ * <p>
+ * Every call to {@link #compact} collects the expected transition counts and
+ * the sufficient statistics of the observation distributions (see
+ * {@link OpdfAccumulator}) of every original input with the forward-backward
+ * algorithm; the statistics of a set of inputs are the merge of the statistics
+ * of its members. As in the induction of a decision tree, the decisions are
+ * based on the information gain (see
+ * {@link DecisionTreeUtils#calculateRawInformationGain}) of keeping two sets of
+ * inputs apart, to which the gain in log-likelihood of separate observation
+ * distributions (see {@link OpdfAccumulator#logLikelihood}) is added. This
+ * gain is compared with the number of parameters a separate symbol costs,
+ * multiplied with a penalty per parameter (by default the one of the Bayesian
+ * information criterion). A group is split in two
+ * while the gain of a bipartition, searched greedily, outweighs the cost,
+ * after which the two groups with the smallest net gain are merged while that
+ * gain is not positive. Finally, the
+ * transitions and observation distributions of the modified symbols are
+ * estimated from the pooled statistics.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations.
+ * @param <TIn> The type of inputs.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class InputAlphabetCompactor<TObs extends Observation, TIn, THmm extends InputHmm<TObs, TIn, THmm>> {
+
+    private static final Logger LOG = Logger.getLogger(InputAlphabetCompactor.class.getName());
+
+    private final THmm hmm;
+    private final HashMap<TIn, TIn> symbols = new HashMap<>();
+    private final HashMap<TIn, List<TIn>> groups = new HashMap<>();
+    private double penalty = Double.NaN;
+
+    /**
+     * Creates a new compactor for the given model. Every registered input of
+     * the model is a group of its own.
+     *
+     * @param hmm The model whose input alphabet is compacted. The model is
+     * modified by {@link #compact}.
+     */
+    public InputAlphabetCompactor(THmm hmm) {
+        this.hmm = hmm;
+        for (TIn input : new ArrayList<>(hmm.getRegisteredInputs())) {
+            this.symbols.put(input, input);
+            List<TIn> members = new ArrayList<>();
+            members.add(input);
+            this.groups.put(input, members);
+        }
+    }
+
+    /**
+     * Returns the model whose input alphabet is compacted.
+     *
+     * @return The model whose input alphabet is compacted.
+     */
+    public THmm getHmm() {
+        return this.hmm;
+    }
+
+    /**
+     * Returns the penalty per parameter of a separate symbol. A penalty that is
+     * not a number (the default) means the penalty of the Bayesian information
+     * criterion: half of the logarithm of the number of observations.
+     *
+     * @return The penalty per parameter of a separate symbol.
+     */
+    public double getPenalty() {
+        return this.penalty;
+    }
+
+    /**
+     * Sets the penalty per parameter of a separate symbol.
+     *
+     * @param penalty The (non-negative) penalty per parameter, or not a number
+     * for the penalty of the Bayesian information criterion.
+     */
+    public void setPenalty(double penalty) {
+        if (penalty < 0.0d) {
+            throw new IllegalArgumentException("Penalty must be non-negative");
+        }
+        this.penalty = penalty;
+    }
+
+    /**
+     * Returns the symbol of the model that represents the given input.
+     *
+     * @param input An original input.
+     * @return The symbol of the model that represents the given input.
+     * @throws IllegalArgumentException If the input is unknown.
+     */
+    public TIn getSymbol(TIn input) {
+        TIn symbol = this.symbols.get(input);
+        if (symbol == null) {
+            throw new IllegalArgumentException("Unknown input: " + input);
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the original inputs that are represented by the given symbol.
+     *
+     * @param symbol A symbol of the model.
+     * @return The original inputs represented by the symbol.
+     */
+    public List<TIn> getMembers(TIn symbol) {
+        return Collections.unmodifiableList(this.groups.get(symbol));
+    }
+
+    /**
+     * Returns the symbols of the model.
+     *
+     * @return The symbols of the model.
+     */
+    public Collection<TIn> getSymbols() {
+        return Collections.unmodifiableSet(this.groups.keySet());
+    }
+
+    /**
+     * Translates a sequence of interactions on the original inputs to a
+     * sequence on the symbols of the model.
+     *
+     * @param sequence A sequence of interactions on the original inputs.
+     * @return The sequence of interactions on the symbols of the model.
+     * @throws IllegalArgumentException If the sequence contains an unknown
+     * input.
+     */
+    public List<InputObservationTuple<TIn, TObs>> translate(List<? extends InputObservationTuple<TIn, TObs>> sequence) {
+        List<InputObservationTuple<TIn, TObs>> result = new ArrayList<>(sequence.size());
+        for (InputObservationTuple<TIn, TObs> interaction : sequence) {
+            result.add(new InputObservationTuple<>(this.getSymbol(interaction.getInput()), interaction.getObservation()));
+        }
+        return result;
+    }
+
+    /**
+     * Splits and merges the symbols of the model given sequences of
+     * interactions on the original inputs.
+     *
+     * @param sequences The sequences of interactions on the original inputs.
+     * Each sequence must have a length higher or equal to 2.
+     * @return The number of splits and merges applied on the model.
+     * @throws IllegalArgumentException If a sequence contains an unknown input.
+     */
+    public int compact(List<? extends List<? extends InputObservationTuple<TIn, TObs>>> sequences) {
+        HashMap<TIn, Statistics> statistics = this.collect(sequences);
+        int nbObservations = 0x00;
+        for (List<? extends InputObservationTuple<TIn, TObs>> sequence : sequences) {
+            nbObservations += sequence.size();
+        }
+        double cost = this.cost(nbObservations);
+        HashMap<TIn, Statistics> pooled = new HashMap<>();
+        for (TIn symbol : this.groups.keySet()) {
+            pooled.put(symbol, this.pool(statistics, this.groups.get(symbol)));
+        }
+        ArrayList<TIn> modified = new ArrayList<>();
+        int operations = this.split(statistics, pooled, cost, modified);
+        operations += this.merge(pooled, cost, modified);
+        for (TIn symbol : modified) {
+            if (this.groups.containsKey(symbol)) {
+                this.estimate(symbol, pooled.get(symbol));
+            }
+        }
+        return operations;
+    }
+
+    private double cost(int nbObservations) {
+        int n = this.hmm.nbStates();
+        double perParameter = Double.isNaN(this.penalty) ? 0.5d * Math.log(Math.max(nbObservations, 0x01)) : this.penalty;
+        int nbParameters = n * (n - 0x01);
+        TIn any = this.groups.keySet().iterator().next();
+        for (int i = 0x00; i < n; i++) {
+            nbParameters += this.hmm.getOpdf(i, any).nbParameters();
+        }
+        return perParameter * nbParameters;
+    }
+
+    private int split(HashMap<TIn, Statistics> statistics, HashMap<TIn, Statistics> pooled, double cost, List<TIn> modified) {
+        int operations = 0x00;
+        ArrayList<TIn> pending = new ArrayList<>(this.groups.keySet());
+        while (!pending.isEmpty()) {
+            TIn current = pending.remove(pending.size() - 0x01);
+            List<TIn> members = this.groups.get(current);
+            if (members.size() <= 0x01) {
+                continue;
+            }
+            List<TIn> side = this.bipartition(members, statistics, pooled.get(current), cost);
+            if (side == null) {
+                continue;
+            }
+            List<TIn> rest = new ArrayList<>(members);
+            rest.removeAll(side);
+            List<TIn> kept = side.contains(current) ? side : rest;
+            List<TIn> moved = side.contains(current) ? rest : side;
+            TIn symbol = moved.get(0x00);
+            this.splitSymbol(current, symbol);
+            this.relabel(moved, symbol);
+            this.groups.put(current, kept);
+            this.groups.put(symbol, moved);
+            pooled.put(current, this.pool(statistics, kept));
+            pooled.put(symbol, this.pool(statistics, moved));
+            modified.add(current);
+            modified.add(symbol);
+            pending.add(current);
+            pending.add(symbol);
+            operations++;
+        }
+        return operations;
+    }
+
+    /**
+     * Searches a bipartition of the given members whose gain outweighs the
+     * cost. The search is greedy: the member that gains most by being split
+     * off starts one side, to which the member of the other side that
+     * increases the gain most is moved while the gain increases. The
+     * statistics of the other side without a candidate are the merge of the
+     * statistics of the members before and after the candidate, such that
+     * every step only merges a linear number of statistics.
+     *
+     * @return One side of the bipartition, or <code>null</code> if no member
+     * can be split off at a gain that outweighs the cost.
+     */
+    private List<TIn> bipartition(List<TIn> members, HashMap<TIn, Statistics> statistics, Statistics union, double cost) {
+        List<TIn> side = new ArrayList<>();
+        List<TIn> rest = new ArrayList<>(members);
+        Statistics pooledSide = new Statistics(0x00);
+        double bestGain = cost;
+        while (rest.size() > 0x01) {
+            int m = rest.size();
+            ArrayList<Statistics> suffixes = new ArrayList<>(m);
+            suffixes.add(new Statistics(0x00));
+            for (int j = m - 0x01; j > 0x00; j--) {
+                Statistics suffix = suffixes.get(suffixes.size() - 0x01).copy();
+                suffix.merge(statistics.get(rest.get(j)));
+                suffixes.add(suffix);
+            }
+            Statistics prefix = new Statistics(0x00);
+            TIn best = null;
+            for (int j = 0x00; j < m; j++) {
+                TIn member = rest.get(j);
+                Statistics first = pooledSide.copy();
+                first.merge(statistics.get(member));
+                Statistics second = prefix.copy();
+                second.merge(suffixes.get(m - j - 0x01));
+                double gain = this.gain(first, second, union);
+                if (gain > bestGain) {
+                    best = member;
+                    bestGain = gain;
+                }
+                prefix.merge(statistics.get(member));
+            }
+            if (best == null) {
+                break;
+            }
+            side.add(best);
+            rest.remove(best);
+            pooledSide.merge(statistics.get(best));
+        }
+        return side.isEmpty() ? null : side;
+    }
+
+    private Statistics pool(HashMap<TIn, Statistics> statistics, Collection<TIn> members) {
+        Statistics stats = new Statistics(0x00);
+        for (TIn member : members) {
+            stats.merge(statistics.get(member));
+        }
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked") // generic array created for the varargs
+    private void splitSymbol(TIn symbol, TIn other) {
+        this.hmm.splitInput(symbol, symbol, other);
+    }
+
+    @SuppressWarnings("unchecked") // generic array created for the varargs
+    private void mergeSymbols(TIn target, TIn source) {
+        this.hmm.mergeInput(target, target, source);
+    }
+
+    /**
+     * Merges the pair of groups with the smallest gain while the gain does not
+     * outweigh the cost. Every group keeps the group it gains least with, such
+     * that a merge only recomputes the gains of the merged group and the best
+     * partners of the groups that were paired with one of the merged groups.
+     */
+    private int merge(HashMap<TIn, Statistics> pooled, double cost, List<TIn> modified) {
+        int operations = 0x00;
+        ArrayList<TIn> keys = new ArrayList<>(this.groups.keySet());
+        int m = keys.size();
+        double[][] gains = new double[m][m];
+        for (int k = 0x00; k < m; k++) {
+            for (int l = k + 0x01; l < m; l++) {
+                gains[k][l] = gains[l][k] = this.gain(pooled.get(keys.get(k)), pooled.get(keys.get(l)), null);
+            }
+        }
+        boolean[] removed = new boolean[m];
+        int[] partners = new int[m];
+        for (int k = 0x00; k < m; k++) {
+            partners[k] = partner(gains, removed, k);
+        }
+        while (true) {
+            int bk = -0x01;
+            double best = cost;
+            for (int k = 0x00; k < m; k++) {
+                if (!removed[k] && partners[k] >= 0x00 && gains[k][partners[k]] <= best) {
+                    best = gains[k][partners[k]];
+                    bk = k;
+                }
+            }
+            if (bk < 0x00) {
+                break;
+            }
+            int bl = partners[bk];
+            if (bl < bk) {
+                int tmp = bk;
+                bk = bl;
+                bl = tmp;
+            }
+            TIn target = keys.get(bk), source = keys.get(bl);
+            this.mergeSymbols(target, source);
+            List<TIn> members = this.groups.remove(source);
+            this.groups.get(target).addAll(members);
+            this.relabel(members, target);
+            Statistics stats = pooled.get(target);
+            stats.merge(pooled.remove(source));
+            removed[bl] = true;
+            for (int l = 0x00; l < m; l++) {
+                if (l != bk && !removed[l]) {
+                    gains[bk][l] = gains[l][bk] = this.gain(stats, pooled.get(keys.get(l)), null);
+                }
+            }
+            partners[bk] = partner(gains, removed, bk);
+            for (int l = 0x00; l < m; l++) {
+                if (l != bk && !removed[l]) {
+                    if (partners[l] == bk || partners[l] == bl) {
+                        partners[l] = partner(gains, removed, l);
+                    } else if (gains[l][bk] < gains[l][partners[l]]) {
+                        partners[l] = bk;
+                    }
+                }
+            }
+            modified.add(target);
+            operations++;
+        }
+        return operations;
+    }
+
+    /**
+     * Returns the group the given group gains least with, or <code>-1</code>
+     * if no other group remains.
+     */
+    private static int partner(double[][] gains, boolean[] removed, int k) {
+        int best = -0x01;
+        for (int l = 0x00; l < gains.length; l++) {
+            if (l != k && !removed[l] && (best < 0x00 || gains[k][l] < gains[k][best])) {
+                best = l;
+            }
+        }
+        return best;
+    }
+
+    private void relabel(List<TIn> members, TIn symbol) {
+        for (TIn member : members) {
+            this.symbols.put(member, symbol);
+        }
+    }
+
+    /**
+     * Computes the gain in log-likelihood of keeping the two given statistics
+     * apart.
+     */
+    private double gain(Statistics first, Statistics second, Statistics union) {
+        Statistics both = union;
+        if (both == null) {
+            both = first.copy();
+            both.merge(second);
+        }
+        int n = this.hmm.nbStates();
+        double gain = 0.0d;
+        if (first.transitions != null && second.transitions != null) {
+            for (int i = 0x00; i < n; i++) {
+                gain += DecisionTreeUtils.calculateRawInformationGain(first.transitions[i], second.transitions[i]);
+            }
+        }
+        return gain + first.logLikelihood() + second.logLikelihood() - both.logLikelihood();
+    }
+
+    /**
+     * Estimates the transitions and observation distributions of the given
+     * symbol from the given statistics.
+     */
+    private void estimate(TIn symbol, Statistics stats) {
+        int n = this.hmm.nbStates();
+        int k = this.hmm.getInputIndex(symbol);
+        if (stats.transitions != null) {
+            for (int i = 0x00; i < n; i++) {
+                double[] row = stats.transitions[i];
+                double total = 0.0d;
+                for (int j = 0x00; j < n; j++) {
+                    total += row[j];
+                }
+                if (total > 0.0d) {
+                    for (int j = 0x00; j < n; j++) {
+                        this.hmm.setAixj(i, k, j, row[j] / total);
+                    }
+                }
+            }
+        }
+        for (int i = 0x00; i < n; i++) {
+            OpdfAccumulator<TObs> accumulator = this.hmm.getOpdf(i, k).createAccumulator();
+            accumulator.merge(stats.accumulators.get(i));
+            if (accumulator.totalWeight() > 0.0d) {
+                accumulator.fit();
+            }
+        }
+    }
+
+    /**
+     * Collects the expected transition counts and the sufficient statistics of
+     * the observations of every original input with the current model.
+     */
+    private HashMap<TIn, Statistics> collect(List<? extends List<? extends InputObservationTuple<TIn, TObs>>> sequences) {
+        int n = this.hmm.nbStates();
+        HashMap<TIn, Statistics> statistics = new HashMap<>();
+        for (TIn input : this.symbols.keySet()) {
+            statistics.put(input, new Statistics(this.hmm.getInputIndex(this.symbols.get(input))));
+        }
+        double[] gamma = new double[n];
+        double[][] xi = new double[n][n];
+        for (List<? extends InputObservationTuple<TIn, TObs>> sequence : sequences) {
+            List<InputObservationTuple<TIn, TObs>> translated = this.translate(sequence);
+            Tuple3<double[][], double[][], Double> abp = this.hmm.getForwardBackwardScaledCalculator().computeAll(this.hmm, translated);
+            double[][] alpha = abp.getItem1();
+            double[][] beta = abp.getItem2();
+            int[] inputs = InputObservationSequence.inputIndices(this.hmm, translated);
+            double[][] emissions = InputObservationSequence.emissions(this.hmm, translated, inputs);
+            int T = inputs.length;
+            for (int t = 0x00; t < T; t++) {
+                InputObservationTuple<TIn, TObs> interaction = sequence.get(t);
+                Statistics stats = statistics.get(interaction.getInput());
+                double total = 0.0d;
+                for (int i = 0x00; i < n; i++) {
+                    gamma[i] = alpha[t][i] * beta[t][i];
+                    total += gamma[i];
+                }
+                for (int i = 0x00; i < n; i++) {
+                    stats.accumulators.get(i).add(interaction.getObservation(), gamma[i] / total);
+                }
+                stats.invalidate();
+                if (t > 0x00) {
+                    int x = inputs[t];
+                    total = 0.0d;
+                    for (int i = 0x00; i < n; i++) {
+                        for (int j = 0x00; j < n; j++) {
+                            xi[i][j] = alpha[t - 0x01][i] * this.hmm.getAixj(i, x, j) * emissions[t][j] * beta[t][j];
+                            total += xi[i][j];
+                        }
+                    }
+                    if (stats.transitions == null) {
+                        stats.transitions = new double[n][n];
+                    }
+                    for (int i = 0x00; i < n; i++) {
+                        for (int j = 0x00; j < n; j++) {
+                            stats.transitions[i][j] += xi[i][j] / total;
+                        }
+                    }
+                }
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * The expected transition counts (for the transitions driven by the input)
+     * and the sufficient statistics of the observation distributions (of the
+     * observations with the input) of a set of inputs.
+     */
+    private class Statistics {
+
+        private double[][] transitions;
+        private final ArrayList<OpdfAccumulator<TObs>> accumulators;
+        private double logLikelihood = Double.NaN;
+
+        /**
+         * Creates empty statistics, whose accumulators are created by the
+         * observation distributions of the symbol with the given index.
+         */
+        Statistics(int k) {
+            int n = hmm.nbStates();
+            this.accumulators = new ArrayList<>(n);
+            for (int i = 0x00; i < n; i++) {
+                this.accumulators.add(hmm.getOpdf(i, k).createAccumulator());
+            }
+        }
+
+        Statistics copy() {
+            Statistics copy = new Statistics(0x00);
+            copy.merge(this);
+            return copy;
+        }
+
+        void invalidate() {
+            this.logLikelihood = Double.NaN;
+        }
+
+        /**
+         * Returns the log-likelihood of the observations under the
+         * distributions fitted to them, summed over the states.
+         */
+        double logLikelihood() {
+            if (Double.isNaN(this.logLikelihood)) {
+                double ll = 0.0d;
+                for (OpdfAccumulator<TObs> accumulator : this.accumulators) {
+                    ll += accumulator.logLikelihood();
+                }
+                this.logLikelihood = ll;
+            }
+            return this.logLikelihood;
+        }
+
+        void merge(Statistics other) {
+            if (other.transitions != null) {
+                if (this.transitions == null) {
+                    this.transitions = new double[other.transitions.length][];
+                    for (int i = 0x00; i < other.transitions.length; i++) {
+                        this.transitions[i] = other.transitions[i].clone();
+                    }
+                } else {
+                    for (int i = 0x00; i < other.transitions.length; i++) {
+                        for (int j = 0x00; j < other.transitions[i].length; j++) {
+                            this.transitions[i][j] += other.transitions[i][j];
+                        }
+                    }
+                }
+            }
+            for (int i = 0x00; i < this.accumulators.size(); i++) {
+                this.accumulators.get(i).merge(other.accumulators.get(i));
+            }
+            this.invalidate();
+        }
+
+    }
+
+}
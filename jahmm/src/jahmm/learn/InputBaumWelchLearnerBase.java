@@ -3,13 +3,13 @@ package jahmm.learn;
 import jahmm.InputHmm;
 import jahmm.calculators.ForwardBackwardCalculator;
 import jahmm.calculators.InputForwardBackwardCalculatorBase;
+import jahmm.observables.InputObservationSequence;
+import jahmm.observables.InputObservationSequenceEncoder;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
-import jahmm.observables.Opdf;
-import java.util.ArrayList;
-import java.util.Iterator;
+import jahmm.observables.OpdfAccumulator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
 import java.util.logging.Logger;
 import jutlis.tuples.Tuple2Base;
 import jutlis.tuples.Tuple3;
@@ -31,22 +31,71 @@ public class InputBaumWelchLearnerBase<TObservation extends Observation, TInput,
         return InputForwardBackwardCalculatorBase.Instance;
     }
 
+    /**
+     * Does a fixed number of iterations of the Baum-Welch algorithm. The
+     * sequences are encoded against the input register of the initial model
+     * once (see {@link InputObservationSequenceEncoder}), such that the
+     * iterations never look up an input.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param nbIterations The number of iterations in the learning process.
+     * @param sequences The sequences of interactions on which the learning is
+     * based. Each sequence must have a length higher or equal to 2.
+     * @return The HMM that best matches the set of sequences given.
+     * @throws IllegalArgumentException If a sequence contains an input that is
+     * not registered by the initial model.
+     */
+    @Override
+    public THmm learn(THmm initialHmm, int nbIterations, List<? extends List<? extends InputObservationTuple<TInput, TObservation>>> sequences) {
+        return super.learn(initialHmm, nbIterations, encode(initialHmm, sequences));
+    }
+
+    private List<? extends List<? extends InputObservationTuple<TInput, TObservation>>> encode(THmm hmm, List<? extends List<? extends InputObservationTuple<TInput, TObservation>>> sequences) {
+        for (List<? extends InputObservationTuple<TInput, TObservation>> sequence : sequences) {
+            if (!(sequence instanceof InputObservationSequence)) {
+                return new InputObservationSequenceEncoder<>(hmm).encodeAll(sequences);
+            }
+        }
+        return sequences;
+    }
+
     @Override
     protected double[][][] estimateXi(List<? extends InputObservationTuple<TInput, TObservation>> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm) {
+        return this.estimateXi(sequence, abp, hmm, 1.0d / abp.getItem3());
+    }
+
+    /**
+     * Estimates the xi values of a sequence: the input indices and the
+     * probability of every observation given every state are computed once,
+     * such that the inner loop only reads the transition tensor.
+     *
+     * @param sequence The sequence of interactions.
+     * @param abp A tuple containing the alpha- and beta-values and the
+     * probability of the sequence.
+     * @param hmm The hidden Markov Model.
+     * @param factor The factor every xi value is multiplied with.
+     * @return The estimated xi values.
+     */
+    protected double[][][] estimateXi(List<? extends InputObservationTuple<TInput, TObservation>> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm, double factor) {
         if (sequence.size() <= 1) {
             throw new IllegalArgumentException("Observation sequence too short");
         }
         double[][] a = abp.getItem1();
         double[][] b = abp.getItem2();
-        double pinv = 1.0d / abp.getItem3();
-        double[][][] xi = new double[sequence.size() - 1][hmm.nbStates()][hmm.nbStates()];
-        Iterator<? extends InputObservationTuple<TInput, TObservation>> seqIterator = sequence.iterator();
-        seqIterator.next();
-        for (int t = 0; t < sequence.size() - 1; t++) {
-            InputObservationTuple<TInput, TObservation> interaction = seqIterator.next();
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    xi[t][i][j] = a[t][i] * hmm.getAixj(i, interaction.getInput(), j) * hmm.getOpdf(j, interaction.getInput()).probability(interaction.getObservation()) * b[t + 1][j] * pinv;
+        int s = hmm.nbStates();
+        int[] inputs = InputObservationSequence.inputIndices(hmm, sequence);
+        double[][] emissions = InputObservationSequence.emissions(hmm, sequence, inputs);
+        double[][][] xi = new double[sequence.size() - 1][s][s];
+        double[] weighted = new double[s];
+        for (int t = 0; t < xi.length; t++) {
+            int x = inputs[t + 1];
+            for (int j = 0; j < s; j++) {
+                weighted[j] = emissions[t + 1][j] * b[t + 1][j] * factor;
+            }
+            for (int i = 0; i < s; i++) {
+                double ati = a[t][i];
+                for (int j = 0; j < s; j++) {
+                    xi[t][i][j] = ati * hmm.getAixj(i, x, j) * weighted[j];
                 }
             }
         }
@@ -67,12 +116,11 @@ public class InputBaumWelchLearnerBase<TObservation extends Observation, TInput,
     protected void updateAbarXiGamma(THmm hmm, List<? extends InputObservationTuple<TInput, TObservation>> obsSeq, double[][][] xi, double[][] gamma, double[][][] aijNum, double[][] aijDen) {
         int I = aijDen.length;
         int T = xi.length;
-        for (int i = 0; i < I; i++) {
-            Iterator<? extends InputObservationTuple<TInput, TObservation>> iterator = obsSeq.iterator();
-            for (int t = 0; t < T && iterator.hasNext(); t++) {
-                int k = hmm.getInputIndex(iterator.next().getInput());
+        int[] inputs = InputObservationSequence.inputIndices(hmm, obsSeq);
+        for (int t = 0; t < T; t++) {
+            int k = inputs[t + 1];
+            for (int i = 0; i < I; i++) {
                 aijDen[i][k] += gamma[t][i];
-
                 for (int j = 0; j < I; j++) {
                     aijNum[i][k][j] += xi[t][i][j];
                 }
@@ -95,53 +143,64 @@ public class InputBaumWelchLearnerBase<TObservation extends Observation, TInput,
         }
     }
 
+    /**
+     * Fits the observation distributions of every (state, input) couple in a
+     * single pass over the sequences: every observation is added, weighted
+     * with its gamma values, to the accumulators of the input it was observed
+     * with. Observations with an input that is not registered by the model are
+     * ignored. A distribution without any weighted observation is not modified.
+     * The input indices of encoded sequences are used as is.
+     */
     @Override
     protected void setPdfValues(THmm nhmm, List<? extends List<? extends InputObservationTuple<TInput, TObservation>>> sequences, double[][][] allGamma) {
         int N = nhmm.nbStates();
-        int M = nhmm.nbSymbols();
-        ArrayList<TObservation> filtered = new ArrayList<>();
-        ArrayList<Long> indices = new ArrayList<>();
-        double tmp;
+        HashMap<TInput, Integer> indices = new HashMap<>();
         for (TInput input : nhmm.getRegisteredInputs()) {
-            int k = nhmm.getInputIndex(input);
-            int io = 0x00;
-            for (List<? extends InputObservationTuple<TInput, TObservation>> observations : sequences) {
-                int ito = 0x00;
+            indices.put(input, nhmm.getInputIndex(input));
+        }
+        OpdfAccumulator<TObservation>[][] accumulators = accumulators(N, nhmm.nbSymbols());
+        int o = 0x00;
+        for (List<? extends InputObservationTuple<TInput, TObservation>> observations : sequences) {
+            double[][] gamma = allGamma[o++];
+            if (observations instanceof InputObservationSequence) {
+                @SuppressWarnings("unchecked") // the tuples hold the same types
+                InputObservationSequence<TInput, TObservation> encoded = (InputObservationSequence<TInput, TObservation>) observations;
+                for (int t = 0x00; t < encoded.size(); t++) {
+                    accumulate(nhmm, accumulators, encoded.getInputIndex(t), encoded.getObservation(t), gamma[t]);
+                }
+            } else {
+                int t = 0x00;
                 for (InputObservationTuple<TInput, TObservation> ob : observations) {
-                    if (Objects.equals(input, ob.getInput())) {
-                        filtered.add(ob.getObservation());
-                        indices.add(((long) io << 0x20) | ito);
+                    Integer index = indices.get(ob.getInput());
+                    if (index != null) {
+                        accumulate(nhmm, accumulators, index, ob.getObservation(), gamma[t]);
                     }
-                    ito++;
+                    t++;
                 }
-                io++;
             }
-            int nf = filtered.size();
-            if (nf > 0x00) {
-                double[] weights = new double[nf];
-                for (int i = 0; i < N; i++) {
-                    double sum = 0.;
-                    int j = 0;
-                    for (Long idxo : indices) {
-                        long index = idxo;
-                        int o = (int) (index >> 0x20);
-                        int t = (int) (index & 0xffffffff);
-                        tmp = allGamma[o][t][i];
-                        weights[j] = tmp;
-                        sum += tmp;
-                        j++;
-                    }
+        }
+        for (OpdfAccumulator<TObservation>[] row : accumulators) {
+            for (OpdfAccumulator<TObservation> accumulator : row) {
+                if (accumulator != null && accumulator.totalWeight() > 0.0d) {
+                    accumulator.fit();
+                }
+            }
+        }
+    }
 
-                    for (j--; j >= 0; j--) {
-                        weights[j] /= sum;
-                    }
+    @SuppressWarnings({"unchecked", "rawtypes"}) // no array of a generic type can be created
+    private static <O extends Observation> OpdfAccumulator<O>[][] accumulators(int nbStates, int nbSymbols) {
+        return new OpdfAccumulator[nbStates][nbSymbols];
+    }
 
-                    Opdf<TObservation> opdf = nhmm.getOpdf(i, k);
-                    opdf.fit(filtered, weights);
-                }
-                filtered.clear();
-                indices.clear();
+    private void accumulate(THmm nhmm, OpdfAccumulator<TObservation>[][] accumulators, int k, TObservation observation, double... gamma) {
+        for (int i = 0; i < gamma.length; i++) {
+            OpdfAccumulator<TObservation> accumulator = accumulators[i][k];
+            if (accumulator == null) {
+                accumulator = nhmm.getOpdf(i, k).createAccumulator();
+                accumulators[i][k] = accumulator;
             }
+            accumulator.add(observation, gamma[i]);
         }
     }
 
@@ -5,7 +5,6 @@ import jahmm.calculators.ForwardBackwardCalculator;
 import jahmm.calculators.InputForwardBackwardScaledCalculatorBase;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 import jutlis.tuples.Tuple3;
@@ -55,24 +54,7 @@ public class InputBaumWelchScaledLearnerBase<TObservation extends Observation, T
      */
     @Override
     protected double[][][] estimateXi(List<? extends InputObservationTuple<TInteraction, TObservation>> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm) {
-        if (sequence.size() <= 1) {
-            throw new IllegalArgumentException("Observation sequence too short");
-        }
-        double[][] a = abp.getItem1();
-        double[][] b = abp.getItem2();
-        double xi[][][] = new double[sequence.size() - 1][hmm.nbStates()][hmm.nbStates()];
-        Iterator<? extends InputObservationTuple<TInteraction, TObservation>> seqIterator = sequence.iterator();
-        seqIterator.next();
-        for (int t = 0; t < sequence.size() - 1; t++) {
-            InputObservationTuple<TInteraction, TObservation> interaction = seqIterator.next();
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    xi[t][i][j] = a[t][i] * hmm.getAixj(i, interaction.getInput(), j) * hmm.getOpdf(j, interaction.getInput()).probability(interaction.getObservation()) * b[t + 1][j];
-                }
-            }
-        }
-
-        return xi;
+        return this.estimateXi(sequence, abp, hmm, 1.0d);
     }
 
 }
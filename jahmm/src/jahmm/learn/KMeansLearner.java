@@ -5,25 +5,60 @@
 package jahmm.learn;
 
 import jahmm.RegularHmmBase;
+import jahmm.calculators.KMeansArrayCalculator;
 import jahmm.calculators.KMeansCalculator;
 import jahmm.calculators.RegularViterbiCalculatorBase;
+import jahmm.observables.Centroid;
 import jahmm.observables.CentroidFactory;
+import jahmm.observables.CoordinateObservation;
 import jahmm.observables.Observation;
+import jahmm.observables.ObservationRealSequence;
+import jahmm.observables.ObservationVectorSequence;
 import jahmm.observables.Opdf;
 import jahmm.observables.OpdfFactory;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * An implementation of the K-Means learning algorithm.
+ * An implementation of the K-Means learning algorithm (also known as segmental
+ * k-means).
+ * <p>
+ * The cluster of every observation is stored in an array of integers indexed
+ * by the position of the observation in its sequence, such that equal
+ * observations at different positions can belong to different clusters and
+ * moving an observation to another cluster takes constant time. The sequences
+ * are re-segmented with the Viterbi algorithm in parallel.
+ * <p>
+ * The initial clusters of {@link CoordinateObservation coordinate
+ * observations} are computed by the {@link KMeansArrayCalculator}; other
+ * observations are clustered by the {@link KMeansCalculator}.
  *
  * @param <O>
  */
 public class KMeansLearner<O extends Observation & CentroidFactory<? super O>> {
 
+    /**
+     * The seed of the random generator of the constructors that are not given
+     * one, such that these learners are deterministic.
+     */
+    private static final long DEFAULT_SEED = 0x00L;
+
+    /*
+     * Concatenates sequences. Packed real or vector sequences are
+     * concatenated in a packed sequence; the result is only read.
+     */
+    @SuppressWarnings("unchecked")
     static <T> List<T> flat(List<? extends List<? extends T>> lists) {
+        List<? extends T> packed = packed(lists);
+        if (packed != null) {
+            return (List<T>) packed;
+        }
         List<T> v = new ArrayList<>();
 
         for (List<? extends T> list : lists) {
@@ -33,43 +68,182 @@ public class KMeansLearner<O extends Observation & CentroidFactory<? super O>> {
         return v;
     }
 
-    private final Clusters<O> clusters;
+    @SuppressWarnings("unchecked")
+    private static <T> List<? extends T> packed(List<? extends List<? extends T>> lists) {
+        boolean reals = true, vectors = !lists.isEmpty();
+        int dimension = vectors && lists.get(0x00) instanceof ObservationVectorSequence ? ((ObservationVectorSequence) lists.get(0x00)).dimension() : -0x01;
+        for (List<? extends T> list : lists) {
+            reals &= list instanceof ObservationRealSequence;
+            vectors &= list instanceof ObservationVectorSequence && ((ObservationVectorSequence) list).dimension() == dimension;
+        }
+        if (reals) {
+            return (List<? extends T>) ObservationRealSequence.concat((List<? extends ObservationRealSequence>) lists);
+        } else if (vectors) {
+            return (List<? extends T>) ObservationVectorSequence.concat(dimension, (List<? extends ObservationVectorSequence>) lists);
+        }
+        return null;
+    }
+
+    private final int[][] assignments;
     private final int nbStates;
+    private final int nbThreads;
     private final List<? extends List<? extends O>> obsSeqs;
     private final OpdfFactory<? extends Opdf<O>> opdfFactory;
     private boolean terminated;
 
     /**
      * Initializes a K-Means algorithm implementation. This algorithm finds a
-     * HMM that models a set of observation sequences.
+     * HMM that models a set of observation sequences. The sequences are
+     * re-segmented using as many threads as there are available processors.
+     * The initial clusters are seeded with a fixed seed, such that the result
+     * does not depend on the run.
      *
      * @param nbStates The number of states the resulting HMM will be made of.
      * @param opdfFactory A class that builds the observation probability
      * distributions associated to the states of the HMM.
      * @param sequences A vector of observation sequences. Each observation
-     * sequences is a vector of null null null null null null null null null
-     * null null null null null null null null null null null null null null
-     * null null null null null null null null null null null null null null
-     * null null null null null null null null     {@link be.ac.ulg.montefiore.run.jahmm.Observation
-	 *                observations} compatible with the null null null null null null null null
-     * null null null null null null null null null null null null null null
-     * null null null null null null null null null null null null null null
-     * null null null null null null null null null     {@link be.ac.ulg.montefiore.run.jahmm.CentroidFactory
-	 *                k-means algorithm}.
+     * sequences is a vector of
+     * {@link jahmm.observables.Observation observations} compatible with the
+     * {@link jahmm.calculators.KMeansCalculator k-means algorithm}.
      * @throws java.lang.CloneNotSupportedException
      */
     public KMeansLearner(int nbStates,
             OpdfFactory<? extends Opdf<O>> opdfFactory,
             List<? extends List<? extends O>> sequences) throws CloneNotSupportedException {
+        this(nbStates, opdfFactory, sequences, Runtime.getRuntime().availableProcessors(), new Random(DEFAULT_SEED));
+    }
+
+    /**
+     * Initializes a K-Means algorithm implementation. This algorithm finds a
+     * HMM that models a set of observation sequences.
+     *
+     * @param nbStates The number of states the resulting HMM will be made of.
+     * @param opdfFactory A class that builds the observation probability
+     * distributions associated to the states of the HMM.
+     * @param sequences A vector of observation sequences. Each observation
+     * sequences is a vector of
+     * {@link jahmm.observables.Observation observations} compatible with the
+     * {@link jahmm.calculators.KMeansCalculator k-means algorithm}.
+     * @param nbThreads The (strictly positive) number of threads used to
+     * re-segment the sequences. With a single thread, the sequences are
+     * re-segmented by the calling thread. The initial clusters are seeded with
+     * a fixed seed, such that the result does not depend on the run nor on
+     * the number of threads.
+     * @throws java.lang.CloneNotSupportedException
+     */
+    public KMeansLearner(int nbStates,
+            OpdfFactory<? extends Opdf<O>> opdfFactory,
+            List<? extends List<? extends O>> sequences, int nbThreads) throws CloneNotSupportedException {
+        this(nbStates, opdfFactory, sequences, nbThreads, new Random(DEFAULT_SEED));
+    }
+
+    /**
+     * Initializes a K-Means algorithm implementation. This algorithm finds a
+     * HMM that models a set of observation sequences.
+     *
+     * @param nbStates The number of states the resulting HMM will be made of.
+     * @param opdfFactory A class that builds the observation probability
+     * distributions associated to the states of the HMM.
+     * @param sequences A vector of observation sequences. Each observation
+     * sequences is a vector of
+     * {@link jahmm.observables.Observation observations} compatible with the
+     * {@link jahmm.calculators.KMeansCalculator k-means algorithm}.
+     * @param nbThreads The (strictly positive) number of threads used to
+     * cluster and re-segment the sequences. With a single thread, the
+     * sequences are re-segmented by the calling thread.
+     * @param random The random generator used to seed the initial clusters.
+     * @throws java.lang.CloneNotSupportedException
+     */
+    public KMeansLearner(int nbStates,
+            OpdfFactory<? extends Opdf<O>> opdfFactory,
+            List<? extends List<? extends O>> sequences, int nbThreads, Random random) throws CloneNotSupportedException {
+        if (nbThreads <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
         this.obsSeqs = sequences;
         this.opdfFactory = opdfFactory;
         this.nbStates = nbStates;
+        this.nbThreads = nbThreads;
+        this.assignments = new int[sequences.size()][];
+        for (int s = 0; s < sequences.size(); s++) {
+            this.assignments[s] = new int[sequences.get(s).size()];
+        }
 
-        List<? extends O> observations = flat(sequences);
-        clusters = new Clusters<>(nbStates, observations);
+        O first = null;
+        for (List<? extends O> obsSeq : sequences) {
+            if (!obsSeq.isEmpty()) {
+                first = obsSeq.get(0x00);
+                break;
+            }
+        }
+        if (first instanceof CoordinateObservation) {
+            clusterCoordinates(((CoordinateObservation) first).dimension(), random);
+        } else if (first != null) {
+            KMeansCalculator<O> kmc = new KMeansCalculator<>(nbStates, flat(sequences), random);
+            for (int s = 0; s < sequences.size(); s++) {
+                List<? extends O> obsSeq = sequences.get(s);
+                for (int t = 0; t < obsSeq.size(); t++) {
+                    this.assignments[s][t] = nearestCluster(kmc, obsSeq.get(t));
+                }
+            }
+        }
         terminated = false;
     }
 
+    private void clusterCoordinates(int dimension, Random random) {
+        long nbObservations = 0x00;
+        for (List<? extends O> obsSeq : obsSeqs) {
+            nbObservations += obsSeq.size();
+        }
+        if (nbObservations * dimension > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many observations");
+        }
+        double[] points = new double[(int) nbObservations * dimension];
+        int offset = 0x00;
+        for (List<? extends O> obsSeq : obsSeqs) {
+            if (obsSeq instanceof ObservationRealSequence && dimension == 0x01) {
+                ((ObservationRealSequence) obsSeq).coordinates(points, offset);
+                offset += obsSeq.size();
+                continue;
+            } else if (obsSeq instanceof ObservationVectorSequence && ((ObservationVectorSequence) obsSeq).dimension() == dimension) {
+                ((ObservationVectorSequence) obsSeq).coordinates(points, offset);
+                offset += obsSeq.size() * dimension;
+                continue;
+            }
+            for (O o : obsSeq) {
+                CoordinateObservation co = (CoordinateObservation) o;
+                if (co.dimension() != dimension) {
+                    throw new IllegalArgumentException("Wrong dimensions");
+                }
+                co.coordinates(points, offset);
+                offset += dimension;
+            }
+        }
+        KMeansArrayCalculator kmc = new KMeansArrayCalculator(nbStates, points, dimension, random, nbThreads);
+        int index = 0x00;
+        for (int[] clusters : assignments) {
+            for (int t = 0; t < clusters.length; t++) {
+                clusters[t] = kmc.cluster(index++);
+            }
+        }
+    }
+
+    private static <O extends CentroidFactory<? super O>> int nearestCluster(KMeansCalculator<O> kmc, O o) {
+        double distance = Double.MAX_VALUE;
+        int cluster = 0x00;
+        for (int i = 0; i < kmc.nbClusters(); i++) {
+            Centroid<? super O> centroid = kmc.centroid(i);
+            if (centroid != null) {
+                double thisDistance = centroid.distance(o);
+                if (distance > thisDistance) {
+                    distance = thisDistance;
+                    cluster = i;
+                }
+            }
+        }
+        return cluster;
+    }
+
     /**
      * Performs one iteration of the K-Means algorithm. In one iteration, a new
      * HMM is computed using the current clusters, and the clusters are
@@ -80,9 +254,13 @@ public class KMeansLearner<O extends Observation & CentroidFactory<? super O>> {
     public RegularHmmBase<O> iterate() {
         RegularHmmBase<O> hmm = new RegularHmmBase<>(nbStates, opdfFactory);
 
-        learnPi(hmm);
-        learnAij(hmm);
-        learnOpdf(hmm);
+        RegularBaumWelchStatistics<O> statistics = new RegularBaumWelchStatistics<>(hmm);
+        for (int s = 0; s < obsSeqs.size(); s++) {
+            if (!obsSeqs.get(s).isEmpty()) {
+                statistics.addStateSequence(obsSeqs.get(s), assignments[s]);
+            }
+        }
+        statistics.apply(hmm);
 
         terminated = optimizeCluster(hmm);
 
@@ -115,93 +293,73 @@ public class KMeansLearner<O extends Observation & CentroidFactory<? super O>> {
         return hmm;
     }
 
-    private void learnPi(RegularHmmBase<?> hmm) {
-        double[] pi = new double[nbStates];
-
-        for (int i = 0; i < nbStates; i++) {
-            pi[i] = 0.;
-        }
-
-        for (List<? extends O> sequence : obsSeqs) {
-            pi[clusters.clusterNb(sequence.get(0))]++;
-        }
-
-        for (int i = 0; i < nbStates; i++) {
-            hmm.setPi(i, pi[i] / obsSeqs.size());
-        }
+    /**
+     * Returns the cluster an observation currently belongs to.
+     *
+     * @param sequenceNb The index of the sequence of the observation.
+     * @param position The position of the observation in its sequence.
+     * @return The cluster of the observation.
+     */
+    public int clusterNb(int sequenceNb, int position) {
+        return assignments[sequenceNb][position];
     }
 
-    private void learnAij(RegularHmmBase<O> hmm) {
-        for (int i = 0; i < hmm.nbStates(); i++) {
-            for (int j = 0; j < hmm.nbStates(); j++) {
-                hmm.setAij(i, j, 0.);
-            }
-        }
-
-        for (List<? extends O> obsSeq : obsSeqs) {
-            if (obsSeq.size() < 2) {
-                continue;
-            }
-
-            int first_state;
-            int second_state = clusters.clusterNb(obsSeq.get(0));
-            for (int i = 1; i < obsSeq.size(); i++) {
-                first_state = second_state;
-                second_state
-                        = clusters.clusterNb(obsSeq.get(i));
-
-                hmm.setAij(first_state, second_state,
-                        hmm.getAij(first_state, second_state) + 1.);
-            }
+    /* Return true if no modification */
+    private boolean optimizeCluster(final RegularHmmBase<O> hmm) {
+        int n = obsSeqs.size();
+        int nbChunks = Math.min(nbThreads, n);
+        if (nbChunks <= 0x01) {
+            return optimizeCluster(hmm, 0x00, n);
         }
-
-        /* Normalize Aij array */
-        for (int i = 0; i < hmm.nbStates(); i++) {
-            double sum = 0;
-
-            for (int j = 0; j < hmm.nbStates(); j++) {
-                sum += hmm.getAij(i, j);
+        ExecutorService executor = Executors.newFixedThreadPool(nbChunks);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(nbChunks);
+            for (int c = 0; c < nbChunks; c++) {
+                final int from = (int) ((long) n * c / nbChunks);
+                final int to = (int) ((long) n * (c + 1) / nbChunks);
+                futures.add(executor.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() {
+                        return optimizeCluster(hmm, from, to);
+                    }
+
+                }));
             }
-
-            if (sum == 0.) {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    hmm.setAij(i, j, 1. / hmm.nbStates());     // Arbitrarily
-                }
-            } else {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    hmm.setAij(i, j, hmm.getAij(i, j) / sum);
-                }
+            boolean unmodified = true;
+            for (Future<Boolean> future : futures) {
+                unmodified &= future.get();
             }
-        }
-    }
-
-    private void learnOpdf(RegularHmmBase<O> hmm) {
-        for (int i = 0; i < hmm.nbStates(); i++) {
-            Collection<O> clusterObservations = clusters.cluster(i);
-
-            if (clusterObservations.isEmpty()) {
-                hmm.setOpdf(i, opdfFactory.generate());
-            } else {
-                hmm.getOpdf(i).fit(clusterObservations);
+            return unmodified;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    /* Return true if no modification */
-    private boolean optimizeCluster(RegularHmmBase<O> hmm) {
+    /* Every chunk only writes the assignments of its own sequences */
+    private boolean optimizeCluster(RegularHmmBase<O> hmm, int from, int to) {
         boolean modif = false;
 
-        for (List<? extends O> obsSeq : obsSeqs) {
-            RegularViterbiCalculatorBase vc = new RegularViterbiCalculatorBase(obsSeq, hmm);
-            int states[] = vc.stateSequence();
+        for (int s = from; s < to; s++) {
+            List<? extends O> obsSeq = obsSeqs.get(s);
+            if (obsSeq.isEmpty()) {
+                continue;
+            }
+            int[] states = new RegularViterbiCalculatorBase(obsSeq, hmm).stateSequence();
+            int[] clusters = assignments[s];
 
             for (int i = 0; i < states.length; i++) {
-                O o = obsSeq.get(i);
-
-                if (clusters.clusterNb(o) != states[i]) {
+                if (clusters[i] != states[i]) {
                     modif = true;
-                    clusters.remove(o, clusters.clusterNb(o));
-                    clusters.put(o, states[i]);
+                    clusters[i] = states[i];
                 }
             }
         }
@@ -209,69 +367,3 @@ public class KMeansLearner<O extends Observation & CentroidFactory<? super O>> {
         return !modif;
     }
 }
-
-
-/*
- * This class holds the matching between observations and clusters.
- */
-class Clusters<O extends CentroidFactory<? super O>> {
-
-    private final Hashtable<O, Value> clustersHash;
-    private final ArrayList<Collection<O>> clusters;
-
-    Clusters(int k, List<? extends O> observations) throws CloneNotSupportedException {
-
-        clustersHash = new Hashtable<>();
-        clusters = new ArrayList<>();
-
-        KMeansCalculator<O> kmc = new KMeansCalculator<>(k, observations);
-
-        for (int i = 0; i < k; i++) {
-            Collection<O> cluster = kmc.cluster(i);
-            clusters.add(cluster);
-
-            for (O element : cluster) {
-                clustersHash.put(element, new Value(i));
-            }
-        }
-    }
-
-    public boolean isInCluster(Observation o, int clusterNb) {
-        return clusterNb(o) == clusterNb;
-    }
-
-    public int clusterNb(Observation o) {
-        return clustersHash.get(o).getClusterNb();
-    }
-
-    public Collection<O> cluster(int clusterNb) {
-        return clusters.get(clusterNb);
-    }
-
-    public void remove(Observation o, int clusterNb) {
-        clustersHash.get(o).setClusterNb(-1);
-        clusters.get(clusterNb).remove(o);
-    }
-
-    public void put(O o, int clusterNb) {
-        clustersHash.get(o).setClusterNb(clusterNb);
-        clusters.get(clusterNb).add(o);
-    }
-
-    class Value {
-
-        private int clusterNb;
-
-        Value(int clusterNb) {
-            this.clusterNb = clusterNb;
-        }
-
-        void setClusterNb(int clusterNb) {
-            this.clusterNb = clusterNb;
-        }
-
-        int getClusterNb() {
-            return clusterNb;
-        }
-    }
-}
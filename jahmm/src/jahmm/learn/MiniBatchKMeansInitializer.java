@@ -0,0 +1,234 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.calculators.KMeansArrayCalculator;
+import jahmm.observables.CoordinateObservation;
+import jahmm.observables.Opdf;
+import jahmm.observables.OpdfAccumulator;
+import jahmm.observables.OpdfFactory;
+import jahmm.observables.OpdfFactoryUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * An initializer that clusters the observations with the mini-batch k-means
+ * algorithm of Sculley (<i>Web-Scale K-Means Clustering</i>) in a single pass
+ * over the sequences.
+ * <p>
+ * The observations are read in batches of a fixed size. The centroids are
+ * seeded by running k-means on the first batch; every batch is then assigned
+ * to the nearest centroids, after which every centroid moves towards each of
+ * its points with a learning rate equal to the inverse of the number of points
+ * it has received so far. While the batches are processed, the cluster of
+ * every observation is used as its state: the initial states, the transitions
+ * between the clusters of consecutive observations and the
+ * {@link OpdfAccumulator accumulator} of every cluster are updated on the fly.
+ * <p>
+ * Only the centroids, the counts, the current batch and the accumulators are
+ * kept in memory, such that the sequences can be read from a
+ * {@link jahmm.io.ObservationSequencesFileSource file source} of any size as
+ * long as the accumulators of the observation distributions have a bounded
+ * size (which is the case for the closed-form distributions).
+ *
+ * @author kommusoft
+ * @param <O> The type of observations.
+ */
+public class MiniBatchKMeansInitializer<O extends CoordinateObservation> implements RegularHmmInitializer<O, RegularHmmBase<O>> {
+
+    private static final Logger LOG = Logger.getLogger(MiniBatchKMeansInitializer.class.getName());
+
+    private final OpdfFactory<? extends Opdf<O>> opdfFactory;
+    private final int batchSize;
+
+    /**
+     * Creates a new mini-batch k-means initializer with batches of one thousand
+     * observations.
+     *
+     * @param opdfFactory A pdf generator that is used to build the pdfs
+     * associated to each state.
+     */
+    public MiniBatchKMeansInitializer(OpdfFactory<? extends Opdf<O>> opdfFactory) {
+        this(opdfFactory, 1000);
+    }
+
+    /**
+     * Creates a new mini-batch k-means initializer.
+     *
+     * @param opdfFactory A pdf generator that is used to build the pdfs
+     * associated to each state.
+     * @param batchSize The (strictly positive) number of observations in a
+     * batch.
+     */
+    public MiniBatchKMeansInitializer(OpdfFactory<? extends Opdf<O>> opdfFactory, int batchSize) {
+        if (batchSize <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.opdfFactory = opdfFactory;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the number of observations in a batch.
+     *
+     * @return The number of observations in a batch.
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    @Override
+    public RegularHmmBase<O> initialize(int nbStates, List<? extends List<? extends O>> sequences, Random random) {
+        return this.initialize(nbStates, (Iterable<? extends List<? extends O>>) sequences, random);
+    }
+
+    /**
+     * Creates an initial Hidden Markov Model in a single pass over the given
+     * sequences.
+     *
+     * @param nbStates The (strictly positive) number of states of the model.
+     * @param sequences The observation sequences, which are iterated once.
+     * @param random The random generator used to seed the centroids.
+     * @return A new Hidden Markov Model with the given number of states.
+     * @throws IllegalArgumentException If there are no observations.
+     */
+    public RegularHmmBase<O> initialize(int nbStates, Iterable<? extends List<? extends O>> sequences, Random random) {
+        if (nbStates <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        Pass pass = new Pass(nbStates, random);
+        for (List<? extends O> sequence : sequences) {
+            boolean first = true;
+            for (O o : sequence) {
+                pass.add(o, first);
+                first = false;
+            }
+        }
+        pass.flush();
+        if (pass.centroids == null) {
+            throw new IllegalArgumentException("No observations");
+        }
+        return pass.createHmm();
+    }
+
+    /**
+     * The state of a single pass over the sequences.
+     */
+    private class Pass {
+
+        private final int k;
+        private final Random random;
+        private final List<O> batch;
+        private final boolean[] starts;
+        private final int[] clusters;
+        private final long[] counts;
+        private final double[] pi;
+        private final double[][] transitions;
+        private final List<OpdfAccumulator<O>> accumulators;
+        private final List<Opdf<O>> opdfs;
+        private int dimension;
+        private double[] points;
+        private double[] centroids;
+        private int previous = -0x01;
+
+        Pass(int k, Random random) {
+            this.k = k;
+            this.random = random;
+            this.batch = new ArrayList<>(batchSize);
+            this.starts = new boolean[batchSize];
+            this.clusters = new int[batchSize];
+            this.counts = new long[k];
+            this.pi = new double[k];
+            this.transitions = new double[k][k];
+            this.accumulators = new ArrayList<>(k);
+            this.opdfs = OpdfFactoryUtils.generate(opdfFactory, k);
+            for (Opdf<O> opdf : this.opdfs) {
+                this.accumulators.add(opdf.createAccumulator());
+            }
+        }
+
+        void add(O o, boolean start) {
+            if (this.points == null) {
+                this.dimension = o.dimension();
+                this.points = new double[batchSize * this.dimension];
+            } else if (o.dimension() != this.dimension) {
+                throw new IllegalArgumentException("Wrong dimensions");
+            }
+            int index = this.batch.size();
+            o.coordinates(this.points, index * this.dimension);
+            this.starts[index] = start;
+            this.batch.add(o);
+            if (this.batch.size() == batchSize) {
+                this.flush();
+            }
+        }
+
+        void flush() {
+            int size = this.batch.size();
+            if (size == 0x00) {
+                return;
+            }
+            int d = this.dimension;
+            if (this.centroids == null) {
+                this.centroids = new double[this.k * d];
+                double[] seeds = size == batchSize ? this.points : Arrays.copyOf(this.points, size * d);
+                KMeansArrayCalculator kmc = new KMeansArrayCalculator(this.k, seeds, d, this.random, 0x01);
+                for (int c = 0; c < this.k; c++) {
+                    System.arraycopy(kmc.centroid(c), 0x00, this.centroids, c * d, d);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                double best = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < this.k; c++) {
+                    double distance = KMeansArrayCalculator.squaredDistance(this.points, i * d, this.centroids, c * d, d);
+                    if (distance < best) {
+                        best = distance;
+                        this.clusters[i] = c;
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                int c = this.clusters[i];
+                double eta = 1.0d / ++this.counts[c];
+                for (int j = 0; j < d; j++) {
+                    this.centroids[c * d + j] += eta * (this.points[i * d + j] - this.centroids[c * d + j]);
+                }
+                if (this.starts[i]) {
+                    this.pi[c]++;
+                } else {
+                    this.transitions[this.previous][c]++;
+                }
+                this.previous = c;
+                this.accumulators.get(c).add(this.batch.get(i), 1.0d);
+            }
+            this.batch.clear();
+        }
+
+        RegularHmmBase<O> createHmm() {
+            double[] p = new double[this.k];
+            double[][] a = new double[this.k][this.k];
+            double total = 0.0d;
+            for (int i = 0; i < this.k; i++) {
+                total += this.pi[i];
+            }
+            for (int i = 0; i < this.k; i++) {
+                p[i] = this.pi[i] / total;
+                double sum = 0.0d;
+                for (int j = 0; j < this.k; j++) {
+                    sum += this.transitions[i][j];
+                }
+                for (int j = 0; j < this.k; j++) {
+                    a[i][j] = sum > 0.0d ? this.transitions[i][j] / sum : 1.0d / this.k; // Arbitrarily
+                }
+                if (this.accumulators.get(i).totalWeight() > 0.0d) {
+                    this.accumulators.get(i).fit();
+                }
+            }
+            return new RegularHmmBase<>(p, a, this.opdfs);
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package jahmm.learn;
+
+/**
+ * A step size schedule of the form <code>(k + offset)^(-exponent)</code> with
+ * <code>k</code> the number of the update. For an exponent in the interval
+ * <code>(0.5, 1]</code>, the step sizes satisfy the Robbins-Monro conditions
+ * under which stepwise EM converges, see <i>Cappé</i> and <i>Moulines</i>'
+ * <i>On-line expectation-maximization algorithm for latent data models</i>
+ * (2009).
+ *
+ * @author kommusoft
+ */
+public class PolynomialStepSizeSchedule implements StepSizeSchedule {
+
+    private final double offset;
+    private final double exponent;
+
+    /**
+     * Creates a new step size schedule with an offset of two and an exponent
+     * of 0.7.
+     */
+    public PolynomialStepSizeSchedule() {
+        this(2.0d, 0.7d);
+    }
+
+    /**
+     * Creates a new step size schedule.
+     *
+     * @param offset The offset added to the number of the update. The offset
+     * must be larger than or equal to one.
+     * @param exponent The decay exponent, in the interval <code>(0.5, 1]</code>.
+     */
+    public PolynomialStepSizeSchedule(double offset, double exponent) {
+        if (offset < 1.0d) {
+            throw new IllegalArgumentException("The offset must be at least one");
+        }
+        if (exponent <= 0.5d || exponent > 1.0d) {
+            throw new IllegalArgumentException("The exponent must be in (0.5, 1]");
+        }
+        this.offset = offset;
+        this.exponent = exponent;
+    }
+
+    /**
+     * Returns the offset added to the number of the update.
+     *
+     * @return The offset added to the number of the update.
+     */
+    public double getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Returns the decay exponent.
+     *
+     * @return The decay exponent.
+     */
+    public double getExponent() {
+        return this.exponent;
+    }
+
+    @Override
+    public double stepSize(int update) {
+        return Math.pow(update + this.offset, -this.exponent);
+    }
+
+}
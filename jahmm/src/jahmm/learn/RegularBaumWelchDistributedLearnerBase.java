@@ -0,0 +1,299 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.io.ObservationReader;
+import jahmm.io.ObservationSequencesFileSource;
+import jahmm.observables.Observation;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A coordinator of the distributed Baum-Welch algorithm. The sequence files
+ * are partitioned over a number of {@link RegularBaumWelchWorker workers},
+ * each of them running in its own process. Every iteration, the current model
+ * is shipped to all the workers, which perform the expectation step on their
+ * partition in parallel. Their serialized {@link RegularBaumWelchStatistics}
+ * are merged by the coordinator, which performs the maximization step.
+ * <p>
+ * The files are assigned to the workers once, when the learner is created,
+ * such that the total size of the files of every worker is balanced. The
+ * workers keep running until the learner is closed.
+ * <p>
+ * The expectation step is delegated to an <i>expectation learner</i>, by
+ * default a plain {@link RegularBaumWelchStreamingLearnerBase}. Only the class
+ * of this learner is sent to the workers, which create their own instance
+ * with its public constructor without arguments: a modified expectation step
+ * is obtained by passing a learner that overrides
+ * {@link RegularBaumWelchStreamingLearnerBase#accumulate accumulate}, not by
+ * overriding it in a subclass of this learner.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularBaumWelchDistributedLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> extends RegularBaumWelchStreamingLearnerBase<TObs, THmm> implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchDistributedLearnerBase.class.getName());
+
+    private final List<RegularBaumWelchWorkerConnection> workers;
+    private final RegularBaumWelchStreamingLearnerBase<TObs, THmm> expectation;
+
+    /**
+     * Initializes a distributed Baum-Welch learner that launches the given
+     * number of workers on the local host.
+     *
+     * @param readerClass The class of the reader used by the workers to parse
+     * the observations. The class must have a public constructor without
+     * arguments.
+     * @param nbWorkers The (strictly positive) number of workers to launch.
+     * @param files The files or directories holding the sequences.
+     * @throws IOException If a worker cannot be launched.
+     */
+    public RegularBaumWelchDistributedLearnerBase(Class<? extends ObservationReader<TObs>> readerClass, int nbWorkers, File... files) throws IOException {
+        this(readerClass, new RegularBaumWelchStreamingLearnerBase<TObs, THmm>(), launch(nbWorkers), files);
+    }
+
+    /**
+     * Initializes a distributed Baum-Welch learner that launches the given
+     * number of workers on the local host, which perform the expectation step
+     * of the given learner.
+     *
+     * @param readerClass The class of the reader used by the workers to parse
+     * the observations. The class must have a public constructor without
+     * arguments.
+     * @param expectation The learner whose expectation step is performed. Its
+     * class must be public and have a public constructor without arguments.
+     * @param nbWorkers The (strictly positive) number of workers to launch.
+     * @param files The files or directories holding the sequences.
+     * @throws IOException If a worker cannot be launched.
+     */
+    public RegularBaumWelchDistributedLearnerBase(Class<? extends ObservationReader<TObs>> readerClass, RegularBaumWelchStreamingLearnerBase<TObs, THmm> expectation, int nbWorkers, File... files) throws IOException {
+        this(readerClass, expectation, launch(nbWorkers), files);
+    }
+
+    /**
+     * Initializes a distributed Baum-Welch learner with the given workers.
+     *
+     * @param readerClass The class of the reader used by the workers to parse
+     * the observations. The class must have a public constructor without
+     * arguments.
+     * @param workers The connections with the workers.
+     * @param files The files or directories holding the sequences.
+     * @throws IOException If the communication with a worker fails.
+     */
+    public RegularBaumWelchDistributedLearnerBase(Class<? extends ObservationReader<TObs>> readerClass, List<RegularBaumWelchWorkerConnection> workers, File... files) throws IOException {
+        this(readerClass, new RegularBaumWelchStreamingLearnerBase<TObs, THmm>(), workers, files);
+    }
+
+    /**
+     * Initializes a distributed Baum-Welch learner with the given workers,
+     * which perform the expectation step of the given learner.
+     *
+     * @param readerClass The class of the reader used by the workers to parse
+     * the observations. The class must have a public constructor without
+     * arguments.
+     * @param expectation The learner whose expectation step is performed. Its
+     * class must be public and have a public constructor without arguments.
+     * @param workers The connections with the workers.
+     * @param files The files or directories holding the sequences.
+     * @throws IOException If the communication with a worker fails.
+     * @throws IllegalArgumentException If the workers cannot create an
+     * instance of the class of the expectation learner.
+     */
+    public RegularBaumWelchDistributedLearnerBase(Class<? extends ObservationReader<TObs>> readerClass, RegularBaumWelchStreamingLearnerBase<TObs, THmm> expectation, List<RegularBaumWelchWorkerConnection> workers, File... files) throws IOException {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker expected");
+        }
+        Class<?> learnerClass = expectation.getClass();
+        try {
+            if (!Modifier.isPublic(learnerClass.getModifiers())) {
+                throw new IllegalArgumentException("The class of the expectation learner must be public");
+            }
+            learnerClass.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("The expectation learner must have a public constructor without arguments", e);
+        }
+        this.expectation = expectation;
+        this.workers = new ArrayList<>(workers);
+        List<List<File>> partitions = partition(ObservationSequencesFileSource.listFiles(files), workers.size());
+        for (int i = 0; i < workers.size(); i++) {
+            workers.get(i).open(readerClass.getName(), learnerClass.getName(), partitions.get(i));
+        }
+    }
+
+    private static List<RegularBaumWelchWorkerConnection> launch(int nbWorkers) throws IOException {
+        if (nbWorkers <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        List<RegularBaumWelchWorkerConnection> workers = new ArrayList<>(nbWorkers);
+        for (int i = 0; i < nbWorkers; i++) {
+            workers.add(RegularBaumWelchWorkerConnection.launch());
+        }
+        return workers;
+    }
+
+    /**
+     * Partitions the given files such that the total size of every partition
+     * is balanced: the largest files are assigned first, each one to the
+     * partition with the smallest total size.
+     *
+     * @param files The files to partition.
+     * @param nbPartitions The number of partitions.
+     * @return A list of partitions.
+     */
+    static List<List<File>> partition(List<File> files, int nbPartitions) {
+        List<File> sorted = new ArrayList<>(files);
+        Collections.sort(sorted, new Comparator<File>() {
+
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f2.length(), f1.length());
+            }
+
+        });
+        List<List<File>> partitions = new ArrayList<>(nbPartitions);
+        long[] sizes = new long[nbPartitions];
+        for (int i = 0; i < nbPartitions; i++) {
+            partitions.add(new ArrayList<File>());
+        }
+        for (File file : sorted) {
+            int smallest = 0x00;
+            for (int i = 1; i < nbPartitions; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            partitions.get(smallest).add(file);
+            sizes[smallest] += file.length();
+        }
+        return partitions;
+    }
+
+    /**
+     * Returns the learner whose expectation step is performed by the workers.
+     *
+     * @return The expectation learner.
+     */
+    public RegularBaumWelchStreamingLearnerBase<TObs, THmm> getExpectation() {
+        return this.expectation;
+    }
+
+    /**
+     * Performs the expectation step of the expectation learner, such that
+     * sequences processed by this learner itself are handled as the workers
+     * handle theirs. The method is final: the workers never run the code of a
+     * subclass of this learner.
+     *
+     * @param hmm The Hidden Markov Model the expectations are computed with.
+     * @param obsSeq The sequence of observations.
+     * @param statistics The statistics to add the expectations to.
+     */
+    @Override
+    protected final void accumulate(THmm hmm, List<? extends TObs> obsSeq, RegularBaumWelchStatistics<TObs> statistics) {
+        this.expectation.accumulate(hmm, obsSeq, statistics);
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return The number of workers.
+     */
+    public int getNbWorkers() {
+        return this.workers.size();
+    }
+
+    /**
+     * Does a fixed number of iterations of the distributed Baum-Welch
+     * algorithm.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param nbIterations The number of iterations in the learning process.
+     * @return The HMM that best matches the sequences of the workers.
+     * @throws IOException If the communication with a worker fails.
+     */
+    public THmm learn(THmm initialHmm, int nbIterations) throws IOException {
+        THmm hmm = initialHmm;
+        for (int i = 0; i < nbIterations; i++) {
+            hmm = iterate(hmm);
+        }
+        return hmm;
+    }
+
+    /**
+     * Does a fixed number of iterations (see {@link #getNbIterations}) of the
+     * distributed Baum-Welch algorithm.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @return The HMM that best matches the sequences of the workers.
+     * @throws IOException If the communication with a worker fails.
+     */
+    public THmm learn(THmm initialHmm) throws IOException {
+        return this.learn(initialHmm, this.getNbIterations());
+    }
+
+    /**
+     * Performs one iteration of the distributed Baum-Welch algorithm.
+     *
+     * @param hmm A previously estimated HMM.
+     * @return A new, updated HMM.
+     * @throws IOException If the communication with a worker fails.
+     * @throws IllegalArgumentException If the workers do not have any
+     * sequence.
+     */
+    public THmm iterate(THmm hmm) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(hmm);
+        }
+        byte[] model = bytes.toByteArray();
+        for (RegularBaumWelchWorkerConnection worker : this.workers) {
+            worker.requestExpectation(model);
+        }
+        RegularBaumWelchStatistics<TObs> statistics = new RegularBaumWelchStatistics<>(hmm);
+        IOException failure = null;
+        for (RegularBaumWelchWorkerConnection worker : this.workers) {
+            try {
+                worker.readStatistics(statistics);
+            } catch (IOException e) { // keep reading the other workers
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (statistics.getWeight() <= 0.0d) {
+            throw new IllegalArgumentException("No observation sequences");
+        }
+        return maximize(hmm, statistics);
+    }
+
+    /**
+     * Stops all the workers.
+     *
+     * @throws IOException If the communication with a worker fails.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (RegularBaumWelchWorkerConnection worker : this.workers) {
+            try {
+                worker.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
@@ -8,8 +8,8 @@ import jahmm.RegularHmm;
 import jahmm.calculators.ForwardBackwardCalculator;
 import jahmm.calculators.RegularForwardBackwardCalculatorBase;
 import jahmm.observables.Observation;
-import jahmm.observables.Opdf;
-import java.util.Iterator;
+import jahmm.observables.OpdfAccumulator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 import jutlis.tuples.Tuple3;
@@ -46,20 +46,39 @@ public class RegularBaumWelchLearnerBase<TObs extends Observation, THmm extends
      */
     @Override
     protected double[][][] estimateXi(List<? extends TObs> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm) {
+        return this.estimateXi(sequence, abp, hmm, 1.0d / abp.getItem3());
+    }
+
+    /**
+     * Estimates the xi values of a sequence: the probability of every
+     * observation given every state is computed once, such that the inner loop
+     * only reads the transition matrix.
+     *
+     * @param sequence The sequence of observations.
+     * @param abp A tuple containing the alpha- and beta-values and the
+     * probability of the sequence.
+     * @param hmm The hidden Markov Model.
+     * @param factor The factor every xi value is multiplied with.
+     * @return The estimated xi values.
+     */
+    protected double[][][] estimateXi(List<? extends TObs> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm, double factor) {
         if (sequence.size() <= 1) {
             throw new IllegalArgumentException("Observation sequence too short");
         }
         double[][] a = abp.getItem1();
         double[][] b = abp.getItem2();
-        double pinv = 1.0d / abp.getItem3();
-        double[][][] xi = new double[sequence.size() - 1][hmm.nbStates()][hmm.nbStates()];
-        Iterator<? extends TObs> seqIterator = sequence.iterator();
-        seqIterator.next();
-        for (int t = 0; t < sequence.size() - 1; t++) {
-            TObs o = seqIterator.next();
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    xi[t][i][j] = a[t][i] * hmm.getAij(i, j) * hmm.getOpdf(j).probability(o) * b[t + 1][j] * pinv;
+        int s = hmm.nbStates();
+        double[][] emissions = RegularForwardBackwardCalculatorBase.emissions(hmm, sequence);
+        double[][][] xi = new double[sequence.size() - 1][s][s];
+        double[] weighted = new double[s];
+        for (int t = 0; t < xi.length; t++) {
+            for (int j = 0; j < s; j++) {
+                weighted[j] = emissions[t + 1][j] * b[t + 1][j] * factor;
+            }
+            for (int i = 0; i < s; i++) {
+                double ati = a[t][i];
+                for (int j = 0; j < s; j++) {
+                    xi[t][i][j] = ati * hmm.getAij(i, j) * weighted[j];
                 }
             }
         }
@@ -146,7 +165,11 @@ public class RegularBaumWelchLearnerBase<TObs extends Observation, THmm extends
 
     /**
      * Sets the pdf values based on the given sequence of interactions and the
-     * given gamma values.
+     * given gamma values. Every observation is added to the accumulator of
+     * every state, weighted with its (unnormalized) gamma value, such that
+     * distributions that pool their statistics across states (tied
+     * distributions) weight every state by its occupancy. A distribution
+     * without any weighted observation is not modified.
      *
      * @param nhmm The given Hidden Markov Model to modify.
      * @param sequences The given sequence of interactions.
@@ -156,29 +179,25 @@ public class RegularBaumWelchLearnerBase<TObs extends Observation, THmm extends
     @Override
     protected void setPdfValues(THmm nhmm, List<? extends List<? extends TObs>> sequences, double[][][] allGamma) {
         int I = nhmm.nbStates();
-        List<TObs> observations = KMeansLearner.flat(sequences);
-        double[] weights = new double[observations.size()];
-        double temp;
+        List<OpdfAccumulator<TObs>> accumulators = new ArrayList<>(I);
         for (int i = 0; i < I; i++) {
-            double sum = 0.;
-            int j = 0;
-
-            int o = 0;
-            for (List<? extends TObs> obsSeq : sequences) {
-                for (int t = 0; t < obsSeq.size(); t++, j++) {
-                    temp = allGamma[o][t][i];
-                    weights[j] = temp;
-                    sum += temp;
+            accumulators.add(nhmm.getOpdf(i).createAccumulator());
+        }
+        int o = 0;
+        for (List<? extends TObs> obsSeq : sequences) {
+            double[][] gamma = allGamma[o++];
+            int t = 0;
+            for (TObs observation : obsSeq) {
+                double[] gammat = gamma[t++];
+                for (int i = 0; i < I; i++) {
+                    accumulators.get(i).add(observation, gammat[i]);
                 }
-                o++;
             }
-
-            for (j--; j >= 0; j--) {
-                weights[j] /= sum;
+        }
+        for (OpdfAccumulator<TObs> accumulator : accumulators) {
+            if (accumulator.totalWeight() > 0.0d) {
+                accumulator.fit();
             }
-
-            Opdf<TObs> opdf = nhmm.getOpdf(i);
-            opdf.fit(observations, weights);
         }
     }
 
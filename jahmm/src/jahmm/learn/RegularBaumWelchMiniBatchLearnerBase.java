@@ -0,0 +1,217 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.observables.Observation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * An implementation of the scaled Baum-Welch learning algorithm that performs
+ * its first iterations on randomly sampled subsets of the sequences.
+ * <p>
+ * Each mini-batch iteration samples (without replacement) a fraction or a
+ * fixed number of the sequences with a seeded random generator, and estimates
+ * a new model based on the statistics of this batch only. The batch is then
+ * scored again under the new model: as soon as the average log-likelihood per
+ * observation of the batch improves less than a given threshold, the learner
+ * switches to regular full-batch iterations for the remaining iterations.
+ * Since both models are evaluated on the same batch, the switch does not
+ * depend on the differences between the sampled batches.
+ * <p>
+ * Mini-batches are only drawn by the {@link #learn} methods on lists of
+ * sequences; the {@link #iterate} methods always perform full-batch
+ * iterations.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularBaumWelchMiniBatchLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> extends RegularBaumWelchStreamingLearnerBase<TObs, THmm> {
+
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchMiniBatchLearnerBase.class.getName());
+
+    private final Random random;
+    private double batchFraction = 0.1d;
+    private int batchSize;
+    private double improvementThreshold = 1.E-3;
+    private int nbMiniBatchIterations;
+
+    /**
+     * Initializes a mini-batch Baum-Welch learner with a random seed.
+     */
+    public RegularBaumWelchMiniBatchLearnerBase() {
+        this.random = new Random();
+    }
+
+    /**
+     * Initializes a mini-batch Baum-Welch learner with the given seed, such
+     * that the sampled batches are reproducible.
+     *
+     * @param seed The seed of the random generator used to sample the batches.
+     */
+    public RegularBaumWelchMiniBatchLearnerBase(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Returns the fraction of the sequences sampled per mini-batch iteration.
+     * The fraction is ignored when a batch size has been set.
+     *
+     * @return The fraction of the sequences sampled per mini-batch iteration.
+     */
+    public double getBatchFraction() {
+        return this.batchFraction;
+    }
+
+    /**
+     * Sets the fraction of the sequences sampled per mini-batch iteration and
+     * clears the batch size.
+     *
+     * @param batchFraction The fraction, in the interval <code>(0, 1]</code>.
+     */
+    public void setBatchFraction(double batchFraction) {
+        if (batchFraction <= 0.0d || batchFraction > 1.0d) {
+            throw new IllegalArgumentException("The fraction must be in (0, 1]");
+        }
+        this.batchFraction = batchFraction;
+        this.batchSize = 0x00;
+    }
+
+    /**
+     * Returns the number of sequences sampled per mini-batch iteration, or zero
+     * if the size of the batches is determined by the batch fraction.
+     *
+     * @return The number of sequences sampled per mini-batch iteration.
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Sets the number of sequences sampled per mini-batch iteration. The batch
+     * size takes precedence over the batch fraction.
+     *
+     * @param batchSize The (strictly positive) number of sequences per batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the minimal improvement of the average log-likelihood per
+     * observation of a batch by its mini-batch iteration. Below this
+     * threshold, the learner switches to full-batch iterations.
+     *
+     * @return The improvement threshold.
+     */
+    public double getImprovementThreshold() {
+        return this.improvementThreshold;
+    }
+
+    /**
+     * Sets the minimal improvement of the average log-likelihood per
+     * observation of a batch by its mini-batch iteration. Below this
+     * threshold, the learner switches to full-batch iterations.
+     *
+     * @param improvementThreshold The improvement threshold.
+     */
+    public void setImprovementThreshold(double improvementThreshold) {
+        this.improvementThreshold = improvementThreshold;
+    }
+
+    /**
+     * Returns the number of mini-batch iterations performed by the last call
+     * to {@link #learn}, including the iteration that triggered the switch to
+     * full-batch iterations.
+     *
+     * @return The number of mini-batch iterations of the last learning process.
+     */
+    public int getNbMiniBatchIterations() {
+        return this.nbMiniBatchIterations;
+    }
+
+    /**
+     * Does a fixed number of iterations of the Baum-Welch algorithm. The first
+     * iterations are performed on mini-batches until the improvement drops
+     * below the threshold; the remaining ones are full-batch iterations.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param nbIterations The number of iterations in the learning process.
+     * @param sequences The observation sequences on which the learning is
+     * based. Each sequence must have a length higher or equal to 2.
+     * @return The HMM that best matches the set of observation sequences given
+     * (according to the Baum-Welch algorithm).
+     */
+    @Override
+    public THmm learn(THmm initialHmm, int nbIterations, List<? extends List<? extends TObs>> sequences) {
+        THmm hmm = initialHmm;
+        boolean fullBatch = false;
+        this.nbMiniBatchIterations = 0x00;
+        for (int i = 0; i < nbIterations; i++) {
+            if (fullBatch) {
+                hmm = iterate(hmm, sequences);
+            } else {
+                List<? extends List<? extends TObs>> batch = sample(sequences);
+                RegularBaumWelchStatistics<TObs> statistics = expect(hmm, batch);
+                hmm = maximize(hmm, statistics);
+                this.nbMiniBatchIterations++;
+                fullBatch = improvement(hmm, batch, statistics.getLnProbability()) < this.improvementThreshold;
+            }
+        }
+        return hmm;
+    }
+
+    /**
+     * Computes the improvement of the average log-likelihood per observation
+     * of a batch by a mini-batch iteration.
+     *
+     * @param hmm The model estimated on the batch.
+     * @param batch The batch of observation sequences.
+     * @param lnProbability The log-likelihood of the batch under the model
+     * before the iteration.
+     * @return The improvement of the log-likelihood divided by the number of
+     * observations in the batch.
+     */
+    protected double improvement(THmm hmm, List<? extends List<? extends TObs>> batch, double lnProbability) {
+        double current = 0.0d;
+        int nbObservations = 0x00;
+        for (List<? extends TObs> sequence : batch) {
+            current += lnProbability(getAlphaBetaProbability(hmm, sequence));
+            nbObservations += sequence.size();
+        }
+        return (current - lnProbability) / nbObservations;
+    }
+
+    /**
+     * Samples a mini-batch of sequences without replacement.
+     *
+     * @param sequences The observation sequences to sample from.
+     * @return A list containing the sampled sequences.
+     */
+    protected List<? extends List<? extends TObs>> sample(List<? extends List<? extends TObs>> sequences) {
+        int n = sequences.size();
+        int m = this.batchSize > 0x00 ? this.batchSize : (int) Math.ceil(this.batchFraction * n);
+        if (m >= n) {
+            return sequences;
+        }
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        List<List<? extends TObs>> batch = new ArrayList<>(m);
+        for (int i = 0; i < m; i++) {
+            int j = i + this.random.nextInt(n - i);
+            int tmp = indices[j];
+            indices[j] = indices[i];
+            indices[i] = tmp;
+            batch.add(sequences.get(tmp));
+        }
+        return batch;
+    }
+
+}
@@ -0,0 +1,460 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.observables.Observation;
+import jahmm.observables.Opdf;
+import jahmm.observables.OpdfFactoryUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * A multi-start Baum-Welch learner that searches for the number of states as
+ * well. For every number of states, the Baum-Welch algorithm is run from a
+ * number of random starting points (see {@link RegularHmmInitializer}). All
+ * the runs share the same (read-only) observation sequences and are executed
+ * concurrently on a single pool of threads.
+ * <p>
+ * Since every iteration of the Baum-Welch algorithm increases the likelihood,
+ * runs with the same number of states can be compared at the same iteration:
+ * once a run has performed a minimal number of iterations, it is pruned as soon
+ * as its log-likelihood per observation is worse than the best log-likelihood
+ * per observation reached by another run after the same number of iterations
+ * by more than a given margin. Runs also stop as soon as they converge. Since
+ * runs are executed concurrently, which runs are pruned may depend on the
+ * scheduling of the threads; setting the margin to
+ * {@link Double#POSITIVE_INFINITY} disables pruning and makes the search
+ * reproducible.
+ * <p>
+ * The result of a search is the best run for every number of states, together
+ * with its Bayesian (BIC) and Akaike (AIC) information criteria.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularBaumWelchMultiStartLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> extends RegularBaumWelchStreamingLearnerBase<TObs, THmm> {
+
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchMultiStartLearnerBase.class.getName());
+
+    /**
+     * Computes the number of free parameters of the given model: the initial
+     * probabilities, the transition probabilities and the parameters of the
+     * observation distributions, where the parameters tied between
+     * distributions are counted once.
+     *
+     * @param hmm The model.
+     * @return The number of free parameters of the model.
+     */
+    public static int nbParameters(RegularHmm<?, ?> hmm) {
+        int n = hmm.nbStates();
+        List<Opdf<?>> opdfs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            opdfs.add(hmm.getOpdf(i));
+        }
+        return n * n - 0x01 + OpdfFactoryUtils.nbParameters(opdfs);
+    }
+
+    private final RegularHmmInitializer<TObs, THmm> initializer;
+    private final ExecutorService executor;
+    private final int nbThreads;
+    private int nbStarts = 20;
+    private long seed;
+    private double convergenceThreshold = 1.E-4;
+    private int pruneAfter = 0x03;
+    private double pruneMargin = 0.05d;
+
+    /**
+     * Initializes a multi-start learner that uses as many threads as there are
+     * available processors.
+     *
+     * @param initializer The initializer that creates the starting points.
+     */
+    public RegularBaumWelchMultiStartLearnerBase(RegularHmmInitializer<TObs, THmm> initializer) {
+        this(initializer, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initializes a multi-start learner. A pool of the given number of threads
+     * is created for every search.
+     *
+     * @param initializer The initializer that creates the starting points.
+     * @param nbThreads The (strictly positive) number of threads.
+     */
+    public RegularBaumWelchMultiStartLearnerBase(RegularHmmInitializer<TObs, THmm> initializer, int nbThreads) {
+        if (nbThreads <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.initializer = initializer;
+        this.executor = null;
+        this.nbThreads = nbThreads;
+        this.seed = new Random().nextLong();
+    }
+
+    /**
+     * Initializes a multi-start learner that runs on the given pool. The pool
+     * is not shut down by the learner.
+     *
+     * @param initializer The initializer that creates the starting points.
+     * @param executor The pool the runs are executed on.
+     */
+    public RegularBaumWelchMultiStartLearnerBase(RegularHmmInitializer<TObs, THmm> initializer, ExecutorService executor) {
+        this.initializer = initializer;
+        this.executor = executor;
+        this.nbThreads = 0x00;
+        this.seed = new Random().nextLong();
+    }
+
+    /**
+     * Returns the number of runs performed for every number of states.
+     *
+     * @return The number of runs performed for every number of states.
+     */
+    public int getNbStarts() {
+        return this.nbStarts;
+    }
+
+    /**
+     * Sets the number of runs performed for every number of states.
+     *
+     * @param nbStarts The (strictly positive) number of runs.
+     */
+    public void setNbStarts(int nbStarts) {
+        if (nbStarts <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.nbStarts = nbStarts;
+    }
+
+    /**
+     * Returns the seed from which the seeds of the runs are derived.
+     *
+     * @return The seed of the search.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Sets the seed from which the seeds of the runs are derived.
+     *
+     * @param seed The seed of the search.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the convergence threshold: a run stops when an iteration
+     * improves its log-likelihood per observation by less than this value.
+     *
+     * @return The convergence threshold.
+     */
+    public double getConvergenceThreshold() {
+        return this.convergenceThreshold;
+    }
+
+    /**
+     * Sets the convergence threshold: a run stops when an iteration improves
+     * its log-likelihood per observation by less than this value.
+     *
+     * @param convergenceThreshold The (positive) convergence threshold.
+     */
+    public void setConvergenceThreshold(double convergenceThreshold) {
+        if (!(convergenceThreshold >= 0.0d)) {
+            throw new IllegalArgumentException("Positive number expected");
+        }
+        this.convergenceThreshold = convergenceThreshold;
+    }
+
+    /**
+     * Returns the number of iterations a run performs before it can be
+     * pruned.
+     *
+     * @return The number of iterations before pruning.
+     */
+    public int getPruneAfter() {
+        return this.pruneAfter;
+    }
+
+    /**
+     * Sets the number of iterations a run performs before it can be pruned.
+     *
+     * @param pruneAfter The (positive) number of iterations before pruning.
+     */
+    public void setPruneAfter(int pruneAfter) {
+        if (pruneAfter < 0x00) {
+            throw new IllegalArgumentException("Positive number expected");
+        }
+        this.pruneAfter = pruneAfter;
+    }
+
+    /**
+     * Returns the pruning margin, expressed as a log-likelihood per
+     * observation.
+     *
+     * @return The pruning margin.
+     */
+    public double getPruneMargin() {
+        return this.pruneMargin;
+    }
+
+    /**
+     * Sets the pruning margin, expressed as a log-likelihood per observation.
+     *
+     * @param pruneMargin The (positive) pruning margin;
+     * {@link Double#POSITIVE_INFINITY} disables pruning.
+     */
+    public void setPruneMargin(double pruneMargin) {
+        if (!(pruneMargin >= 0.0d)) {
+            throw new IllegalArgumentException("Positive number expected");
+        }
+        this.pruneMargin = pruneMargin;
+    }
+
+    /**
+     * Runs the multi-start Baum-Welch algorithm for every given number of
+     * states.
+     *
+     * @param sequences The observation sequences on which the learning is
+     * based. The sequences are shared by all the runs and must not be modified
+     * during the search.
+     * @param stateCounts The numbers of states to try.
+     * @return The best run for every number of states, in the order of the
+     * given numbers of states.
+     */
+    public List<Run<THmm>> search(final List<? extends List<? extends TObs>> sequences, int... stateCounts) {
+        if (stateCounts.length == 0x00) {
+            throw new IllegalArgumentException("At least one number of states expected");
+        }
+        long nbObservations = 0x00;
+        for (List<? extends TObs> sequence : sequences) {
+            nbObservations += sequence.size();
+        }
+        if (nbObservations <= 0x00) {
+            throw new IllegalArgumentException("No observations");
+        }
+        final long n = nbObservations;
+        Random random = new Random(this.seed);
+        ExecutorService pool = this.executor;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(this.nbThreads);
+        }
+        try {
+            List<List<Future<Run<THmm>>>> futures = new ArrayList<>(stateCounts.length);
+            for (final int nbStates : stateCounts) {
+                final Trajectories trajectories = new Trajectories(this.getNbIterations() + 0x01);
+                List<Future<Run<THmm>>> runs = new ArrayList<>(this.nbStarts);
+                for (int k = 0; k < this.nbStarts; k++) {
+                    final long runSeed = random.nextLong();
+                    runs.add(pool.submit(new Callable<Run<THmm>>() {
+
+                        @Override
+                        public Run<THmm> call() {
+                            return run(nbStates, runSeed, sequences, n, trajectories);
+                        }
+
+                    }));
+                }
+                futures.add(runs);
+            }
+            List<Run<THmm>> result = new ArrayList<>(stateCounts.length);
+            for (List<Future<Run<THmm>>> runs : futures) {
+                Run<THmm> best = null;
+                for (Future<Run<THmm>> future : runs) {
+                    Run<THmm> run = future.get();
+                    if (best == null || run.getLnProbability() > best.getLnProbability()) {
+                        best = run;
+                    }
+                }
+                result.add(best);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (this.executor == null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Performs a single run of the Baum-Welch algorithm.
+     *
+     * @param nbStates The number of states of the model.
+     * @param runSeed The seed of the starting point.
+     * @param sequences The observation sequences.
+     * @param nbObservations The total number of observations.
+     * @param trajectories The trajectories shared by the runs with the same
+     * number of states.
+     * @return The result of the run.
+     */
+    Run<THmm> run(int nbStates, long runSeed, List<? extends List<? extends TObs>> sequences, long nbObservations, Trajectories trajectories) {
+        THmm hmm = this.initializer.initialize(nbStates, sequences, new Random(runSeed));
+        int maxIterations = this.getNbIterations();
+        double previous = Double.NEGATIVE_INFINITY;
+        for (int iteration = 0x00;; iteration++) {
+            RegularBaumWelchStatistics<TObs> statistics = expect(hmm, sequences);
+            double lnProbability = statistics.getLnProbability();
+            double perObservation = lnProbability / nbObservations;
+            double best = trajectories.record(iteration, perObservation);
+            if (iteration >= this.pruneAfter && perObservation < best - this.pruneMargin) {
+                return new Run<>(hmm, runSeed, lnProbability, nbObservations, iteration, true);
+            }
+            if (iteration >= maxIterations || perObservation - previous < this.convergenceThreshold) {
+                return new Run<>(hmm, runSeed, lnProbability, nbObservations, iteration, false);
+            }
+            previous = perObservation;
+            hmm = maximize(hmm, statistics);
+        }
+    }
+
+    /**
+     * The best log-likelihoods per observation reached by the runs with the
+     * same number of states after every number of iterations.
+     */
+    static class Trajectories {
+
+        private final double[] best;
+
+        Trajectories(int length) {
+            this.best = new double[length];
+            Arrays.fill(this.best, Double.NEGATIVE_INFINITY);
+        }
+
+        synchronized double record(int iteration, double value) {
+            if (value > this.best[iteration]) {
+                this.best[iteration] = value;
+            }
+            return this.best[iteration];
+        }
+
+    }
+
+    /**
+     * The result of a single run of the Baum-Welch algorithm.
+     *
+     * @param <THmm> The type of the Hidden Markov Model.
+     */
+    public static class Run<THmm extends RegularHmm<?, THmm>> {
+
+        private final THmm hmm;
+        private final long seed;
+        private final double lnProbability;
+        private final long nbObservations;
+        private final int nbIterations;
+        private final boolean pruned;
+
+        Run(THmm hmm, long seed, double lnProbability, long nbObservations, int nbIterations, boolean pruned) {
+            this.hmm = hmm;
+            this.seed = seed;
+            this.lnProbability = lnProbability;
+            this.nbObservations = nbObservations;
+            this.nbIterations = nbIterations;
+            this.pruned = pruned;
+        }
+
+        /**
+         * Returns the learned model.
+         *
+         * @return The learned model.
+         */
+        public THmm getHmm() {
+            return this.hmm;
+        }
+
+        /**
+         * Returns the number of states of the learned model.
+         *
+         * @return The number of states of the learned model.
+         */
+        public int getNbStates() {
+            return this.hmm.nbStates();
+        }
+
+        /**
+         * Returns the seed of the starting point of the run.
+         *
+         * @return The seed of the starting point of the run.
+         */
+        public long getSeed() {
+            return this.seed;
+        }
+
+        /**
+         * Returns the log-likelihood of the observation sequences given the
+         * learned model.
+         *
+         * @return The log-likelihood of the sequences.
+         */
+        public double getLnProbability() {
+            return this.lnProbability;
+        }
+
+        /**
+         * Returns the number of iterations performed by the run.
+         *
+         * @return The number of iterations performed.
+         */
+        public int getNbIterations() {
+            return this.nbIterations;
+        }
+
+        /**
+         * Indicates whether the run was pruned before convergence.
+         *
+         * @return <code>true</code> if the run was pruned.
+         */
+        public boolean isPruned() {
+            return this.pruned;
+        }
+
+        /**
+         * Returns the number of free parameters of the learned model.
+         *
+         * @return The number of free parameters of the learned model.
+         */
+        public int getNbParameters() {
+            return nbParameters(this.hmm);
+        }
+
+        /**
+         * Returns the Bayesian information criterion of the learned model:
+         * <code>k ln(n) - 2 ln(L)</code> with <code>k</code> the number of
+         * free parameters and <code>n</code> the number of observations. Lower
+         * is better.
+         *
+         * @return The Bayesian information criterion.
+         */
+        public double getBic() {
+            return this.getNbParameters() * Math.log(this.nbObservations) - 2.0d * this.lnProbability;
+        }
+
+        /**
+         * Returns the Akaike information criterion of the learned model:
+         * <code>2k - 2 ln(L)</code> with <code>k</code> the number of free
+         * parameters. Lower is better.
+         *
+         * @return The Akaike information criterion.
+         */
+        public double getAic() {
+            return 2.0d * this.getNbParameters() - 2.0d * this.lnProbability;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.RegularHmmBase;
+import jahmm.observables.Observation;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * An implementation of the stepwise (online) Expectation-Maximization
+ * algorithm of <i>Cappé</i> and <i>Moulines</i> for regular Hidden Markov
+ * Models.
+ * <p>
+ * Sequences (or mini-batches of sequences) are fed one at a time with the
+ * {@link #update} methods. The expected sufficient statistics of each batch are
+ * blended into running statistics with a step size given by a
+ * {@link StepSizeSchedule}, after which a new model is estimated from the
+ * running statistics. The current model is available at any time through
+ * {@link #getHmm()}: every update publishes a fresh copy, such that a model
+ * that has been handed out is never modified by the learner and can be used
+ * for scoring while the learner is updated.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularBaumWelchOnlineLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> extends RegularBaumWelchStreamingLearnerBase<TObs, THmm> {
+
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchOnlineLearnerBase.class.getName());
+
+    private final StepSizeSchedule stepSizeSchedule;
+    private volatile THmm hmm;
+    private RegularBaumWelchStatistics<TObs> statistics;
+    private int nbUpdates;
+
+    /**
+     * Initializes an online Baum-Welch learner with a
+     * {@link PolynomialStepSizeSchedule} using its default parameters.
+     *
+     * @param initialHmm The initial estimation of the model. The learner works
+     * on a copy; the given model is not modified.
+     */
+    public RegularBaumWelchOnlineLearnerBase(THmm initialHmm) {
+        this(initialHmm, new PolynomialStepSizeSchedule());
+    }
+
+    /**
+     * Initializes an online Baum-Welch learner.
+     *
+     * @param initialHmm The initial estimation of the model. The learner works
+     * on a copy; the given model is not modified.
+     * @param stepSizeSchedule The schedule that determines the step size of
+     * every update.
+     */
+    public RegularBaumWelchOnlineLearnerBase(THmm initialHmm, StepSizeSchedule stepSizeSchedule) {
+        this.stepSizeSchedule = stepSizeSchedule;
+        try {
+            this.hmm = RegularHmmBase.deepClone(initialHmm);
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Returns the current estimation of the model. The returned model is not
+     * modified by later updates and should not be modified by the caller.
+     *
+     * @return The current estimation of the model.
+     */
+    public THmm getHmm() {
+        return this.hmm;
+    }
+
+    /**
+     * Returns the number of updates performed so far.
+     *
+     * @return The number of updates performed so far.
+     */
+    public synchronized int getNbUpdates() {
+        return this.nbUpdates;
+    }
+
+    /**
+     * Returns the schedule that determines the step size of every update.
+     *
+     * @return The schedule that determines the step size of every update.
+     */
+    public StepSizeSchedule getStepSizeSchedule() {
+        return this.stepSizeSchedule;
+    }
+
+    /**
+     * Updates the model with a single observation sequence.
+     *
+     * @param sequence The new observation sequence. The sequence must have a
+     * length higher or equal to 2.
+     * @return The new estimation of the model.
+     */
+    public THmm update(List<? extends TObs> sequence) {
+        return this.update(Collections.singletonList(sequence));
+    }
+
+    /**
+     * Updates the model with a mini-batch of observation sequences. The
+     * expected sufficient statistics of the batch are averaged over its
+     * sequences and blended into the running statistics.
+     *
+     * @param batch The new observation sequences. Each sequence must have a
+     * length higher or equal to 2.
+     * @return The new estimation of the model.
+     * @throws IllegalArgumentException If the batch does not contain any
+     * sequence.
+     */
+    public synchronized THmm update(Iterable<? extends List<? extends TObs>> batch) {
+        THmm current = this.hmm;
+        RegularBaumWelchStatistics<TObs> batchStatistics = new RegularBaumWelchStatistics<>(current);
+        for (List<? extends TObs> obsSeq : batch) {
+            accumulate(current, obsSeq, batchStatistics);
+        }
+        if (batchStatistics.getWeight() <= 0.0d) {
+            throw new IllegalArgumentException("No observation sequences");
+        }
+        double eta = this.stepSizeSchedule.stepSize(this.nbUpdates);
+        batchStatistics.scale(eta / batchStatistics.getWeight());
+        if (this.statistics == null) {
+            this.statistics = batchStatistics;
+        } else {
+            this.statistics.scale(1.0d - eta);
+            this.statistics.merge(batchStatistics);
+        }
+        THmm nhmm;
+        try {
+            nhmm = RegularHmmBase.deepClone(current);
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        this.statistics.apply(nhmm);
+        this.nbUpdates++;
+        this.hmm = nhmm;
+        return nhmm;
+    }
+
+}
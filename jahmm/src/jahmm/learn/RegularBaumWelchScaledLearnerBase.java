@@ -8,7 +8,6 @@ import jahmm.RegularHmm;
 import jahmm.calculators.ForwardBackwardCalculator;
 import jahmm.calculators.RegularForwardBackwardScaledCalculatorBase;
 import jahmm.observables.Observation;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 import jutlis.tuples.Tuple3;
@@ -58,23 +57,6 @@ public class RegularBaumWelchScaledLearnerBase<TObs extends Observation,THmm ext
      */
     @Override
     protected double[][][] estimateXi(List<? extends TObs> sequence, Tuple3<double[][], double[][], Double> abp, THmm hmm) {
-        if (sequence.size() <= 1) {
-            throw new IllegalArgumentException("Observation sequence too short");
-        }
-        double xi[][][] = new double[sequence.size() - 1][hmm.nbStates()][hmm.nbStates()];
-        double[][] alpha = abp.getItem1();
-        double[][] beta = abp.getItem2();
-        Iterator<? extends TObs> seqIterator = sequence.iterator();
-        seqIterator.next();
-        for (int t = 0; t < sequence.size() - 1; t++) {
-            TObs observation = seqIterator.next();
-            for (int i = 0; i < hmm.nbStates(); i++) {
-                for (int j = 0; j < hmm.nbStates(); j++) {
-                    xi[t][i][j] = alpha[t][i] * hmm.getAij(i, j) * hmm.getOpdf(j).probability(observation) * beta[t + 1][j];
-                }
-            }
-        }
-
-        return xi;
+        return this.estimateXi(sequence, abp, hmm, 1.0d);
     }
 }
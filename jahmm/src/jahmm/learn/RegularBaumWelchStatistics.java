@@ -0,0 +1,341 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.observables.Observation;
+import jahmm.observables.OpdfAccumulator;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The expected sufficient statistics gathered by the expectation step of the
+ * Baum-Welch algorithm on a regular Hidden Markov Model: the expected number of
+ * times each state is initial, the expected number of transitions and the
+ * weighted observations of every state.
+ * <p>
+ * Statistics can be scaled and merged, which allows learners to combine the
+ * statistics of several sequences, batches or workers before performing the
+ * maximization step with {@link #apply(jahmm.RegularHmm)}.
+ * <p>
+ * Statistics can be exchanged between processes with
+ * {@link #write(java.io.DataOutput)} and {@link #read(java.io.DataInput)}.
+ * The binary format starts with a magic number and a format version, followed
+ * by the number of states, the weight, the log-likelihood, the expected
+ * initial states, the â-denominators, the â-numerators (row by row) and the
+ * statistics of the accumulator of every state.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ */
+public class RegularBaumWelchStatistics<TObs extends Observation> {
+
+    /**
+     * The magic number that starts the binary format ("JHBW").
+     */
+    public static final int MAGIC = 0x4A484257;
+    /**
+     * The version of the binary format.
+     */
+    public static final int VERSION = 0x01;
+
+    private final double[] piNum;
+    private final double[][] aijNum;
+    private final double[] aijDen;
+    private final List<OpdfAccumulator<TObs>> accumulators;
+    private double weight;
+    private double lnProbability;
+
+    /**
+     * Creates empty statistics for the given Hidden Markov Model.
+     *
+     * @param hmm The Hidden Markov Model the statistics are gathered for.
+     */
+    public RegularBaumWelchStatistics(RegularHmm<TObs, ?> hmm) {
+        int n = hmm.nbStates();
+        this.piNum = new double[n];
+        this.aijNum = new double[n][n];
+        this.aijDen = new double[n];
+        this.accumulators = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            this.accumulators.add(hmm.getOpdf(i).createAccumulator());
+        }
+    }
+
+    /**
+     * Returns the number of states of the statistics.
+     *
+     * @return The number of states of the statistics.
+     */
+    public int nbStates() {
+        return this.piNum.length;
+    }
+
+    /**
+     * Returns the (possibly scaled) number of sequences the statistics have
+     * been gathered from.
+     *
+     * @return The weight of the statistics.
+     */
+    public double getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Returns the (possibly scaled) sum of the natural logarithms of the
+     * probabilities of the sequences the statistics have been gathered from.
+     *
+     * @return The log-likelihood of the sequences.
+     */
+    public double getLnProbability() {
+        return this.lnProbability;
+    }
+
+    /**
+     * Adds the natural logarithm of the probability of a sequence to the
+     * log-likelihood of the statistics.
+     *
+     * @param lnProbability The natural logarithm of the probability of a
+     * sequence.
+     */
+    public void addLnProbability(double lnProbability) {
+        this.lnProbability += lnProbability;
+    }
+
+    /**
+     * Returns the numerators of the â-values: the expected number of
+     * transitions from state i to state j.
+     *
+     * @return The numerators of the â-values.
+     */
+    public double[][] getANumerator() {
+        return this.aijNum;
+    }
+
+    /**
+     * Returns the denominators of the â-values: the expected number of
+     * transitions from state i.
+     *
+     * @return The denominators of the â-values.
+     */
+    public double[] getADenominator() {
+        return this.aijDen;
+    }
+
+    /**
+     * Returns the expected number of times each state is the initial state.
+     *
+     * @return The expected number of times each state is the initial state.
+     */
+    public double[] getPiNumerator() {
+        return this.piNum;
+    }
+
+    /**
+     * Returns the accumulator of the observations of the given state.
+     *
+     * @param stateNb A state number.
+     * @return The accumulator of the given state.
+     */
+    public OpdfAccumulator<TObs> getAccumulator(int stateNb) {
+        return this.accumulators.get(stateNb);
+    }
+
+    /**
+     * Adds the gamma values of a single sequence to the expected initial states
+     * and to the accumulators of the states. The transition statistics are
+     * updated separately by the learner.
+     *
+     * @param obsSeq The sequence of observations.
+     * @param gamma The gamma values of the sequence.
+     */
+    public void addGamma(List<? extends TObs> obsSeq, double[][] gamma) {
+        int n = this.piNum.length;
+        for (int i = 0; i < n; i++) {
+            this.piNum[i] += gamma[0x00][i];
+        }
+        Iterator<? extends TObs> seqIterator = obsSeq.iterator();
+        for (int t = 0; seqIterator.hasNext(); t++) {
+            TObs o = seqIterator.next();
+            for (int i = 0; i < n; i++) {
+                this.accumulators.get(i).add(o, gamma[t][i]);
+            }
+        }
+        this.weight++;
+    }
+
+    /**
+     * Adds a single sequence with a known (hard) state sequence to the
+     * statistics: every observation is assigned to a single state with weight
+     * one and every transition of the state sequence is counted once. This is
+     * the degenerate case of the expectations used by Viterbi training.
+     *
+     * @param obsSeq The sequence of observations.
+     * @param stateSequence The state of every observation.
+     */
+    public void addStateSequence(List<? extends TObs> obsSeq, int... stateSequence) {
+        if (stateSequence.length != obsSeq.size()) {
+            throw new IllegalArgumentException("The state sequence does not match the observation sequence");
+        }
+        int T = stateSequence.length;
+        if (T > 0x00) {
+            this.piNum[stateSequence[0x00]]++;
+        }
+        Iterator<? extends TObs> seqIterator = obsSeq.iterator();
+        for (int t = 0; t < T; t++) {
+            int i = stateSequence[t];
+            this.accumulators.get(i).add(seqIterator.next(), 1.0d);
+            if (t + 1 < T) {
+                this.aijDen[i]++;
+                this.aijNum[i][stateSequence[t + 1]]++;
+            }
+        }
+        this.weight++;
+    }
+
+    /**
+     * Multiplies all the statistics by the given factor.
+     *
+     * @param factor The (positive) factor to scale the statistics with.
+     */
+    public void scale(double factor) {
+        int n = this.piNum.length;
+        for (int i = 0; i < n; i++) {
+            this.piNum[i] *= factor;
+            this.aijDen[i] *= factor;
+            for (int j = 0; j < n; j++) {
+                this.aijNum[i][j] *= factor;
+            }
+            this.accumulators.get(i).scale(factor);
+        }
+        this.weight *= factor;
+        this.lnProbability *= factor;
+    }
+
+    /**
+     * Adds the given statistics to these statistics. The given statistics are
+     * not modified.
+     *
+     * @param other The statistics to add, gathered on a model with the same
+     * number of states and the same types of observation distributions.
+     * @throws IllegalArgumentException If the given statistics are not
+     * compatible with these statistics.
+     */
+    public void merge(RegularBaumWelchStatistics<TObs> other) {
+        int n = this.piNum.length;
+        if (other.piNum.length != n) {
+            throw new IllegalArgumentException("Incompatible number of states");
+        }
+        for (int i = 0; i < n; i++) {
+            this.piNum[i] += other.piNum[i];
+            this.aijDen[i] += other.aijDen[i];
+            for (int j = 0; j < n; j++) {
+                this.aijNum[i][j] += other.aijNum[i][j];
+            }
+            this.accumulators.get(i).merge(other.accumulators.get(i));
+        }
+        this.weight += other.weight;
+        this.lnProbability += other.lnProbability;
+    }
+
+    /**
+     * Writes these statistics in a compact binary format.
+     *
+     * @param out The output to write the statistics to.
+     * @throws IOException If writing to the output fails.
+     */
+    public void write(DataOutput out) throws IOException {
+        int n = this.piNum.length;
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(n);
+        out.writeDouble(this.weight);
+        out.writeDouble(this.lnProbability);
+        for (int i = 0; i < n; i++) {
+            out.writeDouble(this.piNum[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.writeDouble(this.aijDen[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                out.writeDouble(this.aijNum[i][j]);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            this.accumulators.get(i).write(out);
+        }
+    }
+
+    /**
+     * Reads statistics written by {@link #write(java.io.DataOutput)} and adds
+     * them to these statistics.
+     *
+     * @param in The input to read the statistics from.
+     * @throws IOException If reading from the input fails, the format or its
+     * version is not recognized or the statistics are not compatible with
+     * these statistics.
+     */
+    public void read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a Baum-Welch statistics stream");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported statistics format version " + version);
+        }
+        int n = this.piNum.length;
+        if (in.readInt() != n) {
+            throw new IOException("Incompatible number of states");
+        }
+        this.weight += in.readDouble();
+        this.lnProbability += in.readDouble();
+        for (int i = 0; i < n; i++) {
+            this.piNum[i] += in.readDouble();
+        }
+        for (int i = 0; i < n; i++) {
+            this.aijDen[i] += in.readDouble();
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                this.aijNum[i][j] += in.readDouble();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            this.accumulators.get(i).read(in);
+        }
+    }
+
+    /**
+     * Performs the maximization step: sets the initial probabilities, the
+     * transition probabilities and the observation distributions of the given
+     * Hidden Markov Model according to these statistics. Unreachable states
+     * keep their transition probabilities and observation distribution.
+     *
+     * @param hmm The Hidden Markov Model to modify.
+     * @throws IllegalStateException If no sequence has been added.
+     */
+    public void apply(RegularHmm<TObs, ?> hmm) {
+        if (this.weight <= 0.0d) {
+            throw new IllegalStateException("No observation sequences");
+        }
+        int n = this.piNum.length;
+        for (int i = 0; i < n; i++) {
+            hmm.setPi(i, this.piNum[i] / this.weight);
+            if (this.aijDen[i] > 0.0d) { // State i is reachable
+                for (int j = 0; j < n; j++) {
+                    hmm.setAij(i, j, this.aijNum[i][j] / this.aijDen[i]);
+                }
+            }
+            OpdfAccumulator<TObs> source = this.accumulators.get(i);
+            if (source.totalWeight() > 0.0d) {
+                OpdfAccumulator<TObs> target = hmm.getOpdf(i).createAccumulator();
+                target.merge(source);
+                target.fit();
+            }
+        }
+    }
+
+}
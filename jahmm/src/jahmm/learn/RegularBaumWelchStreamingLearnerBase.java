@@ -0,0 +1,178 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.observables.Observation;
+import java.util.List;
+import java.util.logging.Logger;
+import jutlis.tuples.Tuple3;
+
+/**
+ * An implementation of the scaled Baum-Welch learning algorithm that streams
+ * the observation sequences through the expectation step.
+ * <p>
+ * The sequences are provided by an {@link Iterable} that is iterated once per
+ * iteration, for instance an {@link jahmm.io.ObservationSequencesFileSource}
+ * reading the sequences from disk. Each sequence is discarded as soon as its
+ * contribution has been added to the aggregated sufficient statistics (see
+ * {@link RegularBaumWelchStatistics}). The memory usage is thus bounded by the
+ * length of the longest sequence instead of the size of the training set.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularBaumWelchStreamingLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> extends RegularBaumWelchScaledLearnerBase<TObs, THmm> {
+
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchStreamingLearnerBase.class.getName());
+
+    /**
+     * Initializes a streaming Baum-Welch algorithm implementation.
+     */
+    public RegularBaumWelchStreamingLearnerBase() {
+    }
+
+    /**
+     * Does a fixed number of iterations of the Baum-Welch algorithm, each
+     * iteration being a single pass over the given sequences.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param nbIterations The number of iterations in the learning process.
+     * @param sequences A re-iterable source of observation sequences. Each
+     * sequence must have a length higher or equal to 2.
+     * @return The HMM that best matches the set of observation sequences given
+     * (according to the Baum-Welch algorithm).
+     */
+    public THmm learn(THmm initialHmm, int nbIterations, Iterable<? extends List<? extends TObs>> sequences) {
+        THmm hmm = initialHmm;
+        for (int i = 0; i < nbIterations; i++) {
+            hmm = iterate(hmm, sequences);
+        }
+        return hmm;
+    }
+
+    /**
+     * Does a fixed number of iterations (see {@link #getNbIterations}) of the
+     * Baum-Welch algorithm, each iteration being a single pass over the given
+     * sequences.
+     *
+     * @param initialHmm An initial estimation of the expected HMM.
+     * @param sequences A re-iterable source of observation sequences. Each
+     * sequence must have a length higher or equal to 2.
+     * @return The HMM that best matches the set of observation sequences given
+     * (according to the Baum-Welch algorithm).
+     */
+    public THmm learn(THmm initialHmm, Iterable<? extends List<? extends TObs>> sequences) {
+        return this.learn(initialHmm, this.getNbIterations(), sequences);
+    }
+
+    /**
+     * Performs one iteration of the Baum-Welch algorithm by streaming the given
+     * sequences. Only the aggregated statistics are kept in memory.
+     *
+     * @param hmm A previously estimated HMM.
+     * @param sequences The observation sequences on which the learning is
+     * based. Each sequence must have a length higher or equal to 2.
+     * @return A new, updated HMM.
+     */
+    @Override
+    public THmm iterate(THmm hmm, List<? extends List<? extends TObs>> sequences) {
+        return this.iterate(hmm, (Iterable<? extends List<? extends TObs>>) sequences);
+    }
+
+    /**
+     * Performs one iteration of the Baum-Welch algorithm by streaming the given
+     * sequences. Only the aggregated statistics are kept in memory.
+     *
+     * @param hmm A previously estimated HMM.
+     * @param sequences A re-iterable source of observation sequences. Each
+     * sequence must have a length higher or equal to 2.
+     * @return A new, updated HMM.
+     * @throws IllegalArgumentException If the source does not contain any
+     * sequence.
+     */
+    public THmm iterate(THmm hmm, Iterable<? extends List<? extends TObs>> sequences) {
+        return maximize(hmm, expect(hmm, sequences));
+    }
+
+    /**
+     * Performs the expectation step on the given sequences.
+     *
+     * @param hmm The Hidden Markov Model the expectations are computed with.
+     * @param sequences The observation sequences. Each sequence must have a
+     * length higher or equal to 2.
+     * @return The expected sufficient statistics of the sequences.
+     * @throws IllegalArgumentException If there are no sequences.
+     */
+    protected RegularBaumWelchStatistics<TObs> expect(THmm hmm, Iterable<? extends List<? extends TObs>> sequences) {
+        RegularBaumWelchStatistics<TObs> statistics = new RegularBaumWelchStatistics<>(hmm);
+        for (List<? extends TObs> obsSeq : sequences) {
+            accumulate(hmm, obsSeq, statistics);
+        }
+        if (statistics.getWeight() <= 0.0d) {
+            throw new IllegalArgumentException("No observation sequences");
+        }
+        return statistics;
+    }
+
+    /**
+     * Performs the maximization step: creates a new Hidden Markov Model based
+     * on the given statistics.
+     *
+     * @param hmm The previously estimated Hidden Markov Model.
+     * @param statistics The expected sufficient statistics.
+     * @return A new, updated HMM.
+     */
+    protected THmm maximize(THmm hmm, RegularBaumWelchStatistics<TObs> statistics) {
+        THmm nhmm;
+        try {
+            nhmm = hmm.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        statistics.apply(nhmm);
+        return nhmm;
+    }
+
+    /**
+     * Performs the expectation step on a single sequence and adds the result
+     * to the given statistics.
+     *
+     * @param hmm The Hidden Markov Model the expectations are computed with.
+     * @param obsSeq The sequence of observations.
+     * @param statistics The statistics to add the expectations to.
+     */
+    protected void accumulate(THmm hmm, List<? extends TObs> obsSeq, RegularBaumWelchStatistics<TObs> statistics) {
+        Tuple3<double[][], double[][], Double> abp = getAlphaBetaProbability(hmm, obsSeq);
+        double[][][] xi = estimateXi(obsSeq, abp, hmm);
+        double[][] gamma = estimateGamma(obsSeq, abp, hmm, xi);
+        updateAbarXiGamma(hmm, obsSeq, xi, gamma, statistics.getANumerator(), statistics.getADenominator());
+        statistics.addGamma(obsSeq, gamma);
+        statistics.addLnProbability(lnProbability(abp));
+    }
+
+    /**
+     * Computes the natural logarithm of the probability of a sequence based on
+     * its scaled alpha- and beta-values. If c_t denotes the scaling factor at
+     * time t, the sum over the states of alpha[t][i] * beta[t][i] equals 1/c_t,
+     * and the probability of the sequence equals the product of the scaling
+     * factors. Unlike the probability returned by the calculator, this value
+     * does not underflow for long sequences.
+     *
+     * @param abp A tuple containing the scaled alpha- and beta-values.
+     * @return The natural logarithm of the probability of the sequence.
+     */
+    protected double lnProbability(Tuple3<double[][], double[][], Double> abp) {
+        double[][] alpha = abp.getItem1();
+        double[][] beta = abp.getItem2();
+        double lnProbability = 0.0d;
+        for (int t = 0; t < alpha.length; t++) {
+            double sum = 0.0d;
+            for (int i = 0; i < alpha[t].length; i++) {
+                sum += alpha[t][i] * beta[t][i];
+            }
+            lnProbability -= Math.log(sum);
+        }
+        return lnProbability;
+    }
+
+}
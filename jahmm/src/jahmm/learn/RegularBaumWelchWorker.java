@@ -0,0 +1,181 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.io.ObservationReader;
+import jahmm.io.ObservationSequencesFileSource;
+import jahmm.observables.Observation;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A worker of the distributed Baum-Welch algorithm (see
+ * {@link RegularBaumWelchDistributedLearnerBase}). A worker performs the
+ * expectation step on its partition of the sequence files and sends the
+ * resulting {@link RegularBaumWelchStatistics} back to the coordinator.
+ * <p>
+ * The worker communicates through a pair of streams: the standard input and
+ * output of the process when it is launched without arguments, or a socket
+ * connection when it is launched with <code>-port &lt;port&gt;</code>, in
+ * which case it listens on the loopback interface for a single coordinator.
+ * <p>
+ * The protocol is versioned. The coordinator starts with the magic number
+ * "JHBC", the protocol version, the class name of the
+ * {@link ObservationReader}, the class name of the
+ * {@link RegularBaumWelchStreamingLearnerBase learner} whose
+ * {@link RegularBaumWelchStreamingLearnerBase#accumulate accumulate} method
+ * performs the expectation step (both classes must have a public constructor
+ * without arguments) and the list of files; the worker acknowledges with a
+ * status byte. Every following command is a single byte: an expectation command
+ * followed by the (length prefixed) serialized model, which the worker answers
+ * with a status byte and the statistics, or a stop command.
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchWorker {
+
+    /**
+     * The magic number that starts the protocol ("JHBC").
+     */
+    public static final int MAGIC = 0x4A484243;
+    /**
+     * The version of the protocol.
+     */
+    public static final int VERSION = 0x02;
+    static final byte COMMAND_STOP = 0x00;
+    static final byte COMMAND_EXPECT = 0x01;
+    static final byte STATUS_OK = 0x00;
+    static final byte STATUS_ERROR = 0x01;
+    private static final Logger LOG = Logger.getLogger(RegularBaumWelchWorker.class.getName());
+
+    /**
+     * Runs a worker.
+     *
+     * @param args No arguments to communicate through the standard input and
+     * output, or <code>-port &lt;port&gt;</code> to listen for a coordinator on
+     * the given port of the loopback interface.
+     * @throws IOException If the communication with the coordinator fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0x00) {
+            serve(System.in, System.out);
+        } else if (args.length == 0x02 && args[0x00].equals("-port")) {
+            try (ServerSocket server = new ServerSocket(Integer.parseInt(args[0x01]), 0x01, InetAddress.getByName(null)); Socket socket = server.accept()) {
+                serve(socket.getInputStream(), socket.getOutputStream());
+            }
+        } else {
+            System.err.println("Usage: " + RegularBaumWelchWorker.class.getName() + " [-port <port>]");
+            System.exit(0x01);
+        }
+    }
+
+    /**
+     * Serves a single coordinator until it sends the stop command or closes
+     * the connection.
+     *
+     * @param in The stream the commands are read from.
+     * @param out The stream the answers are written to.
+     * @throws IOException If the communication with the coordinator fails.
+     */
+    public static void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+        if (din.readInt() != MAGIC) {
+            throw new IOException("Not a Baum-Welch coordinator");
+        }
+        int version = din.readShort();
+        String readerName = din.readUTF();
+        String learnerName = din.readUTF();
+        int nbFiles = din.readInt();
+        File[] files = new File[nbFiles];
+        for (int i = 0; i < nbFiles; i++) {
+            files[i] = new File(din.readUTF());
+        }
+        ObservationSequencesFileSource<?> source;
+        RegularBaumWelchStreamingLearnerBase<?, ?> learner;
+        try {
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported protocol version " + version);
+            }
+            ObservationReader<?> reader = (ObservationReader<?>) Class.forName(readerName).getConstructor().newInstance();
+            source = new ObservationSequencesFileSource<>(reader, files);
+            learner = (RegularBaumWelchStreamingLearnerBase<?, ?>) Class.forName(learnerName).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | IllegalArgumentException e) {
+            writeError(dout, e);
+            return;
+        }
+        dout.writeByte(STATUS_OK);
+        dout.flush();
+
+        for (;;) {
+            byte command;
+            try {
+                command = din.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            if (command == COMMAND_STOP) {
+                return;
+            } else if (command != COMMAND_EXPECT) {
+                throw new IOException("Unknown command " + command);
+            }
+            byte[] model = new byte[din.readInt()];
+            din.readFully(model);
+            try {
+                Object hmm;
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(model))) {
+                    hmm = ois.readObject();
+                }
+                RegularBaumWelchStatistics<?> statistics = expect(learner, hmm, source);
+                dout.writeByte(STATUS_OK);
+                statistics.write(dout);
+            } catch (ClassNotFoundException | RuntimeException e) {
+                writeError(dout, e);
+                continue;
+            }
+            dout.flush();
+        }
+    }
+
+    /**
+     * Performs the expectation step of the given learner on all the sequences
+     * of the source. The types of the learner, the model and the observations
+     * are only known at run time, when the model is deserialized: a mismatch
+     * results in a {@link ClassCastException}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <O extends Observation, H extends RegularHmm<O, H>> RegularBaumWelchStatistics<O> expect(RegularBaumWelchStreamingLearnerBase<?, ?> learner, Object model, Iterable<? extends List<? extends Observation>> source) {
+        RegularBaumWelchStreamingLearnerBase<O, H> typedLearner = (RegularBaumWelchStreamingLearnerBase<O, H>) learner;
+        H hmm = (H) model;
+        RegularBaumWelchStatistics<O> statistics = new RegularBaumWelchStatistics<>(hmm);
+        for (List<? extends Observation> sequence : source) {
+            typedLearner.accumulate(hmm, (List<? extends O>) sequence, statistics);
+        }
+        return statistics;
+    }
+
+    private static void writeError(DataOutputStream dout, Exception e) throws IOException {
+        LOG.log(Level.SEVERE, "Baum-Welch worker failed", e);
+        dout.writeByte(STATUS_ERROR);
+        dout.writeUTF(String.valueOf(e));
+        dout.flush();
+    }
+
+    private RegularBaumWelchWorker() {
+    }
+
+}
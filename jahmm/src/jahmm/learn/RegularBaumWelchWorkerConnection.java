@@ -0,0 +1,170 @@
+package jahmm.learn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The coordinator side of a connection with a {@link RegularBaumWelchWorker}.
+ * Connections are created by launching a worker in a new local process
+ * ({@link #launch(java.lang.String...)}), by connecting to a worker listening
+ * on a socket ({@link #connect(java.lang.String, int)}) or from any pair of
+ * streams.
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchWorkerConnection implements Closeable {
+
+    /**
+     * Launches a worker in a new Java virtual machine on the local host. The
+     * worker uses the class path of the current virtual machine; its standard
+     * error is redirected to the standard error of the current process.
+     *
+     * @param jvmArguments Additional arguments for the new virtual machine,
+     * for instance <code>-Xmx4g</code>.
+     * @return A connection with the new worker.
+     * @throws IOException If the process cannot be started.
+     */
+    public static RegularBaumWelchWorkerConnection launch(String... jvmArguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(jvmArguments));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RegularBaumWelchWorker.class.getName());
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        final Process process = builder.start();
+        return new RegularBaumWelchWorkerConnection(process.getInputStream(), process.getOutputStream(), new Closeable() {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    process.waitFor();
+                } catch (InterruptedException e) {
+                    process.destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        });
+    }
+
+    /**
+     * Connects to a worker that listens on the given host and port.
+     *
+     * @param host The host the worker runs on.
+     * @param port The port the worker listens on.
+     * @return A connection with the worker.
+     * @throws IOException If the connection cannot be established.
+     */
+    public static RegularBaumWelchWorkerConnection connect(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        return new RegularBaumWelchWorkerConnection(socket.getInputStream(), socket.getOutputStream(), socket);
+    }
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Closeable resource;
+
+    /**
+     * Creates a connection with a worker over the given streams.
+     *
+     * @param in The stream the answers of the worker are read from.
+     * @param out The stream the commands are written to.
+     * @param resource The resource to release when the connection is closed,
+     * or <code>null</code>.
+     */
+    public RegularBaumWelchWorkerConnection(InputStream in, OutputStream out, Closeable resource) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.resource = resource;
+    }
+
+    /**
+     * Sends the handshake to the worker and waits for its acknowledgement.
+     *
+     * @param readerName The class name of the observation reader.
+     * @param learnerName The class name of the learner that performs the
+     * expectation step.
+     * @param files The files the worker is responsible for.
+     * @throws IOException If the communication fails or the worker rejects
+     * the handshake.
+     */
+    void open(String readerName, String learnerName, List<File> files) throws IOException {
+        this.out.writeInt(RegularBaumWelchWorker.MAGIC);
+        this.out.writeShort(RegularBaumWelchWorker.VERSION);
+        this.out.writeUTF(readerName);
+        this.out.writeUTF(learnerName);
+        this.out.writeInt(files.size());
+        for (File file : files) {
+            this.out.writeUTF(file.getAbsolutePath());
+        }
+        this.out.flush();
+        this.readStatus();
+    }
+
+    /**
+     * Asks the worker to perform the expectation step with the given model.
+     * The call returns immediately; the result is read by
+     * {@link #readStatistics(jahmm.learn.RegularBaumWelchStatistics)}.
+     *
+     * @param model The serialized model.
+     * @throws IOException If the communication fails.
+     */
+    void requestExpectation(byte[] model) throws IOException {
+        this.out.writeByte(RegularBaumWelchWorker.COMMAND_EXPECT);
+        this.out.writeInt(model.length);
+        this.out.write(model);
+        this.out.flush();
+    }
+
+    /**
+     * Waits for the statistics of the worker and adds them to the given
+     * statistics.
+     *
+     * @param statistics The statistics to add the result of the worker to.
+     * @throws IOException If the communication fails or the worker reports an
+     * error.
+     */
+    void readStatistics(RegularBaumWelchStatistics<?> statistics) throws IOException {
+        this.readStatus();
+        statistics.read(this.in);
+    }
+
+    private void readStatus() throws IOException {
+        if (this.in.readByte() != RegularBaumWelchWorker.STATUS_OK) {
+            throw new IOException("Worker failed: " + this.in.readUTF());
+        }
+    }
+
+    /**
+     * Sends the stop command to the worker and releases the connection.
+     *
+     * @throws IOException If the communication fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.out.writeByte(RegularBaumWelchWorker.COMMAND_STOP);
+            this.out.flush();
+        } finally {
+            this.out.close();
+            this.in.close();
+            if (this.resource != null) {
+                this.resource.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.Observation;
+import jahmm.observables.Opdf;
+import jahmm.observables.OpdfFactory;
+import jahmm.observables.OpdfFactoryUtils;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * An initializer that draws a random Hidden Markov Model. The initial and
+ * transition probabilities are drawn uniformly from the probability simplex.
+ * The observation distribution of every state is fitted on all the
+ * observations of the sequences, where the observations of a random window of
+ * one of the sequences get half of the total weight. Since the states of a
+ * Hidden Markov Model tend to persist, the states start with different
+ * distributions while every observation keeps a strictly positive weight.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ */
+public class RegularHmmBaseRandomInitializer<TObs extends Observation> implements RegularHmmInitializer<TObs, RegularHmmBase<TObs>> {
+
+    private static final Logger LOG = Logger.getLogger(RegularHmmBaseRandomInitializer.class.getName());
+
+    private final OpdfFactory<? extends Opdf<TObs>> opdfFactory;
+
+    /**
+     * Creates a new random initializer.
+     *
+     * @param opdfFactory A pdf generator that is used to build the pdfs
+     * associated to each state.
+     */
+    public RegularHmmBaseRandomInitializer(OpdfFactory<? extends Opdf<TObs>> opdfFactory) {
+        this.opdfFactory = opdfFactory;
+    }
+
+    private static void fillSimplex(double[] values, Random random) {
+        double sum = 0.0d;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = -Math.log(1.0d - random.nextDouble());
+            sum += values[i];
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= sum;
+        }
+    }
+
+    @Override
+    public RegularHmmBase<TObs> initialize(int nbStates, List<? extends List<? extends TObs>> sequences, Random random) {
+        if (nbStates <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        List<? extends TObs> observations = KMeansLearner.flat(sequences);
+        if (observations.isEmpty()) {
+            throw new IllegalArgumentException("No observations");
+        }
+        double[] pi = new double[nbStates];
+        double[][] a = new double[nbStates][nbStates];
+        fillSimplex(pi, random);
+        for (int i = 0; i < nbStates; i++) {
+            fillSimplex(a[i], random);
+        }
+        int nbObservations = observations.size();
+        double[] weights = new double[nbObservations];
+        List<Opdf<TObs>> opdfs = OpdfFactoryUtils.generate(this.opdfFactory, nbStates);
+        for (int i = 0; i < nbStates; i++) {
+            Arrays.fill(weights, 0.5d / nbObservations);
+            int index = random.nextInt(nbObservations);
+            int offset = 0x00;
+            int s = 0x00;
+            while (index >= offset + sequences.get(s).size()) {
+                offset += sequences.get(s++).size();
+            }
+            List<? extends TObs> sequence = sequences.get(s);
+            int length = Math.max(0x01, (sequence.size() + nbStates - 0x01) / nbStates);
+            int from = offset + random.nextInt(sequence.size() - length + 0x01);
+            for (int t = from; t < from + length; t++) {
+                weights[t] += 0.5d / length;
+            }
+            opdfs.get(i).fit(observations, weights);
+        }
+        return new RegularHmmBase<>(pi, a, opdfs);
+    }
+
+}
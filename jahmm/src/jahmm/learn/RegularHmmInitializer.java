@@ -0,0 +1,31 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.observables.Observation;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Classes implementing this interface create initial Hidden Markov Models for
+ * learning algorithms. Different random generators should lead to different
+ * starting points, such that a learner can be restarted from several of them.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public interface RegularHmmInitializer<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> {
+
+    /**
+     * Creates a new initial Hidden Markov Model. The model must not share any
+     * mutable state with the models created by other calls.
+     *
+     * @param nbStates The (strictly positive) number of states of the model.
+     * @param sequences The observation sequences the model will be learned
+     * from.
+     * @param random The random generator that determines the starting point.
+     * @return A new Hidden Markov Model with the given number of states.
+     */
+    public abstract THmm initialize(int nbStates, List<? extends List<? extends TObs>> sequences, Random random);
+
+}
@@ -0,0 +1,210 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.RegularHmmBase;
+import jahmm.calculators.RegularViterbiCalculatorBase;
+import jahmm.observables.Observation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * An implementation of Viterbi training (also known as hard EM or segmental
+ * k-means). Every iteration decodes each sequence with the Viterbi algorithm,
+ * counts the transitions of the decoded state sequences and fits the
+ * observation distributions on the observations assigned to every state.
+ * <p>
+ * An iteration costs O(T·S²) per sequence and requires neither the
+ * beta-values nor the xi- or gamma-values of the Baum-Welch algorithm, which
+ * makes it a cheap way to warm-start a Baum-Welch learner. The sequences are
+ * decoded in parallel.
+ *
+ * @author kommusoft
+ * @param <TObs> The type of observations regarding the Hidden Markov Model.
+ * @param <THmm> The type of the Hidden Markov Model.
+ */
+public class RegularViterbiLearnerBase<TObs extends Observation, THmm extends RegularHmm<TObs, THmm>> {
+
+    private static final Logger LOG = Logger.getLogger(RegularViterbiLearnerBase.class.getName());
+
+    private final int nbThreads;
+    /**
+     * Number of iterations performed by the {@link #learn} method.
+     */
+    protected int nbIterations = 9;
+
+    /**
+     * Initializes a Viterbi learner that uses as many threads as there are
+     * available processors.
+     */
+    public RegularViterbiLearnerBase() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initializes a Viterbi learner.
+     *
+     * @param nbThreads The (strictly positive) number of threads used to decode
+     * the sequences. With a single thread, the sequences are decoded by the
+     * calling thread.
+     */
+    public RegularViterbiLearnerBase(int nbThreads) {
+        if (nbThreads <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * Returns the number of threads used to decode the sequences.
+     *
+     * @return The number of threads used to decode the sequences.
+     */
+    public int getNbThreads() {
+        return this.nbThreads;
+    }
+
+    /**
+     * Returns the number of iterations performed by the {@link #learn} method.
+     *
+     * @return The number of iterations performed.
+     */
+    public int getNbIterations() {
+        return nbIterations;
+    }
+
+    /**
+     * Sets the number of iterations performed by the {@link #learn} method.
+     *
+     * @param nb The (positive) number of iterations to perform.
+     */
+    public void setNbIterations(int nb) {
+        if (nb < 0) {
+            throw new IllegalArgumentException("Positive number expected");
+        }
+        nbIterations = nb;
+    }
+
+    /**
+     * Does a fixed number of iterations of Viterbi training.
+     *
+     * @param initialHmm An initial estimation of the expected HMM. The given
+     * model is not modified.
+     * @param nbIterations The number of iterations in the learning process.
+     * @param sequences The observation sequences on which the learning is
+     * based.
+     * @return The HMM that best matches the set of observation sequences given
+     * (according to Viterbi training).
+     */
+    public THmm learn(THmm initialHmm, int nbIterations, List<? extends List<? extends TObs>> sequences) {
+        THmm hmm = initialHmm;
+        for (int i = 0; i < nbIterations; i++) {
+            hmm = iterate(hmm, sequences);
+        }
+        return hmm;
+    }
+
+    /**
+     * Does a fixed number of iterations (see {@link #getNbIterations}) of
+     * Viterbi training.
+     *
+     * @param initialHmm An initial estimation of the expected HMM. The given
+     * model is not modified.
+     * @param sequences The observation sequences on which the learning is
+     * based.
+     * @return The HMM that best matches the set of observation sequences given
+     * (according to Viterbi training).
+     */
+    public THmm learn(THmm initialHmm, List<? extends List<? extends TObs>> sequences) {
+        return this.learn(initialHmm, this.getNbIterations(), sequences);
+    }
+
+    /**
+     * Performs one iteration of Viterbi training.
+     *
+     * @param hmm A previously estimated HMM. The given model is not modified.
+     * @param sequences The observation sequences on which the learning is
+     * based.
+     * @return A new, updated HMM.
+     * @throws IllegalArgumentException If there are no sequences.
+     */
+    public THmm iterate(THmm hmm, List<? extends List<? extends TObs>> sequences) {
+        if (sequences.isEmpty()) {
+            throw new IllegalArgumentException("No observation sequences");
+        }
+        RegularBaumWelchStatistics<TObs> statistics = decode(hmm, sequences);
+        THmm nhmm;
+        try {
+            nhmm = RegularHmmBase.deepClone(hmm);
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        statistics.apply(nhmm);
+        return nhmm;
+    }
+
+    /**
+     * Decodes the given sequences and gathers the hard statistics of the
+     * decoded state sequences. The sequences are split in contiguous chunks,
+     * one per thread.
+     *
+     * @param hmm The Hidden Markov Model the sequences are decoded with.
+     * @param sequences The observation sequences.
+     * @return The statistics of the decoded state sequences.
+     */
+    protected RegularBaumWelchStatistics<TObs> decode(final THmm hmm, final List<? extends List<? extends TObs>> sequences) {
+        int n = sequences.size();
+        int nbChunks = Math.min(this.nbThreads, n);
+        if (nbChunks <= 0x01) {
+            return decode(hmm, sequences, 0x00, n);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(nbChunks);
+        try {
+            List<Future<RegularBaumWelchStatistics<TObs>>> futures = new ArrayList<>(nbChunks);
+            for (int c = 0; c < nbChunks; c++) {
+                final int from = (int) ((long) n * c / nbChunks);
+                final int to = (int) ((long) n * (c + 1) / nbChunks);
+                futures.add(executor.submit(new Callable<RegularBaumWelchStatistics<TObs>>() {
+
+                    @Override
+                    public RegularBaumWelchStatistics<TObs> call() {
+                        return decode(hmm, sequences, from, to);
+                    }
+
+                }));
+            }
+            RegularBaumWelchStatistics<TObs> statistics = new RegularBaumWelchStatistics<>(hmm);
+            for (Future<RegularBaumWelchStatistics<TObs>> future : futures) {
+                statistics.merge(future.get());
+            }
+            return statistics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RegularBaumWelchStatistics<TObs> decode(THmm hmm, List<? extends List<? extends TObs>> sequences, int from, int to) {
+        RegularBaumWelchStatistics<TObs> statistics = new RegularBaumWelchStatistics<>(hmm);
+        for (int s = from; s < to; s++) {
+            List<? extends TObs> obsSeq = sequences.get(s);
+            RegularViterbiCalculatorBase viterbi = new RegularViterbiCalculatorBase(obsSeq, hmm);
+            statistics.addStateSequence(obsSeq, viterbi.stateSequence());
+            statistics.addLnProbability(viterbi.lnProbability());
+        }
+        return statistics;
+    }
+
+}
@@ -0,0 +1,22 @@
+package jahmm.learn;
+
+/**
+ * Objects implementing this interface determine the step sizes used by online
+ * (stepwise) learning algorithms to blend new statistics into the running
+ * statistics.
+ *
+ * @author kommusoft
+ */
+public interface StepSizeSchedule {
+
+    /**
+     * Returns the step size of the given update. A step size of one discards
+     * the running statistics, a step size close to zero hardly changes them.
+     *
+     * @param update The (zero-based) number of the update.
+     * @return The step size of the given update, between zero (exclusive) and
+     * one (inclusive).
+     */
+    public abstract double stepSize(int update);
+
+}
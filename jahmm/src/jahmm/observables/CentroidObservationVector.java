@@ -57,11 +57,12 @@ public class CentroidObservationVector implements Centroid<ObservationVector> {
      */
     @Override
     public double distance(ObservationVector e) {
-        ObservationVector diff = value.minus(e);
+        double[] evalues = e.value;
         double sum = 0.;
 
-        for (int i = 0; i < diff.dimension(); i++) {
-            sum += diff.value[i] * diff.value[i];
+        for (int i = 0; i < value.dimension(); i++) {
+            double diff = value.value[i] - evalues[i];
+            sum += diff * diff;
         }
 
         return Math.sqrt(sum);
@@ -0,0 +1,28 @@
+package jahmm.observables;
+
+/**
+ * Observations implementing this interface are points of a Euclidean space.
+ * Algorithms such as {@link jahmm.calculators.KMeansArrayCalculator k-means}
+ * copy the coordinates of such observations into primitive arrays and work on
+ * the arrays instead of the observation objects.
+ *
+ * @author kommusoft
+ */
+public interface CoordinateObservation extends Observation {
+
+    /**
+     * Returns the number of coordinates of this observation.
+     *
+     * @return The number of coordinates of this observation.
+     */
+    public abstract int dimension();
+
+    /**
+     * Copies the coordinates of this observation in the given array.
+     *
+     * @param target The array the coordinates are copied to.
+     * @param offset The index of the first coordinate in the target array.
+     */
+    public abstract void coordinates(double[] target, int offset);
+
+}
@@ -0,0 +1,77 @@
+package jahmm.observables;
+
+import jahmm.distributions.CovarianceMatrix;
+import java.util.Arrays;
+
+/**
+ * The structures the covariance matrix of an {@link OpdfMultiGaussian} can be
+ * restricted to.
+ *
+ * @author kommusoft
+ */
+public enum CovarianceStructure {
+
+    /**
+     * A full covariance matrix per distribution.
+     */
+    FULL,
+    /**
+     * A diagonal covariance matrix per distribution: the coordinates are
+     * independent.
+     */
+    DIAGONAL,
+    /**
+     * A multiple of the identity matrix per distribution: the coordinates are
+     * independent and share the same variance.
+     */
+    SPHERICAL,
+    /**
+     * A full covariance matrix shared by several distributions.
+     */
+    TIED;
+
+    /**
+     * Returns whether the covariance matrices with this structure only store
+     * their diagonal.
+     *
+     * @return True if the structure is diagonal or spherical.
+     */
+    public boolean isDiagonal() {
+        return this == DIAGONAL || this == SPHERICAL;
+    }
+
+    /**
+     * Creates the covariance matrix with this structure that maximizes the
+     * likelihood of a weighted scatter matrix. The matrix of a tied structure
+     * is estimated as a full matrix, since it is not pooled with the scatter
+     * of the other distributions.
+     *
+     * @param comoment The sum of the weighted outer products of the deviations
+     * from the mean. Only the diagonal is read for diagonal structures.
+     * @param weight The sum of the weights.
+     * @return A new covariance matrix.
+     */
+    CovarianceMatrix estimate(double[][] comoment, double weight) {
+        int d = comoment.length;
+        if (this.isDiagonal()) {
+            double[] variances = new double[d];
+            double sum = 0.0d;
+            for (int r = 0; r < d; r++) {
+                variances[r] = comoment[r][r] / weight;
+                sum += variances[r];
+            }
+            if (this == SPHERICAL) {
+                Arrays.fill(variances, sum / d);
+            }
+            return new CovarianceMatrix(variances);
+        }
+        double[][] result = new double[d][d];
+        for (int r = 0; r < d; r++) {
+            for (int c = 0; c < d; c++) {
+                result[r][c] = comoment[r][c] / weight;
+            }
+        }
+        return new CovarianceMatrix(result);
+    }
+
+}
@@ -0,0 +1,327 @@
+package jahmm.observables;
+
+import jahmm.RegularHmm;
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.distributions.MultiGaussianBank;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A packed snapshot of the opdfs of all the states of a Hidden Markov Model
+ * whose opdfs belong to the same family. The parameters of the states are
+ * stored contiguously, such that the probability of one observation given
+ * every state is computed in a single pass, instead of one virtual call per
+ * state.
+ * <p>
+ * A bank is built for models whose opdfs are all {@link OpdfGaussian} or all
+ * {@link OpdfMultiGaussian} objects of the same dimension (whatever their
+ * covariance structure), or all {@link OpdfTiedGaussianMixture} objects on the
+ * same codebook, in which case the Gaussians of the codebook are evaluated
+ * once per observation and combined with the proportions of every state. A
+ * bank does not follow later modifications of the model it was built from,
+ * and may hold scratch space: it must not be shared between threads.
+ *
+ * @author kommusoft
+ * @param <O> The type of observations.
+ */
+public abstract class EmissionBank<O extends Observation> {
+
+    private static final Logger LOG = Logger.getLogger(EmissionBank.class.getName());
+
+    /**
+     * Packs the opdfs of a Hidden Markov Model, if they belong to a supported
+     * family.
+     *
+     * @param <O> The type of observations.
+     * @param hmm The model.
+     * @return A bank with the opdfs of the states of the model, or
+     * <code>null</code> if the opdfs cannot be packed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <O extends Observation> EmissionBank<O> of(RegularHmm<O, ?> hmm) {
+        int s = hmm.nbStates();
+        if (s <= 0x00) {
+            return null;
+        }
+        Class<?> family = hmm.getOpdf(0x00).getClass();
+        for (int i = 1; i < s; i++) {
+            if (hmm.getOpdf(i).getClass() != family) {
+                return null;
+            }
+        }
+        if (family == OpdfGaussian.class) {
+            double[] means = new double[s];
+            double[] variances = new double[s];
+            for (int i = 0; i < s; i++) {
+                OpdfGaussian opdf = (OpdfGaussian) hmm.getOpdf(i);
+                means[i] = opdf.mean();
+                variances[i] = opdf.variance();
+            }
+            return (EmissionBank<O>) new GaussianBank(means, variances);
+        } else if (family == OpdfMultiGaussian.class) {
+            int d = ((OpdfMultiGaussian) hmm.getOpdf(0x00)).dimension();
+            double[][] means = new double[s][];
+            CovarianceMatrix[] covariances = new CovarianceMatrix[s];
+            for (int i = 0; i < s; i++) {
+                OpdfMultiGaussian opdf = (OpdfMultiGaussian) hmm.getOpdf(i);
+                if (opdf.dimension() != d) {
+                    return null;
+                }
+                means[i] = opdf.mean();
+                covariances[i] = opdf.covarianceMatrix();
+            }
+            return (EmissionBank<O>) new VectorBank(new MultiGaussianBank(means, covariances));
+        } else if (family == OpdfTiedGaussianMixture.class) {
+            GaussianCodebook codebook = ((OpdfTiedGaussianMixture) hmm.getOpdf(0x00)).codebook();
+            int n = codebook.size();
+            double[] proportions = new double[s * n];
+            for (int i = 0; i < s; i++) {
+                OpdfTiedGaussianMixture opdf = (OpdfTiedGaussianMixture) hmm.getOpdf(i);
+                if (opdf.codebook() != codebook) {
+                    return null;
+                }
+                System.arraycopy(opdf.proportions(), 0x00, proportions, i * n, n);
+            }
+            return (EmissionBank<O>) new TiedMixtureBank(codebook.snapshot(), proportions);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of states packed in this bank.
+     *
+     * @return The number of states packed in this bank.
+     */
+    public abstract int size();
+
+    /**
+     * Computes the logarithm of the probability of an observation given every
+     * state.
+     *
+     * @param o An observation.
+     * @param out An array of length {@link #size()} in which the logarithm of
+     * the probability of <code>o</code> given state <code>i</code> is stored at
+     * index <code>i</code>.
+     */
+    public abstract void logProbabilities(O o, double[] out);
+
+    /**
+     * Computes the probability of an observation given every state.
+     *
+     * @param o An observation.
+     * @param out An array of length {@link #size()} in which the probability of
+     * <code>o</code> given state <code>i</code> is stored at index
+     * <code>i</code>.
+     */
+    public void probabilities(O o, double[] out) {
+        this.logProbabilities(o, out);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Math.exp(out[i]);
+        }
+    }
+
+    /**
+     * Computes the logarithm of the probability of an observation of a
+     * sequence given every state. Packed sequences are read directly.
+     *
+     * @param sequence A sequence of observations.
+     * @param t The position of the observation in the sequence.
+     * @param out An array of length {@link #size()} in which the logarithm of
+     * the probability of the observation given state <code>i</code> is stored
+     * at index <code>i</code>.
+     */
+    public void logProbabilities(List<? extends O> sequence, int t, double[] out) {
+        this.logProbabilities(sequence.get(t), out);
+    }
+
+    /**
+     * Computes the probability of an observation of a sequence given every
+     * state. Packed sequences are read directly.
+     *
+     * @param sequence A sequence of observations.
+     * @param t The position of the observation in the sequence.
+     * @param out An array of length {@link #size()} in which the probability
+     * of the observation given state <code>i</code> is stored at index
+     * <code>i</code>.
+     */
+    public void probabilities(List<? extends O> sequence, int t, double[] out) {
+        this.probabilities(sequence.get(t), out);
+    }
+
+    private static double value(List<? extends ObservationReal> sequence, int t) {
+        if (sequence instanceof ObservationRealSequence) {
+            return ((ObservationRealSequence) sequence).value(t);
+        }
+        return sequence.get(t).value;
+    }
+
+    private static final class GaussianBank extends EmissionBank<ObservationReal> {
+
+        private final double[] means;
+        private final double[] halfPrecisions;
+        private final double[] logNormalizers;
+
+        GaussianBank(double[] means, double[] variances) {
+            this.means = means;
+            this.halfPrecisions = new double[means.length];
+            this.logNormalizers = new double[means.length];
+            for (int i = 0; i < means.length; i++) {
+                this.halfPrecisions[i] = 0.5d / variances[i];
+                this.logNormalizers[i] = -0.5d * Math.log(2.0d * Math.PI * variances[i]);
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.means.length;
+        }
+
+        @Override
+        public void logProbabilities(ObservationReal o, double[] out) {
+            this.logProbabilities(o.value, out);
+        }
+
+        @Override
+        public void logProbabilities(List<? extends ObservationReal> sequence, int t, double[] out) {
+            this.logProbabilities(value(sequence, t), out);
+        }
+
+        @Override
+        public void probabilities(List<? extends ObservationReal> sequence, int t, double[] out) {
+            this.logProbabilities(sequence, t, out);
+            for (int i = 0; i < out.length; i++) {
+                out[i] = Math.exp(out[i]);
+            }
+        }
+
+        private void logProbabilities(double x, double[] out) {
+            for (int i = 0; i < this.means.length; i++) {
+                double d = x - this.means[i];
+                out[i] = this.logNormalizers[i] - this.halfPrecisions[i] * d * d;
+            }
+        }
+
+    }
+
+    private static final class TiedMixtureBank extends EmissionBank<ObservationReal> {
+
+        private final GaussianCodebook.Snapshot codebook;
+        private final double[] proportions;
+        private final double[] densities;
+
+        TiedMixtureBank(GaussianCodebook.Snapshot codebook, double[] proportions) {
+            this.codebook = codebook;
+            this.proportions = proportions;
+            this.densities = new double[codebook.size()];
+        }
+
+        @Override
+        public int size() {
+            return this.proportions.length / this.densities.length;
+        }
+
+        /*
+         * Stores the densities of the Gaussians of the codebook, scaled by
+         * the largest one, and returns the logarithm of that scale.
+         */
+        private double densities(double x) {
+            double[] ds = this.densities;
+            this.codebook.logDensities(x, ds);
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < ds.length; k++) {
+                max = Math.max(max, ds[k]);
+            }
+            for (int k = 0; k < ds.length; k++) {
+                ds[k] = Math.exp(ds[k] - max);
+            }
+            return max;
+        }
+
+        @Override
+        public void logProbabilities(ObservationReal o, double[] out) {
+            this.logProbabilities(o.value, out);
+        }
+
+        @Override
+        public void probabilities(ObservationReal o, double[] out) {
+            this.probabilities(o.value, out);
+        }
+
+        @Override
+        public void logProbabilities(List<? extends ObservationReal> sequence, int t, double[] out) {
+            this.logProbabilities(value(sequence, t), out);
+        }
+
+        @Override
+        public void probabilities(List<? extends ObservationReal> sequence, int t, double[] out) {
+            this.probabilities(value(sequence, t), out);
+        }
+
+        private void logProbabilities(double x, double[] out) {
+            double scale = this.densities(x);
+            double[] ds = this.densities;
+            int n = ds.length;
+            for (int i = 0, p = 0x00; i < out.length; i++) {
+                double sum = 0.0d;
+                for (int k = 0; k < n; k++, p++) {
+                    sum += this.proportions[p] * ds[k];
+                }
+                out[i] = scale + Math.log(sum);
+            }
+        }
+
+        private void probabilities(double x, double[] out) {
+            double scale = Math.exp(this.densities(x));
+            double[] ds = this.densities;
+            int n = ds.length;
+            for (int i = 0, p = 0x00; i < out.length; i++) {
+                double sum = 0.0d;
+                for (int k = 0; k < n; k++, p++) {
+                    sum += this.proportions[p] * ds[k];
+                }
+                out[i] = scale * sum;
+            }
+        }
+
+    }
+
+    private static final class VectorBank extends EmissionBank<ObservationVector> {
+
+        private final MultiGaussianBank bank;
+
+        VectorBank(MultiGaussianBank bank) {
+            this.bank = bank;
+        }
+
+        @Override
+        public int size() {
+            return this.bank.size();
+        }
+
+        @Override
+        public void logProbabilities(ObservationVector o, double[] out) {
+            if (o.dimension() != this.bank.dimension()) {
+                throw new IllegalArgumentException("Vector has a wrong dimension");
+            }
+            this.bank.logDensities(o.value, out);
+        }
+
+        @Override
+        public void logProbabilities(List<? extends ObservationVector> sequence, int t, double[] out) {
+            if (sequence instanceof ObservationVectorSequence) {
+                ObservationVectorSequence packed = (ObservationVectorSequence) sequence;
+                if (packed.dimension() != this.bank.dimension()) {
+                    throw new IllegalArgumentException("Vector has a wrong dimension");
+                }
+                if (t >= packed.size()) {
+                    throw new IndexOutOfBoundsException();
+                }
+                this.bank.logDensities(packed.values, t * packed.dimension(), out);
+            } else {
+                this.logProbabilities(sequence.get(t), out);
+            }
+        }
+
+    }
+
+}
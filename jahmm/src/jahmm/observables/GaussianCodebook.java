@@ -0,0 +1,306 @@
+package jahmm.observables;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A pool of mono variate Gaussian distributions shared by the states of a
+ * semi-continuous (tied-mixture) Hidden Markov Model: every
+ * {@link OpdfTiedGaussianMixture} built on the same codebook is a mixture of
+ * the Gaussians of the codebook and only holds its own mixing proportions.
+ * <p>
+ * Fitting a tied mixture pools its statistics into the codebook. As for a tied
+ * {@link jahmm.distributions.CovarianceMatrix}, the contributions are summed
+ * until the codebook is evaluated again, at which point the Gaussians are
+ * replaced by the pooled estimate; the mixtures fitted in between all see the
+ * same Gaussians.
+ * <p>
+ * The codebook remembers the logarithmic densities of the last list of
+ * observations it evaluated, such that the mixtures fitted one after the other
+ * on the same observations evaluate every Gaussian once per observation.
+ *
+ * @author kommusoft
+ */
+public final class GaussianCodebook implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(GaussianCodebook.class.getName());
+
+    private final double[] means;
+    private final double[] variances;
+    private transient double[] pooledWeights;
+    private transient double[] pooledMeans;
+    private transient double[] pooledMoments;
+    private transient volatile Snapshot snapshot;
+    private transient Snapshot estimation;
+    private transient volatile Table table;
+
+    /**
+     * Creates a codebook of Gaussians whose means are evenly distributed
+     * between 0 and 1 and whose variances equal 1.
+     *
+     * @param size The number of Gaussians of the codebook.
+     */
+    public GaussianCodebook(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
+        this.means = new double[size];
+        this.variances = new double[size];
+        for (int k = 0; k < size; k++) {
+            this.means[k] = (1.0d + 2.0d * k) / (2.0d * size);
+        }
+        Arrays.fill(this.variances, 1.0d);
+    }
+
+    /**
+     * Creates a codebook with the given Gaussians.
+     *
+     * @param means The mean values of the Gaussians.
+     * @param variances The variances of the Gaussians.
+     */
+    public GaussianCodebook(double[] means, double[] variances) {
+        if (means.length == 0 || means.length != variances.length) {
+            throw new IllegalArgumentException();
+        }
+        for (double variance : variances) {
+            if (variance <= 0.0d) {
+                throw new IllegalArgumentException("Variance must be strictly positive");
+            }
+        }
+        this.means = means.clone();
+        this.variances = variances.clone();
+    }
+
+    /**
+     * Returns the number of Gaussians of this codebook.
+     *
+     * @return The number of Gaussians of this codebook.
+     */
+    public int size() {
+        return this.means.length;
+    }
+
+    /**
+     * Returns the mean values of the Gaussians of this codebook.
+     *
+     * @return A copy of the means.
+     */
+    public synchronized double[] means() {
+        this.flush();
+        return this.means.clone();
+    }
+
+    /**
+     * Returns the variances of the Gaussians of this codebook.
+     *
+     * @return A copy of the variances.
+     */
+    public synchronized double[] variances() {
+        this.flush();
+        return this.variances.clone();
+    }
+
+    /**
+     * Creates an independent copy of this codebook, applying the pooled
+     * estimate first.
+     *
+     * @return A new codebook with the same Gaussians.
+     */
+    public synchronized GaussianCodebook copy() {
+        this.flush();
+        return new GaussianCodebook(this.means, this.variances);
+    }
+
+    /**
+     * Adds the statistics of one mixture to the pooled estimate of this
+     * codebook. The statistics are merged with those already pooled.
+     *
+     * @param weights The weight attributed to every Gaussian.
+     * @param means The weighted mean of the observations attributed to every
+     * Gaussian.
+     * @param moments The weighted sum of the squared deviations from that mean
+     * of the observations attributed to every Gaussian.
+     */
+    public synchronized void pool(double[] weights, double[] means, double[] moments) {
+        int n = this.means.length;
+        if (weights.length != n || means.length != n || moments.length != n) {
+            throw new IllegalArgumentException("Statistics have a wrong size");
+        }
+        if (this.pooledWeights == null) {
+            this.estimation = this.snapshot != null ? this.snapshot : new Snapshot(this.means, this.variances);
+            this.pooledWeights = new double[n];
+            this.pooledMeans = new double[n];
+            this.pooledMoments = new double[n];
+        }
+        for (int k = 0; k < n; k++) {
+            if (weights[k] <= 0.0d) {
+                continue;
+            }
+            double total = this.pooledWeights[k] + weights[k];
+            double delta = means[k] - this.pooledMeans[k];
+            this.pooledMoments[k] += moments[k] + delta * delta * this.pooledWeights[k] * weights[k] / total;
+            this.pooledMeans[k] += delta * weights[k] / total;
+            this.pooledWeights[k] = total;
+        }
+        this.snapshot = null;
+    }
+
+    /**
+     * Returns the current Gaussians of this codebook, applying the pooled
+     * estimate first.
+     */
+    Snapshot snapshot() {
+        Snapshot s = this.snapshot;
+        if (s == null) {
+            s = this.refresh();
+        }
+        return s;
+    }
+
+    /**
+     * Returns the Gaussians of this codebook without applying the pooled
+     * estimate, such that all the mixtures fitted in one iteration see the
+     * same Gaussians.
+     */
+    synchronized Snapshot estimationSnapshot() {
+        if (this.pooledWeights == null) {
+            return this.snapshot();
+        }
+        return this.estimation;
+    }
+
+    /**
+     * Returns the logarithmic densities of a list of observations under the
+     * Gaussians of {@link #estimationSnapshot()}, reusing the table of the last
+     * call if it was computed for the same observations and Gaussians.
+     */
+    double[][] logDensities(List<? extends ObservationReal> observations) {
+        Snapshot s = this.estimationSnapshot();
+        Table t = this.table;
+        if (t != null && t.matches(observations, s)) {
+            return t.logDensities;
+        }
+        t = new Table(observations, s);
+        this.table = t;
+        return t.logDensities;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        this.flush();
+        out.defaultWriteObject();
+    }
+
+    private synchronized Snapshot refresh() {
+        this.flush();
+        Snapshot s = this.snapshot;
+        if (s == null) {
+            s = new Snapshot(this.means, this.variances);
+            this.snapshot = s;
+        }
+        return s;
+    }
+
+    /**
+     * Replaces the Gaussians by the pooled estimate. A Gaussian that received
+     * no weight, or whose variance would vanish, keeps its parameters.
+     */
+    private void flush() {
+        if (this.pooledWeights != null) {
+            for (int k = 0; k < this.means.length; k++) {
+                double w = this.pooledWeights[k];
+                if (w > 0.0d && this.pooledMoments[k] > 0.0d) {
+                    this.means[k] = this.pooledMeans[k];
+                    this.variances[k] = this.pooledMoments[k] / w;
+                }
+            }
+            this.pooledWeights = null;
+            this.pooledMeans = null;
+            this.pooledMoments = null;
+            this.estimation = null;
+            this.snapshot = null;
+        }
+    }
+
+    /**
+     * An immutable copy of the Gaussians of a codebook, stored in parallel
+     * arrays.
+     */
+    static final class Snapshot {
+
+        final double[] means;
+        final double[] variances;
+        private final double[] halfPrecisions;
+        private final double[] logNormalizers;
+
+        Snapshot(double[] means, double[] variances) {
+            int n = means.length;
+            this.means = means.clone();
+            this.variances = variances.clone();
+            this.halfPrecisions = new double[n];
+            this.logNormalizers = new double[n];
+            for (int k = 0; k < n; k++) {
+                this.halfPrecisions[k] = 0.5d / variances[k];
+                this.logNormalizers[k] = -0.5d * Math.log(2.0d * Math.PI * variances[k]);
+            }
+        }
+
+        int size() {
+            return this.means.length;
+        }
+
+        /**
+         * Computes the logarithmic density of a value under every Gaussian.
+         */
+        void logDensities(double x, double[] out) {
+            for (int k = 0; k < this.means.length; k++) {
+                double d = x - this.means[k];
+                out[k] = this.logNormalizers[k] - this.halfPrecisions[k] * d * d;
+            }
+        }
+
+    }
+
+    /**
+     * The logarithmic densities of a list of observations under a snapshot.
+     * The list is referenced weakly, and its elements are compared by identity
+     * since observations are immutable.
+     */
+    private static final class Table {
+
+        private final WeakReference<List<? extends ObservationReal>> list;
+        private final ObservationReal[] observations;
+        private final Snapshot snapshot;
+        final double[][] logDensities;
+
+        Table(List<? extends ObservationReal> list, Snapshot snapshot) {
+            this.list = new WeakReference<List<? extends ObservationReal>>(list);
+            this.observations = list.toArray(new ObservationReal[list.size()]);
+            this.snapshot = snapshot;
+            this.logDensities = new double[this.observations.length][snapshot.size()];
+            for (int t = 0; t < this.observations.length; t++) {
+                snapshot.logDensities(this.observations[t].value, this.logDensities[t]);
+            }
+        }
+
+        boolean matches(List<? extends ObservationReal> list, Snapshot snapshot) {
+            if (this.list.get() != list || this.snapshot != snapshot || list.size() != this.observations.length) {
+                return false;
+            }
+            int t = 0;
+            for (ObservationReal o : list) {
+                if (o != this.observations[t++]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,231 @@
+package jahmm.observables;
+
+import jahmm.InputHmm;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A sequence of interactions that is encoded against the input register of an
+ * input Hidden Markov Model: the inputs are stored as an array of input
+ * indices and the observations as an array. Sequences are created by an
+ * {@link InputObservationSequenceEncoder}.
+ * <p>
+ * The calculators, learners and generators of input Hidden Markov Models
+ * recognize encoded sequences and use the input indices directly, such that
+ * they never look up an input in the register. An encoded sequence remains
+ * valid for the model it was encoded against, its clones and the models
+ * learned from it, as long as no input is split or merged.
+ * <p>
+ * The sequence is also a (read-only) list of interactions, such that it can be
+ * used wherever a list of {@link InputObservationTuple} is expected; every
+ * call to {@link #get(int)} creates a new tuple.
+ *
+ * @author kommusoft
+ * @param <TIn> The type of inputs.
+ * @param <TObs> The type of observations.
+ */
+public class InputObservationSequence<TIn, TObs extends Observation> extends AbstractList<InputObservationTuple<TIn, TObs>> implements RandomAccess {
+
+    /**
+     * Returns the input indices of the given sequence of interactions. If the
+     * sequence is encoded, its indices are returned without a copy; otherwise
+     * the input of every interaction is looked up once.
+     *
+     * @param <TIn> The type of inputs.
+     * @param <TObs> The type of observations.
+     * @param hmm The model whose input register is used.
+     * @param sequence The sequence of interactions.
+     * @return The input index of every interaction. The array must not be
+     * modified.
+     */
+    public static <TIn, TObs extends Observation> int[] inputIndices(InputHmm<TObs, TIn, ?> hmm, Collection<? extends InputObservationTuple<TIn, TObs>> sequence) {
+        if (sequence instanceof InputObservationSequence) {
+            return ((InputObservationSequence<?, ?>) sequence).inputs;
+        }
+        int[] indices = new int[sequence.size()];
+        Iterator<? extends InputObservationTuple<TIn, TObs>> iterator = sequence.iterator();
+        for (int t = 0; t < indices.length; t++) {
+            indices[t] = hmm.getInputIndex(iterator.next().getInput());
+        }
+        return indices;
+    }
+
+    /**
+     * Computes the probability of every observation of the given sequence for
+     * every state: <code>emissions[t][i]</code> is the probability of the
+     * observation at time <code>t</code> given state <code>i</code> and the
+     * input at time <code>t</code>. The time steps are grouped by input, such
+     * that the opdf of every state and input evaluates its observations in
+     * bulk.
+     *
+     * @param <TIn> The type of inputs.
+     * @param <TObs> The type of observations.
+     * @param hmm The model.
+     * @param sequence The sequence of interactions.
+     * @param inputs The input indices of the sequence.
+     * @return The emission probabilities of the sequence.
+     */
+    public static <TIn, TObs extends Observation> double[][] emissions(InputHmm<TObs, TIn, ?> hmm, Collection<? extends InputObservationTuple<TIn, TObs>> sequence, int[] inputs) {
+        int s = hmm.nbStates();
+        int T = inputs.length;
+        double[][] emissions = new double[T][s];
+        Object[] observations;
+        if (sequence instanceof InputObservationSequence) {
+            observations = ((InputObservationSequence<?, ?>) sequence).observations;
+        } else {
+            observations = new Object[T];
+            Iterator<? extends InputObservationTuple<TIn, TObs>> iterator = sequence.iterator();
+            for (int t = 0; t < T; t++) {
+                observations[t] = iterator.next().getObservation();
+            }
+        }
+        int nbInputs = 0x00;
+        for (int t = 0; t < T; t++) {
+            nbInputs = Math.max(nbInputs, inputs[t] + 0x01);
+        }
+        // bucket the time steps by input (counting sort)
+        int[] offsets = new int[nbInputs + 0x01];
+        for (int t = 0; t < T; t++) {
+            offsets[inputs[t] + 0x01]++;
+        }
+        for (int x = 0; x < nbInputs; x++) {
+            offsets[x + 0x01] += offsets[x];
+        }
+        int[] positions = new int[T];
+        int[] next = Arrays.copyOf(offsets, nbInputs);
+        for (int t = 0; t < T; t++) {
+            positions[next[inputs[t]]++] = t;
+        }
+        List<TObs> buckets = new Buckets<>(observations, positions);
+        double[] column = new double[T];
+        for (int x = 0; x < nbInputs; x++) {
+            int from = offsets[x], to = offsets[x + 0x01];
+            if (from == to) {
+                continue;
+            }
+            for (int i = 0; i < s; i++) {
+                hmm.getOpdf(i, x).probabilities(buckets, from, to, column);
+                for (int k = 0, u = from; u < to; k++, u++) {
+                    emissions[positions[u]][i] = column[k];
+                }
+            }
+        }
+        return emissions;
+    }
+
+    /**
+     * A read-only view on the observations, ordered by a permutation of their
+     * positions.
+     */
+    private static final class Buckets<TObs> extends AbstractList<TObs> implements RandomAccess {
+
+        private final Object[] observations;
+        private final int[] positions;
+
+        Buckets(Object[] observations, int[] positions) {
+            this.observations = observations;
+            this.positions = positions;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public TObs get(int index) {
+            return (TObs) this.observations[this.positions[index]];
+        }
+
+        @Override
+        public int size() {
+            return this.positions.length;
+        }
+
+    }
+
+    private final Object[] symbols;
+    private final int[] inputs;
+    private final Object[] observations;
+
+    /**
+     * Creates a new encoded sequence. The arrays are not copied.
+     *
+     * @param symbols The input of every input index.
+     * @param inputs The input index of every interaction.
+     * @param observations The observation of every interaction.
+     */
+    InputObservationSequence(Object[] symbols, int[] inputs, Object[] observations) {
+        if (inputs.length != observations.length) {
+            throw new IllegalArgumentException("Wrong dimensions");
+        }
+        this.symbols = symbols;
+        this.inputs = inputs;
+        this.observations = observations;
+    }
+
+    @Override
+    public int size() {
+        return this.inputs.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public InputObservationTuple<TIn, TObs> get(int t) {
+        return new InputObservationTuple<>((TIn) this.symbols[this.inputs[t]], (TObs) this.observations[t]);
+    }
+
+    /**
+     * Returns the input index of the interaction at the given time.
+     *
+     * @param t The time of the interaction.
+     * @return The input index of the interaction.
+     */
+    public int getInputIndex(int t) {
+        return this.inputs[t];
+    }
+
+    /**
+     * Returns the input of the interaction at the given time.
+     *
+     * @param t The time of the interaction.
+     * @return The input of the interaction.
+     */
+    @SuppressWarnings("unchecked")
+    public TIn getInput(int t) {
+        return (TIn) this.symbols[this.inputs[t]];
+    }
+
+    /**
+     * Returns the observation of the interaction at the given time.
+     *
+     * @param t The time of the interaction.
+     * @return The observation of the interaction.
+     */
+    @SuppressWarnings("unchecked")
+    public TObs getObservation(int t) {
+        return (TObs) this.observations[t];
+    }
+
+    /**
+     * Returns a (read-only) view on the observations of the sequence.
+     *
+     * @return The observations of the sequence.
+     */
+    public List<TObs> getObservations() {
+        return new AbstractList<TObs>() {
+
+            @Override
+            public TObs get(int t) {
+                return getObservation(t);
+            }
+
+            @Override
+            public int size() {
+                return inputs.length;
+            }
+
+        };
+    }
+
+}
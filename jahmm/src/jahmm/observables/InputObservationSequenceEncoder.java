@@ -0,0 +1,105 @@
+package jahmm.observables;
+
+import jahmm.InputHmm;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes sequences of interactions against the input register of an input
+ * Hidden Markov Model (see {@link InputObservationSequence}). The register is
+ * copied once when the encoder is created, such that many sequences can be
+ * encoded at ingest time.
+ *
+ * @author kommusoft
+ * @param <TIn> The type of inputs.
+ * @param <TObs> The type of observations.
+ */
+public class InputObservationSequenceEncoder<TIn, TObs extends Observation> {
+
+    private final HashMap<TIn, Integer> indices;
+    private final Object[] symbols;
+
+    /**
+     * Creates an encoder for the input register of the given model.
+     *
+     * @param hmm The model whose input register is used.
+     */
+    public InputObservationSequenceEncoder(InputHmm<TObs, TIn, ?> hmm) {
+        this.indices = new HashMap<>();
+        int n = hmm.nbSymbols();
+        for (TIn input : hmm.getRegisteredInputs()) {
+            int index = hmm.getInputIndex(input);
+            this.indices.put(input, index);
+            n = Math.max(n, index + 0x01);
+        }
+        this.symbols = new Object[n];
+        for (Map.Entry<TIn, Integer> entry : this.indices.entrySet()) {
+            this.symbols[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * Encodes a single sequence of interactions.
+     *
+     * @param sequence The sequence of interactions.
+     * @return The encoded sequence.
+     * @throws IllegalArgumentException If an input of the sequence is not
+     * registered by the model.
+     */
+    public InputObservationSequence<TIn, TObs> encode(List<? extends InputObservationTuple<TIn, TObs>> sequence) {
+        int n = sequence.size();
+        int[] inputs = new int[n];
+        Object[] observations = new Object[n];
+        Iterator<? extends InputObservationTuple<TIn, TObs>> iterator = sequence.iterator();
+        for (int t = 0; t < n; t++) {
+            InputObservationTuple<TIn, TObs> interaction = iterator.next();
+            Integer index = this.indices.get(interaction.getInput());
+            if (index == null) {
+                throw new IllegalArgumentException("Unregistered input: " + interaction.getInput());
+            }
+            inputs[t] = index;
+            observations[t] = interaction.getObservation();
+        }
+        return new InputObservationSequence<>(this.symbols, inputs, observations);
+    }
+
+    /**
+     * Creates an encoded sequence from input indices that were already
+     * resolved against the input register of the model, for instance by a
+     * generator. The arrays are not copied.
+     *
+     * @param inputs The input index of every interaction.
+     * @param observations The observation of every interaction.
+     * @return The encoded sequence.
+     * @throws IllegalArgumentException If the lengths differ or an input index
+     * does not belong to a registered input.
+     */
+    public InputObservationSequence<TIn, TObs> encode(int[] inputs, List<? extends TObs> observations) {
+        for (int k : inputs) {
+            if (k < 0x00 || k >= this.symbols.length || this.symbols[k] == null) {
+                throw new IllegalArgumentException("Unregistered input index: " + k);
+            }
+        }
+        return new InputObservationSequence<>(this.symbols, inputs, observations.toArray());
+    }
+
+    /**
+     * Encodes a list of sequences of interactions.
+     *
+     * @param sequences The sequences of interactions.
+     * @return The encoded sequences.
+     * @throws IllegalArgumentException If an input of a sequence is not
+     * registered by the model.
+     */
+    public List<InputObservationSequence<TIn, TObs>> encodeAll(List<? extends List<? extends InputObservationTuple<TIn, TObs>>> sequences) {
+        List<InputObservationSequence<TIn, TObs>> result = new ArrayList<>(sequences.size());
+        for (List<? extends InputObservationTuple<TIn, TObs>> sequence : sequences) {
+            result.add(this.encode(sequence));
+        }
+        return result;
+    }
+
+}
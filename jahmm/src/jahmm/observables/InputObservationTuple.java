@@ -9,6 +9,8 @@ import jutlis.tuples.Tuple2Base;
  */
 public class InputObservationTuple<TInput, TObservation extends Observation> extends Tuple2Base<TInput, TObservation> implements Observation {
 
+    private static final long serialVersionUID = 1L;
+
     public InputObservationTuple(TInput item1, TObservation item2) {
         super(item1, item2);
     }
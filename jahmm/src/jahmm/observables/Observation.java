@@ -5,11 +5,14 @@
 package jahmm.observables;
 
 import jahmm.io.INumberFormatString;
+import java.io.Serializable;
 
 /**
  * Observations generated by a Markovian process. Observations are not mutable.
+ * Observations are serializable such that they can be shipped to other
+ * processes together with the observation distributions.
  */
-public interface Observation extends INumberFormatString {
+public interface Observation extends INumberFormatString, Serializable {
 
     /**
      * Converts this Observation to a {@link java.lang.String String}.
@@ -9,6 +9,8 @@ import java.text.NumberFormat;
  */
 public abstract class ObservationBase<TType> implements TypedObservation<TType> {
 
+    private static final long serialVersionUID = 1L;
+
     @Override
     public String toString() {
         return this.toString(NumberFormat.getInstance());
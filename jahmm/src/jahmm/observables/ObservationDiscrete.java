@@ -10,6 +10,7 @@ import java.util.logging.Logger;
  */
 public class ObservationDiscrete<TDiscrete> extends ObservationBase<TDiscrete> {
 
+    private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger(ObservationDiscrete.class.getName());
 
     /**
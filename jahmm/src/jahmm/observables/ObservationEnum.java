@@ -15,6 +15,7 @@ import java.util.logging.Logger;
  */
 public final class ObservationEnum<TEnum extends Enum<TEnum>> extends ObservationBase<TEnum> {
 
+    private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger(ObservationEnum.class.getName());
 
     /**
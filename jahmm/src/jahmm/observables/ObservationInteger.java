@@ -9,7 +9,9 @@ import java.text.NumberFormat;
 /**
  * This class holds an integer observation.
  */
-public final class ObservationInteger extends ObservationBase<Integer> implements CentroidFactory<ObservationInteger> {
+public final class ObservationInteger extends ObservationBase<Integer> implements CentroidFactory<ObservationInteger>, CoordinateObservation {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The observation's value.
@@ -35,6 +37,16 @@ public final class ObservationInteger extends ObservationBase<Integer> implement
         return new CentroidObservationInteger(this);
     }
 
+    @Override
+    public int dimension() {
+        return 0x01;
+    }
+
+    @Override
+    public void coordinates(double[] target, int offset) {
+        target[offset] = value;
+    }
+
     @Override
     public String toString(NumberFormat numberFormat) {
         return numberFormat.format(value);
@@ -0,0 +1,114 @@
+package jahmm.observables;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+/**
+ * A sequence of integer observations stored as an array of <code>int</code>s.
+ * <p>
+ * The sequence is also a (read-only) list of {@link ObservationInteger}s, such
+ * that it can be used wherever a list of integer observations is expected;
+ * every call to {@link #get(int)} creates a new observation. The discrete
+ * engine ({@link jahmm.DiscreteHmm} and its calculators and learner) reads
+ * the array directly.
+ *
+ * @author kommusoft
+ */
+public class ObservationIntegerSequence extends AbstractList<ObservationInteger> implements RandomAccess {
+
+    /**
+     * Returns the given observations as an integer sequence. An integer
+     * sequence is returned as is; otherwise the values are copied.
+     *
+     * @param observations A sequence of integer observations.
+     * @return An integer sequence with the values of the observations.
+     */
+    public static ObservationIntegerSequence of(Collection<? extends ObservationInteger> observations) {
+        if (observations instanceof ObservationIntegerSequence) {
+            return (ObservationIntegerSequence) observations;
+        }
+        int[] values = new int[observations.size()];
+        Iterator<? extends ObservationInteger> iterator = observations.iterator();
+        for (int t = 0; t < values.length; t++) {
+            values[t] = iterator.next().value;
+        }
+        return new ObservationIntegerSequence(values, values.length);
+    }
+
+    private final int[] values;
+    private final int size;
+
+    /**
+     * Creates a new sequence with the given values.
+     *
+     * @param values The values of the observations. The array is copied.
+     */
+    public ObservationIntegerSequence(int... values) {
+        this(values.clone(), values.length);
+    }
+
+    /**
+     * Creates a new sequence on the first values of an array. The array is not
+     * copied and must not be modified afterwards.
+     *
+     * @param values The values of the observations.
+     * @param size The number of values of the sequence.
+     */
+    public ObservationIntegerSequence(int[] values, int size) {
+        if (size < 0x00 || size > values.length) {
+            throw new IllegalArgumentException("Wrong size");
+        }
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Returns the value of the observation at a given position.
+     *
+     * @param t The position of the observation.
+     * @return The value of the observation at position <code>t</code>.
+     */
+    public int value(int t) {
+        if (t >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.values[t];
+    }
+
+    /**
+     * Returns the values of this sequence.
+     *
+     * @return A copy of the values of this sequence.
+     */
+    public int[] values() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    /**
+     * Returns the largest value of this sequence plus one, that is the minimal
+     * number of symbols of a model that emits this sequence.
+     *
+     * @return The number of symbols this sequence requires.
+     */
+    public int nbSymbols() {
+        int max = -0x01;
+        for (int t = 0; t < this.size; t++) {
+            max = Math.max(max, this.values[t]);
+        }
+        return max + 0x01;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public ObservationInteger get(int t) {
+        return new ObservationInteger(this.value(t));
+    }
+
+}
@@ -9,7 +9,9 @@ import java.text.NumberFormat;
 /**
  * This class implements observations made of a real value.
  */
-public final class ObservationReal extends ObservationBase<Double> implements CentroidFactory<ObservationReal> {
+public final class ObservationReal extends ObservationBase<Double> implements CentroidFactory<ObservationReal>, CoordinateObservation {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The observation's value.
@@ -35,6 +37,16 @@ public final class ObservationReal extends ObservationBase<Double> implements Ce
         return new CentroidObservationReal(this);
     }
 
+    @Override
+    public int dimension() {
+        return 0x01;
+    }
+
+    @Override
+    public void coordinates(double[] target, int offset) {
+        target[offset] = value;
+    }
+
     @Override
     public String toString(NumberFormat numberFormat) {
         return numberFormat.format(value);
@@ -0,0 +1,130 @@
+package jahmm.observables;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+/**
+ * A sequence of real observations stored as a single array of
+ * <code>double</code>s.
+ * <p>
+ * The sequence is also a (read-only) list of {@link ObservationReal}s, such
+ * that it can be used wherever a list of real observations is expected; every
+ * call to {@link #get(int)} creates a new observation. The opdfs, the emission
+ * banks and the learners read the array directly.
+ *
+ * @author kommusoft
+ */
+public class ObservationRealSequence extends AbstractList<ObservationReal> implements RandomAccess {
+
+    /**
+     * Returns the given observations as a real sequence. A real sequence is
+     * returned as is; otherwise the values are copied.
+     *
+     * @param observations A sequence of real observations.
+     * @return A real sequence with the values of the observations.
+     */
+    public static ObservationRealSequence of(Collection<? extends ObservationReal> observations) {
+        if (observations instanceof ObservationRealSequence) {
+            return (ObservationRealSequence) observations;
+        }
+        double[] values = new double[observations.size()];
+        Iterator<? extends ObservationReal> iterator = observations.iterator();
+        for (int t = 0; t < values.length; t++) {
+            values[t] = iterator.next().value;
+        }
+        return new ObservationRealSequence(values, values.length);
+    }
+
+    /**
+     * Concatenates real sequences.
+     *
+     * @param sequences The sequences to concatenate.
+     * @return A sequence with the values of all the given sequences.
+     */
+    public static ObservationRealSequence concat(Collection<? extends ObservationRealSequence> sequences) {
+        int size = 0x00;
+        for (ObservationRealSequence sequence : sequences) {
+            size += sequence.size;
+        }
+        double[] values = new double[size];
+        int offset = 0x00;
+        for (ObservationRealSequence sequence : sequences) {
+            System.arraycopy(sequence.values, 0x00, values, offset, sequence.size);
+            offset += sequence.size;
+        }
+        return new ObservationRealSequence(values, size);
+    }
+
+    final double[] values;
+    private final int size;
+
+    /**
+     * Creates a new sequence with the given values.
+     *
+     * @param values The values of the observations. The array is copied.
+     */
+    public ObservationRealSequence(double... values) {
+        this(values.clone(), values.length);
+    }
+
+    /**
+     * Creates a new sequence on the first values of an array. The array is not
+     * copied and must not be modified afterwards.
+     *
+     * @param values The values of the observations.
+     * @param size The number of values of the sequence.
+     */
+    public ObservationRealSequence(double[] values, int size) {
+        if (size < 0x00 || size > values.length) {
+            throw new IllegalArgumentException("Wrong size");
+        }
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Returns the value of the observation at a given position.
+     *
+     * @param t The position of the observation.
+     * @return The value of the observation at position <code>t</code>.
+     */
+    public double value(int t) {
+        if (t >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.values[t];
+    }
+
+    /**
+     * Returns the values of this sequence.
+     *
+     * @return A copy of the values of this sequence.
+     */
+    public double[] values() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    /**
+     * Copies the values of this sequence in an array.
+     *
+     * @param target The array in which the values are stored.
+     * @param offset The index at which the first value is stored.
+     */
+    public void coordinates(double[] target, int offset) {
+        System.arraycopy(this.values, 0x00, target, offset, this.size);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public ObservationReal get(int t) {
+        return new ObservationReal(this.value(t));
+    }
+
+}
@@ -5,11 +5,14 @@
 package jahmm.observables;
 
 import java.text.NumberFormat;
+import java.util.List;
 
 /**
  * This class holds an Observation described by a vector of reals.
  */
-public final class ObservationVector extends ObservationBase<double[]> implements Cloneable, CentroidFactory<ObservationVector> {
+public final class ObservationVector extends ObservationBase<double[]> implements Cloneable, CentroidFactory<ObservationVector>, CoordinateObservation {
+
+    private static final long serialVersionUID = 1L;
 
     final double[] value;
 
@@ -42,10 +45,32 @@ public final class ObservationVector extends ObservationBase<double[]> implement
      *
      * @return
      */
+    @Override
     public int dimension() {
         return value.length;
     }
 
+    /**
+     * Gathers the (uncopied) values of a range of vectors in an array.
+     *
+     * @param sequence A sequence of vectors.
+     * @param from The index of the first vector of the range (inclusive).
+     * @param to The index of the last vector of the range (exclusive).
+     * @return An array holding the values of the vectors of the range.
+     */
+    static double[][] values(List<? extends ObservationVector> sequence, int from, int to) {
+        double[][] values = new double[to - from][];
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            values[k] = sequence.get(t).value;
+        }
+        return values;
+    }
+
+    @Override
+    public void coordinates(double[] target, int offset) {
+        System.arraycopy(value, 0x00, target, offset, value.length);
+    }
+
     /**
      * Returns the values composing this observation.
      *
@@ -0,0 +1,173 @@
+package jahmm.observables;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A sequence of vector observations of the same dimension stored as a single
+ * array of <code>double</code>s, vector after vector: component
+ * <code>i</code> of the vector at position <code>t</code> is at index
+ * <code>t * dimension() + i</code>.
+ * <p>
+ * The sequence is also a (read-only) list of {@link ObservationVector}s, such
+ * that it can be used wherever a list of vector observations is expected;
+ * every call to {@link #get(int)} creates a new observation. The opdfs, the
+ * emission banks and the learners read the array directly.
+ *
+ * @author kommusoft
+ */
+public class ObservationVectorSequence extends AbstractList<ObservationVector> implements RandomAccess {
+
+    /**
+     * Returns the given observations as a vector sequence. A vector sequence is
+     * returned as is; otherwise the values are copied.
+     *
+     * @param observations A non-empty sequence of vector observations of the
+     * same dimension.
+     * @return A vector sequence with the values of the observations.
+     */
+    public static ObservationVectorSequence of(Collection<? extends ObservationVector> observations) {
+        if (observations instanceof ObservationVectorSequence) {
+            return (ObservationVectorSequence) observations;
+        }
+        if (observations.isEmpty()) {
+            throw new IllegalArgumentException("Invalid empty sequence");
+        }
+        int d = observations.iterator().next().dimension();
+        double[] values = new double[observations.size() * d];
+        int offset = 0x00;
+        for (ObservationVector o : observations) {
+            if (o.dimension() != d) {
+                throw new IllegalArgumentException("Vectors have different dimensions");
+            }
+            System.arraycopy(o.value, 0x00, values, offset, d);
+            offset += d;
+        }
+        return new ObservationVectorSequence(d, values, observations.size());
+    }
+
+    /**
+     * Concatenates vector sequences of the same dimension.
+     *
+     * @param dimension The dimension of the vectors.
+     * @param sequences The sequences to concatenate.
+     * @return A sequence with the vectors of all the given sequences.
+     */
+    public static ObservationVectorSequence concat(int dimension, Collection<? extends ObservationVectorSequence> sequences) {
+        int size = 0x00;
+        for (ObservationVectorSequence sequence : sequences) {
+            if (sequence.dimension != dimension) {
+                throw new IllegalArgumentException("Vectors have different dimensions");
+            }
+            size += sequence.size;
+        }
+        double[] values = new double[size * dimension];
+        int offset = 0x00;
+        for (ObservationVectorSequence sequence : sequences) {
+            sequence.coordinates(values, offset);
+            offset += sequence.size * dimension;
+        }
+        return new ObservationVectorSequence(dimension, values, size);
+    }
+
+    final double[] values;
+    private final int dimension;
+    private final int size;
+
+    /**
+     * Creates a new sequence with the given values.
+     *
+     * @param dimension The (strictly positive) dimension of the vectors.
+     * @param values The components of the vectors, vector after vector. The
+     * array is copied; its length must be a multiple of the dimension.
+     */
+    public ObservationVectorSequence(int dimension, double... values) {
+        this(dimension, values.clone(), dimension > 0x00 ? values.length / dimension : 0x00);
+        if (values.length % dimension != 0x00) {
+            throw new IllegalArgumentException("Wrong number of values");
+        }
+    }
+
+    /**
+     * Creates a new sequence on the first vectors of an array. The array is
+     * not copied and must not be modified afterwards.
+     *
+     * @param dimension The (strictly positive) dimension of the vectors.
+     * @param values The components of the vectors, vector after vector.
+     * @param size The number of vectors of the sequence.
+     */
+    public ObservationVectorSequence(int dimension, double[] values, int size) {
+        if (dimension <= 0x00) {
+            throw new IllegalArgumentException("Dimension must be strictly positive");
+        }
+        if (size < 0x00 || (long) size * dimension > values.length) {
+            throw new IllegalArgumentException("Wrong size");
+        }
+        this.values = values;
+        this.dimension = dimension;
+        this.size = size;
+    }
+
+    /**
+     * Returns the dimension of the vectors of this sequence.
+     *
+     * @return The dimension of the vectors of this sequence.
+     */
+    public int dimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Returns a component of the vector at a given position.
+     *
+     * @param t The position of the vector.
+     * @param i The component (0 &le; i &lt; dimension).
+     * @return Component <code>i</code> of the vector at position
+     * <code>t</code>.
+     */
+    public double value(int t, int i) {
+        if (t >= this.size || i < 0x00 || i >= this.dimension) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.values[t * this.dimension + i];
+    }
+
+    /**
+     * Returns the components of the vectors of this sequence, vector after
+     * vector.
+     *
+     * @return A copy of the values of this sequence.
+     */
+    public double[] values() {
+        return Arrays.copyOf(this.values, this.size * this.dimension);
+    }
+
+    /**
+     * Copies the components of the vectors of this sequence, vector after
+     * vector, in an array.
+     *
+     * @param target The array in which the values are stored.
+     * @param offset The index at which the first value is stored.
+     */
+    public void coordinates(double[] target, int offset) {
+        System.arraycopy(this.values, 0x00, target, offset, this.size * this.dimension);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public ObservationVector get(int t) {
+        if (t < 0x00 || t >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        ObservationVector o = new ObservationVector(this.dimension);
+        System.arraycopy(this.values, t * this.dimension, o.value, 0x00, this.dimension);
+        return o;
+    }
+
+}
@@ -10,6 +10,8 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 import jutils.draw.DotDrawer;
 
 /**
@@ -33,6 +35,46 @@ public interface Opdf<O extends Observation> extends Cloneable, Serializable, IN
      */
     public abstract double probability(O o);
 
+    /**
+     * Returns the logarithm of the probability (density) of an observation
+     * given a distribution. Implementations with a closed form compute this
+     * value directly, so it does not underflow for unlikely observations.
+     *
+     * @param o An observation.
+     * @return The logarithm of the probability (density) of <code>o</code> for
+     * this function.
+     */
+    public abstract double logProbability(O o);
+
+    /**
+     * Computes the probability (density) of a range of observations of a
+     * sequence. The result is the same as calling {@link #probability} on
+     * every observation of the range, but implementations evaluate the whole
+     * range in one tight loop.
+     *
+     * @param sequence A sequence of observations.
+     * @param from The index of the first observation of the range (inclusive).
+     * @param to The index of the last observation of the range (exclusive).
+     * @param out The array in which the probability of observation
+     * <code>sequence.get(from + k)</code> is stored at index <code>k</code>.
+     * Its length must be at least <code>to - from</code>.
+     */
+    public abstract void probabilities(List<? extends O> sequence, int from, int to, double[] out);
+
+    /**
+     * Computes the logarithm of the probability (density) of a range of
+     * observations of a sequence. The result is the same as calling
+     * {@link #logProbability} on every observation of the range.
+     *
+     * @param sequence A sequence of observations.
+     * @param from The index of the first observation of the range (inclusive).
+     * @param to The index of the last observation of the range (exclusive).
+     * @param out The array in which the logarithm of the probability of
+     * observation <code>sequence.get(from + k)</code> is stored at index
+     * <code>k</code>. Its length must be at least <code>to - from</code>.
+     */
+    public abstract void logProbabilities(List<? extends O> sequence, int from, int to, double[] out);
+
     /**
      * Generates a (pseudo) random observation according to this distribution.
      *
@@ -40,6 +82,16 @@ public interface Opdf<O extends Observation> extends Cloneable, Serializable, IN
      */
     public abstract O generate();
 
+    /**
+     * Generates a (pseudo) random observation according to this distribution,
+     * using a given random generator: the same generator, seeded the same
+     * way, yields the same observations.
+     *
+     * @param random The random generator the observation is drawn from.
+     * @return An observation.
+     */
+    public abstract O generate(Random random);
+
     /**
      * Fits this observation probability (distribution) function to a (non
      * empty) set of observations. The meaning to give to <i>fits</i> should be
@@ -84,6 +136,26 @@ public interface Opdf<O extends Observation> extends Cloneable, Serializable, IN
      */
     abstract void fit(Collection<? extends O> co, double... weights);
 
+    /**
+     * Creates an accumulator that aggregates weighted observations one at a
+     * time and fits this observation probability (distribution) function
+     * afterwards. Fitting through an accumulator is equivalent to calling
+     * {@link #fit(java.util.Collection, double...)} with the normalized
+     * weights.
+     *
+     * @return A new, empty accumulator for this function.
+     */
+    public abstract OpdfAccumulator<O> createAccumulator();
+
+    /**
+     * Returns the number of free parameters of this function. The number is
+     * used by model selection criteria such as the Bayesian information
+     * criterion.
+     *
+     * @return The number of free parameters of this function.
+     */
+    public abstract int nbParameters();
+
     /**
      *
      * @return @throws java.lang.CloneNotSupportedException
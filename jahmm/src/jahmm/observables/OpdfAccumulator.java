@@ -0,0 +1,106 @@
+package jahmm.observables;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Objects implementing this interface aggregate the weighted sufficient
+ * statistics needed to fit an observation probability (distribution) function,
+ * one observation at a time.
+ * <p>
+ * An accumulator is created by {@link Opdf#createAccumulator()} and fits the
+ * function that created it. It allows learners to fit an <code>Opdf</code>
+ * without keeping all the observations (and their weights) in memory.
+ *
+ * @author kommusoft
+ * @param <O> The type of observations handled by the accumulator.
+ */
+public interface OpdfAccumulator<O extends Observation> {
+
+    /**
+     * Adds a weighted observation to the statistics.
+     *
+     * @param observation The observation to add.
+     * @param weight The (positive) weight of the observation. The weights do
+     * not need to sum up to one.
+     */
+    public abstract void add(O observation, double weight);
+
+    /**
+     * Returns the sum of the weights of the observations added so far.
+     *
+     * @return The sum of the weights of the observations added so far.
+     */
+    public abstract double totalWeight();
+
+    /**
+     * Multiplies the weights of all the observations added so far by the given
+     * factor.
+     *
+     * @param factor The (positive) factor to scale the weights with.
+     */
+    public abstract void scale(double factor);
+
+    /**
+     * Adds the statistics of the given accumulator to this accumulator. The
+     * given accumulator is not modified.
+     *
+     * @param other An accumulator created by a function of the same type (and
+     * dimension) as the function that created this accumulator.
+     * @throws IllegalArgumentException If the given accumulator is not
+     * compatible with this accumulator.
+     */
+    public abstract void merge(OpdfAccumulator<O> other);
+
+    /**
+     * Writes the statistics of this accumulator in a compact binary format.
+     *
+     * @param out The output to write the statistics to.
+     * @throws IOException If writing to the output fails.
+     */
+    public abstract void write(DataOutput out) throws IOException;
+
+    /**
+     * Reads statistics written by {@link #write(java.io.DataOutput)} and adds
+     * them to this accumulator. The statistics must originate from an
+     * accumulator that is compatible with this accumulator (see
+     * {@link #merge(jahmm.observables.OpdfAccumulator)}).
+     *
+     * @param in The input to read the statistics from.
+     * @throws IOException If reading from the input fails or the statistics
+     * are not compatible with this accumulator.
+     */
+    public abstract void read(DataInput in) throws IOException;
+
+    /**
+     * Fits the observation probability (distribution) function that created
+     * this accumulator to the observations added so far. The weights are
+     * normalized such that they sum up to one.
+     *
+     * @throws IllegalStateException If no observation with a positive weight
+     * has been added.
+     */
+    public abstract void fit();
+
+    /**
+     * Returns the weighted log-likelihood of the observations added so far
+     * under the function fitted to them, without fitting the function that
+     * created this accumulator.
+     * <p>
+     * Functions fitted with expectation-maximisation return the expected
+     * log-likelihood of the observations and the components they are assigned
+     * to, given the responsibilities computed when the observations were
+     * added; parameters that are shared with other functions are not fitted.
+     * The terms that differ from the exact log-likelihood in these cases add
+     * up when accumulators are merged, such that the difference between the
+     * log-likelihood of a merged accumulator and the log-likelihoods of its
+     * parts is still the loss of fitting a single function on all the
+     * observations.
+     *
+     * @return The weighted log-likelihood of the observations, zero if no
+     * observation with a positive weight has been added.
+     */
+    public abstract double logLikelihood();
+
+}
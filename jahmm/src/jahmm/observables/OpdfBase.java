@@ -1,8 +1,11 @@
 package jahmm.observables;
 
 import jahmm.Hmm;
+import jahmm.distributions.SplitMixRandom;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
+import java.util.Random;
 import jutils.draw.DotDrawer;
 import jutlis.tuples.Tuple2;
 import jutlis.tuples.Tuple2Base;
@@ -21,6 +24,76 @@ public abstract class OpdfBase<O extends Observation> implements Opdf<O> {
         drawer.edgeStatement(writer, source, prefix);
     }
 
+    /**
+     * Generates an observation with the random generator of the calling
+     * thread.
+     *
+     * @return An observation.
+     */
+    @Override
+    public O generate() {
+        return this.generate(SplitMixRandom.current());
+    }
+
+    /**
+     * Returns the logarithm of the probability of the given observation.
+     * Subclasses that can evaluate the logarithm in closed form should
+     * override this method.
+     *
+     * @param o An observation.
+     * @return The logarithm of <code>probability(o)</code>.
+     */
+    @Override
+    public double logProbability(O o) {
+        return Math.log(this.probability(o));
+    }
+
+    /**
+     * Computes the probabilities of a range of observations one by one.
+     * Subclasses should override this method with a loop that does not
+     * dispatch on every observation.
+     *
+     * @param sequence A sequence of observations.
+     * @param from The index of the first observation of the range (inclusive).
+     * @param to The index of the last observation of the range (exclusive).
+     * @param out The array in which the probabilities are stored.
+     */
+    @Override
+    public void probabilities(List<? extends O> sequence, int from, int to, double[] out) {
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            out[k] = this.probability(sequence.get(t));
+        }
+    }
+
+    /**
+     * Computes the logarithms of the probabilities of a range of observations
+     * one by one. Subclasses should override this method with a loop that does
+     * not dispatch on every observation.
+     *
+     * @param sequence A sequence of observations.
+     * @param from The index of the first observation of the range (inclusive).
+     * @param to The index of the last observation of the range (exclusive).
+     * @param out The array in which the logarithms are stored.
+     */
+    @Override
+    public void logProbabilities(List<? extends O> sequence, int from, int to, double[] out) {
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            out[k] = this.logProbability(sequence.get(t));
+        }
+    }
+
+    /**
+     * Creates an accumulator that buffers the observations and their weights.
+     * Subclasses that can summarize observations by sufficient statistics
+     * should override this method.
+     *
+     * @return A new, empty accumulator for this function.
+     */
+    @Override
+    public OpdfAccumulator<O> createAccumulator() {
+        return new OpdfBufferedAccumulator<>(this);
+    }
+
     @Override
     public abstract OpdfBase<O> clone() throws CloneNotSupportedException;
 
@@ -0,0 +1,161 @@
+package jahmm.observables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+/**
+ * An accumulator that stores every observation together with its weight and
+ * fits the function with the regular weighted
+ * {@link Opdf#fit(java.util.Collection, double...)} method. This is the
+ * fallback for functions that do not have a compact set of sufficient
+ * statistics: its memory usage grows linearly with the number of observations.
+ *
+ * @author kommusoft
+ * @param <O> The type of observations handled by the accumulator.
+ */
+class OpdfBufferedAccumulator<O extends Observation> implements OpdfAccumulator<O> {
+
+    private final Opdf<O> opdf;
+    private final ArrayList<O> observations = new ArrayList<>();
+    private double[] weights = new double[0x10];
+    private double totalWeight;
+
+    OpdfBufferedAccumulator(Opdf<O> opdf) {
+        this.opdf = opdf;
+    }
+
+    @Override
+    public void add(O observation, double weight) {
+        int n = this.observations.size();
+        if (n >= this.weights.length) {
+            double[] grown = new double[n << 0x01];
+            System.arraycopy(this.weights, 0x00, grown, 0x00, n);
+            this.weights = grown;
+        }
+        this.observations.add(observation);
+        this.weights[n] = weight;
+        this.totalWeight += weight;
+    }
+
+    @Override
+    public double totalWeight() {
+        return this.totalWeight;
+    }
+
+    @Override
+    public void scale(double factor) {
+        int n = this.observations.size();
+        for (int i = 0; i < n; i++) {
+            this.weights[i] *= factor;
+        }
+        this.totalWeight *= factor;
+    }
+
+    @Override
+    public void merge(OpdfAccumulator<O> other) {
+        if (!(other instanceof OpdfBufferedAccumulator)) {
+            throw new IllegalArgumentException("Incompatible accumulator");
+        }
+        OpdfBufferedAccumulator<O> that = (OpdfBufferedAccumulator<O>) other;
+        int n = that.observations.size();
+        for (int i = 0; i < n; i++) {
+            this.add(that.observations.get(i), that.weights[i]);
+        }
+    }
+
+    /**
+     * Writes the weights followed by the observations. Since the type of the
+     * observations is not known, the observations are written using Java
+     * serialization.
+     *
+     * @param out The output to write the statistics to.
+     * @throws IOException If writing to the output fails.
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        int n = this.observations.size();
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            out.writeDouble(this.weights[i]);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(this.observations);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void read(DataInput in) throws IOException {
+        int n = in.readInt();
+        double[] read = new double[n];
+        for (int i = 0; i < n; i++) {
+            read[i] = in.readDouble();
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        ArrayList<O> obs;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            obs = (ArrayList<O>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        if (obs.size() != n) {
+            throw new IOException("Corrupted accumulator");
+        }
+        for (int i = 0; i < n; i++) {
+            this.add(obs.get(i), read[i]);
+        }
+    }
+
+    @Override
+    public void fit() {
+        if (this.totalWeight <= 0.0d) {
+            throw new IllegalStateException("No weighted observations to fit");
+        }
+        int n = this.observations.size();
+        double[] normalized = new double[n];
+        for (int i = 0; i < n; i++) {
+            normalized[i] = this.weights[i] / this.totalWeight;
+        }
+        this.opdf.fit(this.observations, normalized);
+    }
+
+    /**
+     * Fits a copy of the function to the stored observations and evaluates
+     * the observations with it.
+     *
+     * @return The weighted log-likelihood of the observations.
+     */
+    @Override
+    public double logLikelihood() {
+        if (this.totalWeight <= 0.0d) {
+            return 0.0d;
+        }
+        OpdfBufferedAccumulator<O> copy;
+        try {
+            copy = new OpdfBufferedAccumulator<>(this.opdf.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        copy.merge(this);
+        copy.fit();
+        int n = this.observations.size();
+        double ll = 0.0d;
+        for (int i = 0; i < n; i++) {
+            if (this.weights[i] > 0.0d) {
+                ll += this.weights[i] * copy.opdf.logProbability(this.observations.get(i));
+            }
+        }
+        return ll;
+    }
+
+}
@@ -1,6 +1,8 @@
 package jahmm.observables;
 
 import jahmm.Hmm;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Writer;
 import java.text.NumberFormat;
@@ -9,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 import jutils.collections.CollectionUtils;
 import jutils.draw.DotDrawer;
@@ -125,8 +128,13 @@ public final class OpdfDiscrete<TDiscrete> extends OpdfBase<ObservationDiscrete<
     }
 
     @Override
-    public ObservationDiscrete<TDiscrete> generate() {
-        return new ObservationDiscrete<TDiscrete>(values.get(distribution.generate().value));
+    public double logProbability(ObservationDiscrete<TDiscrete> o) {
+        return distribution.logProbability(toIntegerMap.get(o.value));
+    }
+
+    @Override
+    public ObservationDiscrete<TDiscrete> generate(Random random) {
+        return new ObservationDiscrete<TDiscrete>(values.get(distribution.generate(random).value));
     }
 
     @Override
@@ -160,6 +168,16 @@ public final class OpdfDiscrete<TDiscrete> extends OpdfBase<ObservationDiscrete<
         distribution.fit(dco, weights);
     }
 
+    @Override
+    public int nbParameters() {
+        return distribution.nbParameters();
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationDiscrete<TDiscrete>> createAccumulator() {
+        return new IndexedAccumulator(this.distribution.createAccumulator());
+    }
+
     @Override
     public OpdfDiscrete<TDiscrete> clone() throws CloneNotSupportedException {
         @SuppressWarnings("unchecked")
@@ -213,4 +231,60 @@ public final class OpdfDiscrete<TDiscrete> extends OpdfBase<ObservationDiscrete<
         }
     }
 
+    /**
+     * Maps the observations on their index and accumulates the frequencies in
+     * the underlying integer distribution.
+     */
+    private class IndexedAccumulator implements OpdfAccumulator<ObservationDiscrete<TDiscrete>> {
+
+        private final OpdfAccumulator<ObservationInteger> accumulator;
+
+        IndexedAccumulator(OpdfAccumulator<ObservationInteger> accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public void add(ObservationDiscrete<TDiscrete> observation, double weight) {
+            this.accumulator.add(toIntegerMap.get(observation.value), weight);
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.accumulator.totalWeight();
+        }
+
+        @Override
+        public void scale(double factor) {
+            this.accumulator.scale(factor);
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationDiscrete<TDiscrete>> other) {
+            if (!(other instanceof OpdfDiscrete.IndexedAccumulator)) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            this.accumulator.merge(((IndexedAccumulator) other).accumulator);
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            this.accumulator.write(out);
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            this.accumulator.read(in);
+        }
+
+        @Override
+        public void fit() {
+            this.accumulator.fit();
+        }
+
+        @Override
+        public double logLikelihood() {
+            return this.accumulator.logLikelihood();
+        }
+
+    }
 }
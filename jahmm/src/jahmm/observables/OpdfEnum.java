@@ -5,6 +5,8 @@
 package jahmm.observables;
 
 import jahmm.Hmm;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Writer;
 import java.text.NumberFormat;
@@ -14,6 +16,7 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 import jutils.draw.DotDrawer;
 import jutlis.tuples.Tuple2;
@@ -106,8 +109,13 @@ public final class OpdfEnum<TEnum extends Enum<TEnum>> extends OpdfBase<Observat
     }
 
     @Override
-    public ObservationEnum<TEnum> generate() {
-        return new ObservationEnum<>(values.get(distribution.generate().value));
+    public double logProbability(ObservationEnum<TEnum> o) {
+        return distribution.logProbability(toIntegerMap.get(o.value));
+    }
+
+    @Override
+    public ObservationEnum<TEnum> generate(Random random) {
+        return new ObservationEnum<>(values.get(distribution.generate(random).value));
     }
 
     @Override
@@ -141,6 +149,16 @@ public final class OpdfEnum<TEnum extends Enum<TEnum>> extends OpdfBase<Observat
         distribution.fit(dco, weights);
     }
 
+    @Override
+    public int nbParameters() {
+        return distribution.nbParameters();
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationEnum<TEnum>> createAccumulator() {
+        return new IndexedAccumulator(this.distribution.createAccumulator());
+    }
+
     @Override
     public OpdfEnum<TEnum> clone() throws CloneNotSupportedException {
         return new OpdfEnum<>(this.values, this.distribution.clone(), this.toIntegerMap);
@@ -189,4 +207,61 @@ public final class OpdfEnum<TEnum extends Enum<TEnum>> extends OpdfBase<Observat
             drawer.nodeStatement(writer, prefix + vals, labelTuple);
         }
     }
+
+    /**
+     * Maps the observations on their index and accumulates the frequencies in
+     * the underlying integer distribution.
+     */
+    private class IndexedAccumulator implements OpdfAccumulator<ObservationEnum<TEnum>> {
+
+        private final OpdfAccumulator<ObservationInteger> accumulator;
+
+        IndexedAccumulator(OpdfAccumulator<ObservationInteger> accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public void add(ObservationEnum<TEnum> observation, double weight) {
+            this.accumulator.add(toIntegerMap.get(observation.value), weight);
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.accumulator.totalWeight();
+        }
+
+        @Override
+        public void scale(double factor) {
+            this.accumulator.scale(factor);
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationEnum<TEnum>> other) {
+            if (!(other instanceof OpdfEnum.IndexedAccumulator)) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            this.accumulator.merge(((IndexedAccumulator) other).accumulator);
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            this.accumulator.write(out);
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            this.accumulator.read(in);
+        }
+
+        @Override
+        public void fit() {
+            this.accumulator.fit();
+        }
+
+        @Override
+        public double logLikelihood() {
+            return this.accumulator.logLikelihood();
+        }
+
+    }
 }
@@ -0,0 +1,73 @@
+package jahmm.observables;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Utility methods for {@link OpdfFactory} objects.
+ *
+ * @author kommusoft
+ */
+public final class OpdfFactoryUtils {
+
+    private static final Logger LOG = Logger.getLogger(OpdfFactoryUtils.class.getName());
+
+    /**
+     * Generates the observation probability functions of one model. If the
+     * factory is a {@link TiedOpdfFactory}, the functions are tied together,
+     * and to no function of another model.
+     *
+     * @param <O> The type of the observations.
+     * @param opdfFactory The factory that generates the functions.
+     * @param nbOpdfs The (strictly positive) number of functions to generate.
+     * @return A list of <code>nbOpdfs</code> new functions.
+     */
+    @SuppressWarnings("unchecked") // the factory generates Opdf<O> instances
+    public static <O extends Observation> List<Opdf<O>> generate(OpdfFactory<? extends Opdf<O>> opdfFactory, int nbOpdfs) {
+        if (nbOpdfs <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        List<Opdf<O>> opdfs = new ArrayList<>(nbOpdfs);
+        if (opdfFactory instanceof TiedOpdfFactory) {
+            for (Object opdf : ((TiedOpdfFactory<?>) opdfFactory).generate(nbOpdfs)) {
+                opdfs.add((Opdf<O>) opdf);
+            }
+        } else {
+            for (int i = 0; i < nbOpdfs; i++) {
+                opdfs.add(opdfFactory.generate());
+            }
+        }
+        return opdfs;
+    }
+
+    /**
+     * Counts the free parameters of the observation probability functions of
+     * one model. The parameters shared by {@link TiedOpdf tied} functions are
+     * counted once per tie.
+     *
+     * @param opdfs The functions of the model.
+     * @return The number of free parameters of the functions.
+     */
+    public static int nbParameters(Iterable<? extends Opdf<?>> opdfs) {
+        int k = 0x00;
+        IdentityHashMap<Object, Object> ties = new IdentityHashMap<>();
+        for (Opdf<?> opdf : opdfs) {
+            k += opdf.nbParameters();
+            if (opdf instanceof TiedOpdf) {
+                TiedOpdf<?> tied = (TiedOpdf<?>) opdf;
+                Object parameters = tied.tiedParameters();
+                if (parameters != null && !ties.containsKey(parameters)) {
+                    ties.put(parameters, parameters);
+                    k += tied.nbTiedParameters();
+                }
+            }
+        }
+        return k;
+    }
+
+    private OpdfFactoryUtils() {
+    }
+
+}
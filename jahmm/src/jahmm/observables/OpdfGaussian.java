@@ -5,9 +5,14 @@
 package jahmm.observables;
 
 import jahmm.distributions.GaussianDistribution;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
 /**
  * This class represents a (mono variate) Gaussian distribution function.
@@ -72,8 +77,53 @@ public class OpdfGaussian extends OpdfBase<ObservationReal> implements Opdf<Obse
     }
 
     @Override
-    public ObservationReal generate() {
-        return new ObservationReal(distribution.generate());
+    public double logProbability(ObservationReal o) {
+        return distribution.logProbability(o.value);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        double mean = distribution.mean();
+        double variance = distribution.variance();
+        double factor = Math.pow(2.0d * Math.PI * variance, -0.5d);
+        double h = -0.5d / variance;
+        if (sequence instanceof ObservationRealSequence) {
+            double[] xs = ((ObservationRealSequence) sequence).values;
+            for (int t = from, k = 0x00; t < to; t++, k++) {
+                double d = xs[t] - mean;
+                out[k] = factor * Math.exp(h * d * d);
+            }
+            return;
+        }
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            double d = sequence.get(t).value - mean;
+            out[k] = factor * Math.exp(h * d * d);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        double mean = distribution.mean();
+        double variance = distribution.variance();
+        double c = -0.5d * Math.log(2.0d * Math.PI * variance);
+        double h = -0.5d / variance;
+        if (sequence instanceof ObservationRealSequence) {
+            double[] xs = ((ObservationRealSequence) sequence).values;
+            for (int t = from, k = 0x00; t < to; t++, k++) {
+                double d = xs[t] - mean;
+                out[k] = c + h * d * d;
+            }
+            return;
+        }
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            double d = sequence.get(t).value - mean;
+            out[k] = c + h * d * d;
+        }
+    }
+
+    @Override
+    public ObservationReal generate(Random random) {
+        return new ObservationReal(distribution.generate(random));
     }
 
     @Override
@@ -100,6 +150,11 @@ public class OpdfGaussian extends OpdfBase<ObservationReal> implements Opdf<Obse
             throw new IllegalArgumentException();
         }
 
+        if (co instanceof ObservationRealSequence) {
+            this.fit(((ObservationRealSequence) co).values, weights);
+            return;
+        }
+
         // Compute mean
         double mean = 0.;
         int i = 0;
@@ -120,6 +175,36 @@ public class OpdfGaussian extends OpdfBase<ObservationReal> implements Opdf<Obse
         this.distribution.setVariance(variance);
     }
 
+    /*
+     * Fits the distribution on the first weights.length values of an array.
+     */
+    private void fit(double[] values, double[] weights) {
+        double mean = 0.;
+        for (int i = 0; i < weights.length; i++) {
+            mean += values[i] * weights[i];
+        }
+
+        double variance = 0.;
+        for (int i = 0; i < weights.length; i++) {
+            double d = values[i] - mean;
+
+            variance += d * d * weights[i];
+        }
+
+        this.distribution.setMean(mean);
+        this.distribution.setVariance(variance);
+    }
+
+    @Override
+    public int nbParameters() {
+        return 0x02;
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationReal> createAccumulator() {
+        return new GaussianAccumulator();
+    }
+
     @Override
     public OpdfGaussian clone() throws CloneNotSupportedException {
         return new OpdfGaussian(this.distribution.clone());
@@ -138,4 +223,88 @@ public class OpdfGaussian extends OpdfBase<ObservationReal> implements Opdf<Obse
     public String toString(NumberFormat numberFormat) {
         return String.format("Gaussian distribution --- Mean: %s Variance %s", numberFormat.format(distribution.mean()), numberFormat.format(distribution.variance()));
     }
+
+    /**
+     * Accumulates the weighted mean and the weighted sum of squared deviations
+     * using West's incremental algorithm, which does not suffer from the
+     * cancellation of the naive sum of squares.
+     */
+    private class GaussianAccumulator implements OpdfAccumulator<ObservationReal> {
+
+        private double totalWeight;
+        private double mean;
+        private double squares;
+
+        @Override
+        public void add(ObservationReal observation, double weight) {
+            if (weight <= 0.0d) {
+                return;
+            }
+            this.totalWeight += weight;
+            double delta = observation.value - this.mean;
+            this.mean += delta * weight / this.totalWeight;
+            this.squares += weight * delta * (observation.value - this.mean);
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
+        }
+
+        @Override
+        public void scale(double factor) {
+            this.totalWeight *= factor;
+            this.squares *= factor;
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationReal> other) {
+            if (!(other instanceof GaussianAccumulator)) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            GaussianAccumulator that = (GaussianAccumulator) other;
+            if (that.totalWeight <= 0.0d) {
+                return;
+            }
+            double total = this.totalWeight + that.totalWeight;
+            double delta = that.mean - this.mean;
+            this.squares += that.squares + delta * delta * this.totalWeight * that.totalWeight / total;
+            this.mean += delta * that.totalWeight / total;
+            this.totalWeight = total;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeDouble(this.totalWeight);
+            out.writeDouble(this.mean);
+            out.writeDouble(this.squares);
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            GaussianAccumulator that = new GaussianAccumulator();
+            that.totalWeight = in.readDouble();
+            that.mean = in.readDouble();
+            that.squares = in.readDouble();
+            this.merge(that);
+        }
+
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            distribution.setMean(this.mean);
+            distribution.setVariance(this.squares / this.totalWeight);
+        }
+
+        @Override
+        public double logLikelihood() {
+            if (this.totalWeight <= 0.0d) {
+                return 0.0d;
+            }
+            return -0.5d * this.totalWeight * (Math.log(2.0d * Math.PI * this.squares / this.totalWeight) + 1.0d);
+        }
+
+    }
 }
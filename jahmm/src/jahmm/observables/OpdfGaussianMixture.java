@@ -6,9 +6,14 @@ package jahmm.observables;
 
 import jahmm.distributions.GaussianDistribution;
 import jahmm.distributions.GaussianMixtureDistribution;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
 /**
  * This class implements a mixture of mono variate Gaussian distributions.
@@ -58,8 +63,30 @@ public final class OpdfGaussianMixture extends OpdfBase<ObservationReal> impleme
     }
 
     @Override
-    public ObservationReal generate() {
-        return new ObservationReal(distribution.generate());
+    public double logProbability(ObservationReal o) {
+        return distribution.logProbability(o.value);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        this.logProbabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.exp(out[k]);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        Components components = new Components(distribution);
+        double[] responsibilities = new double[nbGaussians()];
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            out[k] = components.responsibilities(sequence.get(t).value, responsibilities);
+        }
+    }
+
+    @Override
+    public ObservationReal generate(Random random) {
+        return new ObservationReal(distribution.generate(random));
     }
 
     /**
@@ -71,6 +98,11 @@ public final class OpdfGaussianMixture extends OpdfBase<ObservationReal> impleme
         return distribution.nbGaussians();
     }
 
+    @Override
+    public int nbParameters() {
+        return 0x03 * nbGaussians() - 0x01;
+    }
+
     /**
      * Returns the mixing proportions of each Gaussian distribution.
      *
@@ -170,136 +202,261 @@ public final class OpdfGaussianMixture extends OpdfBase<ObservationReal> impleme
             throw new IllegalArgumentException();
         }
 
-        ObservationReal[] o = co.toArray(new ObservationReal[co.size()]);
-
-        double[][] delta = getDelta(o);
-        double[] newMixingProportions
-                = computeNewMixingProportions(delta, o, weights);
-        double[] newMeans = computeNewMeans(delta, o, weights);
-        double[] newVariances = computeNewVariances(delta, o, weights);
-
-        distribution = new GaussianMixtureDistribution(newMeans, newVariances, newMixingProportions);
+        OpdfAccumulator<ObservationReal> accumulator = createAccumulator();
+        int t = 0;
+        for (ObservationReal o : co) {
+            accumulator.add(o, weights[t++]);
+        }
+        accumulator.fit();
     }
 
-    /* 
-     * Computes the relative weight of each observation for each distribution.
+    /**
+     * Creates an accumulator that performs the expectation step of the
+     * expectation-maximisation algorithm as observations are added.
+     *
+     * @return A new, empty accumulator for this function.
      */
-    private double[][] getDelta(ObservationReal... o) {
-        double[][] delta = new double[distribution.nbGaussians()][o.length];
-
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            double[] proportions = distribution.proportions();
-            GaussianDistribution[] distributions
-                    = distribution.distributions();
-
-            for (int t = 0; t < o.length; t++) {
-                delta[i][t] = proportions[i]
-                        * distributions[i].probability(o[t].value) / probability(o[t]);
-            }
-        }
+    @Override
+    public OpdfAccumulator<ObservationReal> createAccumulator() {
+        return new MixtureAccumulator();
+    }
 
-        return delta;
+    @Override
+    public OpdfGaussianMixture clone() throws CloneNotSupportedException {
+        return new OpdfGaussianMixture(this.distribution.clone());
     }
 
-    /*
-     * Estimates new mixing proportions given delta.
+    /**
+     *
+     * @return
      */
-    private double[] computeNewMixingProportions(double[][] delta,
-            ObservationReal[] o, double[] weights) {
-        double[] num = new double[distribution.nbGaussians()];
-        double sum = 0.0;
+    @Override
+    public String toString() {
+        return toString(NumberFormat.getInstance());
+    }
 
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            for (int t = 0; t < weights.length; t++) {
-                num[i] += weights[t] * delta[i][t];
-                sum += weights[t] * delta[i][t];
-            }
-        }
+    @Override
+    public String toString(NumberFormat numberFormat) {
+        StringBuilder sb = new StringBuilder("Gaussian mixture distribution --- ");
+
+        double[] proportions = proportions();
+        double[] means = means();
+        double[] variances = variances();
 
-        double[] newMixingProportions = new double[distribution.nbGaussians()];
         for (int i = 0; i < distribution.nbGaussians(); i++) {
-            newMixingProportions[i] = num[i] / sum;
+            sb.append(String.format("Gaussian %s:\n\tMixing Prop = %s\n\tMean = %s\n\tVariance = %s\n", (i + 1), numberFormat.format(proportions[i]), numberFormat.format(means[i]), numberFormat.format(variances[i])));
         }
 
-        return newMixingProportions;
+        return sb.toString();
     }
 
-    /*
-     * Estimates new mean values of each Gaussian given delta.
+    /**
+     * A snapshot of the parameters of a mixture, stored in parallel arrays, to
+     * evaluate the mixture in log space without going through the Gaussian
+     * distribution objects.
      */
-    private double[] computeNewMeans(double[][] delta, ObservationReal[] o,
-            double[] weights) {
-        double[] num = new double[distribution.nbGaussians()];
-        double[] sum = new double[distribution.nbGaussians()];
+    private static final class Components {
 
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            for (int t = 0; t < o.length; t++) {
-                num[i] += weights[t] * delta[i][t] * o[t].value;
-                sum[i] += weights[t] * delta[i][t];
+        private final double[] means;
+        private final double[] variances;
+        private final double[] logConstants;
+        private final double[] halfPrecisions;
+
+        Components(GaussianMixtureDistribution distribution) {
+            int n = distribution.nbGaussians();
+            double[] proportions = distribution.proportions();
+            GaussianDistribution[] distributions = distribution.distributions();
+            this.means = new double[n];
+            this.variances = new double[n];
+            this.logConstants = new double[n];
+            this.halfPrecisions = new double[n];
+            for (int k = 0; k < n; k++) {
+                double variance = distributions[k].variance();
+                this.means[k] = distributions[k].mean();
+                this.variances[k] = variance;
+                this.logConstants[k] = Math.log(proportions[k]) - 0.5d * Math.log(2.0d * Math.PI * variance);
+                this.halfPrecisions[k] = 0.5d / variance;
             }
         }
 
-        double[] newMeans = new double[distribution.nbGaussians()];
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            newMeans[i] = num[i] / sum[i];
+        /**
+         * Computes the responsibility of every Gaussian for a value, and the
+         * logarithm of the density of the mixture.
+         *
+         * @param x A value.
+         * @param out An array in which the responsibilities are stored. Its
+         * content is undefined if the result is negative infinity.
+         * @return The logarithm of the density of the mixture at
+         * <code>x</code>.
+         */
+        double responsibilities(double x, double[] out) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < out.length; k++) {
+                double dx = x - this.means[k];
+                double l = this.logConstants[k] - this.halfPrecisions[k] * dx * dx;
+                out[k] = l;
+                if (l > max) {
+                    max = l;
+                }
+            }
+            if (max == Double.NEGATIVE_INFINITY) {
+                return max;
+            }
+            double sum = 0.0d;
+            for (int k = 0; k < out.length; k++) {
+                sum += (out[k] = Math.exp(out[k] - max));
+            }
+            for (int k = 0; k < out.length; k++) {
+                out[k] /= sum;
+            }
+            return max + Math.log(sum);
         }
 
-        return newMeans;
     }
 
-    /*
-     * Estimates new variance values of each Gaussian given delta.
+    /**
+     * Accumulates, for every Gaussian of the mixture, the sum of the
+     * responsibility weighted observation weights, the weighted mean and the
+     * weighted second central moment, using West's incremental algorithm. The
+     * parameters of the mixture are copied in parallel arrays when the
+     * accumulator is created, and the responsibilities of an observation are
+     * computed from them once, in log space.
      */
-    private double[] computeNewVariances(double[][] delta, ObservationReal[] o,
-            double[] weights) {
-        double[] num = new double[distribution.nbGaussians()];
-        double[] sum = new double[distribution.nbGaussians()];
-
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            GaussianDistribution[] distributions = distribution.distributions();
+    private class MixtureAccumulator implements OpdfAccumulator<ObservationReal> {
+
+        private final Components components;
+        private final double[] responsibilities;
+        private final double[] weights;
+        private final double[] means;
+        private final double[] moments;
+        private double totalWeight;
+
+        MixtureAccumulator() {
+            int n = nbGaussians();
+            this.components = new Components(distribution);
+            this.responsibilities = new double[n];
+            this.weights = new double[n];
+            this.means = new double[n];
+            this.moments = new double[n];
+        }
 
-            for (int t = 0; t < o.length; t++) {
-                num[i] += weights[t] * delta[i][t]
-                        * (o[t].value - distributions[i].mean())
-                        * (o[t].value - distributions[i].mean());
-                sum[i] += weights[t] * delta[i][t];
+        @Override
+        public void add(ObservationReal observation, double weight) {
+            if (weight <= 0.0d) {
+                return;
+            }
+            double x = observation.value;
+            if (this.components.responsibilities(x, this.responsibilities) == Double.NEGATIVE_INFINITY) {
+                return;
+            }
+            this.totalWeight += weight;
+            for (int k = 0; k < this.responsibilities.length; k++) {
+                double w = weight * this.responsibilities[k];
+                if (w <= 0.0d) {
+                    continue;
+                }
+                this.weights[k] += w;
+                double delta = x - this.means[k];
+                this.means[k] += delta * w / this.weights[k];
+                this.moments[k] += w * delta * (x - this.means[k]);
             }
         }
 
-        double[] newVariances = new double[distribution.nbGaussians()];
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            newVariances[i] = num[i] / sum[i];
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
         }
 
-        return newVariances;
-    }
+        @Override
+        public void scale(double factor) {
+            for (int k = 0; k < this.weights.length; k++) {
+                this.weights[k] *= factor;
+                this.moments[k] *= factor;
+            }
+            this.totalWeight *= factor;
+        }
 
-    @Override
-    public OpdfGaussianMixture clone() throws CloneNotSupportedException {
-        return new OpdfGaussianMixture(this.distribution.clone());
-    }
+        @Override
+        public void merge(OpdfAccumulator<ObservationReal> other) {
+            if (!(other instanceof MixtureAccumulator) || ((MixtureAccumulator) other).weights.length != this.weights.length) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            MixtureAccumulator that = (MixtureAccumulator) other;
+            for (int k = 0; k < this.weights.length; k++) {
+                if (that.weights[k] <= 0.0d) {
+                    continue;
+                }
+                double total = this.weights[k] + that.weights[k];
+                double delta = that.means[k] - this.means[k];
+                this.moments[k] += that.moments[k] + delta * delta * this.weights[k] * that.weights[k] / total;
+                this.means[k] += delta * that.weights[k] / total;
+                this.weights[k] = total;
+            }
+            this.totalWeight += that.totalWeight;
+        }
 
-    /**
-     *
-     * @return
-     */
-    @Override
-    public String toString() {
-        return toString(NumberFormat.getInstance());
-    }
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(this.weights.length);
+            out.writeDouble(this.totalWeight);
+            for (int k = 0; k < this.weights.length; k++) {
+                out.writeDouble(this.weights[k]);
+                out.writeDouble(this.means[k]);
+                out.writeDouble(this.moments[k]);
+            }
+        }
 
-    @Override
-    public String toString(NumberFormat numberFormat) {
-        StringBuilder sb = new StringBuilder("Gaussian mixture distribution --- ");
+        @Override
+        public void read(DataInput in) throws IOException {
+            if (in.readInt() != this.weights.length) {
+                throw new IOException("Incompatible accumulator");
+            }
+            MixtureAccumulator that = new MixtureAccumulator();
+            that.totalWeight = in.readDouble();
+            for (int k = 0; k < this.weights.length; k++) {
+                that.weights[k] = in.readDouble();
+                that.means[k] = in.readDouble();
+                that.moments[k] = in.readDouble();
+            }
+            this.merge(that);
+        }
 
-        double[] proportions = proportions();
-        double[] means = means();
-        double[] variances = variances();
+        /**
+         * Replaces the mixture by the one estimated from the statistics. A
+         * Gaussian that received no weight keeps its mean and variance and gets
+         * a zero proportion.
+         */
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            int n = this.weights.length;
+            double[] newMeans = new double[n];
+            double[] newVariances = new double[n];
+            for (int k = 0; k < n; k++) {
+                if (this.weights[k] > 0.0d) {
+                    newMeans[k] = this.means[k];
+                    newVariances[k] = this.moments[k] / this.weights[k];
+                } else {
+                    newMeans[k] = this.components.means[k];
+                    newVariances[k] = this.components.variances[k];
+                }
+            }
+            distribution = new GaussianMixtureDistribution(newMeans, newVariances, this.weights);
+        }
 
-        for (int i = 0; i < distribution.nbGaussians(); i++) {
-            sb.append(String.format("Gaussian %s:\n\tMixing Prop = %s\n\tMean = %s\n\tVariance = %s\n", (i + 1), numberFormat.format(proportions[i]), numberFormat.format(means[i]), numberFormat.format(variances[i])));
+        @Override
+        public double logLikelihood() {
+            double ll = 0.0d;
+            for (int k = 0; k < this.weights.length; k++) {
+                double w = this.weights[k];
+                if (w > 0.0d) {
+                    ll += w * (Math.log(w / this.totalWeight) - 0.5d * (Math.log(2.0d * Math.PI * this.moments[k] / w) + 1.0d));
+                }
+            }
+            return ll;
         }
 
-        return sb.toString();
     }
 }
@@ -4,9 +4,14 @@
  */
 package jahmm.observables;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 import jutlis.lists.ListArray;
 
 /**
@@ -81,8 +86,28 @@ public final class OpdfInteger extends OpdfBase<ObservationInteger> implements O
     }
 
     @Override
-    public ObservationInteger generate() {
-        double rand = Math.random();
+    public void probabilities(List<? extends ObservationInteger> sequence, int from, int to, double[] out) {
+        double[] p = this.probabilities;
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            int value = sequence.get(t).value;
+            if (value >= p.length) {
+                throw new IllegalArgumentException("Wrong observation value");
+            }
+            out[k] = p[value];
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationInteger> sequence, int from, int to, double[] out) {
+        this.probabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.log(out[k]);
+        }
+    }
+
+    @Override
+    public ObservationInteger generate(Random random) {
+        double rand = random.nextDouble();
 
         for (int i = 0; i < probabilities.length - 1; i++) {
             if ((rand -= probabilities[i]) < 0.) {
@@ -136,6 +161,16 @@ public final class OpdfInteger extends OpdfBase<ObservationInteger> implements O
         }
     }
 
+    @Override
+    public int nbParameters() {
+        return probabilities.length - 0x01;
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationInteger> createAccumulator() {
+        return new IntegerAccumulator();
+    }
+
     @Override
     public OpdfInteger clone() throws CloneNotSupportedException {
         return new OpdfInteger(this.probabilities);
@@ -159,4 +194,86 @@ public final class OpdfInteger extends OpdfBase<ObservationInteger> implements O
         }
         return sb.toString();
     }
+
+    /**
+     * Accumulates the weighted frequency of every integer value.
+     */
+    private class IntegerAccumulator implements OpdfAccumulator<ObservationInteger> {
+
+        private final double[] counts = new double[probabilities.length];
+        private double totalWeight;
+
+        @Override
+        public void add(ObservationInteger observation, double weight) {
+            this.counts[observation.value] += weight;
+            this.totalWeight += weight;
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
+        }
+
+        @Override
+        public void scale(double factor) {
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] *= factor;
+            }
+            this.totalWeight *= factor;
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationInteger> other) {
+            if (!(other instanceof IntegerAccumulator) || ((IntegerAccumulator) other).counts.length != this.counts.length) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            IntegerAccumulator that = (IntegerAccumulator) other;
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] += that.counts[i];
+            }
+            this.totalWeight += that.totalWeight;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(this.counts.length);
+            out.writeDouble(this.totalWeight);
+            for (double count : this.counts) {
+                out.writeDouble(count);
+            }
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            if (in.readInt() != this.counts.length) {
+                throw new IOException("Incompatible accumulator");
+            }
+            this.totalWeight += in.readDouble();
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] += in.readDouble();
+            }
+        }
+
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = this.counts[i] / this.totalWeight;
+            }
+        }
+
+        @Override
+        public double logLikelihood() {
+            double ll = 0.0d;
+            for (double count : this.counts) {
+                if (count > 0.0d) {
+                    ll += count * Math.log(count / this.totalWeight);
+                }
+            }
+            return ll;
+        }
+
+    }
 }
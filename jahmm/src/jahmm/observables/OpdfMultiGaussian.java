@@ -4,21 +4,35 @@
  */
 package jahmm.observables;
 
+import jahmm.distributions.CovarianceMatrix;
 import jahmm.distributions.MultiGaussianDistribution;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 
 /**
  * This class represents a multivariate Gaussian distribution function.
+ * <p>
+ * The covariance matrix can be restricted to a {@link CovarianceStructure}.
+ * Diagonal and spherical matrices are fitted and evaluated in time linear in
+ * the dimension. A tied matrix is shared by several functions: fitting each of
+ * them pools its scatter into the shared matrix, and the shared matrix is
+ * factored once, the first time one of the functions is evaluated afterwards.
  */
-public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> implements Opdf<ObservationVector> {
+public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> implements TiedOpdf<ObservationVector> {
 
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger(OpdfMultiGaussian.class.getName());
 
     private final MultiGaussianDistribution distribution;
+    private final CovarianceStructure structure;
 
     /**
      * Builds a new Gaussian probability distribution with zero mean and
@@ -27,7 +41,22 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
      * @param dimension The dimension of the vectors.
      */
     public OpdfMultiGaussian(int dimension) {
-        distribution = new MultiGaussianDistribution(dimension);
+        this(dimension, CovarianceStructure.FULL);
+    }
+
+    /**
+     * Builds a new Gaussian probability distribution with zero mean and
+     * identity covariance matrix restricted to a given structure. A tied
+     * distribution built this way does not share its covariance matrix yet;
+     * use {@link #OpdfMultiGaussian(double[], CovarianceMatrix)} with the
+     * matrix returned by {@link #covarianceMatrix()} to tie other
+     * distributions to it.
+     *
+     * @param dimension The dimension of the vectors.
+     * @param structure The structure of the covariance matrix.
+     */
+    public OpdfMultiGaussian(int dimension, CovarianceStructure structure) {
+        this(new MultiGaussianDistribution(new double[dimension], new CovarianceMatrix(dimension, structure.isDiagonal())), structure);
     }
 
     /**
@@ -44,10 +73,50 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
         }
 
         distribution = new MultiGaussianDistribution(mean, covariance);
+        structure = CovarianceStructure.FULL;
+    }
+
+    /**
+     * Builds a new Gaussian probability distribution with a given mean and
+     * diagonal covariance matrix.
+     *
+     * @param mean The distribution's mean.
+     * @param variances The diagonal of the distribution's covariance matrix.
+     * @param spherical Whether the variances must be equal in every direction
+     * (a spherical distribution) or not (a diagonal distribution).
+     */
+    public OpdfMultiGaussian(double[] mean, double[] variances, boolean spherical) {
+        if (variances.length == 0 || mean.length != variances.length) {
+            throw new IllegalArgumentException();
+        }
+        if (spherical) {
+            for (int i = 1; i < variances.length; i++) {
+                if (variances[i] != variances[0]) {
+                    throw new IllegalArgumentException("Spherical variances must be equal");
+                }
+            }
+        }
+
+        distribution = new MultiGaussianDistribution(mean, new CovarianceMatrix(variances));
+        structure = spherical ? CovarianceStructure.SPHERICAL : CovarianceStructure.DIAGONAL;
     }
 
-    private OpdfMultiGaussian(MultiGaussianDistribution distribution) {
+    /**
+     * Builds a new Gaussian probability distribution with a given mean and a
+     * tied covariance matrix. The matrix is shared with every distribution
+     * built with the same object.
+     *
+     * @param mean The distribution's mean.
+     * @param covariance The shared covariance matrix.
+     */
+    public OpdfMultiGaussian(double[] mean, CovarianceMatrix covariance) {
+        distribution = new MultiGaussianDistribution(mean, covariance);
+        structure = CovarianceStructure.TIED;
+    }
+
+    private OpdfMultiGaussian(MultiGaussianDistribution distribution, CovarianceStructure structure) {
         this.distribution = distribution;
+        this.structure = structure;
     }
 
     /**
@@ -68,6 +137,26 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
         return distribution.covariance();
     }
 
+    /**
+     * Returns the covariance matrix object of this distribution. For a tied
+     * distribution, this object is shared with the other distributions it is
+     * tied to.
+     *
+     * @return The (possibly shared) covariance matrix.
+     */
+    public CovarianceMatrix covarianceMatrix() {
+        return distribution.covarianceMatrix();
+    }
+
+    /**
+     * Returns the structure the covariance matrix is restricted to.
+     *
+     * @return The structure of the covariance matrix.
+     */
+    public CovarianceStructure structure() {
+        return structure;
+    }
+
     /**
      * Returns the dimension of the vectors handled by this distribution.
      *
@@ -87,8 +176,38 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
     }
 
     @Override
-    public ObservationVector generate() {
-        return new ObservationVector(distribution.generate());
+    public double logProbability(ObservationVector o) {
+        if (o.dimension() != distribution.dimension()) {
+            throw new IllegalArgumentException("Vector has a wrong dimension");
+        }
+
+        return distribution.logProbability(o.value);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationVector> sequence, int from, int to, double[] out) {
+        this.logProbabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.exp(out[k]);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationVector> sequence, int from, int to, double[] out) {
+        if (sequence instanceof ObservationVectorSequence) {
+            ObservationVectorSequence packed = (ObservationVectorSequence) sequence;
+            if (packed.dimension() != dimension()) {
+                throw new IllegalArgumentException("Vectors have a wrong dimension");
+            }
+            distribution.logProbabilities(packed.values, from, to, out);
+            return;
+        }
+        distribution.logProbabilities(ObservationVector.values(sequence, from, to), 0x00, to - from, out);
+    }
+
+    @Override
+    public ObservationVector generate(Random random) {
+        return new ObservationVector(distribution.generate(random));
     }
 
     @Override
@@ -113,11 +232,28 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
         fit(Arrays.asList(o), weights);
     }
 
+    /**
+     * Fits this distribution to a weighted set of observations. The weights of
+     * a tied distribution need not sum to one: the scatter of the
+     * observations is pooled with the sum of the weights, such that the
+     * distributions tied together are weighted by their total weight.
+     *
+     * @param co A set of observations.
+     * @param weights The weight associated to each observation.
+     */
     @Override
     public void fit(Collection<? extends ObservationVector> co, double... weights) {
         if (co.isEmpty() || co.size() != weights.length) {
             throw new IllegalArgumentException();
         }
+        if (co instanceof ObservationVectorSequence) {
+            this.fit((ObservationVectorSequence) co, weights);
+            return;
+        }
+        double total = 0.0d;
+        for (double w : weights) {
+            total += w;
+        }
 
         // Compute mean
         for (int r = 0; r < dimension(); r++) {
@@ -126,11 +262,14 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
             for (ObservationVector o : co) {
                 meanr += o.value[r] * weights[i++];
             }
-            this.distribution.setMean(r, meanr);
+            this.distribution.setMean(r, meanr / total);
         }
 
         // Compute covariance
-        double[][] covariance = new double[dimension()][dimension()];
+        int d = dimension();
+        boolean diagonal = structure.isDiagonal();
+        double[][] comoment = new double[d][d];
+        double weight = 0.0d;
         int i = 0;
         for (ObservationVector o : co) {
             double[] obs = o.value;
@@ -140,21 +279,189 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
                 omm[j] = obs[j] - this.distribution.mean(j);
             }
 
-            for (int r = 0; r < dimension(); r++) {
-                for (int c = 0; c < dimension(); c++) {
-                    covariance[r][c] += omm[r] * omm[c] * weights[i];
+            if (diagonal) {
+                for (int r = 0; r < d; r++) {
+                    comoment[r][r] += omm[r] * omm[r] * weights[i];
+                }
+            } else {
+                for (int r = 0; r < d; r++) {
+                    for (int c = 0; c < d; c++) {
+                        comoment[r][c] += omm[r] * omm[c] * weights[i];
+                    }
                 }
             }
 
+            weight += weights[i];
             i++;
         }
 
-        distribution.setCovariance(covariance);
+        estimateCovariance(comoment, weight);
     }
 
+    /*
+     * Fits the distribution on a packed sequence, reading the components of
+     * the vectors in its array.
+     */
+    private void fit(ObservationVectorSequence sequence, double[] weights) {
+        int d = dimension();
+        if (sequence.dimension() != d) {
+            throw new IllegalArgumentException("Vectors have a wrong dimension");
+        }
+        double[] values = sequence.values;
+        double[] mean = new double[d];
+        double total = 0.0d;
+        for (int i = 0, p = 0x00; i < weights.length; i++) {
+            for (int r = 0; r < d; r++, p++) {
+                mean[r] += values[p] * weights[i];
+            }
+            total += weights[i];
+        }
+        for (int r = 0; r < d; r++) {
+            mean[r] /= total;
+        }
+        this.distribution.setMean(mean);
+
+        boolean diagonal = structure.isDiagonal();
+        double[][] comoment = new double[d][d];
+        double[] omm = new double[d];
+        double weight = 0.0d;
+        for (int i = 0, p = 0x00; i < weights.length; i++) {
+            for (int r = 0; r < d; r++, p++) {
+                omm[r] = values[p] - mean[r];
+            }
+            if (diagonal) {
+                for (int r = 0; r < d; r++) {
+                    comoment[r][r] += omm[r] * omm[r] * weights[i];
+                }
+            } else {
+                for (int r = 0; r < d; r++) {
+                    for (int c = 0; c < d; c++) {
+                        comoment[r][c] += omm[r] * omm[c] * weights[i];
+                    }
+                }
+            }
+            weight += weights[i];
+        }
+
+        estimateCovariance(comoment, weight);
+    }
+
+    /**
+     * Sets the covariance matrix according to a weighted scatter matrix and
+     * the structure of this distribution. A tied matrix pools the unnormalized
+     * scatter with the one of the other distributions it is tied to, such that
+     * every distribution contributes with its total weight: fitted through an
+     * accumulator or with the gamma values of a Baum-Welch iteration, the
+     * pooled matrix is the maximum likelihood estimate of the tied covariance.
+     *
+     * @param comoment The weighted sum of the outer products of the deviations
+     * from the mean. Only the diagonal is read for diagonal structures.
+     * @param weight The sum of the weights.
+     */
+    private void estimateCovariance(double[][] comoment, double weight) {
+        int d = dimension();
+        CovarianceMatrix covariance = distribution.covarianceMatrix();
+        switch (structure) {
+            case FULL:
+                double[][] result = new double[d][d];
+                for (int r = 0; r < d; r++) {
+                    for (int c = 0; c < d; c++) {
+                        result[r][c] = comoment[r][c] / weight;
+                    }
+                }
+                covariance.set(result);
+                break;
+            case DIAGONAL:
+                double[] variances = new double[d];
+                for (int r = 0; r < d; r++) {
+                    variances[r] = comoment[r][r] / weight;
+                }
+                covariance.setVariances(variances);
+                break;
+            case SPHERICAL:
+                double variance = 0.0d;
+                for (int r = 0; r < d; r++) {
+                    variance += comoment[r][r];
+                }
+                double[] spherical = new double[d];
+                Arrays.fill(spherical, variance / (d * weight));
+                covariance.setVariances(spherical);
+                break;
+            case TIED:
+                covariance.pool(comoment, weight);
+                break;
+        }
+    }
+
+    @Override
+    public int nbParameters() {
+        int d = dimension();
+        switch (structure) {
+            case DIAGONAL:
+                return d + d;
+            case SPHERICAL:
+                return d + 0x01;
+            case TIED:
+                // the shared covariance matrix is counted by nbTiedParameters
+                return d;
+            default:
+                return d + d * (d + 0x01) / 0x02;
+        }
+    }
+
+    /**
+     * Returns the shared covariance matrix of a tied distribution.
+     *
+     * @return The covariance matrix if the structure is
+     * {@link CovarianceStructure#TIED tied}, <code>null</code> otherwise.
+     */
+    @Override
+    public Object tiedParameters() {
+        return structure == CovarianceStructure.TIED ? distribution.covarianceMatrix() : null;
+    }
+
+    @Override
+    public int nbTiedParameters() {
+        int d = dimension();
+        return structure == CovarianceStructure.TIED ? d * (d + 0x01) / 0x02 : 0x00;
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationVector> createAccumulator() {
+        return new MultiGaussianAccumulator();
+    }
+
+    /**
+     * Creates a copy of this distribution. The copy of a tied distribution is
+     * tied to the same covariance matrix, in the same way the clone of a Hidden
+     * Markov Model shares its observation distributions: the copy is
+     * <i>not</i> independent, fitting it modifies the covariance matrix of this
+     * distribution. Use {@link #cloneTied} or
+     * {@link jahmm.RegularHmmBase#deepClone} for an independent copy.
+     *
+     * @return A copy of this distribution.
+     * @throws CloneNotSupportedException
+     */
     @Override
     public OpdfMultiGaussian clone() throws CloneNotSupportedException {
-        return new OpdfMultiGaussian(this.distribution.clone());
+        if (structure == CovarianceStructure.TIED) {
+            return new OpdfMultiGaussian(this.distribution.mean(), this.distribution.covarianceMatrix());
+        }
+        return new OpdfMultiGaussian(this.distribution.clone(), structure);
+    }
+
+    @Override
+    public OpdfMultiGaussian cloneTied(IdentityHashMap<Object, Object> copies) throws CloneNotSupportedException {
+        if (structure != CovarianceStructure.TIED) {
+            return this.clone();
+        }
+        CovarianceMatrix covariance = this.distribution.covarianceMatrix();
+        CovarianceMatrix copy = (CovarianceMatrix) copies.get(covariance);
+        if (copy == null) {
+            copy = covariance.copy();
+            copies.put(covariance, copy);
+        }
+        return new OpdfMultiGaussian(this.distribution.mean(), copy);
     }
 
     /**
@@ -177,4 +484,147 @@ public final class OpdfMultiGaussian extends OpdfBase<ObservationVector> impleme
         sb.append(']');
         return sb.toString();
     }
+
+    /**
+     * Accumulates the weighted mean vector and the weighted co-moment matrix
+     * using the multivariate version of West's incremental algorithm.
+     */
+    private class MultiGaussianAccumulator implements OpdfAccumulator<ObservationVector> {
+
+        private final double[] mean = new double[dimension()];
+        private final double[] delta = new double[dimension()];
+        private final double[][] comoment = new double[dimension()][dimension()];
+        private double totalWeight;
+
+        private final boolean diagonal = structure.isDiagonal();
+
+        @Override
+        public void add(ObservationVector observation, double weight) {
+            if (observation.dimension() != this.mean.length) {
+                throw new IllegalArgumentException("Vector has a wrong dimension");
+            }
+            if (weight <= 0.0d) {
+                return;
+            }
+            double[] x = observation.value;
+            int d = this.mean.length;
+            this.totalWeight += weight;
+            double factor = weight / this.totalWeight;
+            for (int r = 0; r < d; r++) {
+                this.delta[r] = x[r] - this.mean[r];
+                this.mean[r] += this.delta[r] * factor;
+            }
+            if (this.diagonal) {
+                for (int r = 0; r < d; r++) {
+                    this.comoment[r][r] += weight * this.delta[r] * (x[r] - this.mean[r]);
+                }
+                return;
+            }
+            for (int r = 0; r < d; r++) {
+                double wdr = weight * this.delta[r];
+                double[] row = this.comoment[r];
+                for (int c = 0; c < d; c++) {
+                    row[c] += wdr * (x[c] - this.mean[c]);
+                }
+            }
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
+        }
+
+        @Override
+        public void scale(double factor) {
+            int d = this.mean.length;
+            for (int r = 0; r < d; r++) {
+                for (int c = 0; c < d; c++) {
+                    this.comoment[r][c] *= factor;
+                }
+            }
+            this.totalWeight *= factor;
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationVector> other) {
+            if (!(other instanceof MultiGaussianAccumulator) || ((MultiGaussianAccumulator) other).mean.length != this.mean.length) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            MultiGaussianAccumulator that = (MultiGaussianAccumulator) other;
+            if (that.totalWeight <= 0.0d) {
+                return;
+            }
+            int d = this.mean.length;
+            double total = this.totalWeight + that.totalWeight;
+            double cross = this.totalWeight * that.totalWeight / total;
+            for (int r = 0; r < d; r++) {
+                this.delta[r] = that.mean[r] - this.mean[r];
+            }
+            for (int r = 0; r < d; r++) {
+                for (int c = 0; c < d; c++) {
+                    this.comoment[r][c] += that.comoment[r][c] + this.delta[r] * this.delta[c] * cross;
+                }
+                this.mean[r] += this.delta[r] * that.totalWeight / total;
+            }
+            this.totalWeight = total;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            int d = this.mean.length;
+            out.writeInt(d);
+            out.writeDouble(this.totalWeight);
+            for (int r = 0; r < d; r++) {
+                out.writeDouble(this.mean[r]);
+            }
+            for (int r = 0; r < d; r++) {
+                for (int c = r; c < d; c++) {
+                    out.writeDouble(this.comoment[r][c]);
+                }
+            }
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            int d = this.mean.length;
+            if (in.readInt() != d) {
+                throw new IOException("Incompatible accumulator");
+            }
+            MultiGaussianAccumulator that = new MultiGaussianAccumulator();
+            that.totalWeight = in.readDouble();
+            for (int r = 0; r < d; r++) {
+                that.mean[r] = in.readDouble();
+            }
+            for (int r = 0; r < d; r++) {
+                for (int c = r; c < d; c++) {
+                    that.comoment[r][c] = that.comoment[c][r] = in.readDouble();
+                }
+            }
+            this.merge(that);
+        }
+
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            distribution.setMean(this.mean);
+            estimateCovariance(this.comoment, this.totalWeight);
+        }
+
+        /**
+         * Computes the log-likelihood under the covariance matrix the
+         * accumulator fits. A tied covariance matrix is not fitted: the
+         * log-likelihood is computed with the current shared matrix.
+         */
+        @Override
+        public double logLikelihood() {
+            if (this.totalWeight <= 0.0d) {
+                return 0.0d;
+            }
+            CovarianceMatrix covariance = structure == CovarianceStructure.TIED ? distribution.covarianceMatrix() : structure.estimate(this.comoment, this.totalWeight);
+            return covariance.logLikelihood(this.comoment, this.totalWeight);
+        }
+
+    }
 }
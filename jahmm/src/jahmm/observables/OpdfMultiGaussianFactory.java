@@ -4,13 +4,20 @@
  */
 package jahmm.observables;
 
+import jahmm.distributions.CovarianceMatrix;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This class can build <code>OpdfMultiGaussian</code> observation probability
- * functions.
+ * functions. The functions generated by one call to {@link #generate(int)}
+ * with a {@link CovarianceStructure#TIED tied} covariance structure share a
+ * new covariance matrix.
  */
-public final class OpdfMultiGaussianFactory implements OpdfFactory<OpdfMultiGaussian> {
+public final class OpdfMultiGaussianFactory implements TiedOpdfFactory<OpdfMultiGaussian> {
 
     private final int dimension;
+    private final CovarianceStructure structure;
 
     /**
      * Generates a new multivariate Gaussian observation probability
@@ -19,11 +26,40 @@ public final class OpdfMultiGaussianFactory implements OpdfFactory<OpdfMultiGaus
      * @param dimension The dimension of the vectors generated by this object.
      */
     public OpdfMultiGaussianFactory(int dimension) {
+        this(dimension, CovarianceStructure.FULL);
+    }
+
+    /**
+     * Generates a new multivariate Gaussian observation probability
+     * distribution function with a given covariance structure.
+     *
+     * @param dimension The dimension of the vectors generated by this object.
+     * @param structure The structure of the covariance matrices of the
+     * generated functions.
+     */
+    public OpdfMultiGaussianFactory(int dimension, CovarianceStructure structure) {
+        if (dimension <= 0x00) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
         this.dimension = dimension;
+        this.structure = structure;
     }
 
     @Override
     public OpdfMultiGaussian generate() {
-        return new OpdfMultiGaussian(dimension);
+        return this.generate(0x01).get(0x00);
+    }
+
+    @Override
+    public List<OpdfMultiGaussian> generate(int nbOpdfs) {
+        if (nbOpdfs <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        List<OpdfMultiGaussian> opdfs = new ArrayList<>(nbOpdfs);
+        CovarianceMatrix tied = structure == CovarianceStructure.TIED ? new CovarianceMatrix(dimension, false) : null;
+        for (int i = 0; i < nbOpdfs; i++) {
+            opdfs.add(tied != null ? new OpdfMultiGaussian(new double[dimension], tied) : new OpdfMultiGaussian(dimension, structure));
+        }
+        return opdfs;
     }
 }
@@ -0,0 +1,506 @@
+package jahmm.observables;
+
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.distributions.MultiGaussianMixtureDistribution;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * This class implements a mixture of multi-variate Gaussian distributions.
+ * <p>
+ * Fitting performs one iteration of an expectation-maximisation algorithm in
+ * a single pass over the observations: the responsibilities of the Gaussians
+ * are computed once per observation, in log space, and immediately folded
+ * into weighted running means and co-moments per Gaussian. The same
+ * statistics are kept by the accumulator this function creates, so the
+ * mixture can be fitted by the accumulating Baum-Welch learners.
+ *
+ * @author kommusoft
+ */
+public final class OpdfMultiGaussianMixture extends OpdfBase<ObservationVector> implements Opdf<ObservationVector> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(OpdfMultiGaussianMixture.class.getName());
+
+    private final MultiGaussianMixtureDistribution distribution;
+    private final CovarianceStructure structure;
+
+    /**
+     * Creates a multi-variate Gaussian mixture distribution with full
+     * covariance matrices. The means of the distributions are evenly
+     * distributed on the diagonal between the origin and the unit vector and
+     * each covariance matrix is the identity.
+     *
+     * @param nbGaussians The number of Gaussian distributions that compose this
+     * mixture.
+     * @param dimension The dimension of the vectors.
+     */
+    public OpdfMultiGaussianMixture(int nbGaussians, int dimension) {
+        this(nbGaussians, dimension, CovarianceStructure.FULL);
+    }
+
+    /**
+     * Creates a multi-variate Gaussian mixture distribution whose covariance
+     * matrices are restricted to a given structure. The means of the
+     * distributions are evenly distributed on the diagonal between the origin
+     * and the unit vector and each covariance matrix is the identity.
+     *
+     * @param nbGaussians The number of Gaussian distributions that compose this
+     * mixture.
+     * @param dimension The dimension of the vectors.
+     * @param structure The structure of the covariance matrices: full,
+     * diagonal or spherical.
+     */
+    public OpdfMultiGaussianMixture(int nbGaussians, int dimension, CovarianceStructure structure) {
+        if (structure == CovarianceStructure.TIED) {
+            throw new IllegalArgumentException("Tied covariances are not supported by mixtures");
+        }
+        this.distribution = new MultiGaussianMixtureDistribution(nbGaussians, dimension, structure.isDiagonal());
+        this.structure = structure;
+    }
+
+    /**
+     * Creates a multi-variate Gaussian mixture distribution with full
+     * covariance matrices. The mean vector, covariance matrix and proportion
+     * of each distribution composing the mixture are given as arguments.
+     *
+     * @param means The mean vectors of the Gaussian distributions.
+     * @param covariances The covariance matrices of the Gaussian
+     * distributions.
+     * @param proportions The mixing proportions. This array does not have to be
+     * normalized, but each element must be positive and the sum of its elements
+     * must be strictly positive.
+     */
+    public OpdfMultiGaussianMixture(double[][] means, double[][][] covariances, double... proportions) {
+        CovarianceMatrix[] matrices = new CovarianceMatrix[covariances.length];
+        for (int k = 0; k < covariances.length; k++) {
+            matrices[k] = new CovarianceMatrix(covariances[k]);
+        }
+        this.distribution = new MultiGaussianMixtureDistribution(means, matrices, proportions);
+        this.structure = CovarianceStructure.FULL;
+    }
+
+    private OpdfMultiGaussianMixture(MultiGaussianMixtureDistribution distribution, CovarianceStructure structure) {
+        this.distribution = distribution;
+        this.structure = structure;
+    }
+
+    @Override
+    public double probability(ObservationVector o) {
+        return distribution.probability(o.value);
+    }
+
+    @Override
+    public double logProbability(ObservationVector o) {
+        return distribution.logProbability(o.value);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationVector> sequence, int from, int to, double[] out) {
+        this.logProbabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.exp(out[k]);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationVector> sequence, int from, int to, double[] out) {
+        distribution.logProbabilities(ObservationVector.values(sequence, from, to), 0x00, to - from, out);
+    }
+
+    @Override
+    public ObservationVector generate(Random random) {
+        return new ObservationVector(distribution.generate(random));
+    }
+
+    /**
+     * Returns the number of distributions composing this mixture.
+     *
+     * @return The number of distributions composing this mixture.
+     */
+    public int nbGaussians() {
+        return distribution.nbGaussians();
+    }
+
+    /**
+     * Returns the dimension of the vectors handled by this distribution.
+     *
+     * @return The dimension of the vectors handled by this distribution.
+     */
+    public int dimension() {
+        return distribution.dimension();
+    }
+
+    /**
+     * Returns the structure the covariance matrices are restricted to.
+     *
+     * @return The structure of the covariance matrices.
+     */
+    public CovarianceStructure structure() {
+        return structure;
+    }
+
+    @Override
+    public int nbParameters() {
+        int d = dimension();
+        int covariance;
+        switch (structure) {
+            case DIAGONAL:
+                covariance = d;
+                break;
+            case SPHERICAL:
+                covariance = 0x01;
+                break;
+            default:
+                covariance = d * (d + 0x01) / 0x02;
+                break;
+        }
+        return nbGaussians() * (d + covariance + 0x01) - 0x01;
+    }
+
+    /**
+     * Returns the mixing proportions of each Gaussian distribution.
+     *
+     * @return A (copy of) array giving the distributions' proportion.
+     */
+    public double[] proportions() {
+        return distribution.proportions();
+    }
+
+    /**
+     * Returns the mean vector of each distribution composing this mixture.
+     *
+     * @return A copy of the mean vectors.
+     */
+    public double[][] means() {
+        double[][] means = new double[nbGaussians()][];
+        for (int k = 0; k < means.length; k++) {
+            means[k] = distribution.mean(k);
+        }
+        return means;
+    }
+
+    /**
+     * Returns the covariance matrix of each distribution composing this
+     * mixture.
+     *
+     * @return A copy of the covariance matrices.
+     */
+    public double[][][] covariances() {
+        double[][][] covariances = new double[nbGaussians()][][];
+        for (int k = 0; k < covariances.length; k++) {
+            covariances[k] = distribution.covarianceMatrix(k).matrix();
+        }
+        return covariances;
+    }
+
+    /**
+     * Fits this observation distribution function to a (non empty) set of
+     * observations. This method performs one iteration of an
+     * expectation-maximisation algorithm.
+     *
+     * @param oa A set of observations compatible with this function.
+     */
+    @Override
+    public void fit(ObservationVector... oa) {
+        fit(Arrays.asList(oa));
+    }
+
+    /**
+     * Fits this observation distribution function to a (non empty) set of
+     * observations. This method performs one iteration of an
+     * expectation-maximisation algorithm.
+     *
+     * @param co A set of observations compatible with this function.
+     */
+    @Override
+    public void fit(Collection<? extends ObservationVector> co) {
+        double[] weights = new double[co.size()];
+        Arrays.fill(weights, 1. / co.size());
+
+        fit(co, weights);
+    }
+
+    /**
+     * Fits this observation distribution function to a (non empty) weighted set
+     * of observations. This method performs one iteration of an
+     * expectation-maximisation algorithm.
+     *
+     * @param o A set of observations compatible with this function.
+     * @param weights The weights associated to the observations.
+     */
+    @Override
+    public void fit(ObservationVector[] o, double... weights) {
+        fit(Arrays.asList(o), weights);
+    }
+
+    /**
+     * Fits this observation distribution function to a (non empty) weighted set
+     * of observations. This method performs one iteration of an
+     * expectation-maximisation algorithm.
+     *
+     * @param co A set of observations compatible with this function.
+     * @param weights The weights associated to the observations.
+     */
+    @Override
+    public void fit(Collection<? extends ObservationVector> co, double... weights) {
+        if (co.isEmpty() || co.size() != weights.length) {
+            throw new IllegalArgumentException();
+        }
+
+        OpdfAccumulator<ObservationVector> accumulator = createAccumulator();
+        int t = 0;
+        for (ObservationVector o : co) {
+            accumulator.add(o, weights[t++]);
+        }
+        accumulator.fit();
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationVector> createAccumulator() {
+        return new MixtureAccumulator();
+    }
+
+    @Override
+    public OpdfMultiGaussianMixture clone() throws CloneNotSupportedException {
+        return new OpdfMultiGaussianMixture(this.distribution.clone(), structure);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return toString(NumberFormat.getInstance());
+    }
+
+    @Override
+    public String toString(NumberFormat numberFormat) {
+        StringBuilder sb = new StringBuilder("Multi-variate Gaussian mixture distribution --- ");
+        double[] proportions = proportions();
+        for (int k = 0; k < proportions.length; k++) {
+            sb.append(String.format("Gaussian %s:\n\tMixing Prop = %s\n\tMean = [ ", (k + 1), numberFormat.format(proportions[k])));
+            for (double m : distribution.mean(k)) {
+                sb.append(numberFormat.format(m));
+                sb.append(' ');
+            }
+            sb.append("]\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Accumulates, for every Gaussian of the mixture, the sum of the
+     * responsibility weighted observation weights, the weighted mean vector and
+     * the weighted co-moment matrix (only its diagonal for diagonal
+     * structures). The responsibilities are computed with the parameters of
+     * the mixture at the time the observations are added.
+     */
+    private class MixtureAccumulator implements OpdfAccumulator<ObservationVector> {
+
+        private final int d = dimension();
+        private final boolean diagonal = structure.isDiagonal();
+        private final double[] logTerms = new double[nbGaussians()];
+        private final double[] delta = new double[d];
+        private final double[] weights = new double[nbGaussians()];
+        private final double[][] means = new double[nbGaussians()][d];
+        private final double[][][] comoments = new double[nbGaussians()][d][d];
+        private double totalWeight;
+
+        @Override
+        public void add(ObservationVector observation, double weight) {
+            if (observation.dimension() != this.d) {
+                throw new IllegalArgumentException("Vector has a wrong dimension");
+            }
+            if (weight <= 0.0d) {
+                return;
+            }
+            double[] x = observation.value;
+            double lse = distribution.logComponents(x, this.logTerms);
+            if (lse == Double.NEGATIVE_INFINITY) {
+                return;
+            }
+            this.totalWeight += weight;
+            for (int k = 0; k < this.logTerms.length; k++) {
+                double w = weight * Math.exp(this.logTerms[k] - lse);
+                if (w <= 0.0d) {
+                    continue;
+                }
+                this.weights[k] += w;
+                this.update(this.means[k], this.comoments[k], w, w / this.weights[k], x);
+            }
+        }
+
+        private void update(double[] mean, double[][] comoment, double w, double factor, double[] x) {
+            for (int r = 0; r < this.d; r++) {
+                this.delta[r] = x[r] - mean[r];
+                mean[r] += this.delta[r] * factor;
+            }
+            if (this.diagonal) {
+                for (int r = 0; r < this.d; r++) {
+                    comoment[r][r] += w * this.delta[r] * (x[r] - mean[r]);
+                }
+                return;
+            }
+            for (int r = 0; r < this.d; r++) {
+                double wdr = w * this.delta[r];
+                double[] row = comoment[r];
+                for (int c = 0; c < this.d; c++) {
+                    row[c] += wdr * (x[c] - mean[c]);
+                }
+            }
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
+        }
+
+        @Override
+        public void scale(double factor) {
+            for (int k = 0; k < this.weights.length; k++) {
+                this.weights[k] *= factor;
+                for (double[] row : this.comoments[k]) {
+                    for (int c = 0; c < this.d; c++) {
+                        row[c] *= factor;
+                    }
+                }
+            }
+            this.totalWeight *= factor;
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationVector> other) {
+            if (!(other instanceof MixtureAccumulator) || ((MixtureAccumulator) other).d != this.d
+                    || ((MixtureAccumulator) other).weights.length != this.weights.length) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            MixtureAccumulator that = (MixtureAccumulator) other;
+            for (int k = 0; k < this.weights.length; k++) {
+                if (that.weights[k] <= 0.0d) {
+                    continue;
+                }
+                double total = this.weights[k] + that.weights[k];
+                double cross = this.weights[k] * that.weights[k] / total;
+                double[] mean = this.means[k];
+                for (int r = 0; r < this.d; r++) {
+                    this.delta[r] = that.means[k][r] - mean[r];
+                }
+                for (int r = 0; r < this.d; r++) {
+                    for (int c = 0; c < this.d; c++) {
+                        this.comoments[k][r][c] += that.comoments[k][r][c] + this.delta[r] * this.delta[c] * cross;
+                    }
+                    mean[r] += this.delta[r] * that.weights[k] / total;
+                }
+                this.weights[k] = total;
+            }
+            this.totalWeight += that.totalWeight;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(this.weights.length);
+            out.writeInt(this.d);
+            out.writeDouble(this.totalWeight);
+            for (int k = 0; k < this.weights.length; k++) {
+                out.writeDouble(this.weights[k]);
+                for (int r = 0; r < this.d; r++) {
+                    out.writeDouble(this.means[k][r]);
+                }
+                for (int r = 0; r < this.d; r++) {
+                    for (int c = r; c < this.d; c++) {
+                        out.writeDouble(this.comoments[k][r][c]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            if (in.readInt() != this.weights.length || in.readInt() != this.d) {
+                throw new IOException("Incompatible accumulator");
+            }
+            MixtureAccumulator that = new MixtureAccumulator();
+            that.totalWeight = in.readDouble();
+            for (int k = 0; k < this.weights.length; k++) {
+                that.weights[k] = in.readDouble();
+                for (int r = 0; r < this.d; r++) {
+                    that.means[k][r] = in.readDouble();
+                }
+                for (int r = 0; r < this.d; r++) {
+                    for (int c = r; c < this.d; c++) {
+                        that.comoments[k][r][c] = that.comoments[k][c][r] = in.readDouble();
+                    }
+                }
+            }
+            this.merge(that);
+        }
+
+        /**
+         * Sets the proportions, means and covariance matrices of the mixture.
+         * A Gaussian that received no weight keeps its mean and covariance
+         * matrix and gets a zero proportion.
+         */
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            for (int k = 0; k < this.weights.length; k++) {
+                double w = this.weights[k];
+                if (w <= 0.0d) {
+                    continue;
+                }
+                distribution.setMean(k, this.means[k]);
+                CovarianceMatrix covariance = distribution.covarianceMatrix(k);
+                double[][] comoment = this.comoments[k];
+                switch (structure) {
+                    case DIAGONAL:
+                    case SPHERICAL:
+                        double[] variances = new double[this.d];
+                        double sum = 0.0d;
+                        for (int r = 0; r < this.d; r++) {
+                            variances[r] = comoment[r][r] / w;
+                            sum += variances[r];
+                        }
+                        if (structure == CovarianceStructure.SPHERICAL) {
+                            Arrays.fill(variances, sum / this.d);
+                        }
+                        covariance.setVariances(variances);
+                        break;
+                    default:
+                        double[][] result = new double[this.d][this.d];
+                        for (int r = 0; r < this.d; r++) {
+                            for (int c = 0; c < this.d; c++) {
+                                result[r][c] = comoment[r][c] / w;
+                            }
+                        }
+                        covariance.set(result);
+                        break;
+                }
+            }
+            distribution.setProportions(this.weights);
+        }
+
+        @Override
+        public double logLikelihood() {
+            double ll = 0.0d;
+            for (int k = 0; k < this.weights.length; k++) {
+                double w = this.weights[k];
+                if (w > 0.0d) {
+                    ll += w * Math.log(w / this.totalWeight) + structure.estimate(this.comoments[k], w).logLikelihood(this.comoments[k], w);
+                }
+            }
+            return ll;
+        }
+
+    }
+}
@@ -0,0 +1,48 @@
+package jahmm.observables;
+
+/**
+ * Implements a factory of multi-variate Gaussian mixtures distributions.
+ *
+ * @author kommusoft
+ */
+public final class OpdfMultiGaussianMixtureFactory implements OpdfFactory<OpdfMultiGaussianMixture> {
+
+    private final int gaussiansNb;
+    private final int dimension;
+    private final CovarianceStructure structure;
+
+    /**
+     * Creates a new factory of multi-variate Gaussian mixtures with full
+     * covariance matrices.
+     *
+     * @param gaussiansNb The number of Gaussian distributions involved in the
+     * generated distributions.
+     * @param dimension The dimension of the vectors.
+     */
+    public OpdfMultiGaussianMixtureFactory(int gaussiansNb, int dimension) {
+        this(gaussiansNb, dimension, CovarianceStructure.FULL);
+    }
+
+    /**
+     * Creates a new factory of multi-variate Gaussian mixtures.
+     *
+     * @param gaussiansNb The number of Gaussian distributions involved in the
+     * generated distributions.
+     * @param dimension The dimension of the vectors.
+     * @param structure The structure of the covariance matrices: full,
+     * diagonal or spherical.
+     */
+    public OpdfMultiGaussianMixtureFactory(int gaussiansNb, int dimension, CovarianceStructure structure) {
+        if (structure == CovarianceStructure.TIED) {
+            throw new IllegalArgumentException("Tied covariances are not supported by mixtures");
+        }
+        this.gaussiansNb = gaussiansNb;
+        this.dimension = dimension;
+        this.structure = structure;
+    }
+
+    @Override
+    public OpdfMultiGaussianMixture generate() {
+        return new OpdfMultiGaussianMixture(gaussiansNb, dimension, structure);
+    }
+}
@@ -0,0 +1,502 @@
+package jahmm.observables;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import jutlis.lists.ListArray;
+
+/**
+ * A distribution of integer observations over a large alphabet
+ * <code>0</code> to <code>nbEntries() - 1</code> of which only a few values
+ * have their own probability. The values with a probability are stored as a
+ * sorted array of keys, looked up by binary search, together with an array of
+ * probabilities; every other value has the same (default) probability.
+ * <p>
+ * Fitting the distribution only touches the observed values: they receive
+ * <code>1 - smoothing()</code> of the probability mass, in proportion to their
+ * weights, and the unseen values share the remaining <code>smoothing()</code>
+ * mass equally (if every value is observed, the observed values receive the
+ * whole mass). Without smoothing, the distribution fits as an
+ * {@link OpdfInteger}.
+ *
+ * @author kommusoft
+ */
+public final class OpdfSparseInteger extends OpdfBase<ObservationInteger> implements Opdf<ObservationInteger> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(OpdfSparseInteger.class.getName());
+
+    private final int nbEntries;
+    private final double smoothing;
+    private volatile Table table;
+
+    /**
+     * Builds a new uniform distribution over the values <code>0</code> to
+     * <code>nbEntries - 1</code>, fitted without smoothing.
+     *
+     * @param nbEntries The (strictly positive) number of values.
+     */
+    public OpdfSparseInteger(int nbEntries) {
+        this(nbEntries, 0.0d);
+    }
+
+    /**
+     * Builds a new uniform distribution over the values <code>0</code> to
+     * <code>nbEntries - 1</code>.
+     *
+     * @param nbEntries The (strictly positive) number of values.
+     * @param smoothing The probability mass given to the unseen values when
+     * the distribution is fitted (<code>0 &le; smoothing &lt; 1</code>).
+     */
+    public OpdfSparseInteger(int nbEntries, double smoothing) {
+        this(nbEntries, smoothing, new int[0x00], new double[0x00], 1.0d / nbEntries);
+    }
+
+    /**
+     * Builds a new distribution with the given probabilities.
+     *
+     * @param nbEntries The (strictly positive) number of values.
+     * @param smoothing The probability mass given to the unseen values when
+     * the distribution is fitted (<code>0 &le; smoothing &lt; 1</code>).
+     * @param keys The values that have their own probability, in strictly
+     * increasing order. The array is copied.
+     * @param probabilities The probabilities of the keys. The array is copied.
+     * @param defaultProbability The probability of every other value.
+     */
+    public OpdfSparseInteger(int nbEntries, double smoothing, int[] keys, double[] probabilities, double defaultProbability) {
+        if (nbEntries <= 0x00) {
+            throw new IllegalArgumentException("Argument must be strictly positive");
+        }
+        if (smoothing < 0.0d || smoothing >= 1.0d) {
+            throw new IllegalArgumentException("Smoothing must be in [0,1)");
+        }
+        if (keys.length != probabilities.length || defaultProbability < 0.0d) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] < 0x00 || keys[i] >= nbEntries || (i > 0x00 && keys[i] <= keys[i - 1]) || probabilities[i] < 0.0d) {
+                throw new IllegalArgumentException();
+            }
+        }
+        this.nbEntries = nbEntries;
+        this.smoothing = smoothing;
+        this.table = new Table(keys.clone(), probabilities.clone(), defaultProbability);
+    }
+
+    private OpdfSparseInteger(int nbEntries, double smoothing, Table table) {
+        this.nbEntries = nbEntries;
+        this.smoothing = smoothing;
+        this.table = table;
+    }
+
+    /**
+     * Returns the number of values of this distribution.
+     *
+     * @return The number of values of this distribution.
+     */
+    public int nbEntries() {
+        return this.nbEntries;
+    }
+
+    /**
+     * Returns the probability mass given to the unseen values when this
+     * distribution is fitted.
+     *
+     * @return The smoothing mass.
+     */
+    public double smoothing() {
+        return this.smoothing;
+    }
+
+    /**
+     * Returns the values that have their own probability.
+     *
+     * @return A copy of the sorted keys of this distribution.
+     */
+    public int[] keys() {
+        return this.table.keys.clone();
+    }
+
+    /**
+     * Returns the probabilities of the keys of this distribution.
+     *
+     * @return A copy of the probabilities of the keys, in the order of
+     * {@link #keys()}.
+     */
+    public double[] probabilities() {
+        return this.table.probabilities.clone();
+    }
+
+    /**
+     * Returns the probability of the values that are not keys.
+     *
+     * @return The default probability.
+     */
+    public double defaultProbability() {
+        return this.table.defaultProbability;
+    }
+
+    private double probability(Table t, int value) {
+        if (value < 0x00 || value >= this.nbEntries) {
+            throw new IllegalArgumentException("Wrong observation value");
+        }
+        return t.probability(value);
+    }
+
+    @Override
+    public double probability(ObservationInteger o) {
+        return this.probability(this.table, o.value);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationInteger> sequence, int from, int to, double[] out) {
+        Table t = this.table;
+        if (sequence instanceof ObservationIntegerSequence) {
+            ObservationIntegerSequence packed = (ObservationIntegerSequence) sequence;
+            for (int i = from, k = 0x00; i < to; i++, k++) {
+                out[k] = this.probability(t, packed.value(i));
+            }
+            return;
+        }
+        for (int i = from, k = 0x00; i < to; i++, k++) {
+            out[k] = this.probability(t, sequence.get(i).value);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationInteger> sequence, int from, int to, double[] out) {
+        this.probabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.log(out[k]);
+        }
+    }
+
+    @Override
+    public ObservationInteger generate(Random random) {
+        Table t = this.table;
+        int[] keys = t.keys;
+        int unseen = this.nbEntries - keys.length;
+        double rand = random.nextDouble();
+        double unseenMass = t.defaultProbability * unseen;
+        if (rand < unseenMass || keys.length == 0x00) {
+            int value = Math.min((int) (rand / unseenMass * unseen), unseen - 0x01);
+            for (int key : keys) {
+                if (key <= value) {
+                    value++;
+                } else {
+                    break;
+                }
+            }
+            return new ObservationInteger(value);
+        }
+        rand -= unseenMass;
+        for (int i = 0; i < keys.length - 1; i++) {
+            if ((rand -= t.probabilities[i]) < 0.0d) {
+                return new ObservationInteger(keys[i]);
+            }
+        }
+        return new ObservationInteger(keys[keys.length - 1]);
+    }
+
+    @Override
+    public void fit(ObservationInteger... oa) {
+        fit(new ListArray<>(oa));
+    }
+
+    @Override
+    public void fit(Collection<? extends ObservationInteger> co) {
+        if (co.isEmpty()) {
+            throw new IllegalArgumentException("Empty observation set");
+        }
+        double[] weights = new double[co.size()];
+        Arrays.fill(weights, 1.0d / co.size());
+        fit(co, weights);
+    }
+
+    @Override
+    public void fit(ObservationInteger[] o, double... weights) {
+        fit(new ListArray<>(o), weights);
+    }
+
+    @Override
+    public void fit(Collection<? extends ObservationInteger> co, double... weights) {
+        if (co.isEmpty() || co.size() != weights.length) {
+            throw new IllegalArgumentException();
+        }
+        Counts counts = new Counts();
+        int i = 0;
+        for (ObservationInteger o : co) {
+            if (o.value < 0x00 || o.value >= this.nbEntries) {
+                throw new IllegalArgumentException("Wrong observation value");
+            }
+            counts.add(o.value, weights[i++]);
+        }
+        this.fit(counts, counts.total());
+    }
+
+    private void fit(Counts counts, double total) {
+        int[] keys = counts.keys();
+        int n = 0x00;
+        for (int key : keys) {
+            if (counts.get(key) > 0.0d) {
+                keys[n++] = key;
+            }
+        }
+        keys = Arrays.copyOf(keys, n);
+        Arrays.sort(keys);
+        int unseen = this.nbEntries - n;
+        double mass = unseen > 0x00 ? this.smoothing : 0.0d;
+        double[] probabilities = new double[n];
+        for (int i = 0; i < n; i++) {
+            probabilities[i] = (1.0d - mass) * counts.get(keys[i]) / total;
+        }
+        this.table = new Table(keys, probabilities, unseen > 0x00 ? mass / unseen : 0.0d);
+    }
+
+    @Override
+    public int nbParameters() {
+        return Math.max(this.table.keys.length - 0x01, 0x00);
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationInteger> createAccumulator() {
+        return new SparseAccumulator();
+    }
+
+    @Override
+    public OpdfSparseInteger clone() throws CloneNotSupportedException {
+        return new OpdfSparseInteger(this.nbEntries, this.smoothing, this.table);
+    }
+
+    @Override
+    public String toString() {
+        return toString(NumberFormat.getInstance());
+    }
+
+    @Override
+    public String toString(NumberFormat numberFormat) {
+        Table t = this.table;
+        StringBuilder sb = new StringBuilder("Sparse integer distribution --- ");
+        for (int i = 0; i < t.keys.length; i++) {
+            sb.append(t.keys[i]).append(':').append(numberFormat.format(t.probabilities[i])).append(' ');
+        }
+        sb.append("default:").append(numberFormat.format(t.defaultProbability));
+        return sb.toString();
+    }
+
+    /**
+     * The (immutable) probabilities of a sparse distribution.
+     */
+    private static final class Table implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final int[] keys;
+        final double[] probabilities;
+        final double defaultProbability;
+
+        Table(int[] keys, double[] probabilities, double defaultProbability) {
+            this.keys = keys;
+            this.probabilities = probabilities;
+            this.defaultProbability = defaultProbability;
+        }
+
+        double probability(int value) {
+            int index = Arrays.binarySearch(this.keys, value);
+            return index >= 0x00 ? this.probabilities[index] : this.defaultProbability;
+        }
+
+    }
+
+    /**
+     * Weights indexed by integer values, stored in an open addressing hash
+     * table with linear probing.
+     */
+    private static final class Counts {
+
+        private static final int FREE = -0x01;
+
+        private int[] keys;
+        private double[] values;
+        private int size;
+        private double total;
+
+        Counts() {
+            this.keys = new int[0x10];
+            this.values = new double[0x10];
+            Arrays.fill(this.keys, FREE);
+        }
+
+        private int slot(int key) {
+            int mask = this.keys.length - 0x01;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 0x10) & mask;
+            while (this.keys[slot] != FREE && this.keys[slot] != key) {
+                slot = (slot + 0x01) & mask;
+            }
+            return slot;
+        }
+
+        void add(int key, double weight) {
+            int slot = this.slot(key);
+            if (this.keys[slot] == FREE) {
+                this.keys[slot] = key;
+                if (++this.size * 0x02 > this.keys.length) {
+                    this.grow();
+                    slot = this.slot(key);
+                }
+            }
+            this.values[slot] += weight;
+            this.total += weight;
+        }
+
+        double get(int key) {
+            int slot = this.slot(key);
+            return this.keys[slot] == FREE ? 0.0d : this.values[slot];
+        }
+
+        double total() {
+            return this.total;
+        }
+
+        void scale(double factor) {
+            for (int i = 0; i < this.values.length; i++) {
+                this.values[i] *= factor;
+            }
+            this.total *= factor;
+        }
+
+        int[] keys() {
+            int[] result = new int[this.size];
+            int n = 0x00;
+            for (int key : this.keys) {
+                if (key != FREE) {
+                    result[n++] = key;
+                }
+            }
+            return result;
+        }
+
+        private void grow() {
+            int[] oldKeys = this.keys;
+            double[] oldValues = this.values;
+            this.keys = new int[oldKeys.length << 0x01];
+            this.values = new double[oldKeys.length << 0x01];
+            Arrays.fill(this.keys, FREE);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    int slot = this.slot(oldKeys[i]);
+                    this.keys[slot] = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Accumulates the weights of the observed values only.
+     */
+    private class SparseAccumulator implements OpdfAccumulator<ObservationInteger> {
+
+        private final Counts counts = new Counts();
+
+        @Override
+        public void add(ObservationInteger observation, double weight) {
+            if (observation.value < 0x00 || observation.value >= nbEntries) {
+                throw new IllegalArgumentException("Wrong observation value");
+            }
+            this.counts.add(observation.value, weight);
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.counts.total();
+        }
+
+        @Override
+        public void scale(double factor) {
+            this.counts.scale(factor);
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationInteger> other) {
+            if (!(other instanceof OpdfSparseInteger.SparseAccumulator) || ((SparseAccumulator) other).nbEntries() != nbEntries) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            Counts that = ((SparseAccumulator) other).counts;
+            for (int key : that.keys()) {
+                this.counts.add(key, that.get(key));
+            }
+        }
+
+        private int nbEntries() {
+            return nbEntries;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            int[] keys = this.counts.keys();
+            out.writeInt(nbEntries);
+            out.writeInt(keys.length);
+            for (int key : keys) {
+                out.writeInt(key);
+                out.writeDouble(this.counts.get(key));
+            }
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            if (in.readInt() != nbEntries) {
+                throw new IOException("Incompatible accumulator");
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                int key = in.readInt();
+                this.counts.add(key, in.readDouble());
+            }
+        }
+
+        @Override
+        public void fit() {
+            if (this.counts.total() <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            OpdfSparseInteger.this.fit(this.counts, this.counts.total());
+        }
+
+        /**
+         * Computes the log-likelihood under the smoothed probabilities the
+         * accumulator fits.
+         */
+        @Override
+        public double logLikelihood() {
+            double total = this.counts.total();
+            int[] keys = this.counts.keys();
+            int n = 0x00;
+            for (int key : keys) {
+                if (this.counts.get(key) > 0.0d) {
+                    n++;
+                }
+            }
+            double scale = n < nbEntries ? (1.0d - smoothing) / total : 1.0d / total;
+            double ll = 0.0d;
+            for (int key : keys) {
+                double count = this.counts.get(key);
+                if (count > 0.0d) {
+                    ll += count * Math.log(scale * count);
+                }
+            }
+            return ll;
+        }
+
+    }
+
+}
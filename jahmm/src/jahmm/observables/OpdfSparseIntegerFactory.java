@@ -0,0 +1,42 @@
+package jahmm.observables;
+
+import java.util.logging.Logger;
+
+/**
+ * A factory of {@link OpdfSparseInteger} distributions.
+ *
+ * @author kommusoft
+ */
+public final class OpdfSparseIntegerFactory implements OpdfFactory<OpdfSparseInteger> {
+
+    private static final Logger LOG = Logger.getLogger(OpdfSparseIntegerFactory.class.getName());
+
+    private final int nbEntries;
+    private final double smoothing;
+
+    /**
+     * Creates a factory for sparse distributions fitted without smoothing.
+     *
+     * @param nbEntries The number of values of the returned distributions.
+     */
+    public OpdfSparseIntegerFactory(int nbEntries) {
+        this(nbEntries, 0.0d);
+    }
+
+    /**
+     * Creates a factory for sparse distributions.
+     *
+     * @param nbEntries The number of values of the returned distributions.
+     * @param smoothing The probability mass the returned distributions give
+     * to the unseen values when they are fitted.
+     */
+    public OpdfSparseIntegerFactory(int nbEntries, double smoothing) {
+        this.nbEntries = nbEntries;
+        this.smoothing = smoothing;
+    }
+
+    @Override
+    public OpdfSparseInteger generate() {
+        return new OpdfSparseInteger(nbEntries, smoothing);
+    }
+}
@@ -0,0 +1,446 @@
+package jahmm.observables;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * This class implements a semi-continuous (tied-mixture) distribution: a
+ * mixture of the mono variate Gaussians of a {@link GaussianCodebook} shared
+ * with other distributions. This distribution only holds its mixing
+ * proportions.
+ * <p>
+ * Fitting this distribution estimates its proportions and pools the
+ * statistics of the Gaussians into the codebook (see
+ * {@link GaussianCodebook#pool}) weighted by the weights of the
+ * observations: the learners pass the (unnormalized) state occupancies, such
+ * that every distribution contributes to the codebook in proportion to the
+ * observations it accounts for. When the states of a Hidden Markov Model all
+ * share one codebook, the calculators evaluate the Gaussians of the codebook
+ * once per observation (see {@link EmissionBank}).
+ *
+ * @author kommusoft
+ */
+public final class OpdfTiedGaussianMixture extends OpdfBase<ObservationReal> implements TiedOpdf<ObservationReal> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(OpdfTiedGaussianMixture.class.getName());
+
+    private final GaussianCodebook codebook;
+    private final double[] proportions;
+    private final double[] logProportions;
+
+    /**
+     * Creates a tied mixture with equal proportions.
+     *
+     * @param codebook The shared codebook.
+     */
+    public OpdfTiedGaussianMixture(GaussianCodebook codebook) {
+        this.codebook = codebook;
+        this.proportions = new double[codebook.size()];
+        this.logProportions = new double[codebook.size()];
+        Arrays.fill(this.proportions, 1.0d / codebook.size());
+        Arrays.fill(this.logProportions, -Math.log(codebook.size()));
+    }
+
+    /**
+     * Creates a tied mixture with the given proportions.
+     *
+     * @param codebook The shared codebook.
+     * @param proportions The mixing proportions. This array does not have to be
+     * normalized, but each element must be positive and the sum of its elements
+     * must be strictly positive.
+     */
+    public OpdfTiedGaussianMixture(GaussianCodebook codebook, double... proportions) {
+        this(codebook);
+        this.setProportions(proportions);
+    }
+
+    /**
+     * Returns the codebook this distribution is a mixture of. The codebook is
+     * shared.
+     *
+     * @return The codebook of this distribution.
+     */
+    public GaussianCodebook codebook() {
+        return this.codebook;
+    }
+
+    /**
+     * Returns the mixing proportions of the Gaussians of the codebook.
+     *
+     * @return A copy of the proportions.
+     */
+    public double[] proportions() {
+        return this.proportions.clone();
+    }
+
+    /**
+     * Returns the logarithms of the mixing proportions. The array must not be
+     * modified.
+     */
+    double[] logProportions() {
+        return this.logProportions;
+    }
+
+    /**
+     * Sets the mixing proportions of the Gaussians of the codebook.
+     *
+     * @param proportions The mixing proportions. This array does not have to be
+     * normalized, but each element must be positive and the sum of its elements
+     * must be strictly positive.
+     */
+    public void setProportions(double... proportions) {
+        if (proportions.length != this.proportions.length) {
+            throw new IllegalArgumentException();
+        }
+        double sum = 0.0d;
+        for (int k = 0; k < proportions.length; k++) {
+            if (proportions[k] < 0.0d) {
+                throw new IllegalArgumentException();
+            }
+            sum += proportions[k];
+        }
+        if (sum <= 0.0d) {
+            throw new IllegalArgumentException();
+        }
+        for (int k = 0; k < proportions.length; k++) {
+            this.proportions[k] = proportions[k] / sum;
+            this.logProportions[k] = Math.log(this.proportions[k]);
+        }
+    }
+
+    /**
+     * Combines logarithmic densities of the Gaussians of the codebook into the
+     * logarithmic density of the mixture. The responsibilities of the
+     * Gaussians are stored in <code>out</code>.
+     *
+     * @param logDensities The logarithmic densities of an observation.
+     * @param out An array in which the responsibilities are stored. Its
+     * content is undefined if the result is negative infinity.
+     * @return The logarithm of the density of the mixture.
+     */
+    private double responsibilities(double[] logDensities, double[] out) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < out.length; k++) {
+            double l = this.logProportions[k] + logDensities[k];
+            out[k] = l;
+            if (l > max) {
+                max = l;
+            }
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        double sum = 0.0d;
+        for (int k = 0; k < out.length; k++) {
+            sum += (out[k] = Math.exp(out[k] - max));
+        }
+        for (int k = 0; k < out.length; k++) {
+            out[k] /= sum;
+        }
+        return max + Math.log(sum);
+    }
+
+    @Override
+    public double probability(ObservationReal o) {
+        return Math.exp(this.logProbability(o));
+    }
+
+    @Override
+    public double logProbability(ObservationReal o) {
+        double[] logDensities = new double[this.proportions.length];
+        this.codebook.snapshot().logDensities(o.value, logDensities);
+        return this.responsibilities(logDensities, logDensities);
+    }
+
+    @Override
+    public void probabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        this.logProbabilities(sequence, from, to, out);
+        for (int k = 0x00; k < to - from; k++) {
+            out[k] = Math.exp(out[k]);
+        }
+    }
+
+    @Override
+    public void logProbabilities(List<? extends ObservationReal> sequence, int from, int to, double[] out) {
+        GaussianCodebook.Snapshot snapshot = this.codebook.snapshot();
+        double[] logDensities = new double[this.proportions.length];
+        for (int t = from, k = 0x00; t < to; t++, k++) {
+            snapshot.logDensities(sequence.get(t).value, logDensities);
+            out[k] = this.responsibilities(logDensities, logDensities);
+        }
+    }
+
+    @Override
+    public ObservationReal generate(Random random) {
+        GaussianCodebook.Snapshot snapshot = this.codebook.snapshot();
+        double r = random.nextDouble();
+        int k = 0;
+        for (double sum = this.proportions[0]; r > sum && k < this.proportions.length - 1;) {
+            sum += this.proportions[++k];
+        }
+        return new ObservationReal(snapshot.means[k] + Math.sqrt(snapshot.variances[k]) * random.nextGaussian());
+    }
+
+    @Override
+    public void fit(ObservationReal... oa) {
+        fit(Arrays.asList(oa));
+    }
+
+    @Override
+    public void fit(Collection<? extends ObservationReal> co) {
+        double[] weights = new double[co.size()];
+        Arrays.fill(weights, 1. / co.size());
+
+        fit(co, weights);
+    }
+
+    @Override
+    public void fit(ObservationReal[] o, double... weights) {
+        fit(Arrays.asList(o), weights);
+    }
+
+    /**
+     * Fits this distribution to a (non empty) weighted set of observations.
+     * This method performs one iteration of an expectation-maximisation
+     * algorithm. The logarithmic densities of the observations under the
+     * Gaussians of the codebook are shared with the other distributions fitted
+     * on the same list of observations. The statistics are pooled into the
+     * codebook with the given weights: when the codebook is shared, these
+     * should not be normalized per distribution.
+     *
+     * @param co A set of observations compatible with this function.
+     * @param weights The weights associated to the observations.
+     */
+    @Override
+    public void fit(Collection<? extends ObservationReal> co, double... weights) {
+        if (co.isEmpty() || co.size() != weights.length) {
+            throw new IllegalArgumentException();
+        }
+        List<? extends ObservationReal> observations = co instanceof List ? (List<? extends ObservationReal>) co : new ArrayList<>(co);
+        double[][] logDensities = this.codebook.logDensities(observations);
+        TiedMixtureAccumulator accumulator = new TiedMixtureAccumulator();
+        int t = 0;
+        for (ObservationReal o : observations) {
+            accumulator.add(o.value, logDensities[t], weights[t]);
+            t++;
+        }
+        accumulator.fit();
+    }
+
+    @Override
+    public OpdfAccumulator<ObservationReal> createAccumulator() {
+        return new TiedMixtureAccumulator();
+    }
+
+    /**
+     * Returns the number of free mixing proportions. The Gaussians of the
+     * codebook are counted by {@link #nbTiedParameters()}.
+     *
+     * @return The number of free parameters of this distribution.
+     */
+    @Override
+    public int nbParameters() {
+        return this.proportions.length - 0x01;
+    }
+
+    /**
+     * Returns the codebook of this distribution.
+     *
+     * @return The shared codebook.
+     */
+    @Override
+    public Object tiedParameters() {
+        return this.codebook;
+    }
+
+    /**
+     * Returns the number of parameters of the codebook: a mean and a variance
+     * per Gaussian.
+     *
+     * @return The number of parameters of the codebook.
+     */
+    @Override
+    public int nbTiedParameters() {
+        return 0x02 * this.codebook.size();
+    }
+
+    /**
+     * Creates a copy of this distribution; the copy shares the codebook, such
+     * that it is <i>not</i> independent: fitting it modifies the codebook of
+     * this distribution. Use {@link #cloneTied} or
+     * {@link jahmm.RegularHmmBase#deepClone} for an independent copy.
+     *
+     * @return A copy of this distribution.
+     */
+    @Override
+    public OpdfTiedGaussianMixture clone() {
+        return new OpdfTiedGaussianMixture(this.codebook, this.proportions);
+    }
+
+    @Override
+    public OpdfTiedGaussianMixture cloneTied(IdentityHashMap<Object, Object> copies) {
+        GaussianCodebook copy = (GaussianCodebook) copies.get(this.codebook);
+        if (copy == null) {
+            copy = this.codebook.copy();
+            copies.put(this.codebook, copy);
+        }
+        return new OpdfTiedGaussianMixture(copy, this.proportions);
+    }
+
+    @Override
+    public String toString() {
+        return toString(NumberFormat.getInstance());
+    }
+
+    @Override
+    public String toString(NumberFormat numberFormat) {
+        StringBuilder sb = new StringBuilder("Tied Gaussian mixture distribution --- ");
+        double[] means = this.codebook.means();
+        double[] variances = this.codebook.variances();
+        for (int k = 0; k < this.proportions.length; k++) {
+            sb.append(String.format("Gaussian %s:\n\tMixing Prop = %s\n\tMean = %s\n\tVariance = %s\n", (k + 1), numberFormat.format(this.proportions[k]), numberFormat.format(means[k]), numberFormat.format(variances[k])));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Accumulates, for every Gaussian of the codebook, the sum of the
+     * responsibility weighted observation weights, the weighted mean and the
+     * weighted second central moment. Fitting sets the proportions of the
+     * distribution and pools the moments into the codebook.
+     */
+    private class TiedMixtureAccumulator implements OpdfAccumulator<ObservationReal> {
+
+        private final GaussianCodebook.Snapshot snapshot = codebook.estimationSnapshot();
+        private final double[] logDensities = new double[proportions.length];
+        private final double[] responsibilities = new double[proportions.length];
+        private final double[] weights = new double[proportions.length];
+        private final double[] means = new double[proportions.length];
+        private final double[] moments = new double[proportions.length];
+        private double totalWeight;
+
+        @Override
+        public void add(ObservationReal observation, double weight) {
+            this.snapshot.logDensities(observation.value, this.logDensities);
+            this.add(observation.value, this.logDensities, weight);
+        }
+
+        void add(double x, double[] logDensities, double weight) {
+            if (weight <= 0.0d || responsibilities(logDensities, this.responsibilities) == Double.NEGATIVE_INFINITY) {
+                return;
+            }
+            this.totalWeight += weight;
+            for (int k = 0; k < this.weights.length; k++) {
+                double w = weight * this.responsibilities[k];
+                if (w <= 0.0d) {
+                    continue;
+                }
+                this.weights[k] += w;
+                double delta = x - this.means[k];
+                this.means[k] += delta * w / this.weights[k];
+                this.moments[k] += w * delta * (x - this.means[k]);
+            }
+        }
+
+        @Override
+        public double totalWeight() {
+            return this.totalWeight;
+        }
+
+        @Override
+        public void scale(double factor) {
+            for (int k = 0; k < this.weights.length; k++) {
+                this.weights[k] *= factor;
+                this.moments[k] *= factor;
+            }
+            this.totalWeight *= factor;
+        }
+
+        @Override
+        public void merge(OpdfAccumulator<ObservationReal> other) {
+            if (!(other instanceof TiedMixtureAccumulator) || ((TiedMixtureAccumulator) other).weights.length != this.weights.length) {
+                throw new IllegalArgumentException("Incompatible accumulator");
+            }
+            TiedMixtureAccumulator that = (TiedMixtureAccumulator) other;
+            for (int k = 0; k < this.weights.length; k++) {
+                if (that.weights[k] <= 0.0d) {
+                    continue;
+                }
+                double total = this.weights[k] + that.weights[k];
+                double delta = that.means[k] - this.means[k];
+                this.moments[k] += that.moments[k] + delta * delta * this.weights[k] * that.weights[k] / total;
+                this.means[k] += delta * that.weights[k] / total;
+                this.weights[k] = total;
+            }
+            this.totalWeight += that.totalWeight;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(this.weights.length);
+            out.writeDouble(this.totalWeight);
+            for (int k = 0; k < this.weights.length; k++) {
+                out.writeDouble(this.weights[k]);
+                out.writeDouble(this.means[k]);
+                out.writeDouble(this.moments[k]);
+            }
+        }
+
+        @Override
+        public void read(DataInput in) throws IOException {
+            if (in.readInt() != this.weights.length) {
+                throw new IOException("Incompatible accumulator");
+            }
+            TiedMixtureAccumulator that = new TiedMixtureAccumulator();
+            that.totalWeight = in.readDouble();
+            for (int k = 0; k < this.weights.length; k++) {
+                that.weights[k] = in.readDouble();
+                that.means[k] = in.readDouble();
+                that.moments[k] = in.readDouble();
+            }
+            this.merge(that);
+        }
+
+        /**
+         * Sets the proportions of the distribution to the normalized weights
+         * and pools the statistics into the codebook.
+         */
+        @Override
+        public void fit() {
+            if (this.totalWeight <= 0.0d) {
+                throw new IllegalStateException("No weighted observations to fit");
+            }
+            setProportions(this.weights);
+            codebook.pool(this.weights, this.means, this.moments);
+        }
+
+        /**
+         * Computes the log-likelihood of the assignments of the observations
+         * to the Gaussians under the fitted proportions. The codebook is shared
+         * with other distributions, such that the densities of the
+         * observations under the Gaussians add up when accumulators are merged.
+         */
+        @Override
+        public double logLikelihood() {
+            double ll = 0.0d;
+            for (double w : this.weights) {
+                if (w > 0.0d) {
+                    ll += w * Math.log(w / this.totalWeight);
+                }
+            }
+            return ll;
+        }
+
+    }
+
+}
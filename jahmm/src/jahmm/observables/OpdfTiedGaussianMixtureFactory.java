@@ -0,0 +1,57 @@
+package jahmm.observables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implements a factory of tied Gaussian mixture distributions. The
+ * distributions generated by one call to {@link #generate(int)} share a new
+ * codebook; every codebook starts with the same Gaussians.
+ *
+ * @author kommusoft
+ */
+public final class OpdfTiedGaussianMixtureFactory implements TiedOpdfFactory<OpdfTiedGaussianMixture> {
+
+    private final double[] means;
+    private final double[] variances;
+
+    /**
+     * Creates a new factory of tied Gaussian mixtures on codebooks whose means
+     * are evenly distributed between 0 and 1 and whose variances equal 1.
+     *
+     * @param gaussiansNb The number of Gaussians of the codebooks.
+     */
+    public OpdfTiedGaussianMixtureFactory(int gaussiansNb) {
+        this(new GaussianCodebook(gaussiansNb));
+    }
+
+    /**
+     * Creates a new factory of tied Gaussian mixtures on codebooks that start
+     * with the Gaussians of a given codebook. The given codebook itself is
+     * not shared with the generated distributions.
+     *
+     * @param codebook The codebook whose Gaussians are copied.
+     */
+    public OpdfTiedGaussianMixtureFactory(GaussianCodebook codebook) {
+        this.means = codebook.means();
+        this.variances = codebook.variances();
+    }
+
+    @Override
+    public OpdfTiedGaussianMixture generate() {
+        return this.generate(0x01).get(0x00);
+    }
+
+    @Override
+    public List<OpdfTiedGaussianMixture> generate(int nbOpdfs) {
+        if (nbOpdfs <= 0x00) {
+            throw new IllegalArgumentException("Strictly positive number expected");
+        }
+        GaussianCodebook codebook = new GaussianCodebook(this.means, this.variances);
+        List<OpdfTiedGaussianMixture> opdfs = new ArrayList<>(nbOpdfs);
+        for (int i = 0; i < nbOpdfs; i++) {
+            opdfs.add(new OpdfTiedGaussianMixture(codebook));
+        }
+        return opdfs;
+    }
+}
@@ -0,0 +1,190 @@
+package jahmm.observables;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+import jutils.Tagable;
+
+/**
+ * A dictionary that encodes the symbols of a discrete alphabet as integer
+ * codes, such that sequences of discrete observations ({@link
+ * ObservationDiscrete}s, {@link ObservationEnum}s or any tagged observation)
+ * are converted once, when they are read, into
+ * {@link ObservationIntegerSequence}s on which the models are trained and
+ * scored.
+ * <p>
+ * Code {@link #OOV} is reserved for the symbols that are not in the
+ * dictionary: the other symbols have codes <code>1</code> to
+ * <code>size() - 1</code>, in the order they were added. Codes never change,
+ * such that a dictionary can only grow; a model built on a dictionary of
+ * <code>n</code> codes maps the codes that were added afterwards on
+ * {@link #OOV} as well (see {@link jahmm.DiscreteHmm#encode}).
+ *
+ * @author kommusoft
+ * @param <T> The type of the symbols.
+ */
+public class SymbolDictionary<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(SymbolDictionary.class.getName());
+
+    /**
+     * The code of the symbols that are not in the dictionary.
+     */
+    public static final int OOV = 0x00;
+
+    /**
+     * Creates a dictionary holding all the constants of an enumeration, in the
+     * order they are declared: the code of a constant is its ordinal plus one.
+     *
+     * @param <E> The type of the enumeration.
+     * @param enumClass The class of the enumeration.
+     * @return A dictionary with the constants of the enumeration.
+     */
+    public static <E extends Enum<E>> SymbolDictionary<E> of(Class<E> enumClass) {
+        return new SymbolDictionary<>(EnumSet.allOf(enumClass));
+    }
+
+    private final List<T> symbols;
+    private final HashMap<T, Integer> codes;
+
+    /**
+     * Creates an empty dictionary: it only holds the {@link #OOV} code.
+     */
+    public SymbolDictionary() {
+        this.symbols = new ArrayList<>();
+        this.codes = new HashMap<>();
+        this.symbols.add(null);
+    }
+
+    /**
+     * Creates a dictionary with the given symbols.
+     *
+     * @param symbols The symbols of the dictionary, in the order of their
+     * codes.
+     */
+    public SymbolDictionary(Iterable<? extends T> symbols) {
+        this();
+        for (T symbol : symbols) {
+            this.add(symbol);
+        }
+    }
+
+    /**
+     * Returns the number of codes of this dictionary, {@link #OOV} included.
+     *
+     * @return The number of codes of this dictionary.
+     */
+    public synchronized int size() {
+        return this.symbols.size();
+    }
+
+    /**
+     * Returns the code of a symbol, adding the symbol to the dictionary if it
+     * isn't in it yet.
+     *
+     * @param symbol A (non-null) symbol.
+     * @return The code of the symbol.
+     */
+    public synchronized int add(T symbol) {
+        if (symbol == null) {
+            throw new IllegalArgumentException("Symbols must not be null");
+        }
+        Integer code = this.codes.get(symbol);
+        if (code == null) {
+            code = this.symbols.size();
+            this.symbols.add(symbol);
+            this.codes.put(symbol, code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the code of a symbol.
+     *
+     * @param symbol A symbol.
+     * @return The code of the symbol, or {@link #OOV} if the symbol is not in
+     * the dictionary.
+     */
+    public synchronized int code(Object symbol) {
+        Integer code = this.codes.get(symbol);
+        return code == null ? OOV : code;
+    }
+
+    /**
+     * Returns the symbol of a code.
+     *
+     * @param code A code such that <code>0 &le; code &lt; size()</code>.
+     * @return The symbol of the code, or <code>null</code> for {@link #OOV}.
+     */
+    public synchronized T symbol(int code) {
+        return this.symbols.get(code);
+    }
+
+    /**
+     * Encodes a sequence of observations, adding the symbols that are not in
+     * the dictionary yet.
+     *
+     * @param observations A sequence of observations tagged with symbols.
+     * @return The codes of the symbols of the observations.
+     */
+    public synchronized ObservationIntegerSequence add(Collection<? extends Tagable<? extends T>> observations) {
+        int[] values = new int[observations.size()];
+        int t = 0x00;
+        for (Tagable<? extends T> o : observations) {
+            values[t++] = this.add(o.getTag());
+        }
+        return new ObservationIntegerSequence(values, values.length);
+    }
+
+    /**
+     * Encodes a sequence of observations; the symbols that are not in the
+     * dictionary are encoded as {@link #OOV}.
+     *
+     * @param observations A sequence of observations tagged with symbols.
+     * @return The codes of the symbols of the observations.
+     */
+    public ObservationIntegerSequence encode(Collection<? extends Tagable<?>> observations) {
+        return this.encode(observations, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Encodes a sequence of observations on the first codes of this
+     * dictionary; the symbols that are not in the dictionary, or whose code is
+     * higher or equal to <code>nbCodes</code>, are encoded as {@link #OOV}.
+     *
+     * @param observations A sequence of observations tagged with symbols.
+     * @param nbCodes The number of codes that can be used.
+     * @return The codes of the symbols of the observations.
+     */
+    public synchronized ObservationIntegerSequence encode(Collection<? extends Tagable<?>> observations, int nbCodes) {
+        int[] values = new int[observations.size()];
+        int t = 0x00;
+        for (Tagable<?> o : observations) {
+            int code = this.code(o.getTag());
+            values[t++] = code < nbCodes ? code : OOV;
+        }
+        return new ObservationIntegerSequence(values, values.length);
+    }
+
+    /**
+     * Decodes a sequence of codes.
+     *
+     * @param sequence A sequence of codes.
+     * @return A sequence of observations holding the symbols of the codes; an
+     * {@link #OOV} code is decoded as an observation holding
+     * <code>null</code>.
+     */
+    public synchronized List<ObservationDiscrete<T>> decode(ObservationIntegerSequence sequence) {
+        List<ObservationDiscrete<T>> result = new ArrayList<>(sequence.size());
+        for (int t = 0; t < sequence.size(); t++) {
+            result.add(new ObservationDiscrete<>(this.symbols.get(sequence.value(t))));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,52 @@
+package jahmm.observables;
+
+import java.util.IdentityHashMap;
+
+/**
+ * An observation probability function that may share (<i>tie</i>) some of
+ * its parameters with other functions, e.g. the functions generated by one
+ * call to {@link TiedOpdfFactory#generate(int)}. The shared parameters are not
+ * counted by {@link #nbParameters()}: a model counts them once per tie (see
+ * {@link OpdfFactoryUtils#nbParameters(Iterable)}).
+ * <p>
+ * The {@link #clone()} of a tied function stays tied to the same parameters,
+ * such that fitting the clone modifies the original as well. Use
+ * {@link #cloneTied} (or {@link jahmm.RegularHmmBase#deepClone}) for an
+ * independent copy.
+ *
+ * @author kommusoft
+ * @param <O> The type of the observations.
+ */
+public interface TiedOpdf<O extends Observation> extends Opdf<O> {
+
+    /**
+     * Returns the object that holds the parameters this function shares. Two
+     * functions are tied together if they return the same object.
+     *
+     * @return The shared parameters, or <code>null</code> if this function
+     * shares no parameter.
+     */
+    public abstract Object tiedParameters();
+
+    /**
+     * Returns the number of free parameters held by {@link #tiedParameters()}.
+     *
+     * @return The number of shared free parameters, zero if this function
+     * shares no parameter.
+     */
+    public abstract int nbTiedParameters();
+
+    /**
+     * Creates a copy of this function that shares no parameter with this
+     * function. The functions copied with the same map stay tied together:
+     * the copy of the shared parameters is taken from the map, or created and
+     * stored in the map by the first function of the tie that is copied.
+     *
+     * @param copies The copies of the shared parameters, indexed by the
+     * original parameters.
+     * @return An independent copy of this function.
+     * @throws CloneNotSupportedException If this function cannot be copied.
+     */
+    public abstract TiedOpdf<O> cloneTied(IdentityHashMap<Object, Object> copies) throws CloneNotSupportedException;
+
+}
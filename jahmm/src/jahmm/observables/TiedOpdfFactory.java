@@ -0,0 +1,29 @@
+package jahmm.observables;
+
+import java.util.List;
+
+/**
+ * A factory of observation probability functions that share (<i>tie</i>) some
+ * of their parameters. The functions generated by one call to
+ * {@link #generate(int)} are tied together and to no other function, such
+ * that independent models, e.g. the restarts of a multi-start learner trained
+ * in parallel, never share parameters. A function generated by
+ * {@link #generate()} is tied to no other function.
+ * <p>
+ * Use {@link OpdfFactoryUtils#generate(OpdfFactory, int)} to generate the
+ * functions of a model with any factory.
+ *
+ * @author kommusoft
+ * @param <D> The type of the generated functions.
+ */
+public interface TiedOpdfFactory<D extends Opdf<?>> extends OpdfFactory<D> {
+
+    /**
+     * Generates new observation probability functions that are tied together.
+     *
+     * @param nbOpdfs The (strictly positive) number of functions to generate.
+     * @return A list of <code>nbOpdfs</code> new, tied functions.
+     */
+    public List<D> generate(int nbOpdfs);
+
+}
@@ -1,11 +1,15 @@
 package jahmm.toolbox;
 
 import jahmm.InputHmm;
+import jahmm.observables.InputObservationSequence;
+import jahmm.observables.InputObservationSequenceEncoder;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.Observation;
 import jahmm.observables.Opdf;
 import jahmm.observables.OpdfDiscrete;
 import jahmm.observables.TypedObservation;
+import java.util.ArrayList;
+import java.util.Random;
 import java.util.logging.Logger;
 
 /**
@@ -44,6 +48,20 @@ public class InputMarkovGeneratorBase<TObs extends Observation, TIn, THmm extend
         this.inputDistribution = inputDistribution;
     }
 
+    /**
+     * Creates a new instance of an InputMarkovGenerator base with a given
+     * Hidden Markov model, distribution on the inputs and random generator.
+     *
+     * @param hmm The given hidden Markov Model to generate a list of
+     * observations from.
+     * @param inputDistribution Gets the input distribution of the input values.
+     * @param random The random generator the interactions are drawn from.
+     */
+    public InputMarkovGeneratorBase(THmm hmm, Opdf<? extends TypedObservation<TIn>> inputDistribution, Random random) {
+        super(hmm, random);
+        this.inputDistribution = inputDistribution;
+    }
+
     /**
      * Generates a new (pseudo) random observation.
      *
@@ -51,19 +69,48 @@ public class InputMarkovGeneratorBase<TObs extends Observation, TIn, THmm extend
      */
     @Override
     public InputObservationTuple<TIn, TObs> interaction() {
-        TIn input = this.getInputDistribution().generate().getTag();
+        TIn input = this.getInputDistribution().generate(this.random).getTag();
+        return new InputObservationTuple<>(input, this.step(this.getHmm().getInputIndex(input)));
+    }
+
+    /**
+     * Generates a new (pseudo) random sequence of interactions that is encoded
+     * against the input register of the model (see
+     * {@link InputObservationSequence}) and starts a new one. The input of every
+     * interaction is resolved to its index once, while the sequence is
+     * generated.
+     *
+     * @param length The length of the sequence.
+     * @return An encoded sequence of interactions.
+     */
+    public InputObservationSequence<TIn, TObs> encodedInteractionSequence(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Positive length required");
+        }
+        THmm ihmm = this.getHmm();
+        int[] inputs = new int[length];
+        ArrayList<TObs> observations = new ArrayList<>(length);
+        for (int t = 0; t < length; t++) {
+            int k = ihmm.getInputIndex(this.getInputDistribution().generate(this.random).getTag());
+            inputs[t] = k;
+            observations.add(this.step(k));
+        }
+        newSequence();
+        return new InputObservationSequenceEncoder<TIn, TObs>(ihmm).encode(inputs, observations);
+    }
+
+    private TObs step(int inputIndex) {
         THmm ihmm = this.getHmm();
-        int inputIndex = ihmm.getInputIndex(input);
-        TObs o = ihmm.getOpdf(stateNb, inputIndex).generate();
-        double rand = Math.random();
+        TObs o = ihmm.getOpdf(stateNb, inputIndex).generate(this.random);
+        double rand = this.random.nextDouble();
         for (int j = 0; j < ihmm.nbStates() - 1; j++) {
             if ((rand -= ihmm.getAixj(stateNb, inputIndex, j)) < 0) {
                 stateNb = j;
-                return new InputObservationTuple<>(input, o);
+                return o;
             }
         }
         stateNb = ihmm.nbStates() - 1;
-        return new InputObservationTuple<>(input, o);
+        return o;
     }
 
     @Override
@@ -1,10 +1,11 @@
 package jahmm.toolbox;
 
 import jahmm.Hmm;
+import jahmm.distributions.SplitMixRandom;
 import jahmm.observables.Observation;
 import java.util.ArrayList;
 import java.util.List;
-import jutils.probability.ProbabilityUtils;
+import java.util.Random;
 
 /**
  *
@@ -16,14 +17,32 @@ import jutils.probability.ProbabilityUtils;
 public abstract class MarkovGeneratorBase<TObs extends Observation, TInt extends Observation, THmm extends Hmm<TObs, TInt,THmm>> implements MarkovGenerator<TObs, TInt, THmm> {
 
     protected final THmm hmm;
+    protected final Random random;
     protected int stateNb;
 
     protected MarkovGeneratorBase(THmm hmm) {
+        this(hmm, new SplitMixRandom());
+    }
+
+    /**
+     * Initializes a Markovian generator that draws from a given random
+     * generator. The generator is used by this object only: generators that
+     * run in parallel should each be given their own random generator, e.g.
+     * split from a single seeded {@link SplitMixRandom}.
+     *
+     * @param hmm The Hidden Markov Model.
+     * @param random The random generator the sequences are drawn from.
+     */
+    protected MarkovGeneratorBase(THmm hmm, Random random) {
         if (hmm == null) {
             throw new IllegalArgumentException("Invalid null HMM");
         }
+        if (random == null) {
+            throw new IllegalArgumentException("Invalid null random generator");
+        }
 
         this.hmm = hmm;
+        this.random = random;
         newSequence();
     }
 
@@ -43,13 +62,28 @@ public abstract class MarkovGeneratorBase<TObs extends Observation, TInt extends
      */
     @Override
     public void newSequence() {
-        int index = ProbabilityUtils.getRandomIndexScaled(hmm.getPis());
-        if (index < 0x00) {
-            index = this.hmm.nbStates() - 1;
+        int nbStates = this.hmm.nbStates();
+        double total = 0.0d;
+        for (int i = 0; i < nbStates; i++) {
+            total += this.hmm.getPi(i);
+        }
+        double rand = this.random.nextDouble() * total;
+        int index = 0x00;
+        while (index < nbStates - 1 && (rand -= this.hmm.getPi(index)) >= 0.0d) {
+            index++;
         }
         this.stateNb = index;
     }
 
+    /**
+     * Returns the random generator this object draws from.
+     *
+     * @return The random generator of this generator.
+     */
+    public Random getRandom() {
+        return this.random;
+    }
+
     /**
      * Gets the stored Hidden Markov Model.
      *
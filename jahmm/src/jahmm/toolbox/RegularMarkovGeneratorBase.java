@@ -7,6 +7,7 @@ package jahmm.toolbox;
 import jahmm.RegularHmm;
 import jahmm.observables.Observation;
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 
 /**
@@ -28,6 +29,18 @@ public class RegularMarkovGeneratorBase<TObs extends Observation, THmm extends R
         super(hmm);
     }
 
+    /**
+     * Initializes a Markovian generator that draws from a given random
+     * generator.
+     *
+     * @param hmm An Hidden Markov Model that perfectly models the sequences
+     * generated by this object.
+     * @param random The random generator the sequences are drawn from.
+     */
+    public RegularMarkovGeneratorBase(THmm hmm, Random random) {
+        super(hmm, random);
+    }
+
     /**
      * Generates a new (pseudo) random observation.
      *
@@ -56,8 +69,8 @@ public class RegularMarkovGeneratorBase<TObs extends Observation, THmm extends R
      */
     @Override
     public TObs interaction() {
-        TObs o = hmm.getOpdf(stateNb).generate();
-        double rand = Math.random();
+        TObs o = hmm.getOpdf(stateNb).generate(this.random);
+        double rand = this.random.nextDouble();
         for (int j = 0; j < hmm.nbStates() - 1; j++) {
             if ((rand -= hmm.getAij(stateNb, j)) < 0) {
                 stateNb = j;
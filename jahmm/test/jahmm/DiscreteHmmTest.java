@@ -0,0 +1,93 @@
+package jahmm;
+
+import jahmm.calculators.DiscreteViterbiCalculator;
+import jahmm.calculators.RegularForwardBackwardScaledCalculatorBase;
+import jahmm.calculators.RegularViterbiCalculatorBase;
+import jahmm.io.ObservationIntegerReader;
+import jahmm.io.ObservationSequencesReader;
+import jahmm.learn.DiscreteBaumWelchLearner;
+import jahmm.learn.RegularBaumWelchScaledLearnerBase;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.ObservationIntegerSequence;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class DiscreteHmmTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final DiscreteHmm hmm = new DiscreteHmm(new double[]{0.7d, 0.2d, 0.1d},
+            new double[][]{{0.8d, 0.15d, 0.05d}, {0.1d, 0.6d, 0.3d}, {0.25d, 0.25d, 0.5d}},
+            new double[][]{{0.5d, 0.3d, 0.1d, 0.1d}, {0.1d, 0.1d, 0.4d, 0.4d}, {0.25d, 0.25d, 0.25d, 0.25d}});
+
+    private List<ObservationIntegerSequence> sequences() {
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm.toRegularHmm());
+        List<ObservationIntegerSequence> sequences = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sequences.add(ObservationIntegerSequence.of(mg.observationSequence(50 + i)));
+        }
+        return sequences;
+    }
+
+    /**
+     *
+     */
+    public void testProbabilityAndViterbi() {
+        RegularHmmBase<ObservationInteger> regular = hmm.toRegularHmm();
+        DiscreteHmm converted = DiscreteHmm.of(regular);
+        for (ObservationIntegerSequence sequence : this.sequences()) {
+            double expected = Math.log(RegularForwardBackwardScaledCalculatorBase.Instance.computeProbability(regular, sequence));
+            assertEquals(expected, hmm.lnProbability(sequence), EPSILON);
+            assertEquals(expected, converted.lnProbability(sequence), EPSILON);
+            RegularViterbiCalculatorBase rvc = new RegularViterbiCalculatorBase(sequence, regular);
+            DiscreteViterbiCalculator dvc = new DiscreteViterbiCalculator(hmm, sequence);
+            assertTrue(Arrays.equals(rvc.stateSequence(), dvc.stateSequence()));
+            assertEquals(rvc.lnProbability(), dvc.lnProbability(), EPSILON);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testBaumWelch() {
+        List<ObservationIntegerSequence> sequences = this.sequences();
+        DiscreteHmm initial = new DiscreteHmm(new double[]{0.4d, 0.3d, 0.3d},
+                new double[][]{{0.5d, 0.3d, 0.2d}, {0.2d, 0.5d, 0.3d}, {0.3d, 0.3d, 0.4d}},
+                new double[][]{{0.4d, 0.3d, 0.2d, 0.1d}, {0.1d, 0.2d, 0.3d, 0.4d}, {0.3d, 0.2d, 0.2d, 0.3d}});
+        RegularBaumWelchScaledLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> rbw = new RegularBaumWelchScaledLearnerBase<>();
+        DiscreteBaumWelchLearner dbw = new DiscreteBaumWelchLearner();
+        DiscreteHmm expected = DiscreteHmm.of(rbw.learn(initial.toRegularHmm(), 3, sequences));
+        DiscreteHmm actual = dbw.learn(initial, 3, sequences);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+            for (int k = 0; k < 4; k++) {
+                assertEquals(expected.getBik(i, k), actual.getBik(i, k), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testReadIntegerSequences() throws Exception {
+        String text = "# comment\n1; 2; 3;\n\n0; \\\n 4;\n";
+        List<ObservationIntegerSequence> sequences = ObservationSequencesReader.readIntegerSequences(new ObservationIntegerReader(), new StringReader(text));
+        assertEquals(2, sequences.size());
+        assertTrue(Arrays.equals(new int[]{1, 2, 3}, sequences.get(0).values()));
+        assertTrue(Arrays.equals(new int[]{0, 4}, sequences.get(1).values()));
+        assertEquals(new ObservationInteger(4).value, sequences.get(1).get(1).value);
+        assertEquals(5, sequences.get(1).nbSymbols());
+    }
+
+}
@@ -21,7 +21,10 @@ import jahmm.io.OpdfIntegerWriter;
 import jahmm.io.OpdfMultiGaussianReader;
 import jahmm.io.OpdfMultiGaussianWriter;
 import jahmm.io.OpdfReader;
+import jahmm.io.OpdfSparseIntegerReader;
+import jahmm.io.OpdfSparseIntegerWriter;
 import jahmm.io.OpdfWriter;
+import jahmm.observables.CovarianceStructure;
 import jahmm.observables.Observation;
 import jahmm.observables.ObservationInteger;
 import jahmm.observables.ObservationVector;
@@ -84,6 +87,11 @@ public class IOTest
      */
     protected final String integerOPDFString = "IntegerOPDF [ .32 .68 ]";
 
+    /**
+     *
+     */
+    protected final String sparseIntegerOPDFString = "SparseIntegerOPDF [ 1000000 .01 [ 3 17 ] [ .5 .49 ] .00000001 ]";
+
     /**
      *
      */
@@ -101,6 +109,24 @@ public class IOTest
     protected final String multiGaussianOPDFString
             = "MultiGaussianOPDF [ [ 5. 5. ] [ [ 1.2 .3 ] [ .3 4. ] ] ]";
 
+    /**
+     *
+     */
+    protected final String diagonalMultiGaussianOPDFString
+            = "DiagonalMultiGaussianOPDF [ [ 5. 5. ] [ 1.2 4. ] ]";
+
+    /**
+     *
+     */
+    protected final String sphericalMultiGaussianOPDFString
+            = "SphericalMultiGaussianOPDF [ [ 5. 5. ] [ 1.2 ] ]";
+
+    /**
+     *
+     */
+    protected final String tiedMultiGaussianOPDFString
+            = "TiedMultiGaussianOPDF [ 0 [ 5. 5. ] [ [ 1.2 .3 ] [ .3 4. ] ] ]";
+
     /**
      *
      */
@@ -131,12 +157,20 @@ public class IOTest
             throws IOException {
         opdfCheck(integerOPDFString, new OpdfIntegerReader(),
                 new OpdfIntegerWriter());
+        opdfCheck(sparseIntegerOPDFString, new OpdfSparseIntegerReader(),
+                new OpdfSparseIntegerWriter());
         opdfCheck(gaussianOPDFString, new OpdfGaussianReader(),
                 new OpdfGaussianWriter());
         opdfCheck(gaussianMixtureOPDFString, new OpdfGaussianMixtureReader(),
                 new OpdfGaussianMixtureWriter());
         opdfCheck(multiGaussianOPDFString, new OpdfMultiGaussianReader(),
                 new OpdfMultiGaussianWriter());
+        opdfCheck(diagonalMultiGaussianOPDFString, new OpdfMultiGaussianReader(CovarianceStructure.DIAGONAL),
+                new OpdfMultiGaussianWriter());
+        opdfCheck(sphericalMultiGaussianOPDFString, new OpdfMultiGaussianReader(CovarianceStructure.SPHERICAL),
+                new OpdfMultiGaussianWriter());
+        opdfCheck(tiedMultiGaussianOPDFString, new OpdfMultiGaussianReader(CovarianceStructure.TIED),
+                new OpdfMultiGaussianWriter());
     }
 
     private <O extends Observation, D extends Opdf<O>> void
@@ -1219,6 +1219,74 @@ public class InputHmmBaseTest {
         }
     }
 
+    /**
+     * Test of splitInput and mergeInput methods with many symbols, of class
+     * InputHmmBase.
+     */
+    @Test
+    public void testSplitMergeInputMany() {
+        int N = 0x03;
+        InputHmmBase<ObservationEnum<FooEnum>, String> hmm = new InputHmmBase<>(N, new OpdfEnumFactory<>(FooEnum.class), "s0");
+        for (int i = 0x00; i < N; i++) {
+            for (int k = 0x00; k < N; k++) {
+                hmm.setAixj(i, "s0", k, (i + k + 0x01) / (3.0d * N + 0x03 * i));
+            }
+        }
+        double[][] original = hmm.collapsedA();
+        int M = 100;
+        for (int m = 0x01; m < M; m++) {
+            hmm.splitInput("s" + (m - 0x01), "s" + (m - 0x01), "s" + m);
+            Assert.assertEquals(m + 0x01, hmm.nbSymbols());
+        }
+        HashSet<Integer> indices = new HashSet<>();
+        for (int m = 0x00; m < M; m++) {
+            int k = hmm.getInputIndex("s" + m);
+            AssertExtensions.assertLessThan(k, M);
+            AssertExtensions.assertGreaterThanOrEqual(k, 0x00);
+            Assert.assertTrue(indices.add(k));
+            for (int i = 0x00; i < N; i++) {
+                AssertExtensions.assertTypeof(OpdfEnum.class, hmm.getOpdf(i, k));
+                for (int j = 0x00; j < N; j++) {
+                    AssertExtensions.assertEquals(original[i][j], hmm.getAixj(i, k, j));
+                    AssertExtensions.assertEquals(M * original[i][j], hmm.getAij(i, j));
+                }
+            }
+        }
+        Assert.assertNotSame(hmm.getOpdf(0x00, "s0"), hmm.getOpdf(0x00, "s1"));
+        String[] merged = new String[M / 0x02];
+        for (int m = 0x00; m < merged.length; m++) {
+            merged[m] = "s" + (0x02 * m);
+        }
+        hmm.setAixj(0x00, "s0", 0x00, original[0x00][0x00] + 0.5d * merged.length);
+        hmm.mergeInput("even", merged);
+        Assert.assertEquals(M - merged.length + 0x01, hmm.nbSymbols());
+        indices.clear();
+        for (String input : hmm.getRegisteredInputs()) {
+            int k = hmm.getInputIndex(input);
+            AssertExtensions.assertLessThan(k, hmm.nbSymbols());
+            Assert.assertTrue(indices.add(k));
+        }
+        AssertExtensions.assertEquals(original[0x00][0x00] + 0.5d, hmm.getAixj(0x00, "even", 0x00));
+        AssertExtensions.assertEquals(original[0x00][0x00], hmm.getAixj(0x00, "s1", 0x00));
+        AssertExtensions.assertEquals((M - merged.length) * original[0x00][0x00] + original[0x00][0x00] + 0.5d, hmm.getAij(0x00, 0x00));
+    }
+
+    /**
+     * Test of the cache of the collapsedA method, of class InputHmmBase.
+     */
+    @Test
+    public void testCollapsedACache() {
+        TrisEnum[] ti = new TrisEnum[]{TrisEnum.Odin, TrisEnum.Dva};
+        InputHmmBase<ObservationEnum<TrisEnum>, TrisEnum> hmm = generateRandomIHmm1(0x03, ti, ti.length);
+        double[][] cola = hmm.collapsedA();
+        cola[0x00][0x00] = -1.0d;
+        AssertExtensions.assertEquals(hmm.getAixj(0x00, 0x00, 0x00) + hmm.getAixj(0x00, 0x01, 0x00), hmm.getAij(0x00, 0x00));
+        hmm.setAixj(0x00, 0x01, 0x00, 0.25d);
+        AssertExtensions.assertEquals(hmm.getAixj(0x00, 0x00, 0x00) + 0.25d, hmm.getAij(0x00, 0x00));
+        hmm.mergeInput(TrisEnum.Tri, ti);
+        AssertExtensions.assertEquals(hmm.getAixj(0x00, 0x00, 0x00), hmm.getAij(0x00, 0x00));
+    }
+
     private InputHmmBase<ObservationEnum<TrisEnum>, TrisEnum> generateRandomIHmm1(int m, TrisEnum[] ti, int n) {
         InputHmmBase<ObservationEnum<TrisEnum>, TrisEnum> hmm = new InputHmmBase<>(m, new OpdfEnumFactory<>(TrisEnum.class
         ), ti);
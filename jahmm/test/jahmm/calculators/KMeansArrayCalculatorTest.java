@@ -0,0 +1,105 @@
+package jahmm.calculators;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class KMeansArrayCalculatorTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private static double[] blobs(Random random, int nbPoints, int dimension, double... centers) {
+        double[] points = new double[nbPoints * dimension];
+        int nbCenters = centers.length / dimension;
+        for (int i = 0; i < nbPoints; i++) {
+            int c = i % nbCenters;
+            for (int j = 0; j < dimension; j++) {
+                points[i * dimension + j] = centers[c * dimension + j] + 0.5d * random.nextGaussian();
+            }
+        }
+        return points;
+    }
+
+    private static void assertFixPoint(KMeansArrayCalculator kmc, double[] points, int dimension) {
+        int k = kmc.nbClusters();
+        double[][] centroids = new double[k][];
+        double[][] sums = new double[k][dimension];
+        int[] sizes = new int[k];
+        for (int c = 0; c < k; c++) {
+            centroids[c] = kmc.centroid(c);
+        }
+        for (int i = 0; i < kmc.nbPoints(); i++) {
+            int a = kmc.cluster(i);
+            double own = KMeansArrayCalculator.squaredDistance(points, i * dimension, centroids[a], 0x00, dimension);
+            for (int c = 0; c < k; c++) {
+                assertTrue(own <= KMeansArrayCalculator.squaredDistance(points, i * dimension, centroids[c], 0x00, dimension) + EPSILON);
+            }
+            for (int j = 0; j < dimension; j++) {
+                sums[a][j] += points[i * dimension + j];
+            }
+            sizes[a]++;
+        }
+        for (int c = 0; c < k; c++) {
+            assertEquals(sizes[c], kmc.clusterSize(c));
+            for (int j = 0; j < dimension && sizes[c] > 0x00; j++) {
+                assertEquals(sums[c][j] / sizes[c], centroids[c][j], 1.E-6);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testSeparatedClusters() {
+        double[] points = blobs(new Random(0x42), 3000, 2, 0.0d, 0.0d, 10.0d, 0.0d, 0.0d, 10.0d);
+        KMeansArrayCalculator kmc = new KMeansArrayCalculator(3, points, 2, new Random(0x42), 1);
+        assertFixPoint(kmc, points, 2);
+        for (int i = 0; i < 3; i++) {
+            for (int j = i + 3; j < 3000; j += 3) {
+                assertEquals(kmc.cluster(i), kmc.cluster(j));
+            }
+        }
+        assertTrue(kmc.cluster(0) != kmc.cluster(1));
+        assertTrue(kmc.cluster(0) != kmc.cluster(2));
+        assertTrue(kmc.cluster(1) != kmc.cluster(2));
+    }
+
+    /**
+     *
+     */
+    public void testFixPoint() {
+        double[] points = blobs(new Random(0x17), 5000, 3, 0.0d, 0.0d, 0.0d, 1.0d, 1.0d, 1.0d, 2.0d, 0.0d, 1.0d);
+        for (int k = 1; k <= 8; k++) {
+            assertFixPoint(new KMeansArrayCalculator(k, points, 3, new Random(k), 1), points, 3);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testParallelMatchesSequential() {
+        double[] points = blobs(new Random(0x17), 5000, 3, 0.0d, 0.0d, 0.0d, 1.0d, 1.0d, 1.0d, 2.0d, 0.0d, 1.0d);
+        KMeansArrayCalculator sequential = new KMeansArrayCalculator(6, points, 3, new Random(0x42), 1);
+        KMeansArrayCalculator parallel = new KMeansArrayCalculator(6, points, 3, new Random(0x42), 4);
+        assertFixPoint(parallel, points, 3);
+        for (int i = 0; i < sequential.nbPoints(); i++) {
+            assertEquals(sequential.cluster(i), parallel.cluster(i));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testFewDistinctPoints() {
+        double[] points = {1.0d, 1.0d, 2.0d, 2.0d, 1.0d};
+        KMeansArrayCalculator kmc = new KMeansArrayCalculator(4, points, 1, new Random(0x42), 1);
+        assertFixPoint(kmc, points, 1);
+        assertEquals(kmc.cluster(0), kmc.cluster(1));
+        assertEquals(kmc.cluster(2), kmc.cluster(3));
+        assertTrue(kmc.cluster(0) != kmc.cluster(2));
+    }
+
+}
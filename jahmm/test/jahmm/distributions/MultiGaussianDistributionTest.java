@@ -0,0 +1,68 @@
+package jahmm.distributions;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class MultiGaussianDistributionTest extends TestCase {
+
+    final static private double DELTA = 1.E-12;
+
+    private static double density(double[] mean, double[][] covariance, double[] v) {
+        double det = covariance[0][0] * covariance[1][1] - covariance[0][1] * covariance[1][0];
+        double d0 = v[0] - mean[0], d1 = v[1] - mean[1];
+        double q = (covariance[1][1] * d0 * d0 - 2.0d * covariance[0][1] * d0 * d1 + covariance[0][0] * d1 * d1) / det;
+        return Math.exp(-0.5d * q) / (2.0d * Math.PI * Math.sqrt(det));
+    }
+
+    /**
+     *
+     */
+    public void testProbability() {
+        double[] mean = {1.0d, -2.0d};
+        double[][] covariance = {{2.0d, 0.6d}, {0.6d, 0.5d}};
+        MultiGaussianDistribution distribution = new MultiGaussianDistribution(mean, covariance);
+        assertEquals(2.0d * 0.5d - 0.6d * 0.6d, distribution.covarianceDet(), DELTA);
+        double[][] points = {{1.0d, -2.0d}, {0.0d, 0.0d}, {3.5d, -1.25d}, {-2.0d, -4.0d}};
+        for (double[] v : points) {
+            double expected = density(mean, covariance, v);
+            assertEquals(expected, distribution.probability(v), DELTA);
+            assertEquals(Math.log(expected), distribution.logProbability(v), 1.E-9);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testInvalidation() {
+        double[] mean = {0.0d, 0.0d};
+        MultiGaussianDistribution distribution = new MultiGaussianDistribution(2);
+        double[] v = {0.5d, -1.0d};
+        assertEquals(density(mean, new double[][]{{1.0d, 0.0d}, {0.0d, 1.0d}}, v), distribution.probability(v), DELTA);
+        double[][] covariance = {{3.0d, -0.4d}, {-0.4d, 0.25d}};
+        distribution.setCovariance(covariance);
+        assertEquals(density(mean, covariance, v), distribution.probability(v), DELTA);
+        distribution.setCovariance(0, 0, 1.5d);
+        covariance[0][0] = 1.5d;
+        assertEquals(density(mean, covariance, v), distribution.probability(v), DELTA);
+        assertEquals(1.5d * 0.25d - 0.16d, distribution.covarianceDet(), DELTA);
+        mean = new double[]{0.25d, 0.75d};
+        distribution.setMean(mean);
+        assertEquals(density(mean, covariance, v), distribution.probability(v), DELTA);
+    }
+
+    /**
+     *
+     */
+    public void testDimension() {
+        MultiGaussianDistribution distribution = new MultiGaussianDistribution(3);
+        try {
+            distribution.logProbability(new double[2]);
+            fail("Wrong dimension accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package jahmm.distributions;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.ObservationReal;
+import jahmm.observables.OpdfGaussian;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class SplitMixRandomTest extends TestCase {
+
+    private static RegularHmmBase<ObservationReal> hmm() {
+        return new RegularHmmBase<>(new double[]{0.3d, 0.7d},
+                new double[][]{{0.9d, 0.1d}, {0.4d, 0.6d}},
+                new OpdfGaussian(-1.0d, 1.0d), new OpdfGaussian(3.0d, 0.25d));
+    }
+
+    private static List<List<ObservationReal>> simulate(final RegularHmmBase<ObservationReal> hmm, long seed, int nbThreads) throws Exception {
+        SplitMixRandom root = new SplitMixRandom(seed);
+        List<Callable<List<ObservationReal>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final SplitMixRandom random = root.split();
+            tasks.add(new Callable<List<ObservationReal>>() {
+
+                @Override
+                public List<ObservationReal> call() {
+                    return new RegularMarkovGeneratorBase<>(hmm, random).observationSequence(50);
+                }
+
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<List<ObservationReal>> result = new ArrayList<>();
+            for (Future<List<ObservationReal>> future : executor.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     *
+     */
+    public void testSeedAndSplit() {
+        SplitMixRandom first = new SplitMixRandom(0x2a);
+        SplitMixRandom second = new SplitMixRandom(0x2a);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+            assertEquals(first.nextGaussian(), second.nextGaussian(), 0.0d);
+        }
+        SplitMixRandom left = first.split();
+        SplitMixRandom right = first.split();
+        assertEquals(left.nextLong(), second.split().nextLong());
+        assertFalse(left.nextLong() == right.nextLong());
+        first.setSeed(0x2a);
+        assertEquals(new SplitMixRandom(0x2a).nextLong(), first.nextLong());
+        double sum = 0.0d;
+        for (int i = 0; i < 10000; i++) {
+            double d = right.nextDouble();
+            assertTrue(d >= 0.0d && d < 1.0d);
+            sum += d;
+        }
+        assertEquals(0.5d, sum / 10000, 0.02d);
+    }
+
+    /**
+     *
+     */
+    public void testReproducibleGeneration() throws Exception {
+        RegularHmmBase<ObservationReal> hmm = hmm();
+        GaussianMixtureDistribution mixture = new GaussianMixtureDistribution(3);
+        assertEquals(mixture.generate(new SplitMixRandom(0x07)), mixture.generate(new SplitMixRandom(0x07)), 0.0d);
+        List<List<ObservationReal>> sequential = simulate(hmm, 0x1234L, 1);
+        List<List<ObservationReal>> parallel = simulate(hmm, 0x1234L, 4);
+        for (int s = 0; s < sequential.size(); s++) {
+            for (int t = 0; t < 50; t++) {
+                assertEquals(sequential.get(s).get(t).value, parallel.get(s).get(t).value, 0.0d);
+            }
+        }
+        assertFalse(sequential.get(0).get(0).value == sequential.get(1).get(0).value);
+    }
+
+}
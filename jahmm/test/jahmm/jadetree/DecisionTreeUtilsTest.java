@@ -389,6 +389,15 @@ public class DecisionTreeUtilsTest {
         AssertExtensions.assertEquals(-expected, result);
     }
 
+    @Test
+    public void testCalculateRawInformationGain00() {
+        double expected = 80.0d * MathUtils.LOG2 * DecisionTreeUtils.calculateInformationGain(44.0d / 80.0d, 20.0d / 44.0d, 23.0d / 36.0d);
+        double result = DecisionTreeUtils.calculateRawInformationGain(new double[]{20.0d, 24.0d}, new double[]{23.0d, 13.0d});
+        AssertExtensions.assertEquals(expected, result);
+        result = DecisionTreeUtils.calculateRawInformationGain(new double[]{1.5d, 4.5d, 0.0d}, new double[]{0.5d, 1.5d, 0.0d});
+        AssertExtensions.assertEquals(0.0d, result);
+    }
+
     private class Foo implements Function<Foo, Integer> {
 
         private int value;
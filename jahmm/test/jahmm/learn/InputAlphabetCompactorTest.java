@@ -0,0 +1,150 @@
+package jahmm.learn;
+
+import jahmm.InputHmmBase;
+import jahmm.distributions.SplitMixRandom;
+import jahmm.observables.InputObservationTuple;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.OpdfDiscrete;
+import jahmm.observables.OpdfInteger;
+import jahmm.toolbox.InputMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import junit.framework.TestCase;
+import jutlis.lists.ListArray;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class InputAlphabetCompactorTest extends TestCase {
+
+    private static final String[] INPUTS = {"a", "b", "c", "d", "e", "f"};
+
+    private InputHmmBase<ObservationInteger, String> hmm;
+    private List<List<InputObservationTuple<String, ObservationInteger>>> sequences;
+
+    @Override
+    protected void setUp() throws CloneNotSupportedException {
+        initialize(INPUTS, 40);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initialize(String[] inputs, int nbSequences) throws CloneNotSupportedException {
+        double[] pi = {0.5d, 0.5d};
+        double[] stay = {0.9d, 0.1d}, swap = {0.2d, 0.8d};
+        double[][][] a = new double[0x02][inputs.length][];
+        ListArray<OpdfInteger>[] opdfs = new ListArray[0x02];
+        OpdfInteger[][] b = new OpdfInteger[0x02][inputs.length];
+        for (int x = 0; x < inputs.length; x++) {
+            boolean first = x < inputs.length / 0x02;
+            a[0][x] = first ? stay.clone() : swap.clone();
+            a[1][x] = first ? new double[]{stay[1], stay[0]} : new double[]{swap[1], swap[0]};
+            b[0][x] = first ? new OpdfInteger(0.8d, 0.2d) : new OpdfInteger(0.1d, 0.9d);
+            b[1][x] = first ? new OpdfInteger(0.3d, 0.7d) : new OpdfInteger(0.6d, 0.4d);
+        }
+        opdfs[0] = new ListArray<>(b[0]);
+        opdfs[1] = new ListArray<>(b[1]);
+        hmm = new InputHmmBase<>(pi, a, new ListArray<>(opdfs), new ListArray<>(inputs));
+        InputMarkovGeneratorBase<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> generator = new InputMarkovGeneratorBase<>(hmm.clone(), new OpdfDiscrete<>(hmm.getRegisteredInputs()), new SplitMixRandom(0x5eed));
+        sequences = new ArrayList<>();
+        for (int s = 0; s < nbSequences; s++) {
+            sequences.add(generator.interactionSequence(100));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testCompact() {
+        InputAlphabetCompactor<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> compactor = new InputAlphabetCompactor<>(hmm);
+        assertEquals(4, compactor.compact(sequences));
+        assertEquals(2, hmm.nbSymbols());
+        assertEquals(2, compactor.getSymbols().size());
+        assertGroups(compactor);
+        assertEquals(0, compactor.compact(sequences));
+    }
+
+    /**
+     *
+     */
+    public void testSplitBack() {
+        InputAlphabetCompactor<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> compactor = new InputAlphabetCompactor<>(hmm);
+        compactor.setPenalty(1.E9);
+        assertEquals(5, compactor.compact(sequences));
+        assertEquals(1, hmm.nbSymbols());
+        compactor.setPenalty(Double.NaN);
+        assertEquals(1, compactor.compact(sequences));
+        assertEquals(2, hmm.nbSymbols());
+        assertGroups(compactor);
+        assertEquals(0, compactor.compact(sequences));
+    }
+
+    /**
+     *
+     */
+    public void testTranslate() {
+        InputAlphabetCompactor<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> compactor = new InputAlphabetCompactor<>(hmm);
+        compactor.compact(sequences);
+        List<InputObservationTuple<String, ObservationInteger>> translated = compactor.translate(sequences.get(0));
+        HashMap<String, Integer> indices = new HashMap<>();
+        for (int t = 0; t < translated.size(); t++) {
+            String input = sequences.get(0).get(t).getInput();
+            String symbol = translated.get(t).getInput();
+            assertEquals(compactor.getSymbol(input), symbol);
+            assertTrue(compactor.getMembers(symbol).contains(input));
+            int index = hmm.getInputIndex(symbol);
+            assertTrue(index >= 0 && index < hmm.nbSymbols());
+            Integer previous = indices.put(symbol, index);
+            if (previous != null) {
+                assertEquals(previous.intValue(), index);
+            }
+        }
+        assertEquals(indices.size(), new HashSet<>(indices.values()).size());
+        try {
+            compactor.getSymbol("g");
+            fail("Unknown input accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     *
+     * @throws CloneNotSupportedException
+     */
+    public void testManyInputs() throws CloneNotSupportedException {
+        String[] inputs = new String[500];
+        for (int x = 0; x < inputs.length; x++) {
+            inputs[x] = String.format("x%03d", x);
+        }
+        initialize(inputs, 400);
+        InputAlphabetCompactor<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> compactor = new InputAlphabetCompactor<>(hmm);
+        int operations = compactor.compact(sequences);
+        assertEquals(inputs.length - compactor.getSymbols().size(), operations);
+        assertTrue(hmm.nbSymbols() <= 0x04);
+        for (String symbol : compactor.getSymbols()) {
+            List<String> members = compactor.getMembers(symbol);
+            boolean first = members.get(0).compareTo("x250") < 0;
+            for (String member : members) {
+                assertEquals(first, member.compareTo("x250") < 0);
+                assertEquals(symbol, compactor.getSymbol(member));
+            }
+        }
+    }
+
+    private static void assertGroups(InputAlphabetCompactor<ObservationInteger, String, ?> compactor) {
+        HashSet<String> seen = new HashSet<>();
+        for (String symbol : compactor.getSymbols()) {
+            List<String> members = compactor.getMembers(symbol);
+            assertEquals(3, members.size());
+            boolean first = members.get(0).compareTo("d") < 0;
+            for (String member : members) {
+                assertEquals(first, member.compareTo("d") < 0);
+                assertEquals(symbol, compactor.getSymbol(member));
+                assertTrue(seen.add(member));
+            }
+        }
+    }
+
+}
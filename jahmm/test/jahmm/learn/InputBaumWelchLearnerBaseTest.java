@@ -4,6 +4,8 @@ import jahmm.InputHmm;
 import jahmm.InputHmmBase;
 import jahmm.RegularHmm;
 import jahmm.RegularHmmBase;
+import jahmm.observables.InputObservationSequence;
+import jahmm.observables.InputObservationSequenceEncoder;
 import jahmm.observables.InputObservationTuple;
 import jahmm.observables.ObservationInteger;
 import jahmm.observables.OpdfInteger;
@@ -72,4 +74,46 @@ public class InputBaumWelchLearnerBaseTest extends TestCase {
         assertEquals(0., klc.distance(bwHmm, hmm), DELTA);
     }
 
+    /**
+     *
+     */
+    public void testSetPdfValues() {
+        InputHmmBase<ObservationInteger, String> model = new InputHmmBase<>(2, new OpdfIntegerFactory(3), "a", "b");
+        List<List<InputObservationTuple<String, ObservationInteger>>> seqs = new ArrayList<>();
+        List<InputObservationTuple<String, ObservationInteger>> seq = new ArrayList<>();
+        seq.add(new InputObservationTuple<>("a", new ObservationInteger(0)));
+        seq.add(new InputObservationTuple<>("b", new ObservationInteger(1)));
+        seq.add(new InputObservationTuple<>("a", new ObservationInteger(2)));
+        seq.add(new InputObservationTuple<>("c", new ObservationInteger(2)));
+        seqs.add(seq);
+        double[][][] allGamma = {{{0.75, 0.25}, {0.5, 0.5}, {0.25, 0.75}, {0.5, 0.5}}};
+        new InputBaumWelchLearnerBase<ObservationInteger, String, InputHmmBase<ObservationInteger, String>>().setPdfValues(model, seqs, allGamma);
+        assertEquals(0.75, model.getOpdf(0, "a").probability(new ObservationInteger(0)), 1.E-9);
+        assertEquals(0.25, model.getOpdf(0, "a").probability(new ObservationInteger(2)), 1.E-9);
+        assertEquals(0.25, model.getOpdf(1, "a").probability(new ObservationInteger(0)), 1.E-9);
+        assertEquals(0.75, model.getOpdf(1, "a").probability(new ObservationInteger(2)), 1.E-9);
+        assertEquals(1.0, model.getOpdf(0, "b").probability(new ObservationInteger(1)), 1.E-9);
+        assertEquals(1.0, model.getOpdf(1, "b").probability(new ObservationInteger(1)), 1.E-9);
+    }
+
+    /**
+     *
+     */
+    public void testEncodedSequences() {
+        InputBaumWelchScaledLearnerBase<ObservationInteger, Integer, InputHmmBase<ObservationInteger, Integer>> ibwl = new InputBaumWelchScaledLearnerBase<>();
+        List<InputObservationSequence<Integer, ObservationInteger>> encoded = new InputObservationSequenceEncoder<>(ihmm).encodeAll(isequences);
+        InputHmmBase<ObservationInteger, Integer> plain = ibwl.iterate(ihmm, isequences);
+        InputHmmBase<ObservationInteger, Integer> fast = ibwl.iterate(ihmm, encoded);
+        for (int i = 0; i < ihmm.nbStates(); i++) {
+            assertEquals(plain.getPi(i), fast.getPi(i), 1.E-12);
+            for (int j = 0; j < ihmm.nbStates(); j++) {
+                assertEquals(plain.getAixj(i, 0x00, j), fast.getAixj(i, 0x00, j), 1.E-12);
+            }
+            for (int o = 0; o < 10; o++) {
+                ObservationInteger observation = new ObservationInteger(o);
+                assertEquals(plain.getOpdf(i, 0x00).probability(observation), fast.getOpdf(i, 0x00).probability(observation), 1.E-12);
+            }
+        }
+    }
+
 }
@@ -46,4 +46,56 @@ public class KMeansLearnerTest extends TestCase {
         assertEquals(0., klc.distance(kml.learn(), hmm), DELTA);
     }
 
+    /**
+     *
+     * @throws java.lang.CloneNotSupportedException
+     */
+    public void testParallelMatchesSequential() throws CloneNotSupportedException {
+        KMeansLearner<ObservationInteger> sequential = new KMeansLearner<>(3, new OpdfIntegerFactory(10), sequences, 1);
+        KMeansLearner<ObservationInteger> parallel = new KMeansLearner<>(3, new OpdfIntegerFactory(10), sequences, 4);
+        RegularHmmBase<ObservationInteger> expected = sequential.learn();
+        RegularHmmBase<ObservationInteger> actual = parallel.learn();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), 1.E-9);
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), 1.E-9);
+            }
+        }
+        for (int s = 0; s < sequences.size(); s++) {
+            for (int t = 0; t < sequences.get(s).size(); t++) {
+                assertEquals(sequential.clusterNb(s, t), parallel.clusterNb(s, t));
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws java.lang.CloneNotSupportedException
+     */
+    public void testEqualObservations() throws CloneNotSupportedException {
+        List<List<ObservationInteger>> seqs = new ArrayList<>();
+        List<ObservationInteger> seq = new ArrayList<>();
+        ObservationInteger shared = new ObservationInteger(5);
+        for (int i = 0; i < 20; i++) {
+            seq.add(new ObservationInteger(i < 10 ? 0 : 9));
+            seq.add(shared);
+        }
+        seqs.add(seq);
+        KMeansLearner<ObservationInteger> kml = new KMeansLearner<>(3, new OpdfIntegerFactory(10), seqs, 1);
+        RegularHmmBase<ObservationInteger> learned = kml.learn();
+        assertTrue(kml.isTerminated());
+        assertEquals(3, learned.nbStates());
+        int[] clusters = {-1, -1, -1};
+        for (int t = 0; t < seq.size(); t++) {
+            assertTrue(kml.clusterNb(0, t) >= 0 && kml.clusterNb(0, t) < 3);
+            int value = seq.get(t).value;
+            int index = value == 0 ? 0 : value == 9 ? 1 : 2;
+            if (clusters[index] < 0) {
+                clusters[index] = kml.clusterNb(0, t);
+            }
+            assertEquals(clusters[index], kml.clusterNb(0, t));
+        }
+        assertFalse(clusters[0] == clusters[1] || clusters[0] == clusters[2] || clusters[1] == clusters[2]);
+    }
+
 }
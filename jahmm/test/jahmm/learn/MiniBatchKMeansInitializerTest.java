@@ -0,0 +1,75 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.ObservationReal;
+import jahmm.observables.OpdfGaussian;
+import jahmm.observables.OpdfGaussianFactory;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class MiniBatchKMeansInitializerTest extends TestCase {
+
+    private List<List<ObservationReal>> sequences;
+
+    @Override
+    protected void setUp() {
+        RegularHmmBase<ObservationReal> hmm = new RegularHmmBase<>(new double[]{0.5, 0.5}, new double[][]{{0.95, 0.05}, {0.05, 0.95}}, new OpdfGaussian(-5.0, 1.0), new OpdfGaussian(5.0, 1.0));
+        RegularMarkovGeneratorBase<ObservationReal, RegularHmmBase<ObservationReal>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sequences.add(mg.observationSequence(200));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testSinglePass() {
+        final Iterator<List<ObservationReal>> iterator = sequences.iterator();
+        Iterable<List<ObservationReal>> once = new Iterable<List<ObservationReal>>() {
+
+            private boolean used;
+
+            @Override
+            public Iterator<List<ObservationReal>> iterator() {
+                assertFalse(used);
+                used = true;
+                return iterator;
+            }
+
+        };
+        MiniBatchKMeansInitializer<ObservationReal> initializer = new MiniBatchKMeansInitializer<>(OpdfGaussianFactory.Instance, 128);
+        RegularHmmBase<ObservationReal> init = initializer.initialize(2, once, new Random(0x42));
+        int low = ((OpdfGaussian) init.getOpdf(0)).mean() < 0.0 ? 0 : 1;
+        assertEquals(-5.0, ((OpdfGaussian) init.getOpdf(low)).mean(), 0.2);
+        assertEquals(5.0, ((OpdfGaussian) init.getOpdf(1 - low)).mean(), 0.2);
+        assertEquals(1.0, ((OpdfGaussian) init.getOpdf(low)).variance(), 0.2);
+        assertEquals(0.95, init.getAij(low, low), 0.02);
+        assertEquals(0.95, init.getAij(1 - low, 1 - low), 0.02);
+        assertEquals(1.0, init.getPi(0) + init.getPi(1), 1.E-9);
+    }
+
+    /**
+     *
+     */
+    public void testSmallBatches() {
+        MiniBatchKMeansInitializer<ObservationReal> initializer = new MiniBatchKMeansInitializer<>(OpdfGaussianFactory.Instance, 3);
+        RegularHmmBase<ObservationReal> init = initializer.initialize(3, sequences, new Random(0x42));
+        assertEquals(3, init.nbStates());
+        try {
+            initializer.initialize(2, new ArrayList<List<ObservationReal>>(), new Random(0x42));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.io.ObservationIntegerReader;
+import jahmm.io.ObservationIntegerWriter;
+import jahmm.io.ObservationSequencesFileSource;
+import jahmm.io.ObservationSequencesWriter;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.toolbox.KullbackLeiblerDistanceCalculator;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import utils.TestModels;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchDistributedLearnerBaseTest extends TestCase {
+
+    final static private double DELTA = 5.E-3;
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private File[] files;
+    private KullbackLeiblerDistanceCalculator klc;
+
+    @Override
+    protected void setUp() throws IOException {
+        hmm = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        hmm.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2));
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        files = new File[3];
+        for (int f = 0; f < files.length; f++) {
+            List<List<ObservationInteger>> sequences = new ArrayList<>();
+            for (int i = 0; i < 20 + 10 * f; i++) {
+                sequences.add(mg.observationSequence(100));
+            }
+            files[f] = File.createTempFile("jahmm", ".seq");
+            files[f].deleteOnExit();
+            try (Writer writer = new FileWriter(files[f])) {
+                ObservationSequencesWriter.write(writer, new ObservationIntegerWriter(), sequences);
+            }
+        }
+
+        klc = new KullbackLeiblerDistanceCalculator();
+    }
+
+    /**
+     * A learner whose expectation step only considers the first half of every
+     * sequence.
+     */
+    public static class PrefixLearner extends RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> {
+
+        @Override
+        protected void accumulate(RegularHmmBase<ObservationInteger> hmm, List<? extends ObservationInteger> obsSeq, RegularBaumWelchStatistics<ObservationInteger> statistics) {
+            super.accumulate(hmm, obsSeq.subList(0, obsSeq.size() / 2), statistics);
+        }
+
+    }
+
+    private static RegularBaumWelchWorkerConnection startThreadWorker() throws IOException {
+        final PipedInputStream workerIn = new PipedInputStream();
+        final PipedOutputStream coordinatorOut = new PipedOutputStream(workerIn);
+        final PipedInputStream coordinatorIn = new PipedInputStream();
+        final PipedOutputStream workerOut = new PipedOutputStream(coordinatorIn);
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    RegularBaumWelchWorker.serve(workerIn, workerOut);
+                    workerOut.close();
+                } catch (IOException ex) {
+                    fail();
+                }
+            }
+
+        };
+        thread.setDaemon(true);
+        thread.start();
+        return new RegularBaumWelchWorkerConnection(coordinatorIn, coordinatorOut, null);
+    }
+
+    /**
+     *
+     */
+    public void testPartition() {
+        List<List<File>> partitions = RegularBaumWelchDistributedLearnerBase.partition(ObservationSequencesFileSource.listFiles(files), 2);
+        assertEquals(2, partitions.size());
+        assertEquals(1, partitions.get(0).size());
+        assertEquals(files[2], partitions.get(0).get(0));
+        assertEquals(2, partitions.get(1).size());
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void testIterateMatchesStreaming() throws IOException {
+        List<RegularBaumWelchWorkerConnection> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            workers.add(startThreadWorker());
+        }
+        RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwst = new RegularBaumWelchStreamingLearnerBase<>();
+        RegularHmmBase<ObservationInteger> expected = bwst.iterate(TestModels.copy(hmm), new ObservationSequencesFileSource<>(new ObservationIntegerReader(), files));
+        RegularHmmBase<ObservationInteger> actual;
+        try (RegularBaumWelchDistributedLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwdl = new RegularBaumWelchDistributedLearnerBase<>(ObservationIntegerReader.class, workers, files)) {
+            assertEquals(4, bwdl.getNbWorkers());
+            actual = bwdl.iterate(TestModels.copy(hmm));
+        }
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+            for (int k = 0; k < 10; k++) {
+                ObservationInteger o = new ObservationInteger(k);
+                assertEquals(expected.getOpdf(i).probability(o), actual.getOpdf(i).probability(o), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void testCustomExpectation() throws IOException {
+        List<RegularBaumWelchWorkerConnection> workers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            workers.add(startThreadWorker());
+        }
+        PrefixLearner bwpl = new PrefixLearner();
+        RegularHmmBase<ObservationInteger> expected = bwpl.iterate(TestModels.copy(hmm), new ObservationSequencesFileSource<>(new ObservationIntegerReader(), files));
+        RegularHmmBase<ObservationInteger> plain = new RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>>().iterate(TestModels.copy(hmm), new ObservationSequencesFileSource<>(new ObservationIntegerReader(), files));
+        RegularHmmBase<ObservationInteger> actual;
+        try (RegularBaumWelchDistributedLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwdl = new RegularBaumWelchDistributedLearnerBase<>(ObservationIntegerReader.class, bwpl, workers, files)) {
+            assertSame(bwpl, bwdl.getExpectation());
+            actual = bwdl.iterate(TestModels.copy(hmm));
+        }
+        assertTrue(Math.abs(expected.getAij(0, 0) - plain.getAij(0, 0)) > EPSILON);
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void testRejectsAnonymousExpectation() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<RegularBaumWelchWorkerConnection> workers = new ArrayList<>();
+        workers.add(new RegularBaumWelchWorkerConnection(new ByteArrayInputStream(new byte[0]), out, null));
+        try {
+            new RegularBaumWelchDistributedLearnerBase<>(ObservationIntegerReader.class, new RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>>() {
+            }, workers, files);
+            fail("Anonymous expectation learner accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(0, out.size());
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void testLocalProcesses() throws IOException {
+        try (RegularBaumWelchDistributedLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwdl = new RegularBaumWelchDistributedLearnerBase<>(ObservationIntegerReader.class, 2, files)) {
+            RegularHmmBase<ObservationInteger> bwHmm = bwdl.learn(TestModels.copy(hmm));
+            assertEquals(0., klc.distance(bwHmm, hmm), DELTA);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.toolbox.KullbackLeiblerDistanceCalculator;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+import utils.TestModels;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchMiniBatchLearnerBaseTest extends TestCase {
+
+    final static private double DELTA = 5.E-3;
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private List<List<ObservationInteger>> sequences;
+    private KullbackLeiblerDistanceCalculator klc;
+
+    @Override
+    protected void setUp() {
+        hmm = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        hmm.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2));
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sequences.add(mg.observationSequence(100));
+        }
+
+        klc = new KullbackLeiblerDistanceCalculator();
+    }
+
+    /**
+     *
+     */
+    public void testLnProbability() {
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwml = new RegularBaumWelchMiniBatchLearnerBase<>();
+        List<ObservationInteger> sequence = sequences.get(0x00).subList(0x00, 0x10);
+        RegularBaumWelchStatistics<ObservationInteger> statistics = bwml.expect(hmm, sequences.subList(0x00, 0x01));
+        assertEquals(1.0d, statistics.getWeight(), EPSILON);
+        assertEquals(Math.log(hmm.probability(sequences.get(0x00))), statistics.getLnProbability(), 1.E-6);
+        statistics = bwml.expect(hmm, Collections.singletonList(sequence));
+        assertEquals(Math.log(hmm.probability(sequence)), statistics.getLnProbability(), 1.E-6);
+    }
+
+    /**
+     *
+     */
+    public void testSample() {
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwml = new RegularBaumWelchMiniBatchLearnerBase<>(0x42);
+        assertEquals(10, bwml.sample(sequences).size());
+        bwml.setBatchSize(25);
+        List<? extends List<? extends ObservationInteger>> batch = bwml.sample(sequences);
+        assertEquals(25, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            for (int j = i + 1; j < batch.size(); j++) {
+                assertNotSame(batch.get(i), batch.get(j));
+            }
+        }
+        bwml.setBatchSize(1000);
+        assertSame(sequences, bwml.sample(sequences));
+    }
+
+    /**
+     *
+     */
+    public void testReproducible() {
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> first = new RegularBaumWelchMiniBatchLearnerBase<>(0x42);
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> second = new RegularBaumWelchMiniBatchLearnerBase<>(0x42);
+        RegularHmmBase<ObservationInteger> expected = first.learn(TestModels.copy(hmm), 4, sequences);
+        RegularHmmBase<ObservationInteger> actual = second.learn(TestModels.copy(hmm), 4, sequences);
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testSwitchPoint() {
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwml = new RegularBaumWelchMiniBatchLearnerBase<>(0x28);
+        bwml.setImprovementThreshold(Double.POSITIVE_INFINITY);
+        bwml.learn(TestModels.copy(hmm), 5, sequences);
+        assertEquals(1, bwml.getNbMiniBatchIterations());
+        bwml.setImprovementThreshold(Double.NEGATIVE_INFINITY);
+        bwml.learn(TestModels.copy(hmm), 5, sequences);
+        assertEquals(5, bwml.getNbMiniBatchIterations());
+    }
+
+    /**
+     *
+     */
+    public void testSwitchPointFullBatch() {
+        RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwl = new RegularBaumWelchStreamingLearnerBase<>();
+        RegularHmmBase<ObservationInteger> current = TestModels.copy(hmm);
+        current.getOpdf(0x01).fit(new ObservationInteger(3), new ObservationInteger(4), new ObservationInteger(4));
+        RegularHmmBase<ObservationInteger> initial = TestModels.copy(current);
+        int nbObservations = 0x00;
+        for (List<ObservationInteger> sequence : sequences) {
+            nbObservations += sequence.size();
+        }
+        double[] improvements = new double[0x08];
+        for (int i = 0; i < improvements.length; i++) {
+            RegularHmmBase<ObservationInteger> next = bwl.iterate(TestModels.copy(current), sequences);
+            improvements[i] = (bwl.expect(next, sequences).getLnProbability() - bwl.expect(current, sequences).getLnProbability()) / nbObservations;
+            assertTrue(improvements[i] > -EPSILON);
+            current = next;
+        }
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwml = new RegularBaumWelchMiniBatchLearnerBase<>(0x28);
+        bwml.setBatchFraction(1.0d);
+        for (int k = 0; k < improvements.length; k++) {
+            double threshold = improvements[k] * 1.000001d;
+            bwml.setImprovementThreshold(threshold);
+            int expected = 0x00;
+            while (improvements[expected] >= threshold) {
+                expected++;
+            }
+            bwml.learn(TestModels.copy(initial), improvements.length, sequences);
+            assertEquals(expected + 1, bwml.getNbMiniBatchIterations());
+        }
+    }
+
+    /**
+     *
+     */
+    public void testMiniBatchBaumWelch() {
+        RegularBaumWelchMiniBatchLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwml = new RegularBaumWelchMiniBatchLearnerBase<>(0x42);
+        bwml.setBatchFraction(0.25d);
+        RegularHmmBase<ObservationInteger> bwHmm = bwml.learn(hmm, sequences);
+        assertEquals(0., klc.distance(bwHmm, hmm), DELTA);
+    }
+
+}
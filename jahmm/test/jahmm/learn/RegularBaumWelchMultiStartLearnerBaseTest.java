@@ -0,0 +1,122 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchMultiStartLearnerBaseTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private List<List<ObservationInteger>> sequences;
+    private RegularHmmBaseRandomInitializer<ObservationInteger> initializer;
+
+    @Override
+    protected void setUp() {
+        hmm = new RegularHmmBase<>(2, new OpdfIntegerFactory(6));
+        hmm.getOpdf(0).fit(new ObservationInteger(0), new ObservationInteger(1), new ObservationInteger(2));
+        hmm.getOpdf(1).fit(new ObservationInteger(3), new ObservationInteger(4), new ObservationInteger(5));
+        hmm.setAij(0, 0, 0.9);
+        hmm.setAij(0, 1, 0.1);
+        hmm.setAij(1, 0, 0.1);
+        hmm.setAij(1, 1, 0.9);
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            sequences.add(mg.observationSequence(50));
+        }
+        initializer = new RegularHmmBaseRandomInitializer<>(new OpdfIntegerFactory(6));
+    }
+
+    private RegularBaumWelchMultiStartLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> createLearner(int nbThreads) {
+        RegularBaumWelchMultiStartLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> learner = new RegularBaumWelchMultiStartLearnerBase<>(initializer, nbThreads);
+        learner.setNbStarts(0x04);
+        learner.setNbIterations(0x08);
+        learner.setSeed(0x42);
+        learner.setPruneMargin(Double.POSITIVE_INFINITY);
+        return learner;
+    }
+
+    /**
+     *
+     */
+    public void testNbParameters() {
+        RegularHmmBase<ObservationInteger> model = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        assertEquals(8 + 3 * 9, RegularBaumWelchMultiStartLearnerBase.nbParameters(model));
+    }
+
+    /**
+     *
+     */
+    public void testInitializer() {
+        RegularHmmBase<ObservationInteger> first = initializer.initialize(3, sequences, new Random(0x42));
+        RegularHmmBase<ObservationInteger> second = initializer.initialize(3, sequences, new Random(0x42));
+        double sum = 0.0d;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(first.getPi(i), second.getPi(i), EPSILON);
+            sum += first.getPi(i);
+            assertNotSame(first.getOpdf(i), second.getOpdf(i));
+        }
+        assertEquals(1.0d, sum, EPSILON);
+    }
+
+    /**
+     *
+     */
+    public void testSearch() {
+        List<RegularBaumWelchMultiStartLearnerBase.Run<RegularHmmBase<ObservationInteger>>> runs = createLearner(0x04).search(sequences, 0x01, 0x02, 0x03);
+        assertEquals(0x03, runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+            RegularBaumWelchMultiStartLearnerBase.Run<RegularHmmBase<ObservationInteger>> run = runs.get(i);
+            assertEquals(i + 0x01, run.getNbStates());
+            assertFalse(run.isPruned());
+            assertTrue(run.getNbIterations() <= 0x08);
+            double lnProbability = 0.0d;
+            for (List<ObservationInteger> sequence : sequences) {
+                lnProbability += Math.log(run.getHmm().probability(sequence));
+            }
+            assertEquals(lnProbability, run.getLnProbability(), 1.E-6);
+            assertEquals(2.0d * run.getNbParameters() - 2.0d * lnProbability, run.getAic(), 1.E-6);
+            assertEquals(run.getNbParameters() * Math.log(30 * 50) - 2.0d * lnProbability, run.getBic(), 1.E-6);
+        }
+        assertTrue(runs.get(0x01).getLnProbability() > runs.get(0x00).getLnProbability());
+        assertTrue(runs.get(0x01).getBic() < runs.get(0x00).getBic());
+    }
+
+    /**
+     *
+     */
+    public void testReproducible() {
+        List<RegularBaumWelchMultiStartLearnerBase.Run<RegularHmmBase<ObservationInteger>>> expected = createLearner(0x01).search(sequences, 0x02);
+        List<RegularBaumWelchMultiStartLearnerBase.Run<RegularHmmBase<ObservationInteger>>> actual = createLearner(0x04).search(sequences, 0x02);
+        assertEquals(expected.get(0x00).getSeed(), actual.get(0x00).getSeed());
+        assertEquals(expected.get(0x00).getLnProbability(), actual.get(0x00).getLnProbability(), EPSILON);
+    }
+
+    /**
+     *
+     */
+    public void testPruning() {
+        RegularBaumWelchMultiStartLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> learner = createLearner(0x01);
+        RegularBaumWelchMultiStartLearnerBase.Trajectories trajectories = new RegularBaumWelchMultiStartLearnerBase.Trajectories(0x09);
+        learner.setPruneAfter(0x00);
+        learner.setPruneMargin(0.0d);
+        trajectories.record(0x00, 0.0d);
+        RegularBaumWelchMultiStartLearnerBase.Run<RegularHmmBase<ObservationInteger>> run = learner.run(0x02, 0x42, sequences, 30 * 50, trajectories);
+        assertTrue(run.isPruned());
+        assertEquals(0x00, run.getNbIterations());
+    }
+
+}
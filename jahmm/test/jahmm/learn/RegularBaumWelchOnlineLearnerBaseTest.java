@@ -0,0 +1,119 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.ObservationVector;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.observables.OpdfMultiGaussian;
+import jahmm.toolbox.KullbackLeiblerDistanceCalculator;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchOnlineLearnerBaseTest extends TestCase {
+
+    final static private double DELTA = 5.E-3;
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private List<List<ObservationInteger>> sequences;
+    private KullbackLeiblerDistanceCalculator klc;
+
+    @Override
+    protected void setUp() {
+        hmm = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        hmm.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2));
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sequences.add(mg.observationSequence(100));
+        }
+
+        klc = new KullbackLeiblerDistanceCalculator();
+    }
+
+    /**
+     *
+     * @throws CloneNotSupportedException
+     */
+    public void testFirstUpdateMatchesBatch() throws CloneNotSupportedException {
+        RegularBaumWelchOnlineLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> obwl = new RegularBaumWelchOnlineLearnerBase<>(hmm, new PolynomialStepSizeSchedule(1.0d, 1.0d));
+        RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwst = new RegularBaumWelchStreamingLearnerBase<>();
+        RegularHmmBase<ObservationInteger> expected = bwst.iterate(RegularHmmBase.deepClone(obwl.getHmm()), sequences);
+        RegularHmmBase<ObservationInteger> actual = obwl.update(sequences);
+        assertEquals(1, obwl.getNbUpdates());
+        assertSame(actual, obwl.getHmm());
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testPublishedModelIsNotModified() {
+        RegularBaumWelchOnlineLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> obwl = new RegularBaumWelchOnlineLearnerBase<>(hmm);
+        double initial = hmm.lnProbability(sequences.get(0x00));
+        RegularHmmBase<ObservationInteger> published = obwl.update(sequences.get(0x00));
+        double before = published.lnProbability(sequences.get(0x01));
+        obwl.update(sequences.get(0x01));
+        assertEquals(before, published.lnProbability(sequences.get(0x01)), EPSILON);
+        assertEquals(initial, hmm.lnProbability(sequences.get(0x00)), EPSILON);
+
+        CovarianceMatrix tied = new CovarianceMatrix(2, false);
+        RegularHmmBase<ObservationVector> tiedHmm = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.9d, 0.1d}, {0.1d, 0.9d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d}, tied),
+                new OpdfMultiGaussian(new double[]{5.0d, 5.0d}, tied));
+        Random random = new Random(0x27);
+        List<List<ObservationVector>> vectors = new ArrayList<>();
+        for (int s = 0; s < 2; s++) {
+            List<ObservationVector> sequence = new ArrayList<>();
+            for (int t = 0; t < 50; t++) {
+                sequence.add(new ObservationVector(5.0d * random.nextGaussian(), 5.0d * random.nextGaussian()));
+            }
+            vectors.add(sequence);
+        }
+        RegularBaumWelchOnlineLearnerBase<ObservationVector, RegularHmmBase<ObservationVector>> tiedLearner = new RegularBaumWelchOnlineLearnerBase<>(tiedHmm);
+        RegularHmmBase<ObservationVector> tiedPublished = tiedLearner.update(vectors.get(0x00));
+        CovarianceMatrix publishedTied = ((OpdfMultiGaussian) tiedPublished.getOpdf(0x00)).covarianceMatrix();
+        assertSame(publishedTied, ((OpdfMultiGaussian) tiedPublished.getOpdf(0x01)).covarianceMatrix());
+        double[][] snapshot = publishedTied.matrix();
+        tiedLearner.update(vectors.get(0x01));
+        assertEquals(1.0d, tied.get(0x00, 0x00), 0.0d);
+        assertEquals(0.0d, tied.get(0x00, 0x01), 0.0d);
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 2; c++) {
+                assertEquals(snapshot[r][c], publishedTied.get(r, c), 0.0d);
+            }
+        }
+        assertNotSame(publishedTied, ((OpdfMultiGaussian) tiedLearner.getHmm().getOpdf(0x00)).covarianceMatrix());
+    }
+
+    /**
+     *
+     */
+    public void testOnlineBaumWelch() {
+        RegularBaumWelchOnlineLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> obwl = new RegularBaumWelchOnlineLearnerBase<>(hmm);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            for (int i = 0; i < sequences.size(); i += 10) {
+                obwl.update(sequences.subList(i, i + 10));
+            }
+        }
+        assertEquals(30, obwl.getNbUpdates());
+        assertEquals(0., klc.distance(obwl.getHmm(), hmm), DELTA);
+    }
+
+}
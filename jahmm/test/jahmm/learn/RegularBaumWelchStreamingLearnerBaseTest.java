@@ -0,0 +1,97 @@
+package jahmm.learn;
+
+import jahmm.RegularHmm;
+import jahmm.RegularHmmBase;
+import jahmm.io.ObservationIntegerReader;
+import jahmm.io.ObservationIntegerWriter;
+import jahmm.io.ObservationSequencesFileSource;
+import jahmm.io.ObservationSequencesWriter;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.toolbox.KullbackLeiblerDistanceCalculator;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import utils.TestModels;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularBaumWelchStreamingLearnerBaseTest extends TestCase {
+
+    final static private double DELTA = 5.E-3;
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private List<List<ObservationInteger>> sequences;
+    private KullbackLeiblerDistanceCalculator klc;
+
+    @Override
+    protected void setUp() {
+        hmm = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        hmm.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2));
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sequences.add(mg.observationSequence(100));
+        }
+
+        klc = new KullbackLeiblerDistanceCalculator();
+    }
+
+    /**
+     *
+     */
+    public void testIterateMatchesScaled() {
+        RegularBaumWelchScaledLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwsl = new RegularBaumWelchScaledLearnerBase<>();
+        RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwst = new RegularBaumWelchStreamingLearnerBase<>();
+        RegularHmmBase<ObservationInteger> expected = bwsl.iterate(TestModels.copy(hmm), sequences);
+        RegularHmmBase<ObservationInteger> actual = bwst.iterate(TestModels.copy(hmm), (Iterable<List<ObservationInteger>>) sequences);
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+            for (int k = 0; k < 10; k++) {
+                ObservationInteger o = new ObservationInteger(k);
+                assertEquals(expected.getOpdf(i).probability(o), actual.getOpdf(i).probability(o), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void testBaumWelchFromFile() throws IOException {
+        File file = File.createTempFile("jahmm", ".seq");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            ObservationSequencesWriter.write(writer, new ObservationIntegerWriter(), sequences);
+        }
+        ObservationSequencesFileSource<ObservationInteger> source = new ObservationSequencesFileSource<>(new ObservationIntegerReader(10), file);
+        int n = 0;
+        for (List<ObservationInteger> sequence : source) {
+            List<ObservationInteger> expected = sequences.get(n++);
+            assertEquals(expected.size(), sequence.size());
+            for (int t = 0; t < sequence.size(); t++) {
+                assertEquals(expected.get(t).value, sequence.get(t).value);
+            }
+        }
+        assertEquals(sequences.size(), n);
+
+        RegularBaumWelchStreamingLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> bwst = new RegularBaumWelchStreamingLearnerBase<>();
+        RegularHmm<ObservationInteger, RegularHmmBase<ObservationInteger>> bwHmm = bwst.learn(hmm, source);
+
+        assertEquals(0., klc.distance(bwHmm, hmm), DELTA);
+    }
+
+}
@@ -0,0 +1,140 @@
+package jahmm.learn;
+
+import jahmm.RegularHmmBase;
+import jahmm.calculators.RegularViterbiCalculatorBase;
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.observables.ObservationInteger;
+import jahmm.observables.ObservationVector;
+import jahmm.observables.OpdfIntegerFactory;
+import jahmm.observables.OpdfMultiGaussian;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class RegularViterbiLearnerBaseTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private RegularHmmBase<ObservationInteger> hmm;
+    private List<List<ObservationInteger>> sequences;
+
+    @Override
+    protected void setUp() {
+        hmm = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        hmm.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2));
+        hmm.getOpdf(1).fit(new ObservationInteger(3), new ObservationInteger(4), new ObservationInteger(4));
+
+        RegularMarkovGeneratorBase<ObservationInteger, RegularHmmBase<ObservationInteger>> mg = new RegularMarkovGeneratorBase<>(hmm);
+
+        sequences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sequences.add(mg.observationSequence(100));
+        }
+    }
+
+    private double lnViterbi(RegularHmmBase<ObservationInteger> model) {
+        double result = 0.0d;
+        for (List<ObservationInteger> sequence : sequences) {
+            result += new RegularViterbiCalculatorBase(sequence, model).lnProbability();
+        }
+        return result;
+    }
+
+    /**
+     *
+     */
+    public void testStateSequenceStatistics() {
+        RegularBaumWelchStatistics<ObservationInteger> statistics = new RegularBaumWelchStatistics<>(hmm);
+        List<ObservationInteger> sequence = sequences.get(0x00).subList(0x00, 0x04);
+        statistics.addStateSequence(sequence, 0x01, 0x01, 0x02, 0x01);
+        assertEquals(1.0d, statistics.getWeight(), EPSILON);
+        assertEquals(1.0d, statistics.getPiNumerator()[0x01], EPSILON);
+        assertEquals(2.0d, statistics.getADenominator()[0x01], EPSILON);
+        assertEquals(1.0d, statistics.getANumerator()[0x01][0x01], EPSILON);
+        assertEquals(1.0d, statistics.getANumerator()[0x01][0x02], EPSILON);
+        assertEquals(1.0d, statistics.getANumerator()[0x02][0x01], EPSILON);
+        assertEquals(3.0d, statistics.getAccumulator(0x01).totalWeight(), EPSILON);
+        assertEquals(1.0d, statistics.getAccumulator(0x02).totalWeight(), EPSILON);
+        try {
+            statistics.addStateSequence(sequence, 0x01, 0x02);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     *
+     */
+    public void testParallelMatchesSequential() {
+        RegularViterbiLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> sequential = new RegularViterbiLearnerBase<>(0x01);
+        RegularViterbiLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> parallel = new RegularViterbiLearnerBase<>(0x04);
+        RegularHmmBase<ObservationInteger> expected = sequential.learn(hmm, 0x03, sequences);
+        RegularHmmBase<ObservationInteger> actual = parallel.learn(hmm, 0x03, sequences);
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(expected.getPi(i), actual.getPi(i), EPSILON);
+            for (int j = 0; j < hmm.nbStates(); j++) {
+                assertEquals(expected.getAij(i, j), actual.getAij(i, j), EPSILON);
+            }
+            for (int k = 0; k < 10; k++) {
+                ObservationInteger o = new ObservationInteger(k);
+                assertEquals(expected.getOpdf(i).probability(o), actual.getOpdf(i).probability(o), EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testViterbiTraining() {
+        RegularViterbiLearnerBase<ObservationInteger, RegularHmmBase<ObservationInteger>> vl = new RegularViterbiLearnerBase<>();
+        RegularHmmBase<ObservationInteger> initial = new RegularHmmBase<>(3, new OpdfIntegerFactory(10));
+        initial.getOpdf(0).fit(new ObservationInteger(1), new ObservationInteger(2), new ObservationInteger(5));
+        double before = lnViterbi(initial);
+        double uniform = initial.getOpdf(0x01).probability(new ObservationInteger(0x00));
+        RegularHmmBase<ObservationInteger> previous = initial;
+        for (int i = 0; i < 5; i++) {
+            RegularHmmBase<ObservationInteger> next = vl.iterate(previous, sequences);
+            double after = lnViterbi(next);
+            assertTrue(after >= before - 1.E-6);
+            before = after;
+            previous = next;
+        }
+        assertEquals(uniform, initial.getOpdf(0x01).probability(new ObservationInteger(0x00)), EPSILON);
+    }
+
+    /**
+     *
+     */
+    public void testTiedModelIsNotModified() {
+        CovarianceMatrix tied = new CovarianceMatrix(2, false);
+        RegularHmmBase<ObservationVector> initial = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.9d, 0.1d}, {0.1d, 0.9d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d}, tied),
+                new OpdfMultiGaussian(new double[]{5.0d, 5.0d}, tied));
+        Random random = new Random(0x30);
+        List<List<ObservationVector>> vectors = new ArrayList<>();
+        for (int s = 0; s < 10; s++) {
+            List<ObservationVector> sequence = new ArrayList<>();
+            for (int t = 0; t < 50; t++) {
+                double offset = t < 25 ? 0.0d : 5.0d;
+                sequence.add(new ObservationVector(offset + 3.0d * random.nextGaussian(), offset + 3.0d * random.nextGaussian()));
+            }
+            vectors.add(sequence);
+        }
+        RegularHmmBase<ObservationVector> learnt = new RegularViterbiLearnerBase<ObservationVector, RegularHmmBase<ObservationVector>>().iterate(initial, vectors);
+        assertEquals(1.0d, tied.get(0x00, 0x00), 0.0d);
+        assertEquals(0.0d, tied.get(0x00, 0x01), 0.0d);
+        assertEquals(5.0d, ((OpdfMultiGaussian) initial.getOpdf(0x01)).mean()[0x00], 0.0d);
+        CovarianceMatrix learntTied = ((OpdfMultiGaussian) learnt.getOpdf(0x00)).covarianceMatrix();
+        assertNotSame(tied, learntTied);
+        assertSame(learntTied, ((OpdfMultiGaussian) learnt.getOpdf(0x01)).covarianceMatrix());
+        assertTrue(learntTied.get(0x00, 0x00) > 2.0d);
+    }
+
+}
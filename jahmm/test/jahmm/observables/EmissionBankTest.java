@@ -0,0 +1,71 @@
+package jahmm.observables;
+
+import jahmm.RegularHmmBase;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class EmissionBankTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x5678);
+
+    private <O extends Observation> void assertBank(RegularHmmBase<O> hmm, O o) {
+        EmissionBank<O> bank = EmissionBank.of(hmm);
+        assertNotNull(bank);
+        assertEquals(hmm.nbStates(), bank.size());
+        double[] logProbabilities = new double[hmm.nbStates()];
+        double[] probabilities = new double[hmm.nbStates()];
+        bank.logProbabilities(o, logProbabilities);
+        bank.probabilities(o, probabilities);
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            assertEquals(hmm.getOpdf(i).logProbability(o), logProbabilities[i], EPSILON);
+            assertEquals(hmm.getOpdf(i).probability(o), probabilities[i], EPSILON);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testGaussian() {
+        RegularHmmBase<ObservationReal> hmm = new RegularHmmBase<>(3, OpdfGaussianFactory.Instance);
+        hmm.setOpdf(0x01, new OpdfGaussian(-2.0d, 0.5d));
+        hmm.setOpdf(0x02, new OpdfGaussian(4.0d, 3.0d));
+        for (int t = 0; t < 20; t++) {
+            assertBank(hmm, new ObservationReal(3.0d * random.nextGaussian()));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testMultiGaussian() {
+        RegularHmmBase<ObservationVector> hmm = new RegularHmmBase<>(3, new OpdfMultiGaussianFactory(2));
+        hmm.setOpdf(0x00, new OpdfMultiGaussian(new double[]{1.0d, -1.0d}, new double[][]{{2.0d, 0.4d}, {0.4d, 1.0d}}));
+        hmm.setOpdf(0x01, new OpdfMultiGaussian(new double[]{0.0d, 3.0d}, new double[]{0.5d, 1.5d}, false));
+        RegularHmmBase<ObservationVector> diagonal = new RegularHmmBase<>(2, new OpdfMultiGaussianFactory(2, CovarianceStructure.DIAGONAL));
+        diagonal.setOpdf(0x01, new OpdfMultiGaussian(new double[]{0.0d, 3.0d}, new double[]{2.0d, 2.0d}, true));
+        for (int t = 0; t < 20; t++) {
+            ObservationVector o = new ObservationVector(2.0d * random.nextGaussian(), 2.0d * random.nextGaussian());
+            assertBank(hmm, o);
+            assertBank(diagonal, o);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testUnsupported() {
+        RegularHmmBase<ObservationReal> mixed = new RegularHmmBase<>(2, OpdfGaussianFactory.Instance);
+        mixed.setOpdf(0x01, new OpdfGaussianMixture(2));
+        assertNull(EmissionBank.of(mixed));
+        RegularHmmBase<ObservationVector> dimensions = new RegularHmmBase<>(2, new OpdfMultiGaussianFactory(2));
+        dimensions.setOpdf(0x01, new OpdfMultiGaussian(3));
+        assertNull(EmissionBank.of(dimensions));
+    }
+
+}
@@ -0,0 +1,129 @@
+package jahmm.observables;
+
+import jahmm.InputHmmBase;
+import jahmm.calculators.InputForwardBackwardCalculatorBase;
+import jahmm.calculators.InputForwardBackwardScaledCalculatorBase;
+import jahmm.toolbox.InputMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import jutlis.lists.ListArray;
+import jutlis.tuples.Tuple3;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class InputObservationSequenceTest extends TestCase {
+
+    final static private double DELTA = 1.E-12;
+
+    private InputHmmBase<ObservationInteger, String> hmm;
+    private List<InputObservationTuple<String, ObservationInteger>> sequence;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setUp() throws CloneNotSupportedException {
+        double[] pi = {0.25d, 0.75d};
+        double[][][] a = {
+            {{0.50d, 0.50d}, {0.10d, 0.90d}},
+            {{0.30d, 0.70d}, {0.80d, 0.20d}}
+        };
+        ListArray<ListArray<OpdfInteger>> opdfs = new ListArray(
+                new ListArray<>(new OpdfInteger(0.45d, 0.55d), new OpdfInteger(0.90d, 0.10d)),
+                new ListArray<>(new OpdfInteger(0.25d, 0.75d), new OpdfInteger(0.15d, 0.85d))
+        );
+        hmm = new InputHmmBase<>(pi, a, opdfs, new ListArray<>(new String[]{"a", "b"}));
+        sequence = new ArrayList<>();
+        String[] inputs = {"a", "b", "b", "a", "b", "a"};
+        for (int t = 0; t < inputs.length; t++) {
+            sequence.add(new InputObservationTuple<>(inputs[t], new ObservationInteger(t % 0x02)));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testEncode() {
+        InputObservationSequence<String, ObservationInteger> encoded = new InputObservationSequenceEncoder<>(hmm).encode(sequence);
+        assertEquals(sequence.size(), encoded.size());
+        for (int t = 0; t < sequence.size(); t++) {
+            assertEquals(hmm.getInputIndex(sequence.get(t).getInput()), encoded.getInputIndex(t));
+            assertEquals(sequence.get(t).getInput(), encoded.getInput(t));
+            assertEquals(sequence.get(t).getInput(), encoded.get(t).getInput());
+            assertSame(sequence.get(t).getObservation(), encoded.getObservation(t));
+            assertSame(sequence.get(t).getObservation(), encoded.getObservations().get(t));
+        }
+    }
+
+    /**
+     *
+     */
+    public void testEncodeUnregistered() {
+        sequence.add(new InputObservationTuple<>("c", new ObservationInteger(0x00)));
+        try {
+            new InputObservationSequenceEncoder<>(hmm).encode(sequence);
+            fail("Unregistered input accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new InputObservationSequenceEncoder<String, ObservationInteger>(hmm).encode(new int[]{0x02}, new ListArray<>(new ObservationInteger(0x00)));
+            fail("Unregistered input index accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     *
+     */
+    @SuppressWarnings("unchecked")
+    public void testCalculators() {
+        InputObservationSequence<String, ObservationInteger> encoded = new InputObservationSequenceEncoder<>(hmm).encode(sequence);
+        InputForwardBackwardCalculatorBase<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> raw = InputForwardBackwardCalculatorBase.Instance;
+        InputForwardBackwardScaledCalculatorBase<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> scaled = InputForwardBackwardScaledCalculatorBase.Instance;
+        Tuple3<double[][], double[][], Double> expected = raw.computeAll(hmm, sequence);
+        assertEquals(expected, raw.computeAll(hmm, encoded));
+        assertEquals(expected, scaled.computeAll(hmm, sequence));
+        assertEquals(expected, scaled.computeAll(hmm, encoded));
+        double probability = 0.0d;
+        double[][] alpha = expected.getItem1();
+        double[][] beta = expected.getItem2();
+        for (int i = 0; i < hmm.nbStates(); i++) {
+            probability += alpha[0x02][i] * beta[0x02][i];
+        }
+        assertEquals(expected.getItem3(), probability, DELTA);
+    }
+
+    private static void assertEquals(Tuple3<double[][], double[][], Double> expected, Tuple3<double[][], double[][], Double> actual) {
+        assertEquals(expected.getItem3(), actual.getItem3(), DELTA);
+        double[][] ea = expected.getItem1(), aa = actual.getItem1();
+        double[][] eb = expected.getItem2(), ab = actual.getItem2();
+        double sa = 0.0d, sb = 0.0d;
+        for (int t = 0; t < ea.length; t++) {
+            double na = 0.0d, nb = 0.0d, ma = 0.0d, mb = 0.0d;
+            for (int i = 0; i < ea[t].length; i++) {
+                na += ea[t][i];
+                ma += aa[t][i];
+                nb += eb[t][i];
+                mb += ab[t][i];
+            }
+            for (int i = 0; i < ea[t].length; i++) {
+                assertEquals(ea[t][i] / na, aa[t][i] / ma, DELTA);
+                assertEquals(eb[t][i] / nb, ab[t][i] / mb, DELTA);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testGenerator() {
+        InputMarkovGeneratorBase<ObservationInteger, String, InputHmmBase<ObservationInteger, String>> generator = new InputMarkovGeneratorBase<>(hmm);
+        InputObservationSequence<String, ObservationInteger> encoded = generator.encodedInteractionSequence(50);
+        assertEquals(50, encoded.size());
+        for (int t = 0; t < encoded.size(); t++) {
+            assertEquals(hmm.getInputIndex(encoded.getInput(t)), encoded.getInputIndex(t));
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package jahmm.observables;
+
+import jahmm.RegularHmmBase;
+import jahmm.calculators.RegularForwardBackwardCalculatorBase;
+import jahmm.calculators.RegularViterbiCalculatorBase;
+import jahmm.learn.RegularBaumWelchScaledLearnerBase;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class ObservationSequenceTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private static RegularHmmBase<ObservationReal> realHmm() {
+        return new RegularHmmBase<>(new double[]{0.6d, 0.4d},
+                new double[][]{{0.9d, 0.1d}, {0.2d, 0.8d}},
+                new OpdfGaussian(-1.0d, 1.0d), new OpdfGaussian(2.0d, 0.5d));
+    }
+
+    private static RegularHmmBase<ObservationVector> vectorHmm() {
+        return new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.8d, 0.2d}, {0.3d, 0.7d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d, 0.0d}, new double[][]{{1.0d, 0.3d, 0.0d}, {0.3d, 1.0d, 0.2d}, {0.0d, 0.2d, 1.0d}}),
+                new OpdfMultiGaussian(new double[]{2.0d, 1.0d, -1.0d}, new double[][]{{0.5d, 0.0d, 0.0d}, {0.0d, 0.8d, 0.1d}, {0.0d, 0.1d, 0.6d}}));
+    }
+
+    /**
+     *
+     */
+    public void testViews() {
+        ObservationRealSequence reals = new ObservationRealSequence(1.0d, -2.0d, 3.5d);
+        assertEquals(3, reals.size());
+        assertEquals(-2.0d, reals.get(1).value, 0.0d);
+        assertSame(reals, ObservationRealSequence.of(reals));
+        assertTrue(Arrays.equals(reals.values(), ObservationRealSequence.of(new ArrayList<>(reals)).values()));
+        ObservationVectorSequence vectors = new ObservationVectorSequence(2, 1.0d, 2.0d, 3.0d, 4.0d, 5.0d, 6.0d);
+        assertEquals(3, vectors.size());
+        assertEquals(2, vectors.dimension());
+        assertEquals(4.0d, vectors.get(1).value(1), 0.0d);
+        assertEquals(5.0d, vectors.value(2, 0), 0.0d);
+        assertTrue(Arrays.equals(vectors.values(), ObservationVectorSequence.of(new ArrayList<>(vectors)).values()));
+        ObservationVectorSequence both = ObservationVectorSequence.concat(2, Arrays.asList(vectors, vectors));
+        assertEquals(6, both.size());
+        assertEquals(6.0d, both.value(5, 1), 0.0d);
+    }
+
+    /**
+     *
+     */
+    public void testRealSequences() {
+        RegularHmmBase<ObservationReal> hmm = realHmm();
+        RegularMarkovGeneratorBase<ObservationReal, RegularHmmBase<ObservationReal>> mg = new RegularMarkovGeneratorBase<>(hmm);
+        List<List<ObservationReal>> lists = new ArrayList<>();
+        List<ObservationRealSequence> packed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<ObservationReal> list = mg.observationSequence(60);
+            lists.add(list);
+            packed.add(ObservationRealSequence.of(list));
+        }
+        for (int i = 0; i < lists.size(); i++) {
+            double[][] expected = RegularForwardBackwardCalculatorBase.emissions(hmm, lists.get(i));
+            double[][] actual = RegularForwardBackwardCalculatorBase.emissions(hmm, packed.get(i));
+            for (int t = 0; t < expected.length; t++) {
+                assertTrue(Arrays.equals(expected[t], actual[t]));
+            }
+            assertTrue(Arrays.equals(new RegularViterbiCalculatorBase(lists.get(i), hmm).stateSequence(),
+                    new RegularViterbiCalculatorBase(packed.get(i), hmm).stateSequence()));
+            double[] column = new double[60];
+            double[] packedColumn = new double[60];
+            hmm.getOpdf(0).logProbabilities(lists.get(i), 0, 60, column);
+            hmm.getOpdf(0).logProbabilities(packed.get(i), 0, 60, packedColumn);
+            assertTrue(Arrays.equals(column, packedColumn));
+        }
+        RegularBaumWelchScaledLearnerBase<ObservationReal, RegularHmmBase<ObservationReal>> bwl = new RegularBaumWelchScaledLearnerBase<>();
+        RegularHmmBase<ObservationReal> expected = bwl.iterate(realHmm(), lists);
+        RegularHmmBase<ObservationReal> actual = bwl.iterate(realHmm(), packed);
+        for (int i = 0; i < 2; i++) {
+            OpdfGaussian e = (OpdfGaussian) expected.getOpdf(i);
+            OpdfGaussian a = (OpdfGaussian) actual.getOpdf(i);
+            assertEquals(e.mean(), a.mean(), EPSILON);
+            assertEquals(e.variance(), a.variance(), EPSILON);
+            assertEquals(expected.getAij(i, 0), actual.getAij(i, 0), EPSILON);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testVectorSequences() {
+        RegularHmmBase<ObservationVector> hmm = vectorHmm();
+        RegularMarkovGeneratorBase<ObservationVector, RegularHmmBase<ObservationVector>> mg = new RegularMarkovGeneratorBase<>(hmm);
+        List<List<ObservationVector>> lists = new ArrayList<>();
+        List<ObservationVectorSequence> packed = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            List<ObservationVector> list = mg.observationSequence(40);
+            lists.add(list);
+            packed.add(ObservationVectorSequence.of(list));
+        }
+        for (int i = 0; i < lists.size(); i++) {
+            double[][] expected = RegularForwardBackwardCalculatorBase.emissions(hmm, lists.get(i));
+            double[][] actual = RegularForwardBackwardCalculatorBase.emissions(hmm, packed.get(i));
+            for (int t = 0; t < expected.length; t++) {
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(expected[t][j], actual[t][j], EPSILON * expected[t][j]);
+                }
+            }
+            double[] column = new double[40];
+            double[] packedColumn = new double[40];
+            hmm.getOpdf(1).logProbabilities(lists.get(i), 0, 40, column);
+            hmm.getOpdf(1).logProbabilities(packed.get(i), 0, 40, packedColumn);
+            for (int t = 0; t < 40; t++) {
+                assertEquals(column[t], packedColumn[t], EPSILON);
+            }
+        }
+        RegularBaumWelchScaledLearnerBase<ObservationVector, RegularHmmBase<ObservationVector>> bwl = new RegularBaumWelchScaledLearnerBase<>();
+        RegularHmmBase<ObservationVector> expected = bwl.iterate(vectorHmm(), lists);
+        RegularHmmBase<ObservationVector> actual = bwl.iterate(vectorHmm(), packed);
+        for (int i = 0; i < 2; i++) {
+            OpdfMultiGaussian e = (OpdfMultiGaussian) expected.getOpdf(i);
+            OpdfMultiGaussian a = (OpdfMultiGaussian) actual.getOpdf(i);
+            for (int r = 0; r < 3; r++) {
+                assertEquals(e.mean()[r], a.mean()[r], EPSILON);
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(e.covariance()[r][c], a.covariance()[r][c], EPSILON);
+                }
+            }
+            assertEquals(expected.getAij(i, 0), actual.getAij(i, 0), EPSILON);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package jahmm.observables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfAccumulatorTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x1234);
+
+    /**
+     *
+     */
+    public void testGaussianMergeMatchesFit() {
+        List<ObservationReal> observations = new ArrayList<>();
+        double[] weights = new double[100];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            observations.add(new ObservationReal(3.0d * random.nextGaussian() + 1.0d));
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        OpdfGaussian expected = new OpdfGaussian();
+        OpdfGaussian actual = new OpdfGaussian();
+        OpdfAccumulator<ObservationReal> first = actual.createAccumulator();
+        OpdfAccumulator<ObservationReal> second = actual.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            (i < 30 ? first : second).add(observations.get(i), 2.0d * weights[i]);
+            weights[i] /= total;
+        }
+        expected.fit(observations, weights);
+        first.merge(second);
+        first.scale(0.5d);
+        assertEquals(total, first.totalWeight(), EPSILON);
+        first.fit();
+        assertEquals(expected.mean(), actual.mean(), EPSILON);
+        assertEquals(expected.variance(), actual.variance(), EPSILON);
+    }
+
+    /**
+     *
+     */
+    public void testMultiGaussianMergeMatchesFit() {
+        List<ObservationVector> observations = new ArrayList<>();
+        double[] weights = new double[100];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            double x = random.nextGaussian();
+            observations.add(new ObservationVector(new double[]{x, x + random.nextGaussian(), 2.0d}));
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        OpdfMultiGaussian expected = new OpdfMultiGaussian(3);
+        OpdfMultiGaussian actual = new OpdfMultiGaussian(3);
+        OpdfAccumulator<ObservationVector> first = actual.createAccumulator();
+        OpdfAccumulator<ObservationVector> second = actual.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            (i < 70 ? first : second).add(observations.get(i), weights[i]);
+            weights[i] /= total;
+        }
+        expected.fit(observations, weights);
+        first.merge(second);
+        first.fit();
+        for (int r = 0; r < 3; r++) {
+            assertEquals(expected.mean()[r], actual.mean()[r], EPSILON);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(expected.covariance()[r][c], actual.covariance()[r][c], EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testLogLikelihoodMatchesFit() {
+        List<ObservationInteger> integers = new ArrayList<>();
+        List<ObservationReal> reals = new ArrayList<>();
+        List<ObservationVector> vectors = new ArrayList<>();
+        double[] weights = new double[100];
+        for (int i = 0; i < weights.length; i++) {
+            double x = random.nextGaussian();
+            integers.add(new ObservationInteger(random.nextInt(5)));
+            reals.add(new ObservationReal(3.0d * x + 1.0d));
+            vectors.add(new ObservationVector(new double[]{x, x + random.nextGaussian(), 2.0d * random.nextGaussian()}));
+            weights[i] = random.nextDouble();
+        }
+        assertLogLikelihood(new OpdfInteger(6), integers, weights);
+        assertLogLikelihood(new OpdfGaussian(), reals, weights);
+        for (CovarianceStructure structure : new CovarianceStructure[]{CovarianceStructure.FULL, CovarianceStructure.DIAGONAL, CovarianceStructure.SPHERICAL}) {
+            assertLogLikelihood(new OpdfMultiGaussian(3, structure), vectors, weights);
+        }
+        assertEquals(0.0d, new OpdfGaussian().createAccumulator().logLikelihood(), EPSILON);
+    }
+
+    private static <O extends Observation> void assertLogLikelihood(Opdf<O> opdf, List<O> observations, double[] weights) {
+        OpdfAccumulator<O> accumulator = opdf.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            accumulator.add(observations.get(i), weights[i]);
+        }
+        double actual = accumulator.logLikelihood();
+        accumulator.fit();
+        double expected = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            expected += weights[i] * opdf.logProbability(observations.get(i));
+        }
+        assertEquals(expected, actual, 1.E-6);
+    }
+
+    /**
+     *
+     */
+    public void testIncompatibleMerge() {
+        OpdfAccumulator<ObservationInteger> first = new OpdfInteger(3).createAccumulator();
+        try {
+            first.merge(new OpdfInteger(4).createAccumulator());
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package jahmm.observables;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfBulkProbabilityTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x4567);
+
+    private <O extends Observation> void assertBulk(Opdf<O> opdf, List<O> sequence) {
+        int from = 0x03, to = sequence.size() - 0x02;
+        double[] probabilities = new double[to - from];
+        double[] logProbabilities = new double[to - from];
+        opdf.probabilities(sequence, from, to, probabilities);
+        opdf.logProbabilities(sequence, from, to, logProbabilities);
+        for (int k = 0; k < probabilities.length; k++) {
+            O o = sequence.get(from + k);
+            assertEquals(opdf.probability(o), probabilities[k], EPSILON);
+            assertEquals(opdf.logProbability(o), logProbabilities[k], EPSILON);
+        }
+    }
+
+    private List<ObservationVector> vectors(int n) {
+        List<ObservationVector> sequence = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sequence.add(new ObservationVector(2.0d * random.nextGaussian(), random.nextGaussian()));
+        }
+        return sequence;
+    }
+
+    /**
+     *
+     */
+    public void testScalar() {
+        List<ObservationReal> reals = new LinkedList<>();
+        for (int i = 0; i < 40; i++) {
+            reals.add(new ObservationReal(3.0d * random.nextGaussian()));
+        }
+        assertBulk(new OpdfGaussian(1.0d, 2.5d), reals);
+        assertBulk(new OpdfGaussianMixture(new double[]{-1.0d, 2.0d}, new double[]{0.5d, 3.0d}, 0.4d, 0.6d), reals);
+
+        List<ObservationInteger> integers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            integers.add(new ObservationInteger(random.nextInt(4)));
+        }
+        assertBulk(new OpdfInteger(0.1d, 0.2d, 0.3d, 0.4d), integers);
+        assertBulk(new OpdfInteger(0.0d, 0.5d, 0.5d, 0.0d), integers);
+    }
+
+    /**
+     *
+     */
+    public void testVector() {
+        List<ObservationVector> sequence = vectors(40);
+        double[][] means = {{0.0d, 1.0d}, {3.0d, -1.0d}};
+        double[][][] covariances = {{{1.0d, 0.2d}, {0.2d, 0.5d}}, {{2.0d, -0.3d}, {-0.3d, 1.0d}}};
+        assertBulk(new OpdfMultiGaussian(means[0], covariances[0]), sequence);
+        assertBulk(new OpdfMultiGaussian(means[1], new double[]{2.0d, 0.5d}, false), sequence);
+        assertBulk(new OpdfMultiGaussianMixture(means, covariances, 1.0d, 3.0d), sequence);
+    }
+
+    /**
+     *
+     */
+    public void testWrongDimension() {
+        List<ObservationVector> sequence = vectors(10);
+        sequence.set(0x05, new ObservationVector(1.0d, 2.0d, 3.0d));
+        try {
+            new OpdfMultiGaussian(2).probabilities(sequence, 0x00, sequence.size(), new double[sequence.size()]);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
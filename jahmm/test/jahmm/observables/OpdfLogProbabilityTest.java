@@ -0,0 +1,57 @@
+package jahmm.observables;
+
+import jahmm.distributions.PoissonDistribution;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfLogProbabilityTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x4321);
+
+    /**
+     *
+     */
+    public void testClosedFormsMatchProbability() {
+        OpdfGaussian gaussian = new OpdfGaussian(1.5d, 2.0d);
+        OpdfGaussianMixture mixture = new OpdfGaussianMixture(new double[]{-1.0d, 2.0d}, new double[]{0.5d, 3.0d}, 0.3d, 0.7d);
+        OpdfMultiGaussian multi = new OpdfMultiGaussian(new double[]{0.0d, 1.0d}, new double[][]{{2.0d, 0.3d}, {0.3d, 1.0d}});
+        for (int i = 0; i < 50; i++) {
+            ObservationReal o = new ObservationReal(4.0d * random.nextGaussian());
+            assertEquals(Math.log(gaussian.probability(o)), gaussian.logProbability(o), EPSILON);
+            assertEquals(Math.log(mixture.probability(o)), mixture.logProbability(o), EPSILON);
+            ObservationVector v = new ObservationVector(random.nextGaussian(), random.nextGaussian());
+            assertEquals(Math.log(multi.probability(v)), multi.logProbability(v), EPSILON);
+        }
+        OpdfInteger integer = new OpdfInteger(0.2d, 0.5d, 0.3d);
+        OpdfDiscrete<String> discrete = new OpdfDiscrete<>(new String[]{"a", "b"}, new double[]{0.25d, 0.75d});
+        for (int i = 0; i < 3; i++) {
+            ObservationInteger o = new ObservationInteger(i);
+            assertEquals(Math.log(integer.probability(o)), integer.logProbability(o), EPSILON);
+        }
+        assertEquals(Math.log(0.75d), discrete.logProbability(new ObservationDiscrete<>("b")), EPSILON);
+        PoissonDistribution poisson = new PoissonDistribution(3.5d);
+        for (int n = 0; n < 40; n++) {
+            assertEquals(Math.log(poisson.probability(n)), poisson.logProbability(n), EPSILON);
+        }
+        assertEquals(0.0d, new PoissonDistribution(0.0d).logProbability(0x00), EPSILON);
+    }
+
+    /**
+     *
+     */
+    public void testNoUnderflow() {
+        OpdfGaussian gaussian = new OpdfGaussian(0.0d, 1.0d);
+        ObservationReal far = new ObservationReal(100.0d);
+        assertEquals(0.0d, gaussian.probability(far));
+        assertEquals(-0.5d * Math.log(2.0d * Math.PI) - 5000.0d, gaussian.logProbability(far), EPSILON);
+        OpdfGaussianMixture mixture = new OpdfGaussianMixture(new double[]{0.0d, 0.0d}, new double[]{1.0d, 1.0d}, 0.5d, 0.5d);
+        assertEquals(gaussian.logProbability(far), mixture.logProbability(far), EPSILON);
+    }
+
+}
@@ -0,0 +1,146 @@
+package jahmm.observables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfMultiGaussianMixtureTest extends TestCase {
+
+    final static private double DELTA = 0.15d;
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x3456);
+
+    private List<ObservationVector> sample(OpdfMultiGaussian first, OpdfMultiGaussian second, double proportion, int n) {
+        List<ObservationVector> observations = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            observations.add(random.nextDouble() < proportion ? first.generate() : second.generate());
+        }
+        return observations;
+    }
+
+    /**
+     *
+     */
+    public void testLogProbability() {
+        double[][] means = {{0.0d, 1.0d}, {3.0d, -1.0d}};
+        double[][][] covariances = {{{1.0d, 0.2d}, {0.2d, 0.5d}}, {{2.0d, -0.3d}, {-0.3d, 1.0d}}};
+        OpdfMultiGaussianMixture mixture = new OpdfMultiGaussianMixture(means, covariances, 1.0d, 3.0d);
+        OpdfMultiGaussian first = new OpdfMultiGaussian(means[0], covariances[0]);
+        OpdfMultiGaussian second = new OpdfMultiGaussian(means[1], covariances[1]);
+        for (int i = 0; i < 50; i++) {
+            ObservationVector o = new ObservationVector(4.0d * random.nextGaussian(), 4.0d * random.nextGaussian());
+            double expected = 0.25d * first.probability(o) + 0.75d * second.probability(o);
+            assertEquals(expected, mixture.probability(o), EPSILON);
+            assertEquals(Math.log(expected), mixture.logProbability(o), EPSILON);
+        }
+        ObservationVector far = new ObservationVector(100.0d, 100.0d);
+        assertEquals(0.0d, mixture.probability(far));
+        assertFalse(Double.isInfinite(mixture.logProbability(far)));
+        assertEquals(2 * (2 + 3 + 1) - 1, mixture.nbParameters());
+    }
+
+    /**
+     *
+     */
+    public void testFit() {
+        OpdfMultiGaussian first = new OpdfMultiGaussian(new double[]{-2.0d, 0.0d}, new double[][]{{1.0d, 0.3d}, {0.3d, 0.5d}});
+        OpdfMultiGaussian second = new OpdfMultiGaussian(new double[]{3.0d, 2.0d}, new double[][]{{0.7d, 0.0d}, {0.0d, 1.5d}});
+        List<ObservationVector> observations = sample(first, second, 0.3d, 3000);
+        OpdfMultiGaussianMixture mixture = new OpdfMultiGaussianMixture(2, 2);
+        for (int i = 0; i < 50; i++) {
+            mixture.fit(observations);
+        }
+        double[] proportions = mixture.proportions();
+        double[][] means = mixture.means();
+        int a = means[0][0] < means[1][0] ? 0 : 1;
+        assertEquals(0.3d, proportions[a], 0.05d);
+        assertEquals(0.7d, proportions[1 - a], 0.05d);
+        for (int r = 0; r < 2; r++) {
+            assertEquals(first.mean()[r], means[a][r], DELTA);
+            assertEquals(second.mean()[r], means[1 - a][r], DELTA);
+            for (int c = 0; c < 2; c++) {
+                assertEquals(first.covariance()[r][c], mixture.covariances()[a][r][c], DELTA);
+                assertEquals(second.covariance()[r][c], mixture.covariances()[1 - a][r][c], DELTA);
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testAccumulatorMatchesFit() {
+        OpdfMultiGaussian first = new OpdfMultiGaussian(new double[]{-1.0d, 0.0d, 1.0d}, new double[][]{{1.0d, 0.0d, 0.0d}, {0.0d, 2.0d, 0.0d}, {0.0d, 0.0d, 0.5d}});
+        OpdfMultiGaussian second = new OpdfMultiGaussian(new double[]{2.0d, 1.0d, 0.0d}, new double[][]{{1.0d, 0.0d, 0.0d}, {0.0d, 1.0d, 0.0d}, {0.0d, 0.0d, 1.0d}});
+        List<ObservationVector> observations = sample(first, second, 0.5d, 300);
+        for (CovarianceStructure structure : new CovarianceStructure[]{CovarianceStructure.FULL, CovarianceStructure.DIAGONAL, CovarianceStructure.SPHERICAL}) {
+            double[] weights = new double[observations.size()];
+            double total = 0.0d;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = random.nextDouble();
+                total += weights[i];
+            }
+            OpdfMultiGaussianMixture expected = new OpdfMultiGaussianMixtureFactory(3, 3, structure).generate();
+            OpdfMultiGaussianMixture actual = new OpdfMultiGaussianMixtureFactory(3, 3, structure).generate();
+            OpdfAccumulator<ObservationVector> left = actual.createAccumulator();
+            OpdfAccumulator<ObservationVector> right = actual.createAccumulator();
+            for (int i = 0; i < weights.length; i++) {
+                (i < 120 ? left : right).add(observations.get(i), 3.0d * weights[i]);
+                weights[i] /= total;
+            }
+            expected.fit(observations, weights);
+            left.merge(right);
+            left.scale(1.0d / 3.0d);
+            assertEquals(total, left.totalWeight(), 1.E-6);
+            left.fit();
+            for (int k = 0; k < 3; k++) {
+                assertEquals(expected.proportions()[k], actual.proportions()[k], EPSILON);
+                for (int r = 0; r < 3; r++) {
+                    assertEquals(expected.means()[k][r], actual.means()[k][r], EPSILON);
+                    for (int c = 0; c < 3; c++) {
+                        assertEquals(expected.covariances()[k][r][c], actual.covariances()[k][r][c], EPSILON);
+                        if (r != c && structure != CovarianceStructure.FULL) {
+                            assertEquals(0.0d, actual.covariances()[k][r][c]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void testScalarAccumulatorMatchesFit() {
+        List<ObservationReal> observations = new ArrayList<>();
+        double[] weights = new double[400];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            observations.add(new ObservationReal(random.nextBoolean() ? random.nextGaussian() : 4.0d + 2.0d * random.nextGaussian()));
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        OpdfGaussianMixture expected = new OpdfGaussianMixture(new double[]{0.5d, 3.0d}, new double[]{1.0d, 1.0d}, 0.5d, 0.5d);
+        OpdfGaussianMixture actual = new OpdfGaussianMixture(new double[]{0.5d, 3.0d}, new double[]{1.0d, 1.0d}, 0.5d, 0.5d);
+        OpdfAccumulator<ObservationReal> left = actual.createAccumulator();
+        OpdfAccumulator<ObservationReal> right = actual.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            (i < 150 ? left : right).add(observations.get(i), weights[i]);
+            weights[i] /= total;
+        }
+        expected.fit(observations, weights);
+        right.merge(left);
+        right.fit();
+        for (int k = 0; k < 2; k++) {
+            assertEquals(expected.proportions()[k], actual.proportions()[k], EPSILON);
+            assertEquals(expected.means()[k], actual.means()[k], EPSILON);
+            assertEquals(expected.variances()[k], actual.variances()[k], EPSILON);
+        }
+    }
+
+}
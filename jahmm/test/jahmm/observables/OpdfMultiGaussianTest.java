@@ -0,0 +1,335 @@
+package jahmm.observables;
+
+import jahmm.RegularHmmBase;
+import jahmm.distributions.CovarianceMatrix;
+import jahmm.io.FileFormatException;
+import jahmm.io.HmmReader;
+import jahmm.io.HmmWriter;
+import jahmm.io.OpdfGenericReader;
+import jahmm.io.OpdfMultiGaussianReader;
+import jahmm.io.OpdfMultiGaussianWriter;
+import jahmm.learn.RegularBaumWelchScaledLearnerBase;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfMultiGaussianTest extends TestCase {
+
+    final static private double DELTA = 0.2d;
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x2345);
+
+    private List<ObservationVector> sample(int n) {
+        List<ObservationVector> observations = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextGaussian();
+            observations.add(new ObservationVector(1.0d + 2.0d * x, -1.0d + x + 0.5d * random.nextGaussian(), 3.0d * random.nextGaussian()));
+        }
+        return observations;
+    }
+
+    /**
+     *
+     */
+    public void testDiagonalAndSphericalFit() {
+        List<ObservationVector> observations = sample(500);
+        OpdfMultiGaussian full = new OpdfMultiGaussian(3);
+        OpdfMultiGaussian diagonal = new OpdfMultiGaussian(3, CovarianceStructure.DIAGONAL);
+        OpdfMultiGaussian spherical = new OpdfMultiGaussian(3, CovarianceStructure.SPHERICAL);
+        full.fit(observations);
+        diagonal.fit(observations);
+        spherical.fit(observations);
+        double[][] covariance = full.covariance();
+        double trace = 0.0d;
+        for (int r = 0; r < 3; r++) {
+            assertEquals(full.mean()[r], diagonal.mean()[r], EPSILON);
+            assertEquals(covariance[r][r], diagonal.covariance()[r][r], EPSILON);
+            trace += covariance[r][r];
+            for (int c = 0; c < 3; c++) {
+                if (r != c) {
+                    assertEquals(0.0d, diagonal.covariance()[r][c]);
+                    assertEquals(0.0d, spherical.covariance()[r][c]);
+                } else {
+                    assertEquals(spherical.covariance()[0][0], spherical.covariance()[r][c]);
+                }
+            }
+        }
+        assertEquals(trace / 3.0d, spherical.covariance()[0][0], EPSILON);
+        assertEquals(6, diagonal.nbParameters());
+        assertEquals(4, spherical.nbParameters());
+
+        OpdfMultiGaussian expected = new OpdfMultiGaussian(diagonal.mean(), diagonal.covariance());
+        for (ObservationVector o : observations) {
+            assertEquals(expected.logProbability(o), diagonal.logProbability(o), EPSILON);
+            assertEquals(expected.probability(o), diagonal.probability(o), EPSILON);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testDiagonalAccumulator() {
+        List<ObservationVector> observations = sample(200);
+        double[] weights = new double[observations.size()];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        OpdfMultiGaussian expected = new OpdfMultiGaussian(3, CovarianceStructure.DIAGONAL);
+        OpdfMultiGaussian actual = new OpdfMultiGaussian(3, CovarianceStructure.DIAGONAL);
+        OpdfAccumulator<ObservationVector> first = actual.createAccumulator();
+        OpdfAccumulator<ObservationVector> second = actual.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            (i < 50 ? first : second).add(observations.get(i), weights[i]);
+            weights[i] /= total;
+        }
+        expected.fit(observations, weights);
+        first.merge(second);
+        first.fit();
+        for (int r = 0; r < 3; r++) {
+            assertEquals(expected.mean()[r], actual.mean()[r], EPSILON);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(expected.covariance()[r][c], actual.covariance()[r][c], EPSILON);
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws CloneNotSupportedException
+     */
+    public void testTiedBaumWelch() throws CloneNotSupportedException {
+        double[][] covariance = {{2.0d, 0.5d}, {0.5d, 1.0d}};
+        CovarianceMatrix tied = new CovarianceMatrix(covariance);
+        RegularHmmBase<ObservationVector> hmm = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.8d, 0.2d}, {0.2d, 0.8d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d}, tied),
+                new OpdfMultiGaussian(new double[]{6.0d, 6.0d}, tied));
+        RegularMarkovGeneratorBase<ObservationVector, RegularHmmBase<ObservationVector>> mg = new RegularMarkovGeneratorBase<>(hmm);
+        List<List<ObservationVector>> sequences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequences.add(mg.observationSequence(200));
+        }
+
+        OpdfMultiGaussianFactory factory = new OpdfMultiGaussianFactory(2, CovarianceStructure.TIED);
+        List<OpdfMultiGaussian> generated = factory.generate(2);
+        OpdfMultiGaussian first = generated.get(0);
+        OpdfMultiGaussian second = generated.get(1);
+        assertSame(first.covarianceMatrix(), second.covarianceMatrix());
+        assertNotSame(first.covarianceMatrix(), factory.generate().covarianceMatrix());
+        assertSame(first.covarianceMatrix(), first.clone().covarianceMatrix());
+        first.fit(new ObservationVector(0.5d, 0.5d), new ObservationVector(1.5d, 0.0d));
+        second.fit(new ObservationVector(5.0d, 5.5d), new ObservationVector(6.5d, 6.0d));
+        RegularHmmBase<ObservationVector> initial = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.5d, 0.5d}, {0.5d, 0.5d}}, first, second);
+
+        RegularBaumWelchScaledLearnerBase<ObservationVector, RegularHmmBase<ObservationVector>> bwl = new RegularBaumWelchScaledLearnerBase<>();
+        RegularHmmBase<ObservationVector> learnt = bwl.learn(initial, sequences);
+        OpdfMultiGaussian o0 = (OpdfMultiGaussian) learnt.getOpdf(0);
+        OpdfMultiGaussian o1 = (OpdfMultiGaussian) learnt.getOpdf(1);
+        assertSame(o0.covarianceMatrix(), o1.covarianceMatrix());
+        assertEquals(CovarianceStructure.TIED, o0.structure());
+        double[][] estimated = o0.covariance();
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 2; c++) {
+                assertEquals(covariance[r][c], estimated[r][c], DELTA);
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void testTiedModelsStayApart() throws Exception {
+        OpdfMultiGaussianFactory factory = new OpdfMultiGaussianFactory(3, CovarianceStructure.TIED);
+        final RegularHmmBase<ObservationVector> first = new RegularHmmBase<>(2, factory);
+        final RegularHmmBase<ObservationVector> second = new RegularHmmBase<>(2, factory);
+        RegularHmmBase<ObservationVector> expected = new RegularHmmBase<>(2, factory);
+        assertSame(((OpdfMultiGaussian) first.getOpdf(0)).covarianceMatrix(), ((OpdfMultiGaussian) first.getOpdf(1)).covarianceMatrix());
+        assertNotSame(((OpdfMultiGaussian) first.getOpdf(0)).covarianceMatrix(), ((OpdfMultiGaussian) second.getOpdf(0)).covarianceMatrix());
+        final List<ObservationVector> small = sample(400);
+        final List<ObservationVector> large = new ArrayList<>();
+        for (ObservationVector o : sample(400)) {
+            large.add(new ObservationVector(10.0d * o.value(0), 10.0d * o.value(1), 10.0d * o.value(2)));
+        }
+        Thread other = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < 2; i++) {
+                    second.getOpdf(i).fit(large.subList(200 * i, 200 * i + 200));
+                }
+            }
+
+        });
+        other.start();
+        for (int i = 0; i < 2; i++) {
+            first.getOpdf(i).fit(small.subList(200 * i, 200 * i + 200));
+        }
+        other.join();
+        for (int i = 0; i < 2; i++) {
+            expected.getOpdf(i).fit(small.subList(200 * i, 200 * i + 200));
+        }
+        double[][] actual = ((OpdfMultiGaussian) first.getOpdf(1)).covariance();
+        double[][] reference = ((OpdfMultiGaussian) expected.getOpdf(0)).covariance();
+        double[][] scaled = ((OpdfMultiGaussian) second.getOpdf(0)).covariance();
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                assertEquals(reference[r][c], actual[r][c], EPSILON);
+            }
+            assertTrue(scaled[r][r] > 50.0d * actual[r][r]);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testTiedPoolingByOccupancy() {
+        List<ObservationVector> sequence = new ArrayList<>();
+        List<ObservationVector> near = new ArrayList<>();
+        List<ObservationVector> far = new ArrayList<>();
+        for (int t = 0; t < 100; t++) {
+            ObservationVector o = t < 90
+                    ? new ObservationVector(random.nextGaussian(), random.nextGaussian())
+                    : new ObservationVector(100.0d + 5.0d * random.nextGaussian(), 100.0d + 5.0d * random.nextGaussian());
+            sequence.add(o);
+            (t < 90 ? near : far).add(o);
+        }
+        double[][] expected = new double[2][2];
+        for (List<ObservationVector> cluster : Arrays.asList(near, far)) {
+            double[] mean = new double[2];
+            for (ObservationVector o : cluster) {
+                for (int r = 0; r < 2; r++) {
+                    mean[r] += o.value(r) / cluster.size();
+                }
+            }
+            for (ObservationVector o : cluster) {
+                for (int r = 0; r < 2; r++) {
+                    for (int c = 0; c < 2; c++) {
+                        expected[r][c] += (o.value(r) - mean[r]) * (o.value(c) - mean[c]) / sequence.size();
+                    }
+                }
+            }
+        }
+
+        CovarianceMatrix tied = new CovarianceMatrix(2, false);
+        RegularHmmBase<ObservationVector> hmm = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.9d, 0.1d}, {0.1d, 0.9d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d}, tied),
+                new OpdfMultiGaussian(new double[]{100.0d, 100.0d}, tied));
+        List<List<ObservationVector>> sequences = new ArrayList<>();
+        sequences.add(sequence);
+        RegularHmmBase<ObservationVector> learnt = new RegularBaumWelchScaledLearnerBase<ObservationVector, RegularHmmBase<ObservationVector>>().iterate(hmm, sequences);
+        double[][] actual = ((OpdfMultiGaussian) learnt.getOpdf(0)).covariance();
+
+        List<OpdfMultiGaussian> fitted = new OpdfMultiGaussianFactory(2, CovarianceStructure.TIED).generate(2);
+        double[] nearWeights = new double[near.size()];
+        double[] farWeights = new double[far.size()];
+        Arrays.fill(nearWeights, 1.0d);
+        Arrays.fill(farWeights, 1.0d);
+        fitted.get(0).fit(near, nearWeights);
+        fitted.get(1).fit(far, farWeights);
+        double[][] unnormalized = fitted.get(1).covariance();
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 2; c++) {
+                assertEquals(expected[r][c], actual[r][c], 1.E-6);
+                assertEquals(expected[r][c], unnormalized[r][c], EPSILON);
+            }
+        }
+    }
+
+    private static CovarianceMatrix covariance(RegularHmmBase<ObservationVector> hmm, int stateNb) {
+        return ((OpdfMultiGaussian) hmm.getOpdf(stateNb)).covarianceMatrix();
+    }
+
+    /**
+     *
+     * @throws IOException
+     * @throws FileFormatException
+     */
+    public void testReaderTieGroups() throws IOException, FileFormatException {
+        String matrix = " [ [ 1.2 .3 ] [ .3 4. ] ] ] ";
+        String description = "Hmm v1.0 NbStates 3 "
+                + "State Pi .4 A .4 .3 .3 TiedMultiGaussianOPDF [ 0 [ 5. 5. ]" + matrix
+                + "State Pi .3 A .3 .4 .3 TiedMultiGaussianOPDF [ 1 [ 1. 1. ]" + matrix
+                + "State Pi .3 A .3 .3 .4 TiedMultiGaussianOPDF [ 0 [ 0. 0. ]" + matrix;
+        OpdfMultiGaussianReader reader = new OpdfMultiGaussianReader(CovarianceStructure.TIED);
+        RegularHmmBase<ObservationVector> first = HmmReader.read(new StringReader(description), reader);
+        RegularHmmBase<ObservationVector> second = HmmReader.read(new StringReader(description), reader);
+        assertSame(covariance(first, 0), covariance(first, 2));
+        assertNotSame(covariance(first, 0), covariance(first, 1));
+        assertNotSame(covariance(first, 0), covariance(second, 0));
+
+        StringWriter written = new StringWriter();
+        HmmWriter.write(written, new OpdfMultiGaussianWriter(), first);
+        RegularHmmBase<ObservationVector> copy = HmmReader.read(new StringReader(written.toString()), reader);
+        assertSame(covariance(copy, 0), covariance(copy, 2));
+        assertNotSame(covariance(copy, 0), covariance(copy, 1));
+        assertEquals(0.3d, covariance(copy, 1).get(0, 1), EPSILON);
+
+        try {
+            HmmReader.read(new StringReader(description.replace("[ 0 [ 0. 0. ] [ [ 1.2", "[ 0 [ 0. 0. ] [ [ 1.5")), reader);
+            fail("Tied matrices must be equal");
+        } catch (FileFormatException e) {
+        }
+
+        String tied = "TiedMultiGaussianOPDF [ 0 [ 5. 5. ] [ [ 1.2 .3 ] [ .3 4. ] ] ]";
+        OpdfGenericReader generic = new OpdfGenericReader();
+        OpdfMultiGaussian alone = (OpdfMultiGaussian) generic.read(new StreamTokenizer(new StringReader(tied)));
+        OpdfMultiGaussian other = (OpdfMultiGaussian) generic.read(new StreamTokenizer(new StringReader(tied)));
+        assertNotSame(alone.covarianceMatrix(), other.covarianceMatrix());
+        OpdfMultiGaussian spherical = (OpdfMultiGaussian) generic.read(new StreamTokenizer(new StringReader("SphericalMultiGaussianOPDF [ [ 5. 5. ] [ 1.2 ] ]")));
+        assertEquals(CovarianceStructure.SPHERICAL, spherical.structure());
+        assertEquals(1.2d, spherical.covariance()[1][1], EPSILON);
+    }
+
+    /**
+     *
+     * @throws CloneNotSupportedException
+     */
+    public void testDeepCloneRetiesCovariance() throws CloneNotSupportedException {
+        CovarianceMatrix first = new CovarianceMatrix(new double[][]{{1.0d, 0.3d}, {0.3d, 2.0d}});
+        CovarianceMatrix second = new CovarianceMatrix(2, false);
+        RegularHmmBase<ObservationVector> hmm = new RegularHmmBase<>(new double[]{0.4d, 0.3d, 0.3d},
+                new double[][]{{0.8d, 0.1d, 0.1d}, {0.1d, 0.8d, 0.1d}, {0.1d, 0.1d, 0.8d}},
+                new OpdfMultiGaussian(new double[]{0.0d, 0.0d}, first),
+                new OpdfMultiGaussian(new double[]{5.0d, 5.0d}, second),
+                new OpdfMultiGaussian(new double[]{-5.0d, 5.0d}, first));
+        assertSame(first, ((OpdfMultiGaussian) hmm.getOpdf(0).clone()).covarianceMatrix());
+
+        RegularHmmBase<ObservationVector> copy = RegularHmmBase.deepClone(hmm);
+        assertSame(covariance(copy, 0), covariance(copy, 2));
+        assertNotSame(covariance(copy, 0), covariance(copy, 1));
+        for (int i = 0; i < 3; i++) {
+            assertNotSame(hmm.getOpdf(i), copy.getOpdf(i));
+            assertNotSame(covariance(hmm, i), covariance(copy, i));
+            assertEquals(CovarianceStructure.TIED, ((OpdfMultiGaussian) copy.getOpdf(i)).structure());
+            assertTrue(Arrays.deepEquals(covariance(hmm, i).matrix(), covariance(copy, i).matrix()));
+        }
+
+        List<ObservationVector> observations = new ArrayList<>();
+        for (int t = 0; t < 200; t++) {
+            observations.add(new ObservationVector(3.0d * random.nextGaussian(), random.nextGaussian()));
+        }
+        copy.getOpdf(0).fit(observations);
+        assertEquals(1.0d, first.get(0, 0), 0.0d);
+        assertEquals(0.3d, first.get(0, 1), 0.0d);
+        assertFalse(covariance(copy, 0).get(0, 0) == 1.0d);
+        assertEquals(covariance(copy, 0).get(0, 0), covariance(copy, 2).get(0, 0), 0.0d);
+    }
+
+}
@@ -0,0 +1,97 @@
+package jahmm.observables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfSparseIntegerTest extends TestCase {
+
+    final static private double EPSILON = 1.E-12;
+
+    private final Random random = new Random(0x4242);
+
+    /**
+     *
+     */
+    public void testFitMatchesInteger() {
+        List<ObservationInteger> observations = new ArrayList<>();
+        double[] weights = new double[200];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            observations.add(new ObservationInteger(3 * random.nextInt(6)));
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= total;
+        }
+        OpdfInteger dense = new OpdfInteger(20);
+        OpdfSparseInteger sparse = new OpdfSparseInteger(20);
+        dense.fit(observations, weights);
+        sparse.fit(observations, weights);
+        assertEquals(6, sparse.keys().length);
+        double[] expected = new double[20];
+        double[] actual = new double[20];
+        ObservationIntegerSequence all = new ObservationIntegerSequence(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+        dense.probabilities(all, 0, 20, expected);
+        sparse.probabilities(all, 0, 20, actual);
+        for (int k = 0; k < 20; k++) {
+            assertEquals(expected[k], actual[k], EPSILON);
+            assertEquals(expected[k], sparse.probability(new ObservationInteger(k)), EPSILON);
+        }
+    }
+
+    /**
+     *
+     */
+    public void testSmoothingAndAccumulator() throws Exception {
+        int nbEntries = 1000000;
+        OpdfSparseInteger expected = new OpdfSparseInteger(nbEntries, 0.01d);
+        OpdfSparseInteger actual = new OpdfSparseInteger(nbEntries, 0.01d);
+        OpdfAccumulator<ObservationInteger> left = actual.createAccumulator();
+        OpdfAccumulator<ObservationInteger> right = actual.createAccumulator();
+        List<ObservationInteger> observations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ObservationInteger o = new ObservationInteger(random.nextInt(nbEntries));
+            observations.add(o);
+            (i % 2 == 0 ? left : right).add(o, 1.0d);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        right.write(new DataOutputStream(bytes));
+        OpdfAccumulator<ObservationInteger> copy = actual.createAccumulator();
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        left.merge(copy);
+        left.fit();
+        expected.fit(observations);
+
+        int[] keys = actual.keys();
+        double[] probabilities = actual.probabilities();
+        double sum = actual.defaultProbability() * (nbEntries - keys.length);
+        assertEquals(0.01d, sum, 1.E-9);
+        for (int i = 0; i < keys.length; i++) {
+            sum += probabilities[i];
+            assertEquals(expected.probability(new ObservationInteger(keys[i])), probabilities[i], EPSILON);
+        }
+        assertEquals(1.0d, sum, 1.E-9);
+        assertEquals(expected.defaultProbability(), actual.defaultProbability(), EPSILON);
+        int unseen = 0;
+        while (actual.probability(new ObservationInteger(unseen)) != actual.defaultProbability()) {
+            unseen++;
+        }
+        assertTrue(actual.logProbability(new ObservationInteger(unseen)) > Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < 100; i++) {
+            int value = actual.generate().value;
+            assertTrue(value >= 0 && value < nbEntries);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package jahmm.observables;
+
+import jahmm.RegularHmmBase;
+import jahmm.calculators.RegularForwardBackwardScaledCalculatorBase;
+import jahmm.learn.RegularBaumWelchMultiStartLearnerBase;
+import jahmm.learn.RegularBaumWelchScaledLearnerBase;
+import jahmm.toolbox.RegularMarkovGeneratorBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class OpdfTiedGaussianMixtureTest extends TestCase {
+
+    final static private double EPSILON = 1.E-9;
+
+    private final Random random = new Random(0x6789);
+
+    private RegularHmmBase<ObservationReal> tiedHmm(GaussianCodebook codebook) {
+        return new RegularHmmBase<>(new double[]{0.6d, 0.4d},
+                new double[][]{{0.9d, 0.1d}, {0.2d, 0.8d}},
+                new OpdfTiedGaussianMixture(codebook, 0.7d, 0.2d, 0.1d),
+                new OpdfTiedGaussianMixture(codebook, 0.05d, 0.15d, 0.8d));
+    }
+
+    /**
+     *
+     */
+    public void testProbability() {
+        double[] means = {-3.0d, 0.0d, 4.0d};
+        double[] variances = {1.0d, 0.5d, 2.0d};
+        GaussianCodebook codebook = new GaussianCodebook(means, variances);
+        RegularHmmBase<ObservationReal> hmm = tiedHmm(codebook);
+        EmissionBank<ObservationReal> bank = EmissionBank.of(hmm);
+        assertNotNull(bank);
+        double[] logProbabilities = new double[2];
+        double[] probabilities = new double[2];
+        for (int t = 0; t < 30; t++) {
+            ObservationReal o = new ObservationReal(4.0d * random.nextGaussian());
+            bank.logProbabilities(o, logProbabilities);
+            bank.probabilities(o, probabilities);
+            for (int i = 0; i < 2; i++) {
+                OpdfTiedGaussianMixture opdf = (OpdfTiedGaussianMixture) hmm.getOpdf(i);
+                OpdfGaussianMixture expected = new OpdfGaussianMixture(means, variances, opdf.proportions());
+                assertEquals(expected.probability(o), opdf.probability(o), EPSILON);
+                assertEquals(expected.logProbability(o), opdf.logProbability(o), EPSILON);
+                assertEquals(expected.probability(o), probabilities[i], EPSILON);
+                assertEquals(expected.logProbability(o), logProbabilities[i], EPSILON);
+            }
+        }
+        assertEquals(2, hmm.getOpdf(0).nbParameters());
+        RegularHmmBase<ObservationReal> other = new RegularHmmBase<>(2, new OpdfTiedGaussianMixtureFactory(3));
+        other.setOpdf(0x00, hmm.getOpdf(0x00));
+        assertNull(EmissionBank.of(other));
+    }
+
+    /**
+     *
+     */
+    public void testAccumulatorMatchesFit() {
+        List<ObservationReal> observations = new ArrayList<>();
+        double[] weights = new double[300];
+        double total = 0.0d;
+        for (int i = 0; i < weights.length; i++) {
+            observations.add(new ObservationReal(random.nextBoolean() ? random.nextGaussian() : 5.0d + random.nextGaussian()));
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+        GaussianCodebook first = new GaussianCodebook(new double[]{0.5d, 4.0d}, new double[]{1.0d, 1.0d});
+        GaussianCodebook second = new GaussianCodebook(new double[]{0.5d, 4.0d}, new double[]{1.0d, 1.0d});
+        OpdfTiedGaussianMixture expected = new OpdfTiedGaussianMixture(first);
+        OpdfTiedGaussianMixture actual = new OpdfTiedGaussianMixture(second);
+        OpdfAccumulator<ObservationReal> left = actual.createAccumulator();
+        OpdfAccumulator<ObservationReal> right = actual.createAccumulator();
+        for (int i = 0; i < weights.length; i++) {
+            (i < 100 ? left : right).add(observations.get(i), weights[i]);
+            weights[i] /= total;
+        }
+        expected.fit(observations, weights);
+        left.merge(right);
+        left.fit();
+        for (int k = 0; k < 2; k++) {
+            assertEquals(expected.proportions()[k], actual.proportions()[k], EPSILON);
+            assertEquals(first.means()[k], second.means()[k], EPSILON);
+            assertEquals(first.variances()[k], second.variances()[k], EPSILON);
+        }
+        assertEquals(0.0d, first.means()[0], 0.2d);
+        assertEquals(5.0d, first.means()[1], 0.2d);
+    }
+
+    /**
+     *
+     */
+    public void testBaumWelch() {
+        RegularHmmBase<ObservationReal> hmm = tiedHmm(new GaussianCodebook(new double[]{-3.0d, 0.0d, 4.0d}, new double[]{1.0d, 0.5d, 2.0d}));
+        RegularMarkovGeneratorBase<ObservationReal, RegularHmmBase<ObservationReal>> mg = new RegularMarkovGeneratorBase<>(hmm);
+        List<List<ObservationReal>> sequences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequences.add(mg.observationSequence(100));
+        }
+
+        GaussianCodebook codebook = new GaussianCodebook(new double[]{-2.0d, 1.0d, 3.0d}, new double[]{1.0d, 1.0d, 1.0d});
+        RegularHmmBase<ObservationReal> initial = new RegularHmmBase<>(new double[]{0.5d, 0.5d},
+                new double[][]{{0.5d, 0.5d}, {0.5d, 0.5d}},
+                new OpdfTiedGaussianMixture(codebook, 0.5d, 0.3d, 0.2d),
+                new OpdfTiedGaussianMixture(codebook, 0.2d, 0.3d, 0.5d));
+        RegularBaumWelchScaledLearnerBase<ObservationReal, RegularHmmBase<ObservationReal>> bwl = new RegularBaumWelchScaledLearnerBase<>();
+        RegularHmmBase<ObservationReal> learnt = bwl.learn(initial, sequences);
+        OpdfTiedGaussianMixture o0 = (OpdfTiedGaussianMixture) learnt.getOpdf(0);
+        OpdfTiedGaussianMixture o1 = (OpdfTiedGaussianMixture) learnt.getOpdf(1);
+        assertSame(o0.codebook(), o1.codebook());
+        assertNotNull(EmissionBank.of(learnt));
+
+        double expected = 0.0d, actual = 0.0d;
+        for (List<ObservationReal> sequence : sequences) {
+            expected += Math.log(RegularForwardBackwardScaledCalculatorBase.Instance.computeProbability(hmm, sequence));
+            actual += Math.log(RegularForwardBackwardScaledCalculatorBase.Instance.computeProbability(learnt, sequence));
+        }
+        assertTrue(actual > expected - 0.01d * Math.abs(expected));
+    }
+
+    /**
+     *
+     */
+    public void testFactoryScopesCodebooks() {
+        OpdfTiedGaussianMixtureFactory factory = new OpdfTiedGaussianMixtureFactory(3);
+        RegularHmmBase<ObservationReal> first = new RegularHmmBase<>(2, factory);
+        RegularHmmBase<ObservationReal> second = new RegularHmmBase<>(2, factory);
+        GaussianCodebook codebook = ((OpdfTiedGaussianMixture) first.getOpdf(0)).codebook();
+        assertSame(codebook, ((OpdfTiedGaussianMixture) first.getOpdf(1)).codebook());
+        assertNotSame(codebook, ((OpdfTiedGaussianMixture) second.getOpdf(0)).codebook());
+        assertSame(((OpdfTiedGaussianMixture) second.getOpdf(0)).codebook(), ((OpdfTiedGaussianMixture) second.getOpdf(1)).codebook());
+        assertNotSame(factory.generate().codebook(), factory.generate().codebook());
+        assertNotNull(EmissionBank.of(first));
+        assertNotNull(EmissionBank.of(second));
+        codebook.pool(new double[]{1.0d, 1.0d, 1.0d}, new double[]{7.0d, 8.0d, 9.0d}, new double[]{2.0d, 2.0d, 2.0d});
+        assertEquals(7.0d, codebook.means()[0], EPSILON);
+        assertEquals(1.0d / 6.0d, ((OpdfTiedGaussianMixture) second.getOpdf(0)).codebook().means()[0], EPSILON);
+        // 3 free initial and transition probabilities, 2 x 2 proportions and
+        // the means and variances of the codebook, counted once
+        assertEquals(3 + 2 * 2 + 2 * 3, RegularBaumWelchMultiStartLearnerBase.nbParameters(first));
+    }
+
+    /**
+     *
+     */
+    public void testPoolingByOccupancy() {
+        List<ObservationReal> sequence = new ArrayList<>();
+        double mean = 0.0d;
+        for (int t = 0; t < 100; t++) {
+            ObservationReal o = new ObservationReal(t < 90 ? random.nextGaussian() : 100.0d + 5.0d * random.nextGaussian());
+            sequence.add(o);
+            mean += o.value / 100;
+        }
+        double variance = 0.0d;
+        for (ObservationReal o : sequence) {
+            variance += (o.value - mean) * (o.value - mean) / 100;
+        }
+        // with one Gaussian, the state occupancies of every observation sum to
+        // one, such that the pooled Gaussian fits all the observations; the
+        // first state only accounts for the first observations
+        GaussianCodebook codebook = new GaussianCodebook(new double[]{50.0d}, new double[]{1000.0d});
+        RegularHmmBase<ObservationReal> hmm = new RegularHmmBase<>(new double[]{0.99d, 0.01d},
+                new double[][]{{0.8d, 0.2d}, {0.01d, 0.99d}},
+                new OpdfTiedGaussianMixture(codebook),
+                new OpdfTiedGaussianMixture(codebook));
+        List<List<ObservationReal>> sequences = new ArrayList<>();
+        sequences.add(sequence);
+        RegularHmmBase<ObservationReal> learnt = new RegularBaumWelchScaledLearnerBase<ObservationReal, RegularHmmBase<ObservationReal>>().iterate(hmm, sequences);
+        GaussianCodebook pooled = ((OpdfTiedGaussianMixture) learnt.getOpdf(0)).codebook();
+        assertEquals(mean, pooled.means()[0], 1.E-6);
+        assertEquals(variance, pooled.variances()[0], 1.E-6);
+    }
+
+    /**
+     *
+     * @throws CloneNotSupportedException
+     */
+    public void testDeepCloneRetiesCodebook() throws CloneNotSupportedException {
+        GaussianCodebook codebook = new GaussianCodebook(new double[]{-3.0d, 0.0d, 4.0d}, new double[]{1.0d, 0.5d, 2.0d});
+        RegularHmmBase<ObservationReal> hmm = tiedHmm(codebook);
+        assertSame(codebook, ((OpdfTiedGaussianMixture) hmm.getOpdf(0).clone()).codebook());
+
+        RegularHmmBase<ObservationReal> copy = RegularHmmBase.deepClone(hmm);
+        OpdfTiedGaussianMixture o0 = (OpdfTiedGaussianMixture) copy.getOpdf(0);
+        OpdfTiedGaussianMixture o1 = (OpdfTiedGaussianMixture) copy.getOpdf(1);
+        assertSame(o0.codebook(), o1.codebook());
+        assertNotSame(codebook, o0.codebook());
+        assertNotNull(EmissionBank.of(copy));
+        for (int i = 0; i < 2; i++) {
+            double[] expected = ((OpdfTiedGaussianMixture) hmm.getOpdf(i)).proportions();
+            double[] actual = ((OpdfTiedGaussianMixture) copy.getOpdf(i)).proportions();
+            for (int k = 0; k < 3; k++) {
+                assertEquals(expected[k], actual[k], EPSILON);
+            }
+        }
+
+        List<ObservationReal> observations = new ArrayList<>();
+        for (int t = 0; t < 100; t++) {
+            observations.add(new ObservationReal(10.0d + random.nextGaussian()));
+        }
+        o0.fit(observations);
+        assertEquals(4.0d, codebook.means()[2], 0.0d);
+        assertEquals(2.0d, codebook.variances()[2], 0.0d);
+        assertFalse(o1.codebook().means()[2] == 4.0d);
+    }
+
+}
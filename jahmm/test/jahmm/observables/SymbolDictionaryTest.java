@@ -0,0 +1,75 @@
+package jahmm.observables;
+
+import jahmm.DiscreteHmm;
+import jahmm.jadetree.foo.FooEnum;
+import jahmm.learn.DiscreteBaumWelchLearner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author kommusoft
+ */
+public class SymbolDictionaryTest extends TestCase {
+
+    private static List<ObservationDiscrete<String>> words(String... words) {
+        List<ObservationDiscrete<String>> result = new ArrayList<>();
+        for (String word : words) {
+            result.add(new ObservationDiscrete<>(word));
+        }
+        return result;
+    }
+
+    /**
+     *
+     */
+    public void testEncode() {
+        SymbolDictionary<String> dictionary = new SymbolDictionary<>();
+        ObservationIntegerSequence codes = dictionary.add(words("a", "b", "a", "c"));
+        assertTrue(Arrays.equals(new int[]{1, 2, 1, 3}, codes.values()));
+        assertEquals(4, dictionary.size());
+        assertEquals("b", dictionary.symbol(2));
+        assertNull(dictionary.symbol(SymbolDictionary.OOV));
+        assertTrue(Arrays.equals(new int[]{3, SymbolDictionary.OOV, 1}, dictionary.encode(words("c", "d", "a")).values()));
+        assertEquals(4, dictionary.size());
+        List<ObservationDiscrete<String>> decoded = dictionary.decode(codes);
+        assertEquals("a", decoded.get(2).value);
+        assertEquals("c", decoded.get(3).value);
+
+        SymbolDictionary<FooEnum> enums = SymbolDictionary.of(FooEnum.class);
+        assertEquals(FooEnum.values().length + 1, enums.size());
+        List<ObservationEnum<FooEnum>> observations = new ArrayList<>();
+        observations.add(new ObservationEnum<>(FooEnum.Quux));
+        observations.add(new ObservationEnum<>(FooEnum.Foo));
+        assertTrue(Arrays.equals(new int[]{FooEnum.Quux.ordinal() + 1, 1}, enums.encode(observations).values()));
+    }
+
+    /**
+     *
+     */
+    public void testModelDictionary() {
+        SymbolDictionary<String> dictionary = new SymbolDictionary<>();
+        List<ObservationIntegerSequence> sequences = new ArrayList<>();
+        sequences.add(dictionary.add(words("a", "a", "b", "b", "a", "a", "b")));
+        sequences.add(dictionary.add(words("b", "b", "a", "a", "a", "b")));
+        DiscreteHmm hmm = new DiscreteHmm(2, dictionary);
+        hmm.setBik(0, 1, 0.5d);
+        hmm.setBik(0, 2, 0.3d);
+        hmm.setBik(0, SymbolDictionary.OOV, 0.2d);
+        DiscreteBaumWelchLearner learner = new DiscreteBaumWelchLearner();
+        DiscreteHmm learnt = learner.learn(hmm, sequences);
+        assertSame(dictionary, learnt.dictionary());
+        dictionary.add("c");
+        ObservationIntegerSequence encoded = learnt.encode(words("a", "c", "z"));
+        assertTrue(Arrays.equals(new int[]{1, SymbolDictionary.OOV, SymbolDictionary.OOV}, encoded.values()));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(learner.getOovProbability(), learnt.getBik(i, SymbolDictionary.OOV), 1.E-12);
+        }
+        double lnProbability = learnt.lnProbability(encoded);
+        assertFalse(Double.isInfinite(lnProbability) || Double.isNaN(lnProbability));
+        assertTrue(learnt.lnProbability(learnt.encode(words("a", "b", "a"))) > Double.NEGATIVE_INFINITY);
+    }
+
+}
@@ -0,0 +1,50 @@
+package utils;
+
+import jahmm.RegularHmmBase;
+import jahmm.observables.Observation;
+import jahmm.observables.Opdf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import junit.framework.Assert;
+
+/**
+ *
+ * @author kommusoft
+ */
+public final class TestModels {
+
+    private static final Logger LOG = Logger.getLogger(TestModels.class.getName());
+
+    /**
+     * Copies a model deeply: unlike {@link RegularHmmBase#clone()}, the copy
+     * does not share its observation distributions with the original, such
+     * that learners can be compared on the same initial model.
+     *
+     * @param <O> The type of the observations.
+     * @param hmm The model to copy.
+     * @return A deep copy of the model.
+     */
+    public static <O extends Observation> RegularHmmBase<O> copy(RegularHmmBase<O> hmm) {
+        int n = hmm.nbStates();
+        double[] pi = new double[n];
+        double[][] a = new double[n][n];
+        List<Opdf<O>> opdfs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            pi[i] = hmm.getPi(i);
+            for (int j = 0; j < n; j++) {
+                a[i][j] = hmm.getAij(i, j);
+            }
+            try {
+                opdfs.add(hmm.getOpdf(i).clone());
+            } catch (CloneNotSupportedException ex) {
+                Assert.fail();
+            }
+        }
+        return new RegularHmmBase<>(pi, a, opdfs);
+    }
+
+    private TestModels() {
+    }
+
+}